@@ -4,20 +4,84 @@ package dev.amiah.budget_tracker.assembler;
 import dev.amiah.budget_tracker.controller.ExpenseController;
 import dev.amiah.budget_tracker.model.Expense;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.time.format.DateTimeFormatter;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
+/**
+ * Adds {@code self} and {@code expenses} links to {@code Expense}s.
+ * <p>
+ * Building a link with {@code linkTo(methodOn(...))} creates a proxy and resolves the controller's mapping
+ * every time, which is slow when a response holds thousands of expenses. Instead, both links are resolved
+ * once per request and cached as a request attribute; each {@code self} link is then just the cached
+ * prefix followed by the expense's {@code id}, and every expense shares the same {@code expenses} link.
+ */
 @Component
 public class ExpenseModelAssembler implements RepresentationModelAssembler<Expense, EntityModel<Expense>> {
 
+    private static final String LINKS_ATTRIBUTE = ExpenseModelAssembler.class.getName() + ".LINKS";
+
+    private static final String ID_VARIABLE = "{id}";
+
     @Override
     public EntityModel<Expense> toModel(Expense expense) {
+        ExpenseLinks links = currentLinks();
 
         return EntityModel.of(expense,
-                linkTo(methodOn(ExpenseController.class).one(expense.getId())).withSelfRel(),
-                linkTo(methodOn(ExpenseController.class).all()).withRel("expenses"));
+                Link.of(links.selfPrefix() + expense.getId(), IanaLinkRelations.SELF),
+                links.expenses());
     }
+
+    /**
+     * Creates an assembler whose {@code Expense}s render {@code timeFormatted} with {@code formatter}. Each
+     * {@code Expense} is copied first, so the ones passed in are left unchanged.
+     *
+     * @param formatter The formatter to use, such as a {@code UserPreference}'s date formatter.
+     * @return An assembler that formats with {@code formatter}.
+     */
+    public RepresentationModelAssembler<Expense, EntityModel<Expense>> formattedWith(DateTimeFormatter formatter) {
+        return expense -> toModel(expense.formattedWith(formatter));
+    }
+
+    /**
+     * @return The links for the current request, resolving them if this is the first {@code Expense} in it.
+     */
+    private static ExpenseLinks currentLinks() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return resolveLinks();
+        }
+
+        ExpenseLinks links = (ExpenseLinks) attributes.getAttribute(LINKS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (links == null) {
+            links = resolveLinks();
+            attributes.setAttribute(LINKS_ATTRIBUTE, links, RequestAttributes.SCOPE_REQUEST);
+        }
+
+        return links;
+    }
+
+    private static ExpenseLinks resolveLinks() {
+        // Leaving the id out keeps it as a template variable, so the href is everything before "{id}"
+        String selfTemplate = linkTo(methodOn(ExpenseController.class).one(null, null)).withSelfRel().getHref();
+        String selfPrefix = selfTemplate.substring(0, selfTemplate.indexOf(ID_VARIABLE));
+
+        return new ExpenseLinks(selfPrefix, linkTo(methodOn(ExpenseController.class).all(null, null)).withRel("expenses").expand());
+    }
+
+    /**
+     * The parts of an {@code Expense}'s links that are the same for every {@code Expense} in a request.
+     *
+     * @param selfPrefix The {@code self} link without the {@code id}.
+     * @param expenses The {@code expenses} link.
+     */
+    private record ExpenseLinks(String selfPrefix, Link expenses) {}
 }
@@ -0,0 +1,29 @@
+package dev.amiah.budget_tracker.assembler;
+
+
+import dev.amiah.budget_tracker.controller.ImportController;
+import dev.amiah.budget_tracker.model.ImportJob;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.server.RepresentationModelAssembler;
+import org.springframework.stereotype.Component;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@Component
+public class ImportJobModelAssembler implements RepresentationModelAssembler<ImportJob, EntityModel<ImportJob>> {
+
+    @Override
+    public EntityModel<ImportJob> toModel(ImportJob job) {
+
+        EntityModel<ImportJob> model = EntityModel.of(job,
+                linkTo(methodOn(ImportController.class).one(job.getId())).withSelfRel(),
+                linkTo(methodOn(ImportController.class).all()).withRel("imports"));
+
+        if (job.getStatus().isResumable()) {
+            model.add(linkTo(methodOn(ImportController.class).resume(job.getId())).withRel("resume"));
+        }
+
+        return model;
+    }
+}
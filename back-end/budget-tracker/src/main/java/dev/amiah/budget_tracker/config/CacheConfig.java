@@ -0,0 +1,52 @@
+package dev.amiah.budget_tracker.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * The in-memory caches in front of the repositories. Each cache is bounded in size and expires entries after a
+ * while, so that anything missed by eviction is only stale for a limited time.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /** {@code Expense}s by id. */
+    public static final String EXPENSES = "expenses";
+    /** {@code UserPreference}s by id. */
+    public static final String USER_PREFERENCES = "userPreferences";
+    /** The list of every {@code UserPreference}, under a single key. */
+    public static final String ALL_USER_PREFERENCES = "allUserPreferences";
+    /** Responses to requests sent with an {@code Idempotency-Key}, by key. */
+    public static final String IDEMPOTENCY_KEYS = "idempotencyKeys";
+
+    /**
+     * @param expensesSpec The Caffeine spec of the expense cache.
+     * @param userPreferencesSpec The Caffeine spec of the user preference caches.
+     * @param idempotencyKeysSpec The Caffeine spec of the idempotency key cache.
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${budget-tracker.cache.expenses}") String expensesSpec,
+                                     @Value("${budget-tracker.cache.user-preferences}") String userPreferencesSpec,
+                                     @Value("${budget-tracker.cache.idempotency-keys}") String idempotencyKeysSpec)
+    {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // No caches other than these, so a misspelled cache name fails instead of creating an unbounded cache
+        cacheManager.setCacheNames(List.of());
+
+        cacheManager.registerCustomCache(EXPENSES, Caffeine.from(expensesSpec).build());
+        cacheManager.registerCustomCache(USER_PREFERENCES, Caffeine.from(userPreferencesSpec).build());
+        cacheManager.registerCustomCache(ALL_USER_PREFERENCES, Caffeine.from(userPreferencesSpec).build());
+        cacheManager.registerCustomCache(IDEMPOTENCY_KEYS, Caffeine.from(idempotencyKeysSpec).build());
+
+        return cacheManager;
+    }
+
+}
@@ -0,0 +1,94 @@
+package dev.amiah.budget_tracker.config;
+
+import org.flywaydb.core.api.callback.Callback;
+import org.flywaydb.core.api.callback.Context;
+import org.flywaydb.core.api.callback.Event;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Drops {@code idx_expense_time_id} before V2 creates it, if the index is already there. Databases that ran with
+ * {@code ddl-auto=update} while the index was declared on {@code Expense} got it from Hibernate, and neither MySQL
+ * nor H2 in MySQL mode can make {@code CREATE INDEX} skip an existing index in a way both understand. Doing it here
+ * keeps V2's checksum the same for databases that have already run it.
+ */
+@Component
+public class KeysetIndexCallback implements Callback {
+
+    static final String INDEX = "idx_expense_time_id";
+    private static final String MIGRATION_VERSION = "2";
+
+    @Override
+    public boolean supports(Event event, Context context) {
+        return event == Event.BEFORE_MIGRATE;
+    }
+
+    @Override
+    public boolean canHandleInTransaction(Event event, Context context) {
+        return true;
+    }
+
+    @Override
+    public void handle(Event event, Context context) {
+        Connection connection = context.getConnection();
+        try {
+            if (!hasRun(connection, context.getConfiguration().getTable()) && hasIndex(connection)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DROP INDEX " + INDEX + " ON expense");
+                }
+            }
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Could not check for " + INDEX, e);
+        }
+    }
+
+    @Override
+    public String getCallbackName() {
+        return "keysetIndex";
+    }
+
+    private static boolean hasRun(Connection connection, String historyTable) throws SQLException {
+        if (!hasTable(connection, historyTable)) {
+            return false;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT COUNT(*) FROM " + historyTable + " WHERE version = ? AND success = TRUE"))
+        {
+            statement.setString(1, MIGRATION_VERSION);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getLong(1) > 0;
+            }
+        }
+    }
+
+    private static boolean hasTable(Connection connection, String table) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getTables(connection.getCatalog(), connection.getSchema(), table, null)) {
+            return rs.next();
+        }
+    }
+
+    private static boolean hasIndex(Connection connection) throws SQLException {
+        if (!hasTable(connection, "expense")) {
+            return false;
+        }
+
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), connection.getSchema(), "expense", false, false)) {
+            while (rs.next()) {
+                if (INDEX.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+}
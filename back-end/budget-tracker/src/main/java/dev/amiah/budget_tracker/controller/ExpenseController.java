@@ -1,41 +1,123 @@
 package dev.amiah.budget_tracker.controller;
 
 import dev.amiah.budget_tracker.assembler.ExpenseModelAssembler;
+import dev.amiah.budget_tracker.dto.BalancePoint;
+import dev.amiah.budget_tracker.dto.BatchItemResult;
+import dev.amiah.budget_tracker.dto.ExpenseChanges;
+import dev.amiah.budget_tracker.dto.ExpenseFilter;
+import dev.amiah.budget_tracker.dto.ExpenseSummary;
 import dev.amiah.budget_tracker.dto.TotalBalanceObject;
+import dev.amiah.budget_tracker.event.ExpenseChangedEvent;
 import dev.amiah.budget_tracker.exception.ExpenseNotFoundException;
+import dev.amiah.budget_tracker.exception.ExpenseVersionMismatchException;
+import dev.amiah.budget_tracker.exception.UserPreferenceNotFoundException;
 import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.UserPreference;
 import dev.amiah.budget_tracker.repository.ExpenseRepository;
+import dev.amiah.budget_tracker.repository.UserPreferenceRepository;
+import dev.amiah.budget_tracker.service.BalanceBucket;
+import dev.amiah.budget_tracker.service.BalanceLedger;
+import dev.amiah.budget_tracker.service.BalanceSeriesService;
+import dev.amiah.budget_tracker.service.ExpenseBatchService;
+import dev.amiah.budget_tracker.service.ExpenseChangeLog;
+import dev.amiah.budget_tracker.service.ExpenseDataVersion;
+import dev.amiah.budget_tracker.service.ExpenseDuplicateService;
+import dev.amiah.budget_tracker.service.ExpenseEventBroadcaster;
+import dev.amiah.budget_tracker.service.ExpenseExportService;
+import dev.amiah.budget_tracker.service.ExpenseRollupService;
+import dev.amiah.budget_tracker.service.ExpenseSearchService;
+import dev.amiah.budget_tracker.service.ExpenseUpdateService;
+import dev.amiah.budget_tracker.service.ExportFormat;
+import dev.amiah.budget_tracker.service.SummaryGrouping;
+import dev.amiah.budget_tracker.util.ExpenseCursor;
+import dev.amiah.budget_tracker.util.VersionETag;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Window;
 import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.PagedModel;
+import org.springframework.hateoas.server.RepresentationModelAssembler;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import static dev.amiah.budget_tracker.util.ControllerUtil.setIfNotNull;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
 @RestController
 public class ExpenseController {
 
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final int MAX_CHANGES = 1000;
+
     private final ExpenseRepository repository;
     private final ExpenseModelAssembler assembler;
     private final PagedResourcesAssembler<Expense> pagedAssembler;
+    private final ExpenseExportService exportService;
+    private final ExpenseBatchService batchService;
+    private final BalanceLedger balanceLedger;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserPreferenceRepository userPreferenceRepository;
+    private final ExpenseRollupService rollupService;
+    private final ExpenseSearchService searchService;
+    private final ExpenseUpdateService updateService;
+    private final ExpenseDataVersion dataVersion;
+    private final ExpenseChangeLog changeLog;
+    private final ExpenseEventBroadcaster eventBroadcaster;
+    private final ExpenseDuplicateService duplicateService;
+    private final BalanceSeriesService balanceSeriesService;
 
     public ExpenseController(ExpenseRepository repository, ExpenseModelAssembler assembler,
-                             PagedResourcesAssembler<Expense> pagedAssembler)
+                             PagedResourcesAssembler<Expense> pagedAssembler, ExpenseExportService exportService,
+                             ExpenseBatchService batchService, BalanceLedger balanceLedger,
+                             ApplicationEventPublisher eventPublisher, UserPreferenceRepository userPreferenceRepository,
+                             ExpenseRollupService rollupService, ExpenseSearchService searchService,
+                             ExpenseUpdateService updateService, ExpenseDataVersion dataVersion,
+                             ExpenseChangeLog changeLog, ExpenseEventBroadcaster eventBroadcaster,
+                             ExpenseDuplicateService duplicateService, BalanceSeriesService balanceSeriesService)
     {
         this.repository = repository;
         this.assembler = assembler;
         this.pagedAssembler = pagedAssembler;
+        this.exportService = exportService;
+        this.batchService = batchService;
+        this.balanceLedger = balanceLedger;
+        this.eventPublisher = eventPublisher;
+        this.userPreferenceRepository = userPreferenceRepository;
+        this.rollupService = rollupService;
+        this.searchService = searchService;
+        this.updateService = updateService;
+        this.dataVersion = dataVersion;
+        this.changeLog = changeLog;
+        this.eventBroadcaster = eventBroadcaster;
+        this.duplicateService = duplicateService;
+        this.balanceSeriesService = balanceSeriesService;
     }
 
     /**
@@ -43,38 +125,255 @@ public class ExpenseController {
      *
      * @param page Which page of entries should be retrieved
      * @param size The number of entries per page
-     * @return A page of {@code Expense}s.
+     * @param preference The {@code id} of a {@code UserPreference} to format dates with, if any
+     * @param filter Which expenses to include, from the {@code from}, {@code to}, {@code category},
+     *               {@code type}, and {@code counterparty} parameters
+     * @return A page of {@code Expense}s, or {@code null} for a 304 if the client's copy is current.
      */
     @GetMapping("/api/expenses/paged")
     public PagedModel<EntityModel<Expense>> findExpensesPaged(@RequestParam(value = "page", defaultValue = "0") int page,
-                                                              @RequestParam(value = "size", defaultValue = "20") int size)
+                                                              @RequestParam(value = "size", defaultValue = "20") int size,
+                                                              @RequestParam(value = "preference", required = false) Long preference,
+                                                              ExpenseFilter filter, NativeWebRequest request)
     {
+        if (notModified(request)) {
+            return null;
+        }
+
         Pageable pageable = PageRequest.of(page, size);
-        Page<Expense> pagedExpenses = repository.findAllByOrderByTimeDesc(pageable);
+        Page<Expense> pagedExpenses = repository.findAllMatching(filter, pageable);
 
-        return pagedAssembler.toModel(pagedExpenses, assembler);
+        return pagedAssembler.toModel(pagedExpenses, assemblerFor(preference));
     }
 
     /**
-     * @return A sum of all {@code Expense} amount values.
+     * Retrieves expenses ordered by time descending using keyset pagination. Instead of a page number, the
+     * client passes the opaque {@code cursor} from the previous response's {@code next} link; an empty
+     * cursor starts at the most recent expense. No count query is issued and every page costs the same
+     * regardless of how far into the data it is.
+     *
+     * @param cursor The continuation token from a previous page, or empty for the first page
+     * @param size The number of entries per page, at most {@value #MAX_CURSOR_PAGE_SIZE}
+     * @param preference The {@code id} of a {@code UserPreference} to format dates with, if any
+     * @param filter Which expenses to include, the same as for offset pagination
+     * @return A page of {@code Expense}s with a {@code next} link if more entries exist, or {@code null} for a 304
+     *         if the client's copy is current.
+     */
+    @GetMapping(value = "/api/expenses/paged", params = "cursor")
+    public CollectionModel<EntityModel<Expense>> findExpensesByCursor(@RequestParam(value = "cursor") String cursor,
+                                                                      @RequestParam(value = "size", defaultValue = "20") int size,
+                                                                      @RequestParam(value = "preference", required = false) Long preference,
+                                                                      ExpenseFilter filter, NativeWebRequest request)
+    {
+        if (notModified(request)) {
+            return null;
+        }
+
+        RepresentationModelAssembler<Expense, EntityModel<Expense>> expenseAssembler = assemblerFor(preference);
+        Window<Expense> window = repository.scrollMatching(filter, ExpenseCursor.decode(cursor),
+                Limit.of(Math.clamp(size, 1, MAX_CURSOR_PAGE_SIZE)));
+
+        // Build the links from the request itself so they keep every filter parameter
+        CollectionModel<EntityModel<Expense>> expenses = CollectionModel.of(window.map(expenseAssembler::toModel).getContent(),
+                Link.of(ServletUriComponentsBuilder.fromCurrentRequest().toUriString()).withSelfRel());
+
+        if (window.hasNext() && !window.isEmpty()) {
+            String next = ExpenseCursor.encode(window.getContent().getLast());
+            expenses.add(Link.of(ServletUriComponentsBuilder.fromCurrentRequest().replaceQueryParam("cursor", next)
+                    .toUriString()).withRel(IanaLinkRelations.NEXT));
+        }
+
+        return expenses;
+    }
+
+    /**
+     * @return A sum of all {@code Expense} amount values, read from the {@link BalanceLedger}, or {@code null} for a
+     *         304 if the client's copy is current.
      */
     @GetMapping("/api/expenses/total")
-    public TotalBalanceObject getTotalBalance() {
-        return new TotalBalanceObject(repository.getTotalBalance());
+    public TotalBalanceObject getTotalBalance(NativeWebRequest request) {
+        if (notModified(request)) {
+            return null;
+        }
+
+        return new TotalBalanceObject(balanceLedger.getTotal());
+    }
+
+    /**
+     * Lists what changed since a client last synced, read from the {@link ExpenseChangeLog}: the expenses that were
+     * created or updated as they are now, and the ids of those that were deleted, together with the total balance.
+     * The client passes the returned {@code version} as {@code since} next time. If there are more changes than
+     * {@code limit}, the response has a {@code next} link and no total.
+     *
+     * @param since The {@code version} from the previous response, or 0 to start from the beginning of the log
+     * @param limit The most changes to read, up to 1000
+     * @param preference The {@code id} of a {@code UserPreference} to format dates with, if any
+     * @return The changes since {@code since}, or a 410 if they are older than the log keeps, whose {@code version}
+     *         is where to sync from after reloading every expense.
+     */
+    @GetMapping("/api/expenses/changes")
+    public ExpenseChanges changes(@RequestParam(value = "since") long since,
+                                  @RequestParam(value = "limit", defaultValue = "500") int limit,
+                                  @RequestParam(value = "preference", required = false) Long preference)
+    {
+        RepresentationModelAssembler<Expense, EntityModel<Expense>> expenseAssembler = assemblerFor(preference);
+        ExpenseChangeLog.Changes changes = changeLog.changesSince(since, Math.clamp(limit, 1, MAX_CHANGES));
+
+        List<ExpenseChanges.Change> items = changes.changes().stream()
+                .map(change -> new ExpenseChanges.Change(change.seq(), change.type(), change.id(),
+                        change.expense() != null ? expenseAssembler.toModel(change.expense()) : null))
+                .toList();
+
+        ExpenseChanges body = new ExpenseChanges(changes.version(), changes.total(), items);
+        body.add(linkTo(methodOn(ExpenseController.class).changes(since, limit, preference)).withSelfRel().expand());
+        if (changes.hasMore()) {
+            body.add(linkTo(methodOn(ExpenseController.class).changes(changes.version(), limit, preference))
+                    .withRel(IanaLinkRelations.NEXT).expand());
+        }
+
+        return body;
+    }
+
+    /**
+     * Streams server-sent events named "expenses" whenever expenses change, one per committed write, with the
+     * changed expenses and the new total balance. Clients that fall too far behind are disconnected, and should
+     * catch up with {@link #changes} after reconnecting.
+     *
+     * @return An emitter that stays open until the client disconnects or the request times out.
+     */
+    @GetMapping(value = "/api/expenses/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events() {
+        return eventBroadcaster.subscribe();
+    }
+
+    /**
+     * Sums expenses by category, month, or year, read from the rollups kept by {@link ExpenseRollupService}.
+     *
+     * @param groupBy Any of "category", "month", and "year", comma separated. Empty for one overall total
+     * @param from The first month to include, such as "2024-01", or none for no lower bound
+     * @param to The last month to include, or none for no upper bound
+     * @return The sum and count of each group, ordered by period and then category.
+     */
+    @GetMapping("/api/expenses/summary")
+    public CollectionModel<ExpenseSummary> summary(@RequestParam(value = "groupBy", defaultValue = "") List<String> groupBy,
+                                                   @RequestParam(value = "from", required = false) YearMonth from,
+                                                   @RequestParam(value = "to", required = false) YearMonth to)
+    {
+        List<ExpenseSummary> summaries = rollupService.summarize(SummaryGrouping.fromStrings(groupBy), from, to);
+
+        return CollectionModel.of(summaries,
+                linkTo(methodOn(ExpenseController.class).summary(groupBy, from, to)).withSelfRel().expand());
+    }
+
+    /**
+     * Charts the running balance over a range of days, read from the daily balances kept by
+     * {@link BalanceSeriesService}, so it costs the same however many expenses there are.
+     *
+     * @param from The first day to include, such as "2024-01-01", or none for a year before {@code to}
+     * @param to The last day to include, or none for today
+     * @param bucket One of "day", "week" (starting on Monday), or "month"
+     * @return The net amount of each bucket and the balance at its end, in order.
+     */
+    @GetMapping("/api/expenses/balance-series")
+    public CollectionModel<BalancePoint> balanceSeries(@RequestParam(value = "from", required = false)
+                                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                       @RequestParam(value = "to", required = false)
+                                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                       @RequestParam(value = "bucket", defaultValue = "month") String bucket)
+    {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusYears(1).plusDays(1);
+        List<BalancePoint> points = balanceSeriesService.series(start, end, BalanceBucket.fromString(bucket));
+
+        return CollectionModel.of(points,
+                linkTo(methodOn(ExpenseController.class).balanceSeries(from, to, bucket)).withSelfRel().expand());
+    }
+
+    /**
+     * Rebuilds the summary rollups from the {@code expense} table, for backfilling after expenses were changed
+     * outside the application.
+     *
+     * @return An HTTP 204 no content response.
+     */
+    @PostMapping("/api/expenses/summary/rebuild")
+    public ResponseEntity<?> rebuildSummary() {
+        rollupService.rebuild();
+
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Searches expense names and counterparties, answered from the in-memory index kept by
+     * {@link ExpenseSearchService}. Every word of the query has to match a word of the expense, either whole or
+     * as its start, so "cof star" finds "Coffee at Starbucks".
+     *
+     * @param q The words to search for
+     * @param fuzzy Whether to also match words with one or two typos, such as "cofee" for "coffee"
+     * @param limit The maximum number of results, up to 100
+     * @param preference The {@code id} of a {@code UserPreference} to format dates with, if any
+     * @return The matching {@code Expense}s, most recent first.
+     */
+    @GetMapping("/api/expenses/search")
+    public CollectionModel<EntityModel<Expense>> search(@RequestParam(value = "q") String q,
+                                                        @RequestParam(value = "fuzzy", defaultValue = "false") boolean fuzzy,
+                                                        @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                                        @RequestParam(value = "preference", required = false) Long preference)
+    {
+        RepresentationModelAssembler<Expense, EntityModel<Expense>> expenseAssembler = assemblerFor(preference);
+        List<Long> ids = searchService.search(q, fuzzy, Math.clamp(limit, 0, MAX_SEARCH_RESULTS));
+
+        // findAllById doesn't keep the order of the ids, so put the results back in rank order
+        Map<Long, Integer> ranks = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            ranks.put(ids.get(i), i);
+        }
+        List<EntityModel<Expense>> expenses = repository.findAllById(ids).stream()
+                .sorted(Comparator.comparing(expense -> ranks.get(expense.getId())))
+                .map(expenseAssembler::toModel)
+                .toList();
+
+        return CollectionModel.of(expenses,
+                linkTo(methodOn(ExpenseController.class).search(q, fuzzy, limit, preference)).withSelfRel().expand());
+    }
+
+    /**
+     * Streams every {@code Expense} in the database as newline-delimited JSON or CSV. Rows are written to the
+     * response as they are read, so memory use stays flat regardless of how many expenses there are.
+     *
+     * @param format Either "ndjson" (the default) or "csv"
+     * @return A response that writes the export as its body, or a 400 if {@code format} is neither.
+     */
+    @GetMapping("/api/expenses/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.fromString(format);
+        StreamingResponseBody body = out -> exportService.export(exportFormat, out);
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("expenses." + exportFormat.getExtension()).build().toString())
+                .body(body);
     }
 
     // Basic CRUD operations
 
     /**
-     * @return All {@code Expense}s in the database.
+     * @param preference The {@code id} of a {@code UserPreference} to format dates with, if any
+     * @return All {@code Expense}s in the database, or {@code null} for a 304 if the client's copy is current.
      */
     @GetMapping("/api/expenses")
-    public CollectionModel<EntityModel<Expense>> all() {
+    public CollectionModel<EntityModel<Expense>> all(@RequestParam(value = "preference", required = false) Long preference,
+                                                     NativeWebRequest request)
+    {
+        if (notModified(request)) {
+            return null;
+        }
+
         // Add links to each expense and link to aggregate root (which happens to be this method)
-        List<EntityModel<Expense>> expenses =  repository.findAll().stream().map(assembler::toModel).toList();
+        List<EntityModel<Expense>> expenses =  repository.findAll().stream().map(assemblerFor(preference)::toModel).toList();
 
         // Return the above, with a link to self
-        return CollectionModel.of(expenses, linkTo(methodOn(ExpenseController.class).all()).withSelfRel());
+        return CollectionModel.of(expenses, linkTo(methodOn(ExpenseController.class).all(preference, null)).withSelfRel());
     }
 
     /**
@@ -84,10 +383,27 @@ public class ExpenseController {
      * @return A response with the saved {@code Expense}.
      */
     @PostMapping("/api/expenses")
+    @Transactional
     public ResponseEntity<?> insert(@RequestBody Expense expense) {
-        EntityModel<Expense> entityModel = assembler.toModel(repository.save(expense));
+        return created(insertNew(expense));
+    }
+
+    /**
+     * Saves many new {@code Expense}s in one request. Valid expenses are saved even if others in the same
+     * request are rejected.
+     *
+     * @param expenses The new {@code Expense}s to save.
+     * @param rejectDuplicates Whether to skip expenses with the same amount, time, counterparty, and name as one
+     *                         that is already saved, such as when loading a bank export again.
+     * @return The result of each item, in the same order as the request.
+     */
+    @PostMapping("/api/expenses/batch")
+    public CollectionModel<BatchItemResult> insertBatch(@RequestBody List<Expense> expenses,
+                                                        @RequestParam(value = "rejectDuplicates", defaultValue = "false") boolean rejectDuplicates)
+    {
+        List<BatchItemResult> results = batchService.insertAll(expenses, rejectDuplicates ? duplicateService.newSession() : null);
 
-        return ResponseEntity.created(entityModel.getRequiredLink(IanaLinkRelations.SELF).toUri()).body(entityModel);
+        return CollectionModel.of(results, linkTo(methodOn(ExpenseController.class).all(null, null)).withRel("expenses").expand());
     }
 
     /**
@@ -95,13 +411,16 @@ public class ExpenseController {
      * and returns it.
      *
      * @param id The {@code id} of the {@code Expense} to find.
-     * @return The found {@code Expense}.
+     * @param preference The {@code id} of a {@code UserPreference} to format dates with, if any
+     * @return The found {@code Expense}, with its version as the ETag.
      */
     @GetMapping("/api/expenses/{id}")
-    public EntityModel<Expense> one(@PathVariable Long id) {
-        Expense expense = repository.findById(id).orElseThrow(() -> new ExpenseNotFoundException(id));
+    public ResponseEntity<EntityModel<Expense>> one(@PathVariable Long id,
+                                                    @RequestParam(value = "preference", required = false) Long preference)
+    {
+        Expense expense = repository.findCachedById(id).orElseThrow(() -> new ExpenseNotFoundException(id));
 
-        return assembler.toModel(expense);
+        return ResponseEntity.ok().eTag(VersionETag.of(expense.getVersion())).body(assemblerFor(preference).toModel(expense));
     }
 
     /**
@@ -111,23 +430,25 @@ public class ExpenseController {
      *
      * @param expense The new {@code Expense} data to save.
      * @param id The {@code id} of the {@code Expense} to be updated.
+     * @param ifMatch The ETag of the version being replaced, if the update should only happen at that version
      * @return A response with the updated {@code Expense}, or a newly inserted one if no existing entry matched the {@code id}.
+     * @throws ExpenseVersionMismatchException If {@code ifMatch} doesn't match the current version.
      */
     @PutMapping("/api/expenses/{id}")
-    public ResponseEntity<?> update(@RequestBody Expense expense, @PathVariable Long id) {
-        Expense updatedExpense = repository.findById(id)
-            .map(dbExpense -> {
-                dbExpense.setName(expense.getName());
-                dbExpense.setAmount(expense.getAmount());
-                dbExpense.setTime(expense.getTime());
-                dbExpense.setCounterparty(expense.getCounterparty());
-                dbExpense.setCategory(expense.getCategory());
-                return repository.save(dbExpense);
-            }).orElseGet(() -> repository.save(expense));
-
-        EntityModel<Expense> entityModel = assembler.toModel(updatedExpense);
+    @Transactional
+    public ResponseEntity<?> update(@RequestBody Expense expense, @PathVariable Long id,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+    {
+        Expense updatedExpense = updateService.replace(id, expense, VersionETag.parseIfMatch(ifMatch))
+            .orElseGet(() -> {
+                // If-Match never matches a missing expense
+                if (ifMatch != null) {
+                    throw new ExpenseVersionMismatchException(id);
+                }
+                return insertNew(expense);
+            });
 
-        return ResponseEntity.created(entityModel.getRequiredLink(IanaLinkRelations.SELF).toUri()).body(entityModel);
+        return created(updatedExpense);
     }
 
 
@@ -138,35 +459,101 @@ public class ExpenseController {
      *
      * @param expense The new {@code Expense} data to save.
      * @param id The {@code id} of the {@code Expense} to be patched.
+     * @param ifMatch The ETag of the version being patched, if the patch should only apply to that version
      * @return A response with the patched {@code Expense}.
+     * @throws ExpenseVersionMismatchException If {@code ifMatch} doesn't match the current version.
      */
     @PatchMapping("/api/expenses/{id}")
-    public ResponseEntity<?> patch(@RequestBody Expense expense, @PathVariable Long id) {
-        Expense patchedExpense = repository.findById(id)
-                .map(dbExpense -> {
-                    setIfNotNull(expense.getName(), dbExpense::setName);
-                    setIfNotNull(expense.getAmount(), dbExpense::setAmount);
-                    setIfNotNull(expense.getTime(), dbExpense::setTime);
-                    setIfNotNull(expense.getCounterparty(), dbExpense::setCounterparty);
-                    setIfNotNull(expense.getCategory(), dbExpense::setCategory);
-                    return repository.save(dbExpense);
-                }).orElseThrow(() -> new ExpenseNotFoundException(id));
-
-        EntityModel<Expense> entityModel = assembler.toModel(patchedExpense);
+    @Transactional
+    public ResponseEntity<?> patch(@RequestBody Expense expense, @PathVariable Long id,
+                                   @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+    {
+        Expense patchedExpense = updateService.patch(id, expense, VersionETag.parseIfMatch(ifMatch))
+                .orElseThrow(() -> new ExpenseNotFoundException(id));
 
-        return ResponseEntity.created(entityModel.getRequiredLink(IanaLinkRelations.SELF).toUri()).body(entityModel);
+        return created(patchedExpense);
     }
 
     /**
      * Deletes the {@code Expense} with the provided {@code id}.
      *
+     * @param ifMatch The ETag of the version being deleted, if it should only be deleted at that version
      * @return An HTTP 204 no content response.
+     * @throws ExpenseVersionMismatchException If {@code ifMatch} doesn't match the current version.
      */
     @DeleteMapping("/api/expenses/{id}")
-    public ResponseEntity<?> delete(@PathVariable Long id) {
-        repository.deleteById(id);
+    @Transactional
+    public ResponseEntity<?> delete(@PathVariable Long id,
+                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch)
+    {
+        Long expectedVersion = VersionETag.parseIfMatch(ifMatch);
+
+        repository.findById(id).ifPresentOrElse(dbExpense -> {
+            if (expectedVersion != null && !expectedVersion.equals(dbExpense.getVersion())) {
+                throw new ExpenseVersionMismatchException(id);
+            }
+
+            repository.delete(dbExpense);
+            eventPublisher.publishEvent(ExpenseChangedEvent.deleted(dbExpense));
+        }, () -> {
+            if (ifMatch != null) {
+                throw new ExpenseVersionMismatchException(id);
+            }
+        });
 
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Saves {@code expense} as a new {@code Expense}, even if it has an {@code id}.
+     */
+    private Expense insertNew(Expense expense) {
+        expense.setId(null);
+        Expense savedExpense = repository.save(expense);
+        eventPublisher.publishEvent(ExpenseChangedEvent.created(savedExpense));
+
+        return savedExpense;
+    }
+
+    /**
+     * @return A 201 response with {@code expense}, its location, and its version as the ETag.
+     */
+    private ResponseEntity<EntityModel<Expense>> created(Expense expense) {
+        EntityModel<Expense> entityModel = assembler.toModel(expense);
+
+        return ResponseEntity.created(entityModel.getRequiredLink(IanaLinkRelations.SELF).toUri())
+                .eTag(VersionETag.of(expense.getVersion()))
+                .body(entityModel);
+    }
+
+    /**
+     * Sets the current {@link ExpenseDataVersion} as the ETag of the response and checks it against the request's
+     * {@code If-None-Match}, before anything is read. The response is marked {@code no-cache} so that browsers
+     * revalidate it on every use instead of guessing how long it stays fresh.
+     *
+     * @return Whether the client's copy is current, in which case the response is already a 304.
+     */
+    private boolean notModified(NativeWebRequest request) {
+        HttpServletResponse response = request.getNativeResponse(HttpServletResponse.class);
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        }
+
+        return request.checkNotModified(dataVersion.eTag());
+    }
+
+    /**
+     * @param preference The {@code id} of a {@code UserPreference}, or {@code null} for the default date format.
+     * @return An assembler that formats dates according to {@code preference}.
+     */
+    private RepresentationModelAssembler<Expense, EntityModel<Expense>> assemblerFor(Long preference) {
+        if (preference == null) {
+            return assembler;
+        }
+
+        UserPreference pref = userPreferenceRepository.findCachedById(preference)
+                .orElseThrow(() -> new UserPreferenceNotFoundException(preference));
+
+        return assembler.formattedWith(pref.getDateFormatter());
+    }
 }
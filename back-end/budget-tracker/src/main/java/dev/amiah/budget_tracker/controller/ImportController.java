@@ -0,0 +1,95 @@
+package dev.amiah.budget_tracker.controller;
+
+import dev.amiah.budget_tracker.assembler.ImportJobModelAssembler;
+import dev.amiah.budget_tracker.exception.ImportJobNotFoundException;
+import dev.amiah.budget_tracker.model.ImportColumnMapping;
+import dev.amiah.budget_tracker.model.ImportJob;
+import dev.amiah.budget_tracker.model.data_type.ImportFormat;
+import dev.amiah.budget_tracker.repository.ImportJobRepository;
+import dev.amiah.budget_tracker.service.statement.StatementImportService;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+@RestController
+public class ImportController {
+
+    private final ImportJobRepository repository;
+    private final ImportJobModelAssembler assembler;
+    private final StatementImportService importService;
+
+    public ImportController(ImportJobRepository repository, ImportJobModelAssembler assembler,
+                            StatementImportService importService)
+    {
+        this.repository = repository;
+        this.assembler = assembler;
+        this.importService = importService;
+    }
+
+    /**
+     * @return All {@code ImportJob}s, most recent first.
+     */
+    @GetMapping("/api/imports")
+    public CollectionModel<EntityModel<ImportJob>> all() {
+        List<EntityModel<ImportJob>> jobs = repository.findAllByOrderByCreatedAtDesc().stream().map(assembler::toModel).toList();
+
+        return CollectionModel.of(jobs, linkTo(methodOn(ImportController.class).all()).withSelfRel());
+    }
+
+    /**
+     * Starts importing a bank statement into the expenses. The import runs in the background; poll the returned
+     * {@code ImportJob} for progress.
+     *
+     * @param file The statement to import.
+     * @param format Either "csv" (the default) or "ofx".
+     * @param mapping Which CSV columns hold which {@code Expense} fields, given as request parameters such as
+     *                {@code amountColumn} and {@code datePattern}.
+     * @return An HTTP 202 accepted response with the new {@code ImportJob}.
+     */
+    @PostMapping("/api/imports")
+    public ResponseEntity<?> insert(@RequestParam("file") MultipartFile file,
+                                    @RequestParam(value = "format", defaultValue = "csv") String format,
+                                    @ModelAttribute ImportColumnMapping mapping) throws IOException
+    {
+        EntityModel<ImportJob> entityModel = assembler.toModel(importService.start(file, ImportFormat.fromString(format), mapping));
+
+        return ResponseEntity.accepted().location(entityModel.getRequiredLink(IanaLinkRelations.SELF).toUri()).body(entityModel);
+    }
+
+    /**
+     * Finds the specified {@code ImportJob} with a matching {@code id}
+     * and returns it.
+     *
+     * @param id The {@code id} of the {@code ImportJob} to find.
+     * @return The found {@code ImportJob}, including its progress.
+     */
+    @GetMapping("/api/imports/{id}")
+    public EntityModel<ImportJob> one(@PathVariable Long id) {
+        ImportJob job = repository.findById(id).orElseThrow(() -> new ImportJobNotFoundException(id));
+
+        return assembler.toModel(job);
+    }
+
+    /**
+     * Continues a failed or interrupted import from the last chunk it committed.
+     *
+     * @param id The {@code id} of the {@code ImportJob} to resume.
+     * @return An HTTP 202 accepted response with the {@code ImportJob}.
+     */
+    @PostMapping("/api/imports/{id}/resume")
+    public ResponseEntity<?> resume(@PathVariable Long id) {
+        EntityModel<ImportJob> entityModel = assembler.toModel(importService.resume(id));
+
+        return ResponseEntity.accepted().location(entityModel.getRequiredLink(IanaLinkRelations.SELF).toUri()).body(entityModel);
+    }
+
+}
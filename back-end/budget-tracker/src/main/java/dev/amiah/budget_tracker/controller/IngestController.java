@@ -0,0 +1,57 @@
+package dev.amiah.budget_tracker.controller;
+
+import dev.amiah.budget_tracker.dto.BatchItemResult;
+import dev.amiah.budget_tracker.dto.IngestStatus;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.service.ingest.ExpenseIngestService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+/**
+ * High-rate capture of new expenses, for feeds that send them in bursts. Only present when
+ * {@code budget-tracker.ingest.enabled} is set.
+ */
+@RestController
+@ConditionalOnProperty(name = "budget-tracker.ingest.enabled", havingValue = "true")
+public class IngestController {
+
+    private final ExpenseIngestService ingestService;
+
+    public IngestController(ExpenseIngestService ingestService) {
+        this.ingestService = ingestService;
+    }
+
+    /**
+     * Accepts new {@code Expense}s to be saved shortly. They are durable once this returns, but appear in reads,
+     * totals, and events only after they are saved in the background.
+     *
+     * @param expenses The new {@code Expense}s.
+     * @return An HTTP 202 accepted response with the result of each item, in the same order as the request.
+     */
+    @PostMapping("/api/expenses/ingest")
+    public ResponseEntity<CollectionModel<BatchItemResult>> ingest(@RequestBody List<Expense> expenses) {
+        List<BatchItemResult> results = ingestService.ingest(expenses);
+
+        return ResponseEntity.accepted()
+                .body(CollectionModel.of(results, linkTo(methodOn(IngestController.class).status()).withRel("status")));
+    }
+
+    /**
+     * @return How many of the accepted expenses are still waiting to be saved.
+     */
+    @GetMapping("/api/expenses/ingest")
+    public ResponseEntity<IngestStatus> status() {
+        return ResponseEntity.ok(ingestService.getStatus());
+    }
+
+}
@@ -4,6 +4,7 @@ import dev.amiah.budget_tracker.assembler.UserPreferenceModelAssembler;
 import dev.amiah.budget_tracker.exception.UserPreferenceNotFoundException;
 import dev.amiah.budget_tracker.model.UserPreference;
 import dev.amiah.budget_tracker.repository.UserPreferenceRepository;
+import dev.amiah.budget_tracker.service.ExpenseDataVersion;
 import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.IanaLinkRelations;
@@ -20,10 +21,14 @@ public class UserPreferenceController {
 
     private final UserPreferenceRepository repository;
     private final UserPreferenceModelAssembler assembler;
+    private final ExpenseDataVersion expenseDataVersion;
 
-    public UserPreferenceController(UserPreferenceRepository repository, UserPreferenceModelAssembler assembler) {
+    public UserPreferenceController(UserPreferenceRepository repository, UserPreferenceModelAssembler assembler,
+                                    ExpenseDataVersion expenseDataVersion)
+    {
         this.repository = repository;
         this.assembler = assembler;
+        this.expenseDataVersion = expenseDataVersion;
     }
 
     /**
@@ -32,7 +37,7 @@ public class UserPreferenceController {
     @GetMapping("/api/user-preference")
     public CollectionModel<EntityModel<UserPreference>> all() {
         // Add links to each pref and link to aggregate root (which happens to be this method)
-        List<EntityModel<UserPreference>> prefs = repository.findAll().stream().map(assembler::toModel).toList();
+        List<EntityModel<UserPreference>> prefs = repository.findAllCached().stream().map(assembler::toModel).toList();
 
         return CollectionModel.of(prefs, linkTo(methodOn(UserPreferenceController.class).all()).withRel("userPreferences"));
     }
@@ -59,7 +64,7 @@ public class UserPreferenceController {
      */
     @GetMapping("/api/user-preference/{id}")
     public EntityModel<UserPreference> one(@PathVariable Long id) {
-        UserPreference pref = repository.findById(id).orElseThrow(() -> new UserPreferenceNotFoundException(id));
+        UserPreference pref = repository.findCachedById(id).orElseThrow(() -> new UserPreferenceNotFoundException(id));
 
         return assembler.toModel(pref);
     }
@@ -81,6 +86,8 @@ public class UserPreferenceController {
                     dbPref.setDateSeparator(pref.getDateSeparator());
                     return repository.save(dbPref);
                 }).orElseGet(() -> repository.save(pref));
+        // Expenses formatted with this preference now look different
+        expenseDataVersion.bump();
 
         EntityModel<UserPreference> entityModel = assembler.toModel(updatedPref);
 
@@ -95,6 +102,7 @@ public class UserPreferenceController {
     @DeleteMapping("/api/user-preference/{id}")
     public ResponseEntity<?> delete(@PathVariable Long id) {
         repository.deleteById(id);
+        expenseDataVersion.bump();
 
         return ResponseEntity.noContent().build();
     }
@@ -0,0 +1,25 @@
+package dev.amiah.budget_tracker.controller.advice;
+
+import dev.amiah.budget_tracker.exception.BalanceSeriesNotReadyException;
+import dev.amiah.budget_tracker.exception.InvalidBalanceSeriesException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class BalanceSeriesAdvice {
+
+    @ExceptionHandler(InvalidBalanceSeriesException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String invalidBalanceSeriesHandler(InvalidBalanceSeriesException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(BalanceSeriesNotReadyException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String balanceSeriesNotReadyHandler(BalanceSeriesNotReadyException e) {
+        return e.getMessage();
+    }
+
+}
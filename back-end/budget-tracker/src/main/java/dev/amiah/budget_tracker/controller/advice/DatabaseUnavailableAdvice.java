@@ -0,0 +1,22 @@
+package dev.amiah.budget_tracker.controller.advice;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Answers requests that could not get a database connection in time, such as when every connection is in use
+ * during a burst, with a 503 that clients can retry instead of a 500.
+ */
+@RestControllerAdvice
+public class DatabaseUnavailableAdvice {
+
+    @ExceptionHandler(CannotCreateTransactionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String databaseUnavailableHandler(CannotCreateTransactionException e) {
+        return "The database is busy, try again shortly";
+    }
+
+}
@@ -0,0 +1,19 @@
+package dev.amiah.budget_tracker.controller.advice;
+
+import dev.amiah.budget_tracker.dto.ExpenseChangesGone;
+import dev.amiah.budget_tracker.exception.ExpenseChangesCompactedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ExpenseChangesCompactedAdvice {
+
+    @ExceptionHandler(ExpenseChangesCompactedException.class)
+    @ResponseStatus(HttpStatus.GONE)
+    public ExpenseChangesGone expenseChangesCompactedHandler(ExpenseChangesCompactedException e) {
+        return new ExpenseChangesGone(e.getMessage(), e.getLatest());
+    }
+
+}
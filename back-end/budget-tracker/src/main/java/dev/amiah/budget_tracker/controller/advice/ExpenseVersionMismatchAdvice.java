@@ -0,0 +1,18 @@
+package dev.amiah.budget_tracker.controller.advice;
+
+import dev.amiah.budget_tracker.exception.ExpenseVersionMismatchException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ExpenseVersionMismatchAdvice {
+
+    @ExceptionHandler(ExpenseVersionMismatchException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public String expenseVersionMismatchHandler(ExpenseVersionMismatchException e) {
+        return e.getMessage();
+    }
+
+}
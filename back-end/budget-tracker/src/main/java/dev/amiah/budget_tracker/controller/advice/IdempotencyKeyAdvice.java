@@ -0,0 +1,32 @@
+package dev.amiah.budget_tracker.controller.advice;
+
+import dev.amiah.budget_tracker.exception.IdempotencyKeyInProgressException;
+import dev.amiah.budget_tracker.exception.IdempotencyKeyReusedException;
+import dev.amiah.budget_tracker.exception.InvalidIdempotencyKeyException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class IdempotencyKeyAdvice {
+
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String invalidIdempotencyKeyHandler(InvalidIdempotencyKeyException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    public String idempotencyKeyReusedHandler(IdempotencyKeyReusedException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(IdempotencyKeyInProgressException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public String idempotencyKeyInProgressHandler(IdempotencyKeyInProgressException e) {
+        return e.getMessage();
+    }
+
+}
@@ -0,0 +1,25 @@
+package dev.amiah.budget_tracker.controller.advice;
+
+import dev.amiah.budget_tracker.exception.ImportJobNotFoundException;
+import dev.amiah.budget_tracker.exception.ImportJobNotResumableException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class ImportJobAdvice {
+
+    @ExceptionHandler(ImportJobNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public String importJobNotFoundHandler(ImportJobNotFoundException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(ImportJobNotResumableException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public String importJobNotResumableHandler(ImportJobNotResumableException e) {
+        return e.getMessage();
+    }
+
+}
@@ -0,0 +1,18 @@
+package dev.amiah.budget_tracker.controller.advice;
+
+import dev.amiah.budget_tracker.exception.IngestUnavailableException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class IngestUnavailableAdvice {
+
+    @ExceptionHandler(IngestUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String ingestUnavailableHandler(IngestUnavailableException e) {
+        return e.getMessage();
+    }
+
+}
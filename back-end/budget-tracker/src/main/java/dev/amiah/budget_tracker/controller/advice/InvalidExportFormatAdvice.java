@@ -0,0 +1,18 @@
+package dev.amiah.budget_tracker.controller.advice;
+
+import dev.amiah.budget_tracker.exception.InvalidExportFormatException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class InvalidExportFormatAdvice {
+
+    @ExceptionHandler(InvalidExportFormatException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String invalidExportFormatHandler(InvalidExportFormatException e) {
+        return e.getMessage();
+    }
+
+}
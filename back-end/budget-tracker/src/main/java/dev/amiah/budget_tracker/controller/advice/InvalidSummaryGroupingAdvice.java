@@ -0,0 +1,18 @@
+package dev.amiah.budget_tracker.controller.advice;
+
+import dev.amiah.budget_tracker.exception.InvalidSummaryGroupingException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class InvalidSummaryGroupingAdvice {
+
+    @ExceptionHandler(InvalidSummaryGroupingException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String invalidSummaryGroupingHandler(InvalidSummaryGroupingException e) {
+        return e.getMessage();
+    }
+
+}
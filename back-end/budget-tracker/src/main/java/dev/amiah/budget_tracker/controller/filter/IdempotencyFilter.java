@@ -0,0 +1,211 @@
+package dev.amiah.budget_tracker.controller.filter;
+
+import dev.amiah.budget_tracker.exception.InvalidIdempotencyKeyException;
+import dev.amiah.budget_tracker.service.IdempotencyService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+
+/**
+ * Lets clients safely retry the requests that create expenses by sending an {@code Idempotency-Key} header, which
+ * should be a new random value, such as a UUID, for every distinct request. A retry with the same key and the same
+ * body gets the original response back, with an {@code Idempotent-Replayed: true} header, and creates nothing.
+ * Reusing a key for a different request is rejected with a 422. See {@link IdempotencyService}.
+ * <p>
+ * This is a filter rather than part of the controller so that the stored response is exactly the one that was
+ * sent, rendered with its links, and so that the whole request, including everything the controller writes, runs
+ * in the transaction that stores the key.
+ */
+@Component
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    // The endpoints that create expenses
+    private static final Set<String> PATHS = Set.of("/api/expenses", "/api/expenses/batch", "/api/expenses/ingest");
+
+    private final IdempotencyService idempotencyService;
+    private final HandlerExceptionResolver exceptionResolver;
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+
+    public IdempotencyFilter(IdempotencyService idempotencyService,
+                             @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver)
+    {
+        this.idempotencyService = idempotencyService;
+        this.exceptionResolver = exceptionResolver;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(IDEMPOTENCY_KEY) == null
+                || !HttpMethod.POST.matches(request.getMethod())
+                || !PATHS.contains(urlPathHelper.getPathWithinApplication(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException
+    {
+        String key = request.getHeader(IDEMPOTENCY_KEY);
+        CachedBodyRequest cachedRequest = new CachedBodyRequest(request);
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+
+        IdempotencyService.Outcome outcome;
+        try {
+            if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+                throw new InvalidIdempotencyKeyException(MAX_KEY_LENGTH);
+            }
+
+            String requestHash = hash(cachedRequest);
+            outcome = idempotencyService.handle(key, requestHash, () -> {
+                chain.doFilter(cachedRequest, cachingResponse);
+
+                int status = cachingResponse.getStatus();
+                if (status < 200 || status >= 300) {
+                    return null;
+                }
+                return new IdempotencyService.StoredResponse(requestHash, status, cachingResponse.getContentType(),
+                        cachingResponse.getHeader(HttpHeaders.LOCATION),
+                        new String(cachingResponse.getContentAsByteArray(), StandardCharsets.UTF_8));
+            });
+        }
+        catch (ServletException | IOException e) {
+            throw e;
+        }
+        catch (RuntimeException e) {
+            // Nothing was committed, so nothing the request wrote should be sent either
+            cachingResponse.reset();
+            if (exceptionResolver.resolveException(request, response, null, e) == null) {
+                throw e;
+            }
+            return;
+        }
+        catch (Exception e) {
+            throw new ServletException(e);
+        }
+
+        if (outcome.replayed()) {
+            IdempotencyService.StoredResponse stored = outcome.response();
+            cachingResponse.reset();
+
+            response.setStatus(stored.statusCode());
+            response.setHeader(IDEMPOTENT_REPLAYED, "true");
+            if (stored.location() != null) {
+                response.setHeader(HttpHeaders.LOCATION, stored.location());
+            }
+            if (stored.contentType() != null) {
+                response.setContentType(stored.contentType());
+            }
+            if (stored.body() != null) {
+                byte[] body = stored.body().getBytes(StandardCharsets.UTF_8);
+                response.setContentLength(body.length);
+                response.getOutputStream().write(body);
+            }
+            return;
+        }
+
+        cachingResponse.copyBodyToResponse();
+    }
+
+    /**
+     * @return The SHA-256 of the method, path, and body of {@code request}, in hex.
+     */
+    private String hash(CachedBodyRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + " " + urlPathHelper.getPathWithinApplication(request) + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(request.body));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A request whose body has been read into memory, so that it can be hashed and then read again.
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? encoding : StandardCharsets.UTF_8.name()));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+
+}
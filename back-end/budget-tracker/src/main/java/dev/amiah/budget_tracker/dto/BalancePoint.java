@@ -0,0 +1,14 @@
+package dev.amiah.budget_tracker.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One bucket of a balance series.
+ *
+ * @param start The first day of the bucket.
+ * @param end The last day of the bucket, inclusive.
+ * @param net The sum of the amounts of the expenses in the bucket.
+ * @param balance The sum of the amounts of every expense up to the end of the bucket.
+ */
+public record BalancePoint(LocalDate start, LocalDate end, BigDecimal net, BigDecimal balance) {}
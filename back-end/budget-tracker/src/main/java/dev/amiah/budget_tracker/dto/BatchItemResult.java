@@ -0,0 +1,37 @@
+package dev.amiah.budget_tracker.dto;
+
+/**
+ * The outcome of one item in a batch request.
+ *
+ * @param index The position of the item in the request, starting at 0.
+ * @param status Whether the item was saved, or accepted to be saved shortly.
+ * @param id The {@code id} the item was saved with, or {@code null} if it wasn't saved or was only accepted.
+ * @param error Why the item was rejected or skipped, or {@code null} if it wasn't.
+ */
+public record BatchItemResult(int index, Status status, Long id, String error) {
+
+    public enum Status {
+        CREATED,
+        ACCEPTED,
+        REJECTED,
+        // Skipped because the same expense is already saved
+        DUPLICATE
+    }
+
+    public static BatchItemResult created(int index, Long id) {
+        return new BatchItemResult(index, Status.CREATED, id, null);
+    }
+
+    public static BatchItemResult accepted(int index) {
+        return new BatchItemResult(index, Status.ACCEPTED, null, null);
+    }
+
+    public static BatchItemResult rejected(int index, String error) {
+        return new BatchItemResult(index, Status.REJECTED, null, error);
+    }
+
+    public static BatchItemResult duplicate(int index) {
+        return new BatchItemResult(index, Status.DUPLICATE, null, "Duplicate of an existing expense");
+    }
+
+}
@@ -0,0 +1,57 @@
+package dev.amiah.budget_tracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import dev.amiah.budget_tracker.event.ExpenseChangedEvent;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.RepresentationModel;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * What changed since a client last synced, and the version to sync from next time.
+ */
+public class ExpenseChanges extends RepresentationModel<ExpenseChanges> {
+
+    private final long version;
+    private final Money total;
+    private final List<Change> changes;
+
+    /**
+     * @param version The version these changes bring the client up to.
+     * @param total The total balance as of {@code version}, or {@code null} if there are more changes to fetch.
+     * @param changes At most one change per expense.
+     */
+    public ExpenseChanges(long version, Money total, List<Change> changes) {
+        this.version = version;
+        this.total = total;
+        this.changes = changes;
+    }
+
+    // Getters
+
+    public long getVersion() {
+        return version;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public BigDecimal getTotal() {
+        return total != null ? total.toBigDecimal() : null;
+    }
+
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * @param seq The version of the latest change to the expense.
+     * @param type What happened to the expense.
+     * @param id The {@code id} of the expense.
+     * @param expense The expense as it is now, left out if it was deleted.
+     */
+    public record Change(long seq, ExpenseChangedEvent.Type type, Long id,
+                         @JsonInclude(JsonInclude.Include.NON_NULL) EntityModel<Expense> expense) {}
+
+}
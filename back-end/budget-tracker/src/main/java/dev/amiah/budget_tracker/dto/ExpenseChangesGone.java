@@ -0,0 +1,10 @@
+package dev.amiah.budget_tracker.dto;
+
+/**
+ * The body of a 410 from {@code /api/expenses/changes}, when the changes a client asked for are older than the log
+ * keeps. The client reloads every expense and then syncs from {@code version}.
+ *
+ * @param message What happened, for people.
+ * @param version The version to pass as {@code since} once every expense has been reloaded.
+ */
+public record ExpenseChangesGone(String message, long version) {}
@@ -0,0 +1,26 @@
+package dev.amiah.budget_tracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import dev.amiah.budget_tracker.event.ExpenseChangedEvent;
+import dev.amiah.budget_tracker.model.Expense;
+
+import java.util.List;
+
+/**
+ * The data of one server-sent event: the expenses changed by one committed transaction, and the total balance
+ * after it.
+ *
+ * @param changes The changed expenses, in the order they were changed.
+ * @param balance The total balance after the changes.
+ */
+public record ExpenseEvent(List<Change> changes, TotalBalanceObject balance) {
+
+    /**
+     * @param type What happened to the expense.
+     * @param id The {@code id} of the expense.
+     * @param expense The expense after the change, left out if it was deleted.
+     */
+    public record Change(ExpenseChangedEvent.Type type, Long id,
+                         @JsonInclude(JsonInclude.Include.NON_NULL) Expense expense) {}
+
+}
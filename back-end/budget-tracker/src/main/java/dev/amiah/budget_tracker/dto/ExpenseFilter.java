@@ -0,0 +1,27 @@
+package dev.amiah.budget_tracker.dto;
+
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.ExpenseType;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Narrows down which expenses are returned. Every field is optional, and an expense has to match all of the ones
+ * that are set.
+ *
+ * @param from The first day to include, such as "2024-01-31".
+ * @param to The last day to include.
+ * @param category The categories to include; any of them matches.
+ * @param type Whether to include only income or only expenses.
+ * @param counterparty The start of the counterparty's name.
+ */
+public record ExpenseFilter(@DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                            List<ExpenseCategory> category,
+                            ExpenseType type,
+                            String counterparty)
+{
+    public static final ExpenseFilter NONE = new ExpenseFilter(null, null, null, null, null);
+}
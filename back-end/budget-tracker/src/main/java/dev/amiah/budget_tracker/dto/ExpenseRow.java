@@ -0,0 +1,15 @@
+package dev.amiah.budget_tracker.dto;
+
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.Money;
+
+import java.time.LocalDateTime;
+
+/**
+ * A flat, unmanaged copy of a row in the {@code expense} table. Used when reading large numbers of expenses
+ * where loading full {@link dev.amiah.budget_tracker.model.Expense} entities into the persistence context
+ * would use memory proportional to the number of rows.
+ */
+public record ExpenseRow(Long id, String name, Money amount, LocalDateTime time, String counterparty,
+                         ExpenseCategory category) {
+}
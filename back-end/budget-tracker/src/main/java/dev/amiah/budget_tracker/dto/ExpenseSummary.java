@@ -0,0 +1,18 @@
+package dev.amiah.budget_tracker.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+
+import java.math.BigDecimal;
+
+/**
+ * The sum and number of expenses in one group of a summary. Fields that the summary is not grouped by are left
+ * out.
+ *
+ * @param period The month ("2024-03") or year ("2024") of the group, or {@code null} if not grouped by time.
+ * @param category The category of the group, or {@code null} if not grouped by category.
+ * @param total The sum of the amounts of the expenses in the group.
+ * @param count The number of expenses in the group.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ExpenseSummary(String period, ExpenseCategory category, BigDecimal total, long count) {}
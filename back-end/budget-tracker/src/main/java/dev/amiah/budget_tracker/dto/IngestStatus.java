@@ -0,0 +1,12 @@
+package dev.amiah.budget_tracker.dto;
+
+/**
+ * How far the background saving of ingested expenses has got. Positions are byte offsets into the ingest
+ * write-ahead log, so {@code appended - applied} is how much is waiting to be saved.
+ *
+ * @param appended The position after the last expenses that were accepted.
+ * @param applied The position after the last expenses that were saved, or {@code null} before it is known.
+ * @param deadLettered How many requests could never be saved and were set aside since startup.
+ * @param running Whether expenses are being saved in the background.
+ */
+public record IngestStatus(long appended, Long applied, long deadLettered, boolean running) {}
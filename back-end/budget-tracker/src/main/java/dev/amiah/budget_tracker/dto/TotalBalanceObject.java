@@ -1,29 +1,26 @@
 package dev.amiah.budget_tracker.dto;
 
+import dev.amiah.budget_tracker.model.data_type.Money;
+
 import java.math.BigDecimal;
-import java.math.MathContext;
-import java.math.RoundingMode;
 
 public class TotalBalanceObject {
 
-    private BigDecimal total;
+    private Money total;
 
     public TotalBalanceObject() {}
 
-    public TotalBalanceObject(BigDecimal total) {
+    public TotalBalanceObject(Money total) {
         this.total = total;
     }
 
-    public void setTotal(BigDecimal total) {
+    public void setTotal(Money total) {
         this.total = total;
     }
 
 
     public BigDecimal getTotal() {
         // Return 0 instead of null
-        if (total != null) {
-            return total.setScale(2, RoundingMode.HALF_UP);
-        }
-        return BigDecimal.ZERO;
+        return (total != null ? total : Money.ZERO).toBigDecimal();
     }
 }
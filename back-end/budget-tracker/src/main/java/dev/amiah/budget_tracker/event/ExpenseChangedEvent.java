@@ -0,0 +1,56 @@
+package dev.amiah.budget_tracker.event;
+
+import dev.amiah.budget_tracker.model.Expense;
+
+/**
+ * Published by the write paths of {@link dev.amiah.budget_tracker.controller.ExpenseController} whenever an
+ * {@code Expense} is created, changed, or deleted. Listeners that keep derived data (such as the running balance)
+ * in step with the {@code expense} table use {@link #before()} and {@link #after()} to work out what changed
+ * instead of re-reading the table.
+ *
+ * @param type What happened to the {@code Expense}.
+ * @param before A copy of the {@code Expense} before the change, or {@code null} if it was just created.
+ * @param after The {@code Expense} after the change, or {@code null} if it was deleted.
+ */
+public record ExpenseChangedEvent(Type type, Expense before, Expense after) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    public static ExpenseChangedEvent created(Expense expense) {
+        return new ExpenseChangedEvent(Type.CREATED, null, expense);
+    }
+
+    public static ExpenseChangedEvent updated(Expense before, Expense after) {
+        return new ExpenseChangedEvent(Type.UPDATED, before, after);
+    }
+
+    public static ExpenseChangedEvent deleted(Expense expense) {
+        return new ExpenseChangedEvent(Type.DELETED, expense, null);
+    }
+
+    /**
+     * @return The id of the changed {@code Expense}.
+     */
+    public Long id() {
+        return after != null ? after.getId() : before.getId();
+    }
+
+    /**
+     * @return How many cents this change moved the total balance by. Positive if the balance went up.
+     */
+    public long amountDeltaCents() {
+        return Math.subtractExact(centsOf(after), centsOf(before));
+    }
+
+    private static long centsOf(Expense expense) {
+        if (expense == null || expense.getAmount() == null) {
+            return 0;
+        }
+        return expense.getAmount().cents();
+    }
+
+}
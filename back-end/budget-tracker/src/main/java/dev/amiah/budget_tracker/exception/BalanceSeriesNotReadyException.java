@@ -0,0 +1,9 @@
+package dev.amiah.budget_tracker.exception;
+
+public class BalanceSeriesNotReadyException extends RuntimeException {
+
+    public BalanceSeriesNotReadyException() {
+        super("The daily balances are still being built, try again shortly");
+    }
+
+}
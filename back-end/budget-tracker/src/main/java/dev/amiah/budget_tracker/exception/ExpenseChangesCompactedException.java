@@ -0,0 +1,19 @@
+package dev.amiah.budget_tracker.exception;
+
+public class ExpenseChangesCompactedException extends RuntimeException {
+
+    private final long latest;
+
+    public ExpenseChangesCompactedException(long since, long latest) {
+        super("Changes since " + since + " are no longer available, reload all expenses and sync from " + latest);
+        this.latest = latest;
+    }
+
+    /**
+     * @return The newest version of the change log, to sync from once every expense has been reloaded.
+     */
+    public long getLatest() {
+        return latest;
+    }
+
+}
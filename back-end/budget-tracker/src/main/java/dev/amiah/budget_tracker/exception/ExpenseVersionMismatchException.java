@@ -0,0 +1,9 @@
+package dev.amiah.budget_tracker.exception;
+
+public class ExpenseVersionMismatchException extends RuntimeException {
+
+    public ExpenseVersionMismatchException(Long id) {
+        super("Expense with id " + id + " does not match If-Match; it was changed or deleted since it was read");
+    }
+
+}
@@ -0,0 +1,9 @@
+package dev.amiah.budget_tracker.exception;
+
+public class IdempotencyKeyInProgressException extends RuntimeException {
+
+    public IdempotencyKeyInProgressException(String key) {
+        super("A request with Idempotency-Key " + key + " is still being handled, try again shortly");
+    }
+
+}
@@ -0,0 +1,8 @@
+package dev.amiah.budget_tracker.exception;
+
+public class ImportJobNotFoundException extends RuntimeException {
+
+    public ImportJobNotFoundException(Long id) {
+        super("Import job not found with id " + id);
+    }
+}
@@ -0,0 +1,10 @@
+package dev.amiah.budget_tracker.exception;
+
+import dev.amiah.budget_tracker.model.data_type.ImportStatus;
+
+public class ImportJobNotResumableException extends RuntimeException {
+
+    public ImportJobNotResumableException(Long id, ImportStatus status) {
+        super("Import job " + id + " cannot be resumed while " + status);
+    }
+}
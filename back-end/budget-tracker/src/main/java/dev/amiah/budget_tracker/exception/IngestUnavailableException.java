@@ -0,0 +1,9 @@
+package dev.amiah.budget_tracker.exception;
+
+public class IngestUnavailableException extends RuntimeException {
+
+    public IngestUnavailableException(Throwable cause) {
+        super("Expenses can't be accepted right now, try again shortly", cause);
+    }
+
+}
@@ -0,0 +1,9 @@
+package dev.amiah.budget_tracker.exception;
+
+public class InvalidBalanceSeriesException extends RuntimeException {
+
+    public InvalidBalanceSeriesException(String message) {
+        super(message);
+    }
+
+}
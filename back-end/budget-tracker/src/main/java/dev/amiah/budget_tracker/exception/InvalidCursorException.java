@@ -0,0 +1,9 @@
+package dev.amiah.budget_tracker.exception;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String cursor) {
+        super("Invalid page cursor " + cursor);
+    }
+
+}
@@ -0,0 +1,9 @@
+package dev.amiah.budget_tracker.exception;
+
+public class InvalidExportFormatException extends RuntimeException {
+
+    public InvalidExportFormatException(String format) {
+        super("Cannot export expenses as " + format + "; expected ndjson or csv");
+    }
+
+}
@@ -0,0 +1,9 @@
+package dev.amiah.budget_tracker.exception;
+
+public class InvalidSummaryGroupingException extends RuntimeException {
+
+    public InvalidSummaryGroupingException(String groupBy) {
+        super("Cannot group expenses by " + groupBy + "; expected category, month, or year");
+    }
+
+}
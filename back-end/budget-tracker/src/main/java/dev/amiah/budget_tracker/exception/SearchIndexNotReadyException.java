@@ -0,0 +1,9 @@
+package dev.amiah.budget_tracker.exception;
+
+public class SearchIndexNotReadyException extends RuntimeException {
+
+    public SearchIndexNotReadyException() {
+        super("The search index is still being built, try again shortly");
+    }
+
+}
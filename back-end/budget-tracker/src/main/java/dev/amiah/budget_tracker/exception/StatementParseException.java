@@ -0,0 +1,12 @@
+package dev.amiah.budget_tracker.exception;
+
+/**
+ * Thrown when one record of a bank statement cannot be read. The parser that threw it has already moved past the
+ * bad record, so reading can continue with the next one.
+ */
+public class StatementParseException extends RuntimeException {
+
+    public StatementParseException(long recordNumber, String message) {
+        super("Record " + recordNumber + ": " + message);
+    }
+}
@@ -0,0 +1,57 @@
+package dev.amiah.budget_tracker.model;
+
+import dev.amiah.budget_tracker.model.data_type.Money;
+import jakarta.persistence.*;
+
+/**
+ * The materialized sum of every {@link Expense#getAmount() Expense amount}. There is only ever one row, which
+ * is kept up to date by applying the change in balance of each write instead of summing the {@code expense}
+ * table whenever the total is needed.
+ */
+@Entity
+@Table(name = "balance_summary")
+public class BalanceSummary {
+
+    /**
+     * The id of the single summary row.
+     */
+    public static final Long LEDGER_ID = 1L;
+
+    @Id
+    @Column(name = "summary_id")
+    private Long id;
+
+    @Column(name = "total_cents", nullable = false)
+    private Money total;
+
+    public BalanceSummary() {}
+
+    public BalanceSummary(Money total) {
+        this.id = LEDGER_ID;
+        this.total = total;
+    }
+
+    // Setters
+
+    public void setTotal(Money total) {
+        this.total = total;
+    }
+
+    // Getters
+
+    public Long getId() {
+        return id;
+    }
+
+    public Money getTotal() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        return "BalanceSummary{" +
+                "id=" + id +
+                ", total=" + total +
+                '}';
+    }
+}
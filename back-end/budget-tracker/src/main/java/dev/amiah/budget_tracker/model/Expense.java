@@ -1,7 +1,11 @@
 package dev.amiah.budget_tracker.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import dev.amiah.budget_tracker.model.data_type.DateFormatRegistry;
 import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import dev.amiah.budget_tracker.util.ExpenseFingerprint;
 import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
@@ -11,31 +15,57 @@ import java.time.temporal.TemporalUnit;
 
 
 @Entity
+// The schema, including its indexes, is created by the migrations in db/migration
 @Table(name = "expense")
 public class Expense {
 
+    /**
+     * The most characters {@code name} and {@code counterparty} can hold.
+     */
+    public static final int MAX_TEXT_LENGTH = 255;
+
+    // Ids come from pre-allocated blocks rather than IDENTITY, which would stop Hibernate from batching inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "expense_id_block")
+    @TableGenerator(name = "expense_id_block", table = "id_block", pkColumnName = "sequence_name",
+                    valueColumnName = "next_val", pkColumnValue = "expense", allocationSize = 100)
     @Column(name = "expense_id")
     private Long id;
 
-    @Column(name = "name")
+    @Column(name = "name", length = MAX_TEXT_LENGTH)
     private String name;
-    @Column(name = "amount")
-    private Double amount;
+    // Stored as whole cents by MoneyConverter
+    @Column(name = "amount_cents")
+    private Money amount;
     @Column(name = "time")
     private LocalDateTime time;
-    @Column(name = "counterparty")
+    @Column(name = "counterparty", length = MAX_TEXT_LENGTH)
     private String counterparty; // Just the name; additional wording here dependent on if amount is + or -
 
     @Column(name = "category")
     @Enumerated(EnumType.STRING)
     private ExpenseCategory category;
 
+    // Sent to clients as the ETag rather than in the body
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonIgnore
+    private Long version;
+
+    // Kept up to date from the other fields, see ExpenseFingerprint
+    @Column(name = "fingerprint")
+    @JsonIgnore
+    private Long fingerprint;
+
+    // Overrides the default format of getTimeFormatted(). Only set on copies made by formattedWith().
+    @Transient
+    @JsonIgnore
+    private DateTimeFormatter timeFormatter;
+
 
     public Expense() {}
 
-    public Expense(String name, Double amount, String counterparty, ExpenseCategory category) {
+    public Expense(String name, Money amount, String counterparty, ExpenseCategory category) {
         this.name = name;
         this.amount = amount;
         this.counterparty = counterparty;
@@ -43,12 +73,34 @@ public class Expense {
         this.time = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
     }
 
+    /**
+     * Creates a detached copy of another {@code Expense}, including its {@code id}.
+     *
+     * @param other The {@code Expense} to copy.
+     */
+    public Expense(Expense other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.amount = other.amount;
+        this.time = other.time;
+        this.counterparty = other.counterparty;
+        this.category = other.category;
+        this.version = other.version;
+        this.fingerprint = other.fingerprint;
+    }
+
     @PrePersist
     private void onPrePersist() {
         // Make sure time is set
         if (time == null) {
             time = LocalDateTime.now();
         }
+        onPreUpdate();
+    }
+
+    @PreUpdate
+    private void onPreUpdate() {
+        fingerprint = ExpenseFingerprint.of(this);
     }
 
     /**
@@ -58,7 +110,7 @@ public class Expense {
      */
     @JsonProperty("counterpartyText")
     public String getCounterpartyText() {
-        return (amount >= 0 ? "Received from " : "Paid to ")
+        return (amount.signum() >= 0 ? "Received from " : "Paid to ")
              + (counterparty != null && !counterparty.isBlank() ? counterparty : "Unknown");
     }
 
@@ -73,18 +125,32 @@ public class Expense {
     /**
      * Creates a formatted version of the time of the transaction.
      *
-     * @return The time of the transaction, formatted to "MMM d yyyy"
+     * @return The time of the transaction, formatted to "MMM d yyyy" unless this is a copy made by
+     * {@link #formattedWith(DateTimeFormatter)}
      */
     @JsonProperty("timeFormatted")
     public String getTimeFormatted() {
         if (time != null) {
-            return time.format(DateTimeFormatter.ofPattern("MMM. d, yyyy"));
+            return (timeFormatter != null ? timeFormatter : DateFormatRegistry.DEFAULT_EXPENSE_FORMATTER).format(time);
         }
         // In practice, it should never get to this point because it is set in onPrePersist().
         // Although, it could happen if set to null afterward.
         return "How did we get here?";
     }
 
+    /**
+     * Creates a copy of this {@code Expense} whose {@link #getTimeFormatted()} uses {@code formatter}. A copy is
+     * used so that this {@code Expense}, which may be shared, is never changed.
+     *
+     * @param formatter The formatter to use, such as a {@link UserPreference#getDateFormatter()}.
+     * @return A detached copy of this {@code Expense}.
+     */
+    public Expense formattedWith(DateTimeFormatter formatter) {
+        Expense copy = new Expense(this);
+        copy.timeFormatter = formatter;
+        return copy;
+    }
+
     // Setters
 
     public void setId(Long id) {
@@ -95,7 +161,7 @@ public class Expense {
         this.name = name;
     }
 
-    public void setAmount(Double amount) {
+    public void setAmount(Money amount) {
         this.amount = amount;
     }
 
@@ -112,6 +178,14 @@ public class Expense {
         this.category = category;
     }
 
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public void setFingerprint(Long fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
     // Getters
 
     public Long getId() {
@@ -122,7 +196,7 @@ public class Expense {
         return name;
     }
 
-    public Double getAmount() {
+    public Money getAmount() {
         return amount;
     }
 
@@ -138,6 +212,16 @@ public class Expense {
         return category;
     }
 
+    @JsonIgnore
+    public Long getVersion() {
+        return version;
+    }
+
+    @JsonIgnore
+    public Long getFingerprint() {
+        return fingerprint;
+    }
+
     // Overrides
 
     // Auto-generated toString
@@ -0,0 +1,67 @@
+package dev.amiah.budget_tracker.model;
+
+import dev.amiah.budget_tracker.event.ExpenseChangedEvent;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One entry of the log of changes to the {@code expense} table. Entries are numbered by {@link #getSeq() seq}
+ * in the order their transactions committed, so everything a client has not seen yet is every entry after the
+ * last {@code seq} it saw.
+ */
+@Entity
+@Table(name = "expense_change")
+public class ExpenseChange {
+
+    @Id
+    @Column(name = "seq")
+    private Long seq;
+
+    @Column(name = "expense_id", nullable = false)
+    private Long expenseId;
+
+    @Column(name = "change_type", nullable = false, length = 8)
+    @Enumerated(EnumType.STRING)
+    private ExpenseChangedEvent.Type type;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    public ExpenseChange() {}
+
+    public ExpenseChange(Long seq, Long expenseId, ExpenseChangedEvent.Type type, LocalDateTime changedAt) {
+        this.seq = seq;
+        this.expenseId = expenseId;
+        this.type = type;
+        this.changedAt = changedAt;
+    }
+
+    // Getters
+
+    public Long getSeq() {
+        return seq;
+    }
+
+    public Long getExpenseId() {
+        return expenseId;
+    }
+
+    public ExpenseChangedEvent.Type getType() {
+        return type;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpenseChange{" +
+                "seq=" + seq +
+                ", expenseId=" + expenseId +
+                ", type=" + type +
+                ", changedAt=" + changedAt +
+                '}';
+    }
+}
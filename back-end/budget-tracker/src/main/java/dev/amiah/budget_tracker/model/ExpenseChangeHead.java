@@ -0,0 +1,65 @@
+package dev.amiah.budget_tracker.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Where the log of {@link ExpenseChange}s currently starts and ends. There is only ever one row. Transactions
+ * that write to the log lock it to take their {@code seq}s and keep it locked until they commit, so a later
+ * {@code seq} never becomes visible before an earlier one.
+ */
+@Entity
+@Table(name = "expense_change_head")
+public class ExpenseChangeHead {
+
+    /**
+     * The id of the single head row.
+     */
+    public static final Long HEAD_ID = 1L;
+
+    @Id
+    @Column(name = "head_id")
+    private Long id;
+
+    // The seq of the latest change
+    @Column(name = "last_seq", nullable = false)
+    private long lastSeq;
+
+    // Changes up to and including this seq have been deleted
+    @Column(name = "compacted_through", nullable = false)
+    private long compactedThrough;
+
+    public ExpenseChangeHead() {}
+
+    // Setters
+
+    public void setLastSeq(long lastSeq) {
+        this.lastSeq = lastSeq;
+    }
+
+    public void setCompactedThrough(long compactedThrough) {
+        this.compactedThrough = compactedThrough;
+    }
+
+    // Getters
+
+    public Long getId() {
+        return id;
+    }
+
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public long getCompactedThrough() {
+        return compactedThrough;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpenseChangeHead{" +
+                "id=" + id +
+                ", lastSeq=" + lastSeq +
+                ", compactedThrough=" + compactedThrough +
+                '}';
+    }
+}
@@ -0,0 +1,94 @@
+package dev.amiah.budget_tracker.model;
+
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * The sum and number of {@link Expense}s in one {@link ExpenseCategory} in one month. Rollups are kept up to date
+ * by applying each write to the {@code expense} table, so summaries read a row per month and category instead
+ * of scanning every expense.
+ */
+@Entity
+@Table(name = "expense_rollup")
+@IdClass(ExpenseRollup.Key.class)
+public class ExpenseRollup {
+
+    // The first day of the month
+    @Id
+    @Column(name = "period")
+    private LocalDate period;
+
+    @Id
+    @Column(name = "category", length = 32)
+    @Enumerated(EnumType.STRING)
+    private ExpenseCategory category;
+
+    @Column(name = "total_cents", nullable = false)
+    private Money total;
+
+    @Column(name = "expense_count", nullable = false)
+    private long count;
+
+    public ExpenseRollup() {}
+
+    public ExpenseRollup(LocalDate period, ExpenseCategory category, Money total, long count) {
+        this.period = period;
+        this.category = category;
+        this.total = total;
+        this.count = count;
+    }
+
+    // Getters
+
+    public LocalDate getPeriod() {
+        return period;
+    }
+
+    public ExpenseCategory getCategory() {
+        return category;
+    }
+
+    public Money getTotal() {
+        return total;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpenseRollup{" +
+                "period=" + period +
+                ", category=" + category +
+                ", total=" + total +
+                ", count=" + count +
+                '}';
+    }
+
+    /**
+     * Identifies the rollup for an {@code Expense}. Expenses without a category are counted as
+     * {@link ExpenseCategory#OTHER}, the same as imported expenses whose category isn't recognized.
+     *
+     * @param period The first day of the month the {@code Expense} is in.
+     * @param category The category of the {@code Expense}.
+     */
+    public record Key(LocalDate period, ExpenseCategory category) implements Serializable, Comparable<Key> {
+
+        public static Key of(Expense expense) {
+            return new Key(expense.getTime().toLocalDate().withDayOfMonth(1),
+                    Objects.requireNonNullElse(expense.getCategory(), ExpenseCategory.OTHER));
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byPeriod = period.compareTo(other.period);
+            return byPeriod != 0 ? byPeriod : category.compareTo(other.category);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package dev.amiah.budget_tracker.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A request that was sent with an {@code Idempotency-Key} header, and the response it got. The response is
+ * {@code null} until the request has been handled, which is only visible to the transaction handling it.
+ */
+@Entity
+@Table(name = "idempotency_key")
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+
+    // SHA-256 of the method, path, and body, to tell a retry from a different request reusing the key
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    @Column(name = "status_code")
+    private Integer statusCode;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "location", length = 2048)
+    private String location;
+
+    @Lob
+    @Column(name = "body")
+    private String body;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public IdempotencyKey() {}
+
+    public IdempotencyKey(String key, String requestHash, LocalDateTime createdAt) {
+        this.key = key;
+        this.requestHash = requestHash;
+        this.createdAt = createdAt;
+    }
+
+    // Getters
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public Integer getStatusCode() {
+        return statusCode;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "IdempotencyKey{" +
+                "key='" + key + '\'' +
+                ", requestHash='" + requestHash + '\'' +
+                ", statusCode=" + statusCode +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
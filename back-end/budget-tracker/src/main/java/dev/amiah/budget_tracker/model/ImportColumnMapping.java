@@ -0,0 +1,99 @@
+package dev.amiah.budget_tracker.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+/**
+ * Describes which CSV column holds each {@link Expense} field. Column names are matched against the header row,
+ * ignoring case. A column that is not present in the file is left empty on every imported {@code Expense},
+ * except for the category, which defaults to {@link dev.amiah.budget_tracker.model.data_type.ExpenseCategory#OTHER}.
+ * Not used for OFX files, whose fields are fixed.
+ */
+@Embeddable
+public class ImportColumnMapping {
+
+    @Column(name = "name_column", nullable = false, length = 64)
+    private String nameColumn = "name";
+
+    @Column(name = "amount_column", nullable = false, length = 64)
+    private String amountColumn = "amount";
+
+    @Column(name = "time_column", nullable = false, length = 64)
+    private String timeColumn = "time";
+
+    @Column(name = "counterparty_column", nullable = false, length = 64)
+    private String counterpartyColumn = "counterparty";
+
+    @Column(name = "category_column", nullable = false, length = 64)
+    private String categoryColumn = "category";
+
+    // A DateTimeFormatter pattern. Patterns without a time of day import at midnight.
+    @Column(name = "date_pattern", nullable = false, length = 64)
+    private String datePattern = "yyyy-MM-dd";
+
+    @Column(name = "delimiter", nullable = false, length = 1)
+    private String delimiter = ",";
+
+    public ImportColumnMapping() {}
+
+    // Setters
+
+    public void setNameColumn(String nameColumn) {
+        this.nameColumn = nameColumn;
+    }
+
+    public void setAmountColumn(String amountColumn) {
+        this.amountColumn = amountColumn;
+    }
+
+    public void setTimeColumn(String timeColumn) {
+        this.timeColumn = timeColumn;
+    }
+
+    public void setCounterpartyColumn(String counterpartyColumn) {
+        this.counterpartyColumn = counterpartyColumn;
+    }
+
+    public void setCategoryColumn(String categoryColumn) {
+        this.categoryColumn = categoryColumn;
+    }
+
+    public void setDatePattern(String datePattern) {
+        this.datePattern = datePattern;
+    }
+
+    public void setDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    // Getters
+
+    public String getNameColumn() {
+        return nameColumn;
+    }
+
+    public String getAmountColumn() {
+        return amountColumn;
+    }
+
+    public String getTimeColumn() {
+        return timeColumn;
+    }
+
+    public String getCounterpartyColumn() {
+        return counterpartyColumn;
+    }
+
+    public String getCategoryColumn() {
+        return categoryColumn;
+    }
+
+    public String getDatePattern() {
+        return datePattern;
+    }
+
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+}
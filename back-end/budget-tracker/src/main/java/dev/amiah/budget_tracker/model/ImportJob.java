@@ -0,0 +1,219 @@
+package dev.amiah.budget_tracker.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import dev.amiah.budget_tracker.model.data_type.ImportFormat;
+import dev.amiah.budget_tracker.model.data_type.ImportStatus;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A bank statement file being imported into the {@code expense} table. The file is committed in chunks, and
+ * each chunk updates this job in the same transaction, so {@link #getRecordsCommitted()} is always exactly the
+ * number of records from the start of the file that are already in the database. An import that fails is
+ * resumed from that point.
+ */
+@Entity
+@Table(name = "import_job")
+public class ImportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "import_job_id")
+    private Long id;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "format", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private ImportFormat format;
+
+    @Column(name = "status", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private ImportStatus status = ImportStatus.PENDING;
+
+    @Embedded
+    private ImportColumnMapping mapping = new ImportColumnMapping();
+
+    // Where the uploaded file is kept until the import completes
+    @JsonIgnore
+    @Column(name = "spool_path", nullable = false, length = 1024)
+    private String spoolPath;
+
+    @Column(name = "total_bytes", nullable = false)
+    private long totalBytes;
+
+    @Column(name = "bytes_processed", nullable = false)
+    private long bytesProcessed;
+
+    // Records from the start of the file that are committed, whether they were imported or rejected
+    @Column(name = "records_committed", nullable = false)
+    private long recordsCommitted;
+
+    @Column(name = "records_imported", nullable = false)
+    private long recordsImported;
+
+    @Column(name = "records_rejected", nullable = false)
+    private long recordsRejected;
+
+    // Records skipped because the same expense was already saved, such as by an earlier import of the same file
+    @Column(name = "records_duplicate", nullable = false)
+    private long recordsDuplicate;
+
+    @Column(name = "last_error", length = 1024)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    public ImportJob() {}
+
+    public ImportJob(String fileName, ImportFormat format, ImportColumnMapping mapping) {
+        this.fileName = fileName;
+        this.format = format;
+        this.mapping = mapping;
+    }
+
+    @PrePersist
+    @PreUpdate
+    private void onSave() {
+        updatedAt = LocalDateTime.now();
+        if (createdAt == null) {
+            createdAt = updatedAt;
+        }
+    }
+
+    /**
+     * @return How much of the file has been read, from 0 to 100.
+     */
+    @JsonProperty("percentComplete")
+    public int getPercentComplete() {
+        if (status == ImportStatus.COMPLETED) {
+            return 100;
+        }
+        if (totalBytes == 0) {
+            return 0;
+        }
+        return (int) Math.min(99, bytesProcessed * 100 / totalBytes);
+    }
+
+    // Setters
+
+    public void setStatus(ImportStatus status) {
+        this.status = status;
+    }
+
+    public void setSpoolPath(String spoolPath) {
+        this.spoolPath = spoolPath;
+    }
+
+    public void setTotalBytes(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    public void setBytesProcessed(long bytesProcessed) {
+        this.bytesProcessed = bytesProcessed;
+    }
+
+    public void setRecordsCommitted(long recordsCommitted) {
+        this.recordsCommitted = recordsCommitted;
+    }
+
+    public void setRecordsImported(long recordsImported) {
+        this.recordsImported = recordsImported;
+    }
+
+    public void setRecordsRejected(long recordsRejected) {
+        this.recordsRejected = recordsRejected;
+    }
+
+    public void setRecordsDuplicate(long recordsDuplicate) {
+        this.recordsDuplicate = recordsDuplicate;
+    }
+
+    public void setLastError(String lastError) {
+        // Keep within the column length
+        this.lastError = lastError != null && lastError.length() > 1024 ? lastError.substring(0, 1024) : lastError;
+    }
+
+    // Getters
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public ImportFormat getFormat() {
+        return format;
+    }
+
+    public ImportStatus getStatus() {
+        return status;
+    }
+
+    public ImportColumnMapping getMapping() {
+        return mapping;
+    }
+
+    public String getSpoolPath() {
+        return spoolPath;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getBytesProcessed() {
+        return bytesProcessed;
+    }
+
+    public long getRecordsCommitted() {
+        return recordsCommitted;
+    }
+
+    public long getRecordsImported() {
+        return recordsImported;
+    }
+
+    public long getRecordsRejected() {
+        return recordsRejected;
+    }
+
+    public long getRecordsDuplicate() {
+        return recordsDuplicate;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "ImportJob{" +
+                "id=" + id +
+                ", fileName='" + fileName + '\'' +
+                ", format=" + format +
+                ", status=" + status +
+                ", recordsCommitted=" + recordsCommitted +
+                ", recordsImported=" + recordsImported +
+                ", recordsRejected=" + recordsRejected +
+                ", recordsDuplicate=" + recordsDuplicate +
+                '}';
+    }
+}
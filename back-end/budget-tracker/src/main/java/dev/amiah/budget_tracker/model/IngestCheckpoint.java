@@ -0,0 +1,50 @@
+package dev.amiah.budget_tracker.model;
+
+import jakarta.persistence.*;
+
+/**
+ * How much of one ingestion write-ahead log has been saved as expenses. Saved in the same transaction as the
+ * expenses, so after a restart the log is applied from exactly where the last commit left off.
+ */
+@Entity
+@Table(name = "ingest_checkpoint")
+public class IngestCheckpoint {
+
+    @Id
+    @Column(name = "log_id")
+    private String logId;
+
+    // Every record before this byte position of the log has been applied
+    @Column(name = "position", nullable = false)
+    private long position;
+
+    public IngestCheckpoint() {}
+
+    public IngestCheckpoint(String logId) {
+        this.logId = logId;
+    }
+
+    // Setters
+
+    public void setPosition(long position) {
+        this.position = position;
+    }
+
+    // Getters
+
+    public String getLogId() {
+        return logId;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public String toString() {
+        return "IngestCheckpoint{" +
+                "logId='" + logId + '\'' +
+                ", position=" + position +
+                '}';
+    }
+}
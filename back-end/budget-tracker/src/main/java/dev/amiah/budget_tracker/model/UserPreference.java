@@ -1,9 +1,12 @@
 package dev.amiah.budget_tracker.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import dev.amiah.budget_tracker.model.data_type.DateFormatRegistry;
 import dev.amiah.budget_tracker.model.data_type.DatePattern;
 import dev.amiah.budget_tracker.model.data_type.DateSeparator;
 import jakarta.persistence.*;
 
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 
 @Entity
@@ -33,12 +36,7 @@ public class UserPreference {
     @PostPersist
     @PostUpdate
     public void calculateCompleteDatePattern() {
-        if (datePattern.allowsSeparators()) {
-            datePatternComplete = datePattern.getPattern().replace(" ", dateSeparator.getSeparator());
-        }
-        else {
-            datePatternComplete = datePattern.getPattern();
-        }
+        datePatternComplete = DateFormatRegistry.getPattern(datePattern, dateSeparator);
     }
 
     // Setters
@@ -98,6 +96,17 @@ public class UserPreference {
         return datePatternComplete;
     }
 
+    /**
+     * Gets the precompiled formatter for this user's complete date pattern.
+     *
+     * @return A formatter for this user's complete date preference.
+     * @see #getDatePatternComplete()
+     */
+    @JsonIgnore
+    public DateTimeFormatter getDateFormatter() {
+        return DateFormatRegistry.getFormatter(datePattern, dateSeparator);
+    }
+
     @Override
     public String toString() {
         return "UserPreference{" +
@@ -0,0 +1,65 @@
+package dev.amiah.budget_tracker.model.data_type;
+
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Holds a precompiled {@link DateTimeFormatter} for every combination of {@link DatePattern} and
+ * {@link DateSeparator}. {@code DateTimeFormatter}s are immutable and thread-safe, so they are built once when this
+ * class is loaded instead of parsing the pattern again every time a date is formatted.
+ */
+public class DateFormatRegistry {
+
+    /**
+     * The format used for {@link dev.amiah.budget_tracker.model.Expense#getTimeFormatted()} when no user
+     * preference applies. For example, "Jan. 3, 2024".
+     */
+    public static final DateTimeFormatter DEFAULT_EXPENSE_FORMATTER = DateTimeFormatter.ofPattern("MMM. d, yyyy");
+
+    private static final Map<DatePattern, Map<DateSeparator, String>> PATTERNS = new EnumMap<>(DatePattern.class);
+
+    private static final Map<DatePattern, Map<DateSeparator, DateTimeFormatter>> FORMATTERS = new EnumMap<>(DatePattern.class);
+
+    static {
+        for (DatePattern datePattern : DatePattern.values()) {
+            Map<DateSeparator, String> patterns = new EnumMap<>(DateSeparator.class);
+            Map<DateSeparator, DateTimeFormatter> formatters = new EnumMap<>(DateSeparator.class);
+
+            // Patterns that don't allow separators share one formatter across all separators
+            DateTimeFormatter unseparated = DateTimeFormatter.ofPattern(datePattern.getPattern());
+
+            for (DateSeparator dateSeparator : DateSeparator.values()) {
+                if (datePattern.allowsSeparators()) {
+                    String pattern = datePattern.getPattern().replace(" ", dateSeparator.getSeparator());
+                    patterns.put(dateSeparator, pattern);
+                    formatters.put(dateSeparator, DateTimeFormatter.ofPattern(pattern));
+                }
+                else {
+                    patterns.put(dateSeparator, datePattern.getPattern());
+                    formatters.put(dateSeparator, unseparated);
+                }
+            }
+
+            PATTERNS.put(datePattern, patterns);
+            FORMATTERS.put(datePattern, formatters);
+        }
+    }
+
+    /**
+     * @return The complete pattern for {@code datePattern} with {@code dateSeparator} applied, if the pattern
+     * allows separators. For example, {@code MONTH_DAY_YEAR} and {@code SLASH} return "M/d/yyyy"
+     */
+    public static String getPattern(DatePattern datePattern, DateSeparator dateSeparator) {
+        return PATTERNS.get(datePattern).get(dateSeparator);
+    }
+
+    /**
+     * @return The precompiled formatter for {@code datePattern} with {@code dateSeparator} applied.
+     * @see #getPattern(DatePattern, DateSeparator)
+     */
+    public static DateTimeFormatter getFormatter(DatePattern datePattern, DateSeparator dateSeparator) {
+        return FORMATTERS.get(datePattern).get(dateSeparator);
+    }
+
+}
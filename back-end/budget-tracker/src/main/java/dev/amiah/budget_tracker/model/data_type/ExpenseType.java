@@ -0,0 +1,10 @@
+package dev.amiah.budget_tracker.model.data_type;
+
+/**
+ * Whether an {@code Expense} is money coming in or going out. Matches the wording of
+ * {@link dev.amiah.budget_tracker.model.Expense#getCounterpartyText()}, so an amount of zero counts as income.
+ */
+public enum ExpenseType {
+    INCOME,
+    EXPENSE
+}
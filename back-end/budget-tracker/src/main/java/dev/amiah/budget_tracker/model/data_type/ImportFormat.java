@@ -0,0 +1,28 @@
+package dev.amiah.budget_tracker.model.data_type;
+
+public enum ImportFormat {
+    CSV("csv"),
+    OFX("ofx");
+
+    private final String extension;
+
+    ImportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return the file extension for this format, without the dot. For example, {@code OFX} returns "ofx"
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Converts a {@code String} to an {@code ImportFormat}, ignoring case. Defaults to {@link ImportFormat#CSV}
+     * if input is not recognized.
+     */
+    public static ImportFormat fromString(String format) {
+        return "ofx".equalsIgnoreCase(format) || "qfx".equalsIgnoreCase(format) ? OFX : CSV;
+    }
+
+}
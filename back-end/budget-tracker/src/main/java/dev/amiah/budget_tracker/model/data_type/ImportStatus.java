@@ -0,0 +1,23 @@
+package dev.amiah.budget_tracker.model.data_type;
+
+import java.util.Set;
+
+public enum ImportStatus {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED;
+
+    /**
+     * The states from which an import can be started again from its last committed chunk. A pending import is
+     * already waiting to run, and one left pending by a shutdown is marked as failed at startup.
+     */
+    public static final Set<ImportStatus> RESUMABLE = Set.of(FAILED);
+
+    /**
+     * @return {@code true} if an import in this state can be started again from its last committed chunk.
+     */
+    public boolean isResumable() {
+        return RESUMABLE.contains(this);
+    }
+}
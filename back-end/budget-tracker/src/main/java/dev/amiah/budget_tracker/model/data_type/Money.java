@@ -0,0 +1,83 @@
+package dev.amiah.budget_tracker.model.data_type;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An exact amount of money, held as a whole number of cents. Unlike a {@code double}, adding up any number of
+ * amounts never drifts, and unlike a {@code BigDecimal}, doing so needs no allocation: sums are kept as the
+ * {@code long} of {@link #cents()}.
+ * <p>
+ * In JSON an amount is the same plain number as before it was exact, such as {@code -3.5} or {@code 12.0}. Amounts
+ * with more than two decimal places are rounded half up to the cent.
+ *
+ * @param cents The amount in cents, negative for money paid out.
+ */
+public record Money(long cents) implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0);
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * @throws ArithmeticException If {@code amount} doesn't fit in a {@code long} of cents.
+     */
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static Money of(BigDecimal amount) {
+        return ofCents(amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * @throws NumberFormatException If {@code amount} is not a number.
+     */
+    public static Money parse(String amount) {
+        return of(new BigDecimal(amount));
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money negate() {
+        return ofCents(Math.negateExact(cents));
+    }
+
+    public int signum() {
+        return Long.signum(cents);
+    }
+
+    /**
+     * @return The amount with exactly two decimal places.
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * @return The {@code double} closest to the amount, whose shortest decimal form is the amount itself for any
+     * amount under about 90 trillion.
+     */
+    @JsonValue
+    public double toDouble() {
+        return cents / 100.0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    /**
+     * @return The amount with exactly two decimal places, such as {@code -3.50}.
+     */
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+}
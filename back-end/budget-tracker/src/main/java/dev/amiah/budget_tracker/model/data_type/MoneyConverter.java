@@ -0,0 +1,22 @@
+package dev.amiah.budget_tracker.model.data_type;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores {@link Money} as a {@code BIGINT} of cents.
+ */
+@Converter(autoApply = true)
+public class MoneyConverter implements AttributeConverter<Money, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(Money money) {
+        return money != null ? money.cents() : null;
+    }
+
+    @Override
+    public Money convertToEntityAttribute(Long cents) {
+        return cents != null ? Money.ofCents(cents) : null;
+    }
+
+}
@@ -0,0 +1,29 @@
+package dev.amiah.budget_tracker.repository;
+
+import dev.amiah.budget_tracker.model.BalanceSummary;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+public interface BalanceSummaryRepository extends JpaRepository<BalanceSummary, Long> {
+
+    /**
+     * Adds {@code delta} cents to the stored total in a single statement. The row stays locked until the surrounding
+     * transaction ends.
+     *
+     * @return The number of rows updated; {@code 0} if the summary row does not exist yet.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE balance_summary SET total_cents = total_cents + :delta WHERE summary_id = :id", nativeQuery = true)
+    int addToTotal(Long id, long delta);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM BalanceSummary b WHERE b.id = :id")
+    Optional<BalanceSummary> findByIdForUpdate(Long id);
+}
@@ -0,0 +1,16 @@
+package dev.amiah.budget_tracker.repository;
+
+import dev.amiah.budget_tracker.model.ExpenseChangeHead;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+public interface ExpenseChangeHeadRepository extends JpaRepository<ExpenseChangeHead, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT h FROM ExpenseChangeHead h WHERE h.id = :id")
+    Optional<ExpenseChangeHead> findByIdForUpdate(Long id);
+}
@@ -0,0 +1,25 @@
+package dev.amiah.budget_tracker.repository;
+
+import dev.amiah.budget_tracker.model.ExpenseChange;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ExpenseChangeRepository extends JpaRepository<ExpenseChange, Long> {
+
+    List<ExpenseChange> findBySeqGreaterThanOrderBySeqAsc(long seq, Limit limit);
+
+    /**
+     * @return The {@code seq} of the latest change made before {@code cutoff}, or {@code null} if there is none.
+     */
+    @Query("SELECT MAX(c.seq) FROM ExpenseChange c WHERE c.changedAt < :cutoff")
+    Long findLastSeqBefore(LocalDateTime cutoff);
+
+    @Modifying
+    @Query("DELETE FROM ExpenseChange c WHERE c.seq <= :seq")
+    int deleteThrough(long seq);
+}
@@ -1,17 +1,80 @@
 package dev.amiah.budget_tracker.repository;
 
+import dev.amiah.budget_tracker.config.CacheConfig;
+import dev.amiah.budget_tracker.dto.ExpenseFilter;
 import dev.amiah.budget_tracker.model.Expense;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 
-import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
-public interface ExpenseRepository extends JpaRepository<Expense, Long> {
+public interface ExpenseRepository extends JpaRepository<Expense, Long>, JpaSpecificationExecutor<Expense> {
 
-    @Query("SELECT SUM(e.amount) FROM Expense e")
-    BigDecimal getTotalBalance();
+    /**
+     * Expenses are listed newest first, with the id as a tie-breaker so that the order is stable.
+     */
+    Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "time", "id");
 
-    Page<Expense> findAllByOrderByTimeDesc(Pageable pageable);
+    /**
+     * Reads an expense through the {@link CacheConfig#EXPENSES} cache, for read-only use. Write paths should use
+     * {@link #findById(Object)}, which returns an instance managed by the current transaction instead of one
+     * shared between requests. Entries are evicted by {@link dev.amiah.budget_tracker.service.ExpenseCacheEvictor}.
+     */
+    @Cacheable(cacheNames = CacheConfig.EXPENSES, unless = "#result == null")
+    default Optional<Expense> findCachedById(Long id) {
+        return findById(id);
+    }
+
+    /**
+     * @return The sum of all {@code Expense} amounts, in cents.
+     */
+    @Query(value = "SELECT COALESCE(SUM(amount_cents), 0) FROM expense", nativeQuery = true)
+    long getTotalBalance();
+
+    /**
+     * Sums expenses per month and category, for rebuilding {@link dev.amiah.budget_tracker.model.ExpenseRollup}s.
+     * Native, since JPQL can't add up the cents behind a converted {@code Money} amount.
+     *
+     * @return Rows of year, month, category name, sum of amounts in cents, and count.
+     */
+    @Query(value = "SELECT YEAR(time), MONTH(time), category, SUM(amount_cents), COUNT(*) FROM expense " +
+                   "WHERE time IS NOT NULL GROUP BY YEAR(time), MONTH(time), category",
+           nativeQuery = true)
+    List<Object[]> sumByMonthAndCategory();
+
+    /**
+     * Counts the expenses with each of {@code fingerprints}, using only the fingerprint index.
+     *
+     * @return Rows of fingerprint and count, for the fingerprints that have any expenses.
+     */
+    @Query("SELECT e.fingerprint, COUNT(e) FROM Expense e WHERE e.fingerprint IN :fingerprints GROUP BY e.fingerprint")
+    List<Object[]> countByFingerprintIn(Collection<Long> fingerprints);
+
+    /**
+     * Reads one page of the expenses matching {@code filter}, newest first.
+     */
+    default Page<Expense> findAllMatching(ExpenseFilter filter, Pageable pageable) {
+        // Ordered by the specification rather than the Pageable, so page links don't gain a sort parameter
+        return findAll(ExpenseSpecifications.matching(filter).and(ExpenseSpecifications.newestFirst()), pageable);
+    }
+
+    /**
+     * Seeks to the given keyset position and reads the next {@code limit} expenses matching {@code filter},
+     * newest first. Unlike {@link #findAllMatching(ExpenseFilter, Pageable)} this does not use an offset or
+     * issue a count query, so it costs the same no matter how deep the position is.
+     */
+    default Window<Expense> scrollMatching(ExpenseFilter filter, ScrollPosition position, Limit limit) {
+        return findBy(ExpenseSpecifications.matching(filter),
+                query -> query.sortBy(NEWEST_FIRST).limit(limit.max()).scroll(position));
+    }
 }
@@ -0,0 +1,27 @@
+package dev.amiah.budget_tracker.repository;
+
+import dev.amiah.budget_tracker.model.ExpenseRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface ExpenseRollupRepository extends JpaRepository<ExpenseRollup, ExpenseRollup.Key> {
+
+    List<ExpenseRollup> findAllByPeriodBetweenOrderByPeriodAscCategoryAsc(LocalDate from, LocalDate to);
+
+    /**
+     * Adds {@code total} cents and {@code count} expenses to a rollup in a single statement, creating the rollup if it does
+     * not exist yet. The row stays locked until the surrounding transaction ends.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO expense_rollup (period, category, total_cents, expense_count) " +
+                   "VALUES (:period, :category, :total, :count) " +
+                   "ON DUPLICATE KEY UPDATE total_cents = total_cents + VALUES(total_cents), expense_count = expense_count + VALUES(expense_count)",
+           nativeQuery = true)
+    int addToRollup(LocalDate period, String category, long total, long count);
+}
@@ -0,0 +1,79 @@
+package dev.amiah.budget_tracker.repository;
+
+import dev.amiah.budget_tracker.dto.ExpenseFilter;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.ExpenseType;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Conditions on {@code Expense}s for {@link ExpenseRepository}. Each one is written so the database can answer
+ * it from one of the indexes on the {@code expense} table, together with ordering by time.
+ */
+public class ExpenseSpecifications {
+
+    /**
+     * @return A condition matching every field set in {@code filter}.
+     */
+    public static Specification<Expense> matching(ExpenseFilter filter) {
+        Specification<Expense> spec = Specification.allOf();
+
+        if (filter.from() != null) {
+            spec = spec.and(onOrAfter(filter.from()));
+        }
+        if (filter.to() != null) {
+            spec = spec.and(onOrBefore(filter.to()));
+        }
+        if (filter.category() != null && !filter.category().isEmpty()) {
+            spec = spec.and(inCategories(filter.category()));
+        }
+        if (filter.type() != null) {
+            spec = spec.and(ofType(filter.type()));
+        }
+        if (filter.counterparty() != null && !filter.counterparty().isBlank()) {
+            spec = spec.and(counterpartyStartsWith(filter.counterparty().trim()));
+        }
+
+        return spec;
+    }
+
+    /**
+     * Orders by {@link ExpenseRepository#NEWEST_FIRST}. Spring Data drops this ordering from count queries.
+     */
+    public static Specification<Expense> newestFirst() {
+        return (root, query, cb) -> {
+            query.orderBy(cb.desc(root.get("time")), cb.desc(root.get("id")));
+            return null;
+        };
+    }
+
+    public static Specification<Expense> onOrAfter(LocalDate day) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("time"), day.atStartOfDay());
+    }
+
+    public static Specification<Expense> onOrBefore(LocalDate day) {
+        // Compare against the start of the next day so that the whole last day is included
+        return (root, query, cb) -> cb.lessThan(root.get("time"), day.plusDays(1).atStartOfDay());
+    }
+
+    public static Specification<Expense> inCategories(Collection<ExpenseCategory> categories) {
+        return (root, query, cb) -> root.get("category").in(categories);
+    }
+
+    public static Specification<Expense> ofType(ExpenseType type) {
+        return (root, query, cb) -> type == ExpenseType.INCOME
+                ? cb.greaterThanOrEqualTo(root.get("amount"), Money.ZERO)
+                : cb.lessThan(root.get("amount"), Money.ZERO);
+    }
+
+    public static Specification<Expense> counterpartyStartsWith(String prefix) {
+        // A prefix match rather than a substring match, so the counterparty index can be used
+        String escaped = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return (root, query, cb) -> cb.like(root.get("counterparty"), escaped + "%", '\\');
+    }
+
+}
@@ -0,0 +1,119 @@
+package dev.amiah.budget_tracker.repository;
+
+import dev.amiah.budget_tracker.dto.ExpenseRow;
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Reads the {@code expense} table row by row without materializing it. Rows are handed to a callback as
+ * soon as the driver returns them, so memory use depends on the JDBC fetch size and not on the size of the table.
+ */
+@Repository
+public class ExpenseStreamRepository {
+
+    private static final String SELECT_ALL =
+            "SELECT expense_id, name, amount_cents, time, counterparty, category FROM expense ORDER BY expense_id";
+    private static final String SELECT_WITHOUT_FINGERPRINT =
+            "SELECT expense_id, name, amount_cents, time, counterparty, category FROM expense WHERE fingerprint IS NULL";
+    private static final String SELECT_FINGERPRINTS =
+            "SELECT fingerprint FROM expense WHERE fingerprint IS NOT NULL";
+    private static final String UPDATE_FINGERPRINT =
+            "UPDATE expense SET fingerprint = ? WHERE expense_id = ? AND fingerprint IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param fetchSize The JDBC fetch size used while streaming. MySQL Connector/J only streams results when this
+     *                  is {@link Integer#MIN_VALUE}, or when {@code useCursorFetch=true} is set on the connection URL
+     *                  and this is positive; otherwise the driver buffers the whole result set.
+     */
+    public ExpenseStreamRepository(DataSource dataSource,
+                                   @Value("${budget-tracker.stream.fetch-size:-2147483648}") int fetchSize)
+    {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Passes every expense, ordered by id, to {@code action}.
+     *
+     * @param action The callback to receive each row.
+     */
+    public void forEach(Consumer<ExpenseRow> action) {
+        jdbcTemplate.query(SELECT_ALL, rs -> {
+            action.accept(toRow(rs));
+        });
+    }
+
+    /**
+     * Passes every expense that doesn't have a fingerprint yet to {@code action}.
+     *
+     * @param action The callback to receive each row.
+     */
+    public void forEachWithoutFingerprint(Consumer<ExpenseRow> action) {
+        jdbcTemplate.query(SELECT_WITHOUT_FINGERPRINT, rs -> {
+            action.accept(toRow(rs));
+        });
+    }
+
+    /**
+     * Passes the fingerprint of every expense that has one to {@code action}, straight from the fingerprint index.
+     *
+     * @param action The callback to receive each fingerprint.
+     */
+    public void forEachFingerprint(LongConsumer action) {
+        jdbcTemplate.query(SELECT_FINGERPRINTS, rs -> {
+            action.accept(rs.getLong(1));
+        });
+    }
+
+    /**
+     * Sets the fingerprints of expenses that don't have one, in one JDBC batch. Expenses that were given one in
+     * the meantime, by being updated, keep theirs.
+     *
+     * @param ids The {@code id}s of the expenses.
+     * @param fingerprints The fingerprint of each expense in {@code ids}.
+     * @param count How many of {@code ids} to update.
+     */
+    public void setFingerprints(long[] ids, long[] fingerprints, int count) {
+        jdbcTemplate.batchUpdate(UPDATE_FINGERPRINT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, fingerprints[i]);
+                ps.setLong(2, ids[i]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return count;
+            }
+        });
+    }
+
+    private static ExpenseRow toRow(ResultSet rs) throws SQLException {
+        String category = rs.getString("category");
+        long cents = rs.getLong("amount_cents");
+        Money amount = rs.wasNull() ? null : Money.ofCents(cents);
+
+        return new ExpenseRow(
+                rs.getLong("expense_id"),
+                rs.getString("name"),
+                amount,
+                rs.getObject("time", LocalDateTime.class),
+                rs.getString("counterparty"),
+                category != null ? ExpenseCategory.valueOf(category) : null);
+    }
+
+}
@@ -0,0 +1,33 @@
+package dev.amiah.budget_tracker.repository;
+
+import dev.amiah.budget_tracker.model.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * Inserts {@code key} without a response. Unlike a save, this doesn't look for the key first, and fails if
+     * it already exists; if another transaction inserted it and hasn't ended, this waits for it to.
+     */
+    @Modifying
+    @Query("INSERT INTO IdempotencyKey (key, requestHash, createdAt) VALUES (:key, :requestHash, :createdAt)")
+    void claim(String key, String requestHash, LocalDateTime createdAt);
+
+    /**
+     * Stores the response to the request with {@code key}, in one statement without reading the key first.
+     */
+    @Modifying
+    @Query("""
+            UPDATE IdempotencyKey k SET k.statusCode = :statusCode, k.contentType = :contentType,
+                k.location = :location, k.body = :body
+            WHERE k.key = :key""")
+    int complete(String key, int statusCode, String contentType, String location, String body);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKey k WHERE k.createdAt < :cutoff")
+    int deleteCreatedBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,30 @@
+package dev.amiah.budget_tracker.repository;
+
+import dev.amiah.budget_tracker.model.ImportJob;
+import dev.amiah.budget_tracker.model.data_type.ImportStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
+
+    List<ImportJob> findAllByStatusIn(Collection<ImportStatus> statuses);
+
+    List<ImportJob> findAllByOrderByCreatedAtDesc();
+
+    /**
+     * Moves a job to {@code to} in a single statement, but only if it is in one of {@code from}. Of several callers
+     * that try this at the same time, only one gets the job.
+     *
+     * @return The number of rows updated; {@code 0} if the job doesn't exist or was in another state.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE ImportJob j SET j.status = :to, j.updatedAt = :now WHERE j.id = :id AND j.status IN :from")
+    int claim(Long id, Collection<ImportStatus> from, ImportStatus to, LocalDateTime now);
+}
@@ -0,0 +1,7 @@
+package dev.amiah.budget_tracker.repository;
+
+import dev.amiah.budget_tracker.model.IngestCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface IngestCheckpointRepository extends JpaRepository<IngestCheckpoint, String> {
+}
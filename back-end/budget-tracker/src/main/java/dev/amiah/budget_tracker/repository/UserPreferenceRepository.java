@@ -1,7 +1,50 @@
 package dev.amiah.budget_tracker.repository;
 
+import dev.amiah.budget_tracker.config.CacheConfig;
 import dev.amiah.budget_tracker.model.UserPreference;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Preferences are read far more often than they change, so reads for display go through caches. Every write
+ * through this repository evicts the changed preference and the cached list.
+ */
 public interface UserPreferenceRepository extends JpaRepository<UserPreference, Long> {
+
+    /**
+     * Reads a preference through the {@link CacheConfig#USER_PREFERENCES} cache, for read-only use. Write paths
+     * should use {@link #findById(Object)}.
+     */
+    @Cacheable(cacheNames = CacheConfig.USER_PREFERENCES, unless = "#result == null")
+    default Optional<UserPreference> findCachedById(Long id) {
+        return findById(id);
+    }
+
+    /**
+     * Reads every preference through the {@link CacheConfig#ALL_USER_PREFERENCES} cache, for read-only use.
+     */
+    @Cacheable(cacheNames = CacheConfig.ALL_USER_PREFERENCES, key = "'all'")
+    default List<UserPreference> findAllCached() {
+        return findAll();
+    }
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.USER_PREFERENCES, key = "#result.id"),
+            @CacheEvict(cacheNames = CacheConfig.ALL_USER_PREFERENCES, allEntries = true)
+    })
+    <S extends UserPreference> S save(S preference);
+
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.USER_PREFERENCES, key = "#p0"),
+            @CacheEvict(cacheNames = CacheConfig.ALL_USER_PREFERENCES, allEntries = true)
+    })
+    void deleteById(Long id);
+
 }
@@ -0,0 +1,40 @@
+package dev.amiah.budget_tracker.service;
+
+import dev.amiah.budget_tracker.exception.InvalidBalanceSeriesException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+public enum BalanceBucket {
+    DAY,
+    // Weeks start on Monday
+    WEEK,
+    MONTH;
+
+    /**
+     * Converts a {@code String} to a {@code BalanceBucket}, ignoring case.
+     *
+     * @throws InvalidBalanceSeriesException If it is not recognized.
+     */
+    public static BalanceBucket fromString(String bucket) {
+        try {
+            return valueOf(bucket.trim().toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            throw new InvalidBalanceSeriesException("Cannot bucket balances by " + bucket + "; expected day, week, or month");
+        }
+    }
+
+    /**
+     * @return The first day of the bucket after the one {@code day} is in.
+     */
+    public LocalDate nextStart(LocalDate day) {
+        return switch (this) {
+            case DAY -> day.plusDays(1);
+            case WEEK -> day.with(TemporalAdjusters.next(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1).plusMonths(1);
+        };
+    }
+
+}
@@ -0,0 +1,104 @@
+package dev.amiah.budget_tracker.service;
+
+import dev.amiah.budget_tracker.event.ExpenseChangedEvent;
+import dev.amiah.budget_tracker.model.BalanceSummary;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import dev.amiah.budget_tracker.repository.BalanceSummaryRepository;
+import dev.amiah.budget_tracker.repository.ExpenseRepository;
+import dev.amiah.budget_tracker.util.TransactionBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Keeps the {@link BalanceSummary} row in step with the {@code expense} table so that reading the total balance
+ * is a primary key lookup instead of a {@code SUM} over every expense.
+ * <p>
+ * Every {@link ExpenseChangedEvent} contributes its change in balance to the current transaction. The changes
+ * are added up and written with a single {@code UPDATE} just before that transaction commits, so the summary
+ * commits or rolls back together with the expenses and a batch of writes costs one extra statement, not one
+ * per expense. That update is flushed before other derived data, so that {@link #getTotal()} returns the total as
+ * the transaction will commit it from then on. The summary is checked against a full {@code SUM} at startup and on
+ * a schedule, and corrected if the two have drifted apart.
+ */
+@Service
+public class BalanceLedger {
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceLedger.class);
+
+    private final BalanceSummaryRepository summaryRepository;
+    private final ExpenseRepository expenseRepository;
+
+    public BalanceLedger(BalanceSummaryRepository summaryRepository, ExpenseRepository expenseRepository) {
+        this.summaryRepository = summaryRepository;
+        this.expenseRepository = expenseRepository;
+    }
+
+    /**
+     * @return The sum of all {@code Expense} amounts.
+     */
+    public Money getTotal() {
+        return summaryRepository.findById(BalanceSummary.LEDGER_ID)
+                .map(BalanceSummary::getTotal)
+                .orElseGet(() -> Money.ofCents(expenseRepository.getTotalBalance()));
+    }
+
+    @EventListener
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        long delta = event.amountDeltaCents();
+
+        if (delta == 0) {
+            return;
+        }
+
+        TransactionBuffer.addFirst(this, PendingDelta::new, pending -> pending.add(delta), this::apply);
+    }
+
+    /**
+     * Creates the summary row if it is missing and corrects it if it no longer matches the {@code expense} table.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${budget-tracker.balance.drift-check-interval:PT1H}",
+               fixedDelayString = "${budget-tracker.balance.drift-check-interval:PT1H}")
+    @Transactional
+    public void reconcile() {
+        // Lock the summary first so that no write can apply its delta between the SUM and the comparison
+        BalanceSummary summary = summaryRepository.findByIdForUpdate(BalanceSummary.LEDGER_ID).orElse(null);
+        Money actual = Money.ofCents(expenseRepository.getTotalBalance());
+
+        if (summary == null) {
+            summaryRepository.save(new BalanceSummary(actual));
+            log.info("Created balance summary with total {}", actual);
+        }
+        else if (!summary.getTotal().equals(actual)) {
+            log.warn("Balance summary drifted from expenses: stored {}, actual {}. Correcting.", summary.getTotal(), actual);
+            summary.setTotal(actual);
+        }
+    }
+
+    private void apply(PendingDelta pending) {
+        long delta = pending.delta;
+
+        if (delta != 0 && summaryRepository.addToTotal(BalanceSummary.LEDGER_ID, delta) == 0) {
+            // The summary has not been created yet; the next reconcile will pick this change up from the SUM
+            log.debug("Balance summary missing, skipping delta of {} cents", delta);
+        }
+    }
+
+    /**
+     * The change in balance, in cents, accumulated by the current transaction.
+     */
+    private static class PendingDelta {
+
+        private long delta = 0;
+
+        void add(long cents) {
+            delta = Math.addExact(delta, cents);
+        }
+    }
+
+}
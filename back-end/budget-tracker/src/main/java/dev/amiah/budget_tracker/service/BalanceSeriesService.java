@@ -0,0 +1,144 @@
+package dev.amiah.budget_tracker.service;
+
+import dev.amiah.budget_tracker.dto.BalancePoint;
+import dev.amiah.budget_tracker.event.ExpenseChangedEvent;
+import dev.amiah.budget_tracker.exception.BalanceSeriesNotReadyException;
+import dev.amiah.budget_tracker.exception.InvalidBalanceSeriesException;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import dev.amiah.budget_tracker.repository.ExpenseStreamRepository;
+import dev.amiah.budget_tracker.service.balance.DailyBalances;
+import dev.amiah.budget_tracker.util.BackgroundBuild;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Answers how the balance changed over time from {@link DailyBalances}, without reading the {@code expense} table.
+ * <p>
+ * Like the {@link ExpenseSearchService}, the daily balances are built in the background at startup by streaming
+ * the {@code expense} table, and series fail with a {@link BalanceSeriesNotReadyException} until that is done.
+ * After that, every committed {@link ExpenseChangedEvent} is applied to them, wherever in time it lands. Both are
+ * handled by a {@link BackgroundBuild}, which holds back changes until the build finishes and retries a build that
+ * fails; applying a change replaces what the expense added before, as it requires.
+ */
+@Service
+public class BalanceSeriesService {
+
+    /**
+     * The most buckets one series can have; about 27 years of days.
+     */
+    public static final int MAX_BUCKETS = 10_000;
+
+    private static final Logger log = LoggerFactory.getLogger(BalanceSeriesService.class);
+
+    // Replaced by each build attempt, so that a failed attempt leaves nothing behind
+    private volatile DailyBalances balances = new DailyBalances();
+    private final ExpenseStreamRepository streamRepository;
+    private final BackgroundBuild<ExpenseChangedEvent> balancesBuild;
+
+    public BalanceSeriesService(ExpenseStreamRepository streamRepository,
+                                @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                TaskScheduler taskScheduler)
+    {
+        this.streamRepository = streamRepository;
+        this.balancesBuild = new BackgroundBuild<>("daily balances", taskExecutor, taskScheduler, this::build,
+                this::apply);
+    }
+
+    /**
+     * Splits the days from {@code from} to {@code to} into buckets and works out the balance at the end of each.
+     * The first and last buckets are cut short if the range starts or ends partway through them. Expenses without
+     * a time are left out of every balance. Takes time in proportion to the number of buckets, not expenses.
+     *
+     * @param from The first day to include.
+     * @param to The last day to include.
+     * @param bucket How many days each point covers.
+     * @return One point per bucket, in order.
+     * @throws InvalidBalanceSeriesException If {@code from} is after {@code to}, either is outside the years 1 to
+     *         9999, or there would be more than {@link #MAX_BUCKETS} points.
+     * @throws BalanceSeriesNotReadyException If the daily balances are still being built.
+     */
+    public List<BalancePoint> series(LocalDate from, LocalDate to, BalanceBucket bucket) {
+        if (from.isAfter(to)) {
+            throw new InvalidBalanceSeriesException("The series starts on " + from + ", after it ends on " + to);
+        }
+        if (from.isBefore(DailyBalances.EARLIEST_DAY) || to.isAfter(DailyBalances.LATEST_DAY)) {
+            throw new InvalidBalanceSeriesException("The series has to be within the years 1 to 9999");
+        }
+        if (!balancesBuild.isReady()) {
+            throw new BalanceSeriesNotReadyException();
+        }
+
+        List<LocalDate> starts = new ArrayList<>();
+        // The balance before the series, then the balance at the end of each bucket
+        List<LocalDate> ends = new ArrayList<>();
+        ends.add(from.minusDays(1));
+
+        for (LocalDate start = from; !start.isAfter(to); start = bucket.nextStart(start)) {
+            if (starts.size() == MAX_BUCKETS) {
+                throw new InvalidBalanceSeriesException("The series would have more than " + MAX_BUCKETS
+                        + " points; use a shorter range or a larger bucket");
+            }
+            LocalDate end = bucket.nextStart(start).minusDays(1);
+            starts.add(start);
+            ends.add(end.isAfter(to) ? to : end);
+        }
+
+        long[] cents = balances.balancesAt(ends.toArray(LocalDate[]::new));
+
+        List<BalancePoint> points = new ArrayList<>(starts.size());
+        for (int i = 0; i < starts.size(); i++) {
+            points.add(new BalancePoint(starts.get(i), ends.get(i + 1),
+                    Money.ofCents(Math.subtractExact(cents[i + 1], cents[i])).toBigDecimal(),
+                    Money.ofCents(cents[i + 1]).toBigDecimal()));
+        }
+        return points;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildBalances() {
+        balancesBuild.start();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        balancesBuild.apply(event);
+    }
+
+    private void build() {
+        long start = System.nanoTime();
+        DailyBalances built = new DailyBalances();
+        streamRepository.forEach(row -> built.put(row.id(), row.time(), centsOf(row.amount())));
+        balances = built;
+
+        log.info("Built daily balances of {} expenses in {} ms, using about {} KB", built.size(),
+                (System.nanoTime() - start) / 1_000_000, built.estimatedBytes() / 1024);
+    }
+
+    private void apply(ExpenseChangedEvent event) {
+        Expense after = event.after();
+
+        if (after == null) {
+            balances.remove(event.id());
+        }
+        else {
+            balances.put(after.getId(), after.getTime(), centsOf(after.getAmount()));
+        }
+    }
+
+    private static long centsOf(Money amount) {
+        return amount != null ? amount.cents() : 0;
+    }
+
+}
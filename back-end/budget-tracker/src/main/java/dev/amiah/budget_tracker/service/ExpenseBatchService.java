@@ -0,0 +1,127 @@
+package dev.amiah.budget_tracker.service;
+
+import dev.amiah.budget_tracker.dto.BatchItemResult;
+import dev.amiah.budget_tracker.event.ExpenseChangedEvent;
+import dev.amiah.budget_tracker.model.Expense;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saves many expenses in one transaction. Inserts are flushed in groups of the JDBC batch size so Hibernate
+ * can send each group as a single batch, and the persistence context is cleared after every group so memory
+ * does not grow with the size of the request.
+ */
+@Service
+public class ExpenseBatchService {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    public ExpenseBatchService(ApplicationEventPublisher eventPublisher,
+                               @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int batchSize)
+    {
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Saves every valid {@code Expense} in {@code expenses}. Invalid ones are skipped and reported as rejected;
+     * they do not stop the rest from being saved.
+     *
+     * @param expenses The expenses to save.
+     * @return One result per item of {@code expenses}, in the same order.
+     */
+    @Transactional
+    public List<BatchItemResult> insertAll(List<Expense> expenses) {
+        return insertAll(expenses, null);
+    }
+
+    /**
+     * Saves every valid {@code Expense} in {@code expenses} that isn't already saved. Invalid ones are reported as
+     * rejected, and ones that {@code duplicates} finds are already saved are reported as duplicates.
+     *
+     * @param expenses The expenses to save.
+     * @param duplicates Checks the source {@code expenses} come from for duplicates, or {@code null} to save them
+     *                   all.
+     * @return One result per item of {@code expenses}, in the same order.
+     */
+    @Transactional
+    public List<BatchItemResult> insertAll(List<Expense> expenses, ExpenseDuplicateService.Session duplicates) {
+        List<BatchItemResult> results = new ArrayList<>(expenses.size());
+        String[] errors = new String[expenses.size()];
+        // Only valid expenses are checked for duplicates
+        List<Expense> valid = new ArrayList<>(expenses.size());
+        for (int i = 0; i < expenses.size(); i++) {
+            errors[i] = validate(expenses.get(i));
+            valid.add(errors[i] == null ? expenses.get(i) : null);
+        }
+        boolean[] duplicate = duplicates != null ? duplicates.findDuplicates(valid) : new boolean[expenses.size()];
+        int pending = 0;
+
+        for (int i = 0; i < expenses.size(); i++) {
+            Expense expense = expenses.get(i);
+            String error = errors[i];
+
+            if (error != null) {
+                results.add(BatchItemResult.rejected(i, error));
+                continue;
+            }
+            if (duplicate[i]) {
+                results.add(BatchItemResult.duplicate(i));
+                continue;
+            }
+
+            // Always insert, even if the client sent an id
+            expense.setId(null);
+            entityManager.persist(expense);
+            eventPublisher.publishEvent(ExpenseChangedEvent.created(expense));
+            results.add(BatchItemResult.created(i, expense.getId()));
+
+            if (++pending == batchSize) {
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * @return A description of what is wrong with {@code expense}, or {@code null} if it can be saved.
+     */
+    public static String validate(Expense expense) {
+        if (expense == null) {
+            return "Expense is missing";
+        }
+        if (expense.getAmount() == null) {
+            return "Amount is required";
+        }
+        if (expense.getCategory() == null) {
+            return "Category is required";
+        }
+        if (isTooLong(expense.getName())) {
+            return "Name is longer than " + Expense.MAX_TEXT_LENGTH + " characters";
+        }
+        if (isTooLong(expense.getCounterparty())) {
+            return "Counterparty is longer than " + Expense.MAX_TEXT_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    private static boolean isTooLong(String value) {
+        // Columns count characters rather than UTF-16 units
+        return value != null && value.codePointCount(0, value.length()) > Expense.MAX_TEXT_LENGTH;
+    }
+
+}
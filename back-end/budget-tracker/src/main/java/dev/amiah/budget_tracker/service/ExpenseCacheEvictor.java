@@ -0,0 +1,24 @@
+package dev.amiah.budget_tracker.service;
+
+import dev.amiah.budget_tracker.config.CacheConfig;
+import dev.amiah.budget_tracker.event.ExpenseChangedEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Evicts changed expenses from the {@link CacheConfig#EXPENSES} cache once their change has committed, so that
+ * the next read loads the committed row. A read that loaded the old row just before the commit can still put it
+ * back afterwards; the cache's expiry bounds how long that lasts.
+ */
+@Service
+public class ExpenseCacheEvictor {
+
+    // Misses are not cached, so new expenses have nothing to evict
+    @TransactionalEventListener(fallbackExecution = true,
+            condition = "#event.type() != T(dev.amiah.budget_tracker.event.ExpenseChangedEvent.Type).CREATED")
+    @CacheEvict(cacheNames = CacheConfig.EXPENSES, key = "#event.id()")
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+    }
+
+}
@@ -0,0 +1,199 @@
+package dev.amiah.budget_tracker.service;
+
+import dev.amiah.budget_tracker.event.ExpenseChangedEvent;
+import dev.amiah.budget_tracker.exception.ExpenseChangesCompactedException;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.ExpenseChange;
+import dev.amiah.budget_tracker.model.ExpenseChangeHead;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import dev.amiah.budget_tracker.repository.ExpenseChangeHeadRepository;
+import dev.amiah.budget_tracker.repository.ExpenseChangeRepository;
+import dev.amiah.budget_tracker.repository.ExpenseRepository;
+import dev.amiah.budget_tracker.util.TransactionBuffer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Records every {@link ExpenseChangedEvent} in the {@code expense_change} table, so that clients can ask for what
+ * changed since the last {@code seq} they saw instead of reloading everything.
+ * <p>
+ * Like the {@link BalanceLedger}, the changes of a transaction are written just before it commits. The
+ * transaction locks the {@link ExpenseChangeHead} row to take its {@code seq}s and holds the lock until it
+ * commits, so {@code seq}s become visible in order and a client reading up to some {@code seq} can never miss an
+ * earlier one that commits later. Entries older than the retention period are deleted on a schedule; clients
+ * that last synced before that have to reload everything.
+ */
+@Service
+public class ExpenseChangeLog {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseChangeLog.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ExpenseChangeRepository changeRepository;
+    private final ExpenseChangeHeadRepository headRepository;
+    private final ExpenseRepository expenseRepository;
+    private final BalanceLedger balanceLedger;
+    private final Duration retention;
+
+    /**
+     * @param retention How long entries are kept before {@link #compact()} deletes them.
+     */
+    public ExpenseChangeLog(ExpenseChangeRepository changeRepository, ExpenseChangeHeadRepository headRepository,
+                            ExpenseRepository expenseRepository, BalanceLedger balanceLedger,
+                            @Value("${budget-tracker.changes.retention:P7D}") Duration retention)
+    {
+        this.changeRepository = changeRepository;
+        this.headRepository = headRepository;
+        this.expenseRepository = expenseRepository;
+        this.balanceLedger = balanceLedger;
+        this.retention = retention;
+    }
+
+    @EventListener
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        TransactionBuffer.add(this, PendingChanges::new, pending -> pending.add(event), this::apply);
+    }
+
+    /**
+     * Reads the changes after {@code since}, with at most one change per expense: the expense as it is now, or
+     * that it was deleted. Expenses that were created and deleted again after {@code since} are left out.
+     * <p>
+     * Everything is read from one snapshot, so the expenses and the total are exactly as of the returned version.
+     *
+     * @param since The {@code seq} the client has synced up to, or 0 if it has never synced.
+     * @param limit The most log entries to read. If there are more, the result is a prefix of the changes.
+     * @return The changes, and the {@code seq} to pass as {@code since} next time.
+     * @throws ExpenseChangesCompactedException If changes after {@code since} have already been deleted.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public Changes changesSince(long since, int limit) {
+        ExpenseChangeHead head = headRepository.findById(ExpenseChangeHead.HEAD_ID).orElseThrow(ExpenseChangeLog::missingHead);
+
+        // A seq past the end comes from another database, such as one this was restored over
+        if (since < head.getCompactedThrough() || since > head.getLastSeq()) {
+            throw new ExpenseChangesCompactedException(since, head.getLastSeq());
+        }
+
+        List<ExpenseChange> entries = changeRepository.findBySeqGreaterThanOrderBySeqAsc(since, Limit.of(limit));
+        boolean hasMore = !entries.isEmpty() && entries.getLast().getSeq() < head.getLastSeq();
+        long version = hasMore ? entries.getLast().getSeq() : head.getLastSeq();
+
+        // The latest change of each expense, in seq order
+        Map<Long, Change> latest = new LinkedHashMap<>();
+        for (ExpenseChange entry : entries) {
+            Change previous = latest.remove(entry.getExpenseId());
+            ExpenseChangedEvent.Type type = entry.getType();
+
+            if (previous != null && previous.type() == ExpenseChangedEvent.Type.CREATED) {
+                if (type == ExpenseChangedEvent.Type.DELETED) {
+                    continue;
+                }
+                type = ExpenseChangedEvent.Type.CREATED;
+            }
+            latest.put(entry.getExpenseId(), new Change(entry.getSeq(), type, entry.getExpenseId(), null));
+        }
+
+        List<Long> ids = latest.values().stream()
+                .filter(change -> change.type() != ExpenseChangedEvent.Type.DELETED)
+                .map(Change::id)
+                .toList();
+        Map<Long, Expense> expenses = expenseRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Expense::getId, Function.identity()));
+
+        List<Change> changes = latest.values().stream()
+                .map(change -> change.type() == ExpenseChangedEvent.Type.DELETED
+                        ? change
+                        : new Change(change.seq(), change.type(), change.id(), expenses.get(change.id())))
+                .toList();
+
+        return new Changes(version, hasMore ? null : balanceLedger.getTotal(), changes, hasMore);
+    }
+
+    /**
+     * Deletes entries older than the retention period.
+     *
+     * @return The number of entries deleted.
+     */
+    @Scheduled(initialDelayString = "${budget-tracker.changes.compaction-interval:PT1H}",
+               fixedDelayString = "${budget-tracker.changes.compaction-interval:PT1H}")
+    @Transactional
+    public int compact() {
+        Long through = changeRepository.findLastSeqBefore(LocalDateTime.now().minus(retention));
+        if (through == null) {
+            return 0;
+        }
+
+        // Delete before locking the head, so writers are only held up for the update
+        int deleted = changeRepository.deleteThrough(through);
+        ExpenseChangeHead head = headRepository.findByIdForUpdate(ExpenseChangeHead.HEAD_ID).orElseThrow(ExpenseChangeLog::missingHead);
+        head.setCompactedThrough(Math.max(head.getCompactedThrough(), through));
+
+        log.info("Compacted {} expense changes through seq {}", deleted, through);
+        return deleted;
+    }
+
+    private void apply(PendingChanges pending) {
+        ExpenseChangeHead head = headRepository.findByIdForUpdate(ExpenseChangeHead.HEAD_ID).orElseThrow(ExpenseChangeLog::missingHead);
+        LocalDateTime now = LocalDateTime.now();
+        long seq = head.getLastSeq();
+
+        for (ExpenseChangedEvent event : pending.events) {
+            entityManager.persist(new ExpenseChange(++seq, event.id(), event.type(), now));
+        }
+        head.setLastSeq(seq);
+    }
+
+    private static IllegalStateException missingHead() {
+        return new IllegalStateException("The expense_change_head row is missing");
+    }
+
+    /**
+     * One change in the result of {@link #changesSince(long, int)}.
+     *
+     * @param seq The {@code seq} of the latest change to the expense.
+     * @param type What happened to the expense since the client last synced.
+     * @param id The {@code id} of the expense.
+     * @param expense The expense as it is now, or {@code null} if it was deleted.
+     */
+    public record Change(long seq, ExpenseChangedEvent.Type type, Long id, Expense expense) {}
+
+    /**
+     * The result of {@link #changesSince(long, int)}.
+     *
+     * @param version The {@code seq} these changes bring the client up to.
+     * @param total The total balance as of {@code version}, or {@code null} if there are more changes.
+     * @param changes At most one change per expense, in {@code seq} order.
+     * @param hasMore Whether there are changes after {@code version}.
+     */
+    public record Changes(long version, Money total, List<Change> changes, boolean hasMore) {}
+
+    /**
+     * The changes made by the current transaction, in the order they were made.
+     */
+    private static class PendingChanges {
+
+        private final List<ExpenseChangedEvent> events = new ArrayList<>();
+
+        void add(ExpenseChangedEvent event) {
+            events.add(event);
+        }
+    }
+
+}
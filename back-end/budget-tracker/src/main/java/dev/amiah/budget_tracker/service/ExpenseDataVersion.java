@@ -0,0 +1,45 @@
+package dev.amiah.budget_tracker.service;
+
+import dev.amiah.budget_tracker.event.ExpenseChangedEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A counter that changes whenever the data behind the expense read endpoints may have changed, used as their
+ * ETag so that clients which already have the current data get a 304 without the database being queried.
+ * <p>
+ * The counter is bumped after the change has committed, and read before the data is, so an ETag can only ever
+ * be older than the data sent with it. A random prefix chosen at startup keeps ETags handed out before a restart
+ * from matching once the counter starts again from zero. Changes made to the database outside the application
+ * are not seen until it restarts.
+ */
+@Service
+public class ExpenseDataVersion {
+
+    private final String prefix = Long.toString(ThreadLocalRandom.current().nextLong() >>> 1, 36);
+    private final AtomicLong version = new AtomicLong();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        bump();
+    }
+
+    /**
+     * Marks the data as changed, for changes that are not {@link ExpenseChangedEvent}s, such as a date format
+     * the expenses are rendered with.
+     */
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return A strong ETag for the current version of the data.
+     */
+    public String eTag() {
+        return "\"" + prefix + "-" + version.get() + "\"";
+    }
+
+}
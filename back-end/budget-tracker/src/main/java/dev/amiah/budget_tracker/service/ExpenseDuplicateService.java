@@ -0,0 +1,273 @@
+package dev.amiah.budget_tracker.service;
+
+import dev.amiah.budget_tracker.dto.ExpenseRow;
+import dev.amiah.budget_tracker.event.ExpenseChangedEvent;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.repository.ExpenseRepository;
+import dev.amiah.budget_tracker.repository.ExpenseStreamRepository;
+import dev.amiah.budget_tracker.service.duplicate.BloomFilter;
+import dev.amiah.budget_tracker.util.ExpenseFingerprint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Finds expenses that are already saved, so that importing the same bank statement twice doesn't save every
+ * transaction twice. Expenses are compared by their {@link ExpenseFingerprint}, which is stored in the indexed
+ * {@code fingerprint} column.
+ * <p>
+ * A {@link BloomFilter} of every saved fingerprint answers most lookups in memory: a new transaction is almost
+ * always definitely not in it, and only the rest, about 1% of new transactions plus the actual duplicates, are
+ * confirmed with one query per chunk against the fingerprint index. The filter is built in the background at
+ * startup, after filling in the fingerprints of expenses saved before they existed, and until then every lookup
+ * goes to the database. Every committed {@link ExpenseChangedEvent} adds the new fingerprint to it, and it is
+ * rebuilt larger once it holds more fingerprints than it was sized for. Fingerprints of deleted or changed
+ * expenses stay in it, which only costs an extra lookup.
+ * <p>
+ * Memory budget: about 1.2 bytes per expense at the default 1% false positive rate, sized for twice the number of
+ * expenses at startup, so about 2.4 MB per million expenses.
+ */
+@Service
+public class ExpenseDuplicateService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseDuplicateService.class);
+
+    // Expenses whose fingerprints are filled in per batch at startup
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+    // Fingerprints confirmed per query, to keep the IN list a reasonable size
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+    private static final long MIN_CAPACITY = 100_000;
+
+    private final ExpenseRepository repository;
+    private final ExpenseStreamRepository streamRepository;
+    private final TaskExecutor taskExecutor;
+    private final double falsePositiveRate;
+
+    // Null until the first build finishes
+    private volatile BloomFilter filter;
+    // The filter being built, if any, which is given new fingerprints as well so the scan can't miss them
+    private volatile BloomFilter building;
+    private final AtomicBoolean buildRunning = new AtomicBoolean(false);
+
+    /**
+     * @param falsePositiveRate How often the filter sends a new expense to the database to be confirmed.
+     */
+    public ExpenseDuplicateService(ExpenseRepository repository, ExpenseStreamRepository streamRepository,
+                                   @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                   @Value("${budget-tracker.duplicates.false-positive-rate:0.01}") double falsePositiveRate)
+    {
+        this.repository = repository;
+        this.streamRepository = streamRepository;
+        this.taskExecutor = taskExecutor;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Starts checking one source of expenses, such as a statement being imported, for duplicates.
+     */
+    public Session newSession() {
+        return new Session();
+    }
+
+    /**
+     * @return Whether the filter has been built, rather than every lookup going to the database.
+     */
+    public boolean isFilterReady() {
+        return filter != null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildFilter() {
+        if (buildRunning.compareAndSet(false, true)) {
+            taskExecutor.execute(() -> {
+                try {
+                    if (filter == null) {
+                        backfill();
+                    }
+                    build();
+                }
+                catch (RuntimeException e) {
+                    log.warn("Building the duplicate filter failed; duplicates are found with the database only", e);
+                }
+                finally {
+                    buildRunning.set(false);
+                }
+            });
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        Expense after = event.after();
+        if (after == null || after.getFingerprint() == null) {
+            return;
+        }
+
+        // Read in the opposite order to how build() sets them, so a fingerprint is never only in a replaced filter
+        BloomFilter next = building;
+        BloomFilter current = filter;
+        if (next != null) {
+            next.add(after.getFingerprint());
+        }
+        if (current != null) {
+            current.add(after.getFingerprint());
+            if (current.isOverCapacity()) {
+                buildFilter();
+            }
+        }
+    }
+
+    /**
+     * Fills in the fingerprints of expenses saved before fingerprints were added.
+     */
+    private void backfill() {
+        long[] ids = new long[BACKFILL_BATCH_SIZE];
+        long[] fingerprints = new long[BACKFILL_BATCH_SIZE];
+        int[] pending = {0};
+        long[] total = {0};
+
+        streamRepository.forEachWithoutFingerprint(row -> {
+            ids[pending[0]] = row.id();
+            fingerprints[pending[0]] = fingerprintOf(row);
+            if (++pending[0] == BACKFILL_BATCH_SIZE) {
+                streamRepository.setFingerprints(ids, fingerprints, pending[0]);
+                total[0] += pending[0];
+                pending[0] = 0;
+            }
+        });
+        streamRepository.setFingerprints(ids, fingerprints, pending[0]);
+        total[0] += pending[0];
+
+        if (total[0] > 0) {
+            log.info("Filled in the fingerprints of {} expenses", total[0]);
+        }
+    }
+
+    private void build() {
+        long start = System.nanoTime();
+        BloomFilter next = new BloomFilter(Math.max(MIN_CAPACITY, 2 * repository.count()), falsePositiveRate);
+
+        building = next;
+        streamRepository.forEachFingerprint(next::add);
+        filter = next;
+        building = null;
+
+        log.info("Built duplicate filter sized for {} expenses in {} ms, using {} KB", next.getCapacity(),
+                (System.nanoTime() - start) / 1_000_000, next.sizeBytes() / 1024);
+    }
+
+    private boolean mightBeSaved(long fingerprint) {
+        BloomFilter current = filter;
+        return current == null || current.mightContain(fingerprint);
+    }
+
+    private static long fingerprintOf(ExpenseRow row) {
+        return ExpenseFingerprint.of(row.name(), row.amount(), row.time(), row.counterparty());
+    }
+
+    /**
+     * Checks the expenses from one source, such as one statement, in the order they appear in it.
+     * <p>
+     * A source may hold the same transaction more than once, such as two identical coffees on the same day, so
+     * duplicates are counted rather than just detected: if {@code n} expenses with a fingerprint were saved before
+     * the source was first checked, its first {@code n} expenses with that fingerprint are duplicates and the rest
+     * are new. Expenses the session itself saves are counted separately, so they aren't taken for duplicates of
+     * later ones. Keeps about 100 bytes per distinct transaction in the source. Not thread-safe.
+     */
+    public final class Session {
+
+        private final Map<Long, Counts> counts = new HashMap<>();
+
+        private Session() {}
+
+        /**
+         * Finds which of {@code expenses} are already saved, with at most one query per thousand that might be.
+         * Every expense that isn't a duplicate is taken to be saved by the caller.
+         *
+         * @param expenses The next expenses from the source. {@code null}s are skipped.
+         * @return Whether each item of {@code expenses} is a duplicate, in the same order.
+         */
+        public boolean[] findDuplicates(List<Expense> expenses) {
+            long[] fingerprints = new long[expenses.size()];
+            List<Long> lookups = new ArrayList<>();
+
+            for (int i = 0; i < expenses.size(); i++) {
+                if (expenses.get(i) == null) {
+                    continue;
+                }
+
+                fingerprints[i] = ExpenseFingerprint.of(expenses.get(i));
+                Counts c = counts.computeIfAbsent(fingerprints[i], f -> new Counts());
+                if (c.existing < 0) {
+                    // Definitely none if the filter says so, otherwise set by the lookup below
+                    if (mightBeSaved(fingerprints[i])) {
+                        lookups.add(fingerprints[i]);
+                    }
+                    c.existing = 0;
+                }
+            }
+
+            lookUp(lookups);
+
+            boolean[] duplicates = new boolean[expenses.size()];
+            for (int i = 0; i < expenses.size(); i++) {
+                if (expenses.get(i) == null) {
+                    continue;
+                }
+
+                Counts c = counts.get(fingerprints[i]);
+                duplicates[i] = c.seen < c.existing;
+                c.seen++;
+                if (!duplicates[i]) {
+                    c.saved++;
+                }
+            }
+            return duplicates;
+        }
+
+        /**
+         * Records an expense from the source that was handled earlier, such as by an import that is being resumed,
+         * so that the count of later expenses with the same fingerprint starts after it.
+         */
+        public void skip(Expense expense) {
+            counts.computeIfAbsent(ExpenseFingerprint.of(expense), f -> new Counts()).seen++;
+        }
+
+        private void lookUp(List<Long> fingerprints) {
+            for (int from = 0; from < fingerprints.size(); from += LOOKUP_BATCH_SIZE) {
+                List<Long> batch = fingerprints.subList(from, Math.min(fingerprints.size(), from + LOOKUP_BATCH_SIZE));
+
+                for (Object[] row : repository.countByFingerprintIn(batch)) {
+                    Counts c = counts.get((Long) row[0]);
+                    // Rows saved earlier by this session are in the count too
+                    c.existing = Math.max(0, (int) ((Long) row[1] - c.saved));
+                }
+            }
+        }
+    }
+
+    /**
+     * What a {@link Session} knows about one fingerprint.
+     */
+    private static final class Counts {
+
+        // How many expenses were saved before the session, or -1 if not known yet
+        int existing = -1;
+        // How many expenses with the fingerprint the session has seen, and how many of those it saved
+        int seen = 0;
+        int saved = 0;
+    }
+
+}
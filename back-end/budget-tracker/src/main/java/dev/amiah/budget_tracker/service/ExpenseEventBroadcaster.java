@@ -0,0 +1,272 @@
+package dev.amiah.budget_tracker.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.amiah.budget_tracker.dto.ExpenseEvent;
+import dev.amiah.budget_tracker.dto.TotalBalanceObject;
+import dev.amiah.budget_tracker.event.ExpenseChangedEvent;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import dev.amiah.budget_tracker.util.TransactionBuffer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes committed expense changes to clients as server-sent events, so they don't have to poll.
+ * <p>
+ * The changes of each transaction are collected while it runs. Just before it commits, the total balance is read
+ * in the same transaction, after {@link BalanceLedger} has written the transaction's change to it and while the
+ * transaction still holds the lock on it, so it is the total as of exactly this commit. Once the transaction has
+ * committed, its changes and total are handed to one thread, which turns them into a single event, serializing the
+ * JSON once no matter how many clients are subscribed, and offers it to every subscriber in the order the events
+ * were handed over. At most {@code dispatch-queue-size} transactions wait for that thread; if more commit while it
+ * is behind, the event is dropped and every subscriber is disconnected, the same as when one subscriber falls
+ * behind. Each subscriber has a bounded
+ * queue that is drained by a small pool of sender threads only while it has something to send, so idle
+ * subscribers hold no thread. The pool is of platform threads because emitters send while holding their monitor,
+ * which would pin virtual threads to their carriers while writing to a slow client. A subscriber whose queue fills up is
+ * disconnected instead of buffering without bound; browsers reconnect on their own and should then catch up
+ * with {@code /api/expenses/changes}.
+ */
+@Service
+public class ExpenseEventBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseEventBroadcaster.class);
+
+    private static final String EVENT_NAME = "expenses";
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // One thread, so events are offered to subscribers in the order they were handed over
+    private final ThreadPoolExecutor dispatcher;
+    private final ExecutorService senders;
+
+    private final BalanceLedger balanceLedger;
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+
+    /**
+     * @param bufferSize How many events may wait to be sent to one subscriber before it is disconnected.
+     * @param dispatchQueueSize How many committed transactions may wait to be turned into events before every
+     *                          subscriber is disconnected.
+     * @param senderThreads How many subscribers can be sent to at the same time.
+     */
+    public ExpenseEventBroadcaster(BalanceLedger balanceLedger, ObjectMapper objectMapper,
+                                   @Value("${budget-tracker.events.buffer-size:256}") int bufferSize,
+                                   @Value("${budget-tracker.events.dispatch-queue-size:1024}") int dispatchQueueSize,
+                                   @Value("${budget-tracker.events.sender-threads:8}") int senderThreads)
+    {
+        this.balanceLedger = balanceLedger;
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.dispatcher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(dispatchQueueSize), new CustomizableThreadFactory("expense-events-"));
+        this.senders = Executors.newFixedThreadPool(senderThreads, new CustomizableThreadFactory("expense-events-send-"));
+    }
+
+    /**
+     * Subscribes a new client. The emitter completes when the client disconnects, falls too far behind, or the
+     * request times out.
+     *
+     * @return The emitter to return from the controller.
+     */
+    public SseEmitter subscribe() {
+        return register(new SseEmitter());
+    }
+
+    /**
+     * Subscribes {@code emitter} to every event from now on.
+     *
+     * @return {@code emitter}.
+     */
+    public SseEmitter register(SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber);
+
+        // Sends the response headers right away, so the client knows it is connected
+        subscriber.offer(SseEmitter.event().comment("connected").build());
+        return emitter;
+    }
+
+    /**
+     * @return The number of connected subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @EventListener
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        // Nobody to tell, so there's no need to keep the change around until commit
+        if (subscribers.isEmpty()) {
+            return;
+        }
+
+        TransactionBuffer.addAfterCommit(this, PendingEvent::new, pending -> pending.events.add(event),
+                this::readBalance, this::dispatch);
+    }
+
+    /**
+     * Sends a comment to every subscriber, which keeps proxies from closing idle connections and finds clients
+     * that have gone away.
+     */
+    @Scheduled(initialDelayString = "${budget-tracker.events.heartbeat-interval:PT30S}",
+               fixedDelayString = "${budget-tracker.events.heartbeat-interval:PT30S}")
+    public void heartbeat() {
+        Set<ResponseBodyEmitter.DataWithMediaType> frame = SseEmitter.event().comment("heartbeat").build();
+        subscribers.forEach(subscriber -> subscriber.offer(frame));
+    }
+
+    /**
+     * Ends every subscription when the application starts shutting down. The streams never end on their own, so a
+     * graceful shutdown would otherwise wait its full timeout for them.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void disconnectAll() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    private void readBalance(PendingEvent pending) {
+        // Failing here would roll back the transaction, which matters more than its event
+        try {
+            pending.balance = balanceLedger.getTotal();
+        }
+        catch (RuntimeException e) {
+            log.warn("Could not read the balance for an expense event", e);
+        }
+    }
+
+    private void dispatch(PendingEvent pending) {
+        try {
+            dispatcher.execute(() -> broadcast(pending));
+        }
+        catch (RejectedExecutionException e) {
+            if (dispatcher.isShutdown()) {
+                return;
+            }
+            // Subscribers would miss this event, so they are made to reconnect and catch up instead
+            log.warn("Disconnecting {} expense event subscribers, {} events are waiting to be sent",
+                    subscribers.size(), dispatcher.getQueue().size());
+            subscribers.forEach(Subscriber::disconnect);
+        }
+    }
+
+    private void broadcast(PendingEvent pending) {
+        if (subscribers.isEmpty() || pending.balance == null) {
+            return;
+        }
+
+        List<ExpenseEvent.Change> changes = pending.events.stream()
+                .map(event -> new ExpenseEvent.Change(event.type(), event.id(), event.after()))
+                .toList();
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(new ExpenseEvent(changes, new TotalBalanceObject(pending.balance)));
+        }
+        catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Could not build expense event for {} changes", changes.size(), e);
+            return;
+        }
+
+        Set<ResponseBodyEmitter.DataWithMediaType> frame = SseEmitter.event().name(EVENT_NAME).data(json).build();
+        subscribers.forEach(subscriber -> subscriber.offer(frame));
+    }
+
+    /**
+     * The changes of one transaction, and the total balance it committed.
+     */
+    private static class PendingEvent {
+
+        private final List<ExpenseChangedEvent> events = new ArrayList<>();
+        private Money balance;
+    }
+
+    /**
+     * One connected client and the events waiting to be sent to it.
+     */
+    private class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Set<ResponseBodyEmitter.DataWithMediaType>> queue = new ArrayBlockingQueue<>(bufferSize);
+        // Whether a sender is draining the queue
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void offer(Set<ResponseBodyEmitter.DataWithMediaType> frame) {
+            if (!queue.offer(frame)) {
+                log.info("Disconnecting expense event subscriber that fell {} events behind", bufferSize);
+                disconnect();
+                return;
+            }
+
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                }
+                catch (RejectedExecutionException e) {
+                    // Shutting down
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            do {
+                Set<ResponseBodyEmitter.DataWithMediaType> frame;
+                while ((frame = queue.poll()) != null) {
+                    try {
+                        emitter.send(frame);
+                    }
+                    catch (IOException | IllegalStateException e) {
+                        // The client went away, or the emitter already completed
+                        disconnect();
+                        return;
+                    }
+                }
+                draining.set(false);
+                // An offer between the last poll and clearing the flag saw a sender still running, so check again
+            } while (!queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void disconnect() {
+            subscribers.remove(this);
+            queue.clear();
+            // Completing waits for a send in progress, which can take long for a slow client, so don't do it here
+            try {
+                senders.execute(emitter::complete);
+            }
+            catch (RejectedExecutionException e) {
+                // Shutting down, which completes every emitter anyway
+            }
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package dev.amiah.budget_tracker.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dev.amiah.budget_tracker.dto.ExpenseRow;
+import dev.amiah.budget_tracker.repository.ExpenseStreamRepository;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Writes every expense to an {@link OutputStream} as it is read from the database. Nothing is collected in
+ * between, so exporting a large ledger uses the same amount of memory as exporting a small one.
+ */
+@Service
+public class ExpenseExportService {
+
+    private static final String CSV_HEADER = "id,name,amount,time,counterparty,category";
+
+    private final ExpenseStreamRepository streamRepository;
+    private final ObjectWriter rowWriter;
+
+    public ExpenseExportService(ExpenseStreamRepository streamRepository, ObjectMapper objectMapper) {
+        this.streamRepository = streamRepository;
+        // Let the buffered writer decide when to flush instead of flushing the response after every row
+        this.rowWriter = objectMapper.writerFor(ExpenseRow.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Exports all expenses in the given format.
+     *
+     * @param format The format to write.
+     * @param out The stream to write to. It is flushed but not closed.
+     */
+    public void export(ExportFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+
+        try {
+            switch (format) {
+                case NDJSON -> writeNdjson(writer);
+                case CSV -> writeCsv(writer);
+            }
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        writer.flush();
+    }
+
+    private void writeNdjson(Writer writer) throws IOException {
+        JsonGenerator generator = rowWriter.createGenerator(writer);
+        // Rows are separated by the newline written after each one, not by Jackson's default root separator
+        generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+        streamRepository.forEach(row -> {
+            try {
+                rowWriter.writeValue(generator, row);
+                generator.writeRaw('\n');
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        generator.flush();
+    }
+
+    private void writeCsv(Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+
+        streamRepository.forEach(row -> {
+            try {
+                writeCsvRow(writer, row);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static void writeCsvRow(Writer writer, ExpenseRow row) throws IOException {
+        writer.write(String.valueOf(row.id()));
+        writer.write(',');
+        writer.write(csvValue(row.name()));
+        writer.write(',');
+        writer.write(row.amount() != null ? row.amount().toString() : "");
+        writer.write(',');
+        writer.write(row.time() != null ? DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(row.time()) : "");
+        writer.write(',');
+        writer.write(csvValue(row.counterparty()));
+        writer.write(',');
+        writer.write(row.category() != null ? row.category().name() : "");
+        writer.write('\n');
+    }
+
+    /**
+     * Quotes a value if it contains characters that have meaning in CSV, doubling any quotes inside it.
+     */
+    private static String csvValue(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+}
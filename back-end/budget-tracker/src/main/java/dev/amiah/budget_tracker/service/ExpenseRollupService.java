@@ -0,0 +1,210 @@
+package dev.amiah.budget_tracker.service;
+
+import dev.amiah.budget_tracker.dto.ExpenseSummary;
+import dev.amiah.budget_tracker.event.ExpenseChangedEvent;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.ExpenseRollup;
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import dev.amiah.budget_tracker.repository.ExpenseRepository;
+import dev.amiah.budget_tracker.repository.ExpenseRollupRepository;
+import dev.amiah.budget_tracker.util.TransactionBuffer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Keeps {@link ExpenseRollup}s in step with the {@code expense} table and answers summaries from them.
+ * <p>
+ * Like the {@link BalanceLedger}, every {@link ExpenseChangedEvent} adds its changes to the current transaction,
+ * and they are written just before it commits with one upsert per month and category that changed. Rollups are
+ * written in a fixed order so that concurrent transactions lock them in the same order.
+ */
+@Service
+public class ExpenseRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseRollupService.class);
+
+    private static final LocalDate EARLIEST_PERIOD = LocalDate.of(1, 1, 1);
+    private static final LocalDate LATEST_PERIOD = LocalDate.of(9999, 12, 1);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ExpenseRollupRepository rollupRepository;
+    private final ExpenseRepository expenseRepository;
+
+    public ExpenseRollupService(ExpenseRollupRepository rollupRepository, ExpenseRepository expenseRepository) {
+        this.rollupRepository = rollupRepository;
+        this.expenseRepository = expenseRepository;
+    }
+
+    @EventListener
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        TransactionBuffer.add(this, PendingRollups::new, pending -> {
+            pending.remove(event.before());
+            pending.add(event.after());
+        }, this::apply);
+    }
+
+    /**
+     * Sums expenses between two months, inclusive, grouped by any of category, month, or year.
+     *
+     * @param groupings What to group by. If empty, the whole range is one group.
+     * @param from The first month to include, or {@code null} for no lower bound.
+     * @param to The last month to include, or {@code null} for no upper bound.
+     * @return One {@code ExpenseSummary} per group, ordered by period and then category.
+     */
+    @Transactional(readOnly = true)
+    public List<ExpenseSummary> summarize(Set<SummaryGrouping> groupings, YearMonth from, YearMonth to) {
+        List<ExpenseRollup> rollups = rollupRepository.findAllByPeriodBetweenOrderByPeriodAscCategoryAsc(
+                from != null ? from.atDay(1) : EARLIEST_PERIOD,
+                to != null ? to.atDay(1) : LATEST_PERIOD);
+
+        // Rollups come in period order, so a LinkedHashMap keeps the groups in period order too. Totals are added
+        // up in cents and only turned into an ExpenseSummary once every rollup has been read.
+        Map<ExpenseRollup.Key, Change> groups = new LinkedHashMap<>();
+
+        for (ExpenseRollup rollup : rollups) {
+            if (rollup.getCount() == 0) {
+                continue;
+            }
+
+            LocalDate period = null;
+            if (groupings.contains(SummaryGrouping.MONTH)) {
+                period = rollup.getPeriod();
+            }
+            else if (groupings.contains(SummaryGrouping.YEAR)) {
+                period = rollup.getPeriod().withMonth(1);
+            }
+            ExpenseCategory category = groupings.contains(SummaryGrouping.CATEGORY) ? rollup.getCategory() : null;
+
+            Change group = groups.computeIfAbsent(new ExpenseRollup.Key(period, category), key -> new Change());
+            group.total = Math.addExact(group.total, rollup.getTotal().cents());
+            group.count += rollup.getCount();
+        }
+
+        Stream<Map.Entry<ExpenseRollup.Key, Change>> entries = groups.entrySet().stream();
+
+        // Regroup by category within each period; the ordering above only holds for months
+        if (groupings.contains(SummaryGrouping.CATEGORY) && !groupings.contains(SummaryGrouping.MONTH)) {
+            entries = entries.sorted(Map.Entry.comparingByKey(Comparator
+                    .comparing(ExpenseRollup.Key::period, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(ExpenseRollup.Key::category)));
+        }
+
+        return entries
+                .map(entry -> new ExpenseSummary(formatPeriod(entry.getKey().period(), groupings),
+                        entry.getKey().category(), Money.ofCents(entry.getValue().total).toBigDecimal(),
+                        entry.getValue().count))
+                .toList();
+    }
+
+    /**
+     * Replaces every rollup with sums read from the {@code expense} table. Use this to fill in rollups after
+     * expenses were written without going through the application, such as a restore from a backup.
+     *
+     * @return The number of rollups written.
+     */
+    @Transactional
+    public int rebuild() {
+        // Deleting first locks the rollups, so writes that commit during the rebuild wait and then apply on top
+        rollupRepository.deleteAllInBatch();
+
+        Map<ExpenseRollup.Key, ExpenseRollup> rollups = new TreeMap<>();
+
+        for (Object[] row : expenseRepository.sumByMonthAndCategory()) {
+            LocalDate period = LocalDate.of(((Number) row[0]).intValue(), ((Number) row[1]).intValue(), 1);
+            ExpenseCategory category = row[2] != null ? ExpenseCategory.valueOf((String) row[2]) : ExpenseCategory.OTHER;
+            Money total = Money.ofCents(row[3] != null ? ((Number) row[3]).longValue() : 0);
+            long count = ((Number) row[4]).longValue();
+
+            // Expenses without a category are counted as OTHER, so two rows can share a key
+            rollups.merge(new ExpenseRollup.Key(period, category), new ExpenseRollup(period, category, total, count),
+                    (a, b) -> new ExpenseRollup(period, category, a.getTotal().plus(b.getTotal()), a.getCount() + b.getCount()));
+        }
+
+        // Persisted rather than saved, since they were all just deleted; saving looks each one up first
+        rollups.values().forEach(entityManager::persist);
+        log.info("Rebuilt {} expense rollups", rollups.size());
+
+        return rollups.size();
+    }
+
+    /**
+     * Fills in the rollups at startup if there are expenses but no rollups, such as right after they were added.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfill() {
+        if (rollupRepository.count() == 0 && expenseRepository.count() > 0) {
+            rebuild();
+        }
+    }
+
+    private void apply(PendingRollups pending) {
+        pending.changes.forEach((key, change) -> {
+            if (change.total != 0 || change.count != 0) {
+                rollupRepository.addToRollup(key.period(), key.category().name(), change.total, change.count);
+            }
+        });
+    }
+
+    private static String formatPeriod(LocalDate period, Set<SummaryGrouping> groupings) {
+        if (period == null) {
+            return null;
+        }
+        return groupings.contains(SummaryGrouping.MONTH)
+                ? YearMonth.from(period).toString()
+                : String.valueOf(period.getYear());
+    }
+
+    /**
+     * The changes to rollups accumulated by the current transaction, in the order they will be written.
+     */
+    private static class PendingRollups {
+
+        private final Map<ExpenseRollup.Key, Change> changes = new TreeMap<>();
+
+        void add(Expense expense) {
+            change(expense, 1);
+        }
+
+        void remove(Expense expense) {
+            change(expense, -1);
+        }
+
+        private void change(Expense expense, int sign) {
+            // Expenses without a time don't belong to any month
+            if (expense == null || expense.getTime() == null) {
+                return;
+            }
+
+            Change change = changes.computeIfAbsent(ExpenseRollup.Key.of(expense), key -> new Change());
+            if (expense.getAmount() != null) {
+                change.total = Math.addExact(change.total, sign * expense.getAmount().cents());
+            }
+            change.count += sign;
+        }
+    }
+
+    /**
+     * A change to, or the sum of, rollups: a total in cents and a number of expenses.
+     */
+    private static class Change {
+
+        private long total = 0;
+        private long count = 0;
+    }
+
+}
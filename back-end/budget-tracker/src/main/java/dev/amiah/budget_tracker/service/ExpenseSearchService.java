@@ -0,0 +1,95 @@
+package dev.amiah.budget_tracker.service;
+
+import dev.amiah.budget_tracker.event.ExpenseChangedEvent;
+import dev.amiah.budget_tracker.exception.SearchIndexNotReadyException;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.repository.ExpenseStreamRepository;
+import dev.amiah.budget_tracker.service.search.ExpenseSearchIndex;
+import dev.amiah.budget_tracker.util.BackgroundBuild;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Searches expense names and counterparties with an {@link ExpenseSearchIndex}.
+ * <p>
+ * The index is built in the background at startup by streaming the {@code expense} table, and searches fail with
+ * a {@link SearchIndexNotReadyException} until it is done. After that, every committed {@link ExpenseChangedEvent}
+ * is applied to it; see {@link BackgroundBuild} for how changes during the build are handled, and for retrying a
+ * build that fails.
+ */
+@Service
+public class ExpenseSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseSearchService.class);
+
+    // Replaced by each build attempt, so that a failed attempt leaves nothing behind
+    private volatile ExpenseSearchIndex index = new ExpenseSearchIndex();
+    private final ExpenseStreamRepository streamRepository;
+    private final BackgroundBuild<ExpenseChangedEvent> indexBuild;
+
+    public ExpenseSearchService(ExpenseStreamRepository streamRepository,
+                                @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                TaskScheduler taskScheduler)
+    {
+        this.streamRepository = streamRepository;
+        this.indexBuild = new BackgroundBuild<>("search index", taskExecutor, taskScheduler, this::build, this::apply);
+    }
+
+    /**
+     * Finds the most recent expenses with a name or counterparty containing every word of {@code query}, either
+     * whole or as the start of a longer word.
+     *
+     * @param query The words to search for.
+     * @param fuzzy Whether to also match words with one or two typos.
+     * @param limit The maximum number of results.
+     * @return The ids of the matching expenses, most recent first.
+     * @throws SearchIndexNotReadyException If the index is still being built.
+     */
+    public List<Long> search(String query, boolean fuzzy, int limit) {
+        if (!indexBuild.isReady()) {
+            throw new SearchIndexNotReadyException();
+        }
+        return index.search(query, fuzzy, limit);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildIndex() {
+        indexBuild.start();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpenseChanged(ExpenseChangedEvent event) {
+        indexBuild.apply(event);
+    }
+
+    private void build() {
+        long start = System.nanoTime();
+        ExpenseSearchIndex built = new ExpenseSearchIndex();
+        streamRepository.forEach(row -> built.put(row.id(), row.name(), row.counterparty(), row.time()));
+        index = built;
+
+        log.info("Built search index of {} expenses in {} ms, using about {} MB", built.size(),
+                (System.nanoTime() - start) / 1_000_000, built.estimatedBytes() / (1024 * 1024));
+    }
+
+    private void apply(ExpenseChangedEvent event) {
+        Expense after = event.after();
+
+        if (after == null) {
+            index.remove(event.id());
+        }
+        else {
+            index.put(after.getId(), after.getName(), after.getCounterparty(), after.getTime());
+        }
+    }
+
+}
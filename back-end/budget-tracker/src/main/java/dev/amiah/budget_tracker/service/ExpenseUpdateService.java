@@ -0,0 +1,172 @@
+package dev.amiah.budget_tracker.service;
+
+import dev.amiah.budget_tracker.config.CacheConfig;
+import dev.amiah.budget_tracker.event.ExpenseChangedEvent;
+import dev.amiah.budget_tracker.exception.ExpenseVersionMismatchException;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.util.ExpenseFingerprint;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Updates expenses with a single {@code UPDATE} that sets only the fields being changed and checks the row
+ * version, instead of loading the entity and letting Hibernate write every column.
+ * <p>
+ * Listeners of {@link ExpenseChangedEvent} need the expense as it was before the update. When the request names
+ * the version it expects with {@code If-Match}, and the expense cache holds that version, the cached copy is that
+ * state and the update is the only statement. Otherwise the expense is read first; without {@code If-Match} it is
+ * locked while read, so the update cannot conflict. In both cases the version in the {@code WHERE} clause makes
+ * sure the row is still in the state the listeners are told about.
+ */
+@Service
+public class ExpenseUpdateService {
+
+    private static final List<Field<?>> FIELDS = List.of(
+            new Field<>("name", Expense::getName, Expense::setName),
+            new Field<>("amount", Expense::getAmount, Expense::setAmount),
+            new Field<>("time", Expense::getTime, Expense::setTime),
+            new Field<>("counterparty", Expense::getCounterparty, Expense::setCounterparty),
+            new Field<>("category", Expense::getCategory, Expense::setCategory));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final Cache expenseCache;
+
+    public ExpenseUpdateService(ApplicationEventPublisher eventPublisher, CacheManager cacheManager) {
+        this.eventPublisher = eventPublisher;
+        this.expenseCache = cacheManager.getCache(CacheConfig.EXPENSES);
+    }
+
+    /**
+     * Replaces every field of an expense with those of {@code replacement}, including {@code null}s.
+     *
+     * @param id The {@code id} of the {@code Expense} to update.
+     * @param replacement The new data.
+     * @param expectedVersion The version the expense must be at, or {@code null} for any version.
+     * @return The updated {@code Expense}, or empty if there is no expense with {@code id}.
+     * @throws ExpenseVersionMismatchException If the expense is not at {@code expectedVersion}.
+     */
+    @Transactional
+    public Optional<Expense> replace(Long id, Expense replacement, Long expectedVersion) {
+        return update(id, replacement, false, expectedVersion);
+    }
+
+    /**
+     * Sets the fields of an expense that are not {@code null} in {@code changes}, and leaves the rest.
+     *
+     * @param id The {@code id} of the {@code Expense} to update.
+     * @param changes The new data.
+     * @param expectedVersion The version the expense must be at, or {@code null} for any version.
+     * @return The updated {@code Expense}, or empty if there is no expense with {@code id}.
+     * @throws ExpenseVersionMismatchException If the expense is not at {@code expectedVersion}.
+     */
+    @Transactional
+    public Optional<Expense> patch(Long id, Expense changes, Long expectedVersion) {
+        return update(id, changes, true, expectedVersion);
+    }
+
+    private Optional<Expense> update(Long id, Expense changes, boolean skipNulls, Long expectedVersion) {
+        boolean changesAnything = !skipNulls || FIELDS.stream().anyMatch(field -> field.getter.apply(changes) != null);
+
+        Expense before = changesAnything ? cached(id, expectedVersion) : null;
+        if (before == null) {
+            Optional<Expense> current = read(id, expectedVersion);
+            if (current.isEmpty()) {
+                return Optional.empty();
+            }
+            before = current.get();
+        }
+        if (expectedVersion != null && !expectedVersion.equals(before.getVersion())) {
+            throw new ExpenseVersionMismatchException(id);
+        }
+        if (!changesAnything) {
+            return Optional.of(before);
+        }
+
+        Expense after = new Expense(before);
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Expense> update = builder.createCriteriaUpdate(Expense.class);
+        Root<Expense> root = update.from(Expense.class);
+
+        for (Field<?> field : FIELDS) {
+            field.copy(changes, after, update, root, skipNulls);
+        }
+        // Entity callbacks don't run for a bulk update, so the fingerprint is kept up to date here
+        Long fingerprint = ExpenseFingerprint.of(after);
+        if (!fingerprint.equals(before.getFingerprint())) {
+            after.setFingerprint(fingerprint);
+            update.set(root.<Long>get("fingerprint"), fingerprint);
+        }
+        after.setVersion(before.getVersion() + 1);
+        update.set(root.<Long>get("version"), after.getVersion());
+        update.where(builder.equal(root.get("id"), id), builder.equal(root.get("version"), before.getVersion()));
+
+        if (entityManager.createQuery(update).executeUpdate() == 0) {
+            // Only possible when the before state came from the cache, or without a lock
+            throw new ExpenseVersionMismatchException(id);
+        }
+
+        eventPublisher.publishEvent(ExpenseChangedEvent.updated(before, after));
+        return Optional.of(after);
+    }
+
+    /**
+     * @return A copy of the cached expense if the cache holds {@code expectedVersion} of it, otherwise {@code null}.
+     */
+    private Expense cached(Long id, Long expectedVersion) {
+        if (expectedVersion == null || expenseCache == null) {
+            return null;
+        }
+
+        Expense cached = expenseCache.get(id, Expense.class);
+        return cached != null && expectedVersion.equals(cached.getVersion()) ? new Expense(cached) : null;
+    }
+
+    private Optional<Expense> read(Long id, Long expectedVersion) {
+        // With If-Match a conflict is reported to the client, so there is no need to lock
+        LockModeType lock = expectedVersion == null ? LockModeType.PESSIMISTIC_WRITE : LockModeType.NONE;
+
+        return Optional.ofNullable(entityManager.find(Expense.class, id, lock)).map(Expense::new);
+    }
+
+    /**
+     * One field of {@code Expense} that can be updated.
+     */
+    private record Field<T>(String attribute, Function<Expense, T> getter, BiConsumer<Expense, T> setter) {
+
+        /**
+         * Copies this field from {@code from} to {@code to}, and sets it in {@code update} if it changed.
+         */
+        void copy(Expense from, Expense to, CriteriaUpdate<Expense> update, Root<Expense> root, boolean skipNull) {
+            T value = getter.apply(from);
+            if (value == null && skipNull) {
+                return;
+            }
+
+            T previous = getter.apply(to);
+            setter.accept(to, value);
+            // Read back through the getter, since setters may normalize the value
+            if (!Objects.equals(previous, getter.apply(to))) {
+                update.set(root.<T>get(attribute), getter.apply(to));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+package dev.amiah.budget_tracker.service;
+
+import dev.amiah.budget_tracker.exception.InvalidExportFormatException;
+import org.springframework.http.MediaType;
+
+public enum ExportFormat {
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+
+    private final MediaType mediaType;
+
+    private final String extension;
+
+    ExportFormat(String mediaType, String extension) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return the file extension for this format, without the dot. For example, {@code CSV} returns "csv"
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Converts a {@code String} to an {@code ExportFormat}, ignoring case and surrounding whitespace.
+     *
+     * @throws InvalidExportFormatException If {@code format} is not the name of a format.
+     */
+    public static ExportFormat fromString(String format) {
+        try {
+            return valueOf(format.trim().toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            throw new InvalidExportFormatException(format);
+        }
+    }
+
+}
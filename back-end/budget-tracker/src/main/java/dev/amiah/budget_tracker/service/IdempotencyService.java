@@ -0,0 +1,203 @@
+package dev.amiah.budget_tracker.service;
+
+import dev.amiah.budget_tracker.config.CacheConfig;
+import dev.amiah.budget_tracker.exception.IdempotencyKeyInProgressException;
+import dev.amiah.budget_tracker.exception.IdempotencyKeyReusedException;
+import dev.amiah.budget_tracker.model.IdempotencyKey;
+import dev.amiah.budget_tracker.repository.IdempotencyKeyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * Makes requests sent with an {@code Idempotency-Key} header safe to retry: the first request with a key is
+ * handled, and every later one gets its response back without writing anything.
+ * <p>
+ * A new key is inserted into the {@code idempotency_key} table in the same transaction as everything the request
+ * writes, and its response is stored before that transaction commits, so either both are committed or neither
+ * is. A retry that arrives while the first request is still running waits on that row, and then replays the
+ * response once it commits. Responses are also kept in the {@link CacheConfig#IDEMPOTENCY_KEYS} cache, so most
+ * retries are answered without a query. Requests that fail are rolled back and not stored, so they can be retried
+ * with the same key. Keys are forgotten after the retention period.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final IdempotencyKeyRepository repository;
+    private final Cache cache;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration retention;
+
+    /**
+     * @param retention How long a key is remembered before {@link #deleteExpired()} deletes it.
+     */
+    public IdempotencyService(IdempotencyKeyRepository repository, CacheManager cacheManager,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${budget-tracker.idempotency.retention:P1D}") Duration retention)
+    {
+        this.repository = repository;
+        this.cache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.IDEMPOTENCY_KEYS));
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.retention = retention;
+    }
+
+    /**
+     * Handles a request with an {@code Idempotency-Key}, unless a request with the same key was already handled.
+     *
+     * @param key The {@code Idempotency-Key} of the request.
+     * @param requestHash A hash of the request, to tell a retry from a different request that reuses the key.
+     * @param handler Handles the request in the transaction, and returns its response, or {@code null} if it
+     *                failed and everything it wrote should be rolled back.
+     * @return The response of the request, and whether it was replayed rather than returned by {@code handler}.
+     * @throws IdempotencyKeyReusedException If the key was used for a request with a different hash.
+     * @throws IdempotencyKeyInProgressException If a request with the key is still running after the lock wait.
+     */
+    public Outcome handle(String key, String requestHash, Callable<StoredResponse> handler) throws Exception {
+        StoredResponse cached = cache.get(key, StoredResponse.class);
+        if (cached != null) {
+            return replay(key, requestHash, cached);
+        }
+
+        StoredResponse response;
+        try {
+            response = transactionTemplate.execute(status -> {
+                claim(key, requestHash);
+
+                StoredResponse handled = call(handler);
+                if (handled == null) {
+                    status.setRollbackOnly();
+                    return null;
+                }
+
+                repository.complete(key, handled.statusCode(), handled.contentType(), handled.location(), handled.body());
+                return handled;
+            });
+        }
+        catch (HandlerException e) {
+            throw e.getCause();
+        }
+        catch (KeyTakenException e) {
+            // The key was used by a request that committed first, or is still running
+            StoredResponse earlier = repository.findById(key)
+                    .filter(k -> k.getStatusCode() != null)
+                    .map(StoredResponse::of)
+                    .orElseThrow(() -> new IdempotencyKeyInProgressException(key));
+
+            cache.put(key, earlier);
+            return replay(key, requestHash, earlier);
+        }
+
+        if (response != null) {
+            cache.put(key, response);
+        }
+        return new Outcome(response, false);
+    }
+
+    /**
+     * Deletes keys older than the retention period. A retry after that is handled as a new request.
+     *
+     * @return The number of keys deleted.
+     */
+    @Scheduled(initialDelayString = "${budget-tracker.idempotency.cleanup-interval:PT1H}",
+               fixedDelayString = "${budget-tracker.idempotency.cleanup-interval:PT1H}")
+    @Transactional
+    public int deleteExpired() {
+        int deleted = repository.deleteCreatedBefore(LocalDateTime.now().minus(retention));
+        log.info("Deleted {} expired idempotency keys", deleted);
+        return deleted;
+    }
+
+    private static Outcome replay(String key, String requestHash, StoredResponse response) {
+        if (!response.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReusedException(key);
+        }
+        return new Outcome(response, true);
+    }
+
+    /**
+     * Inserts the key. Only a failure of this insert means the key is taken; the request's own writes can violate
+     * constraints too, and those are errors of the request.
+     */
+    private void claim(String key, String requestHash) {
+        try {
+            // A concurrent request with the same key waits here until this transaction ends
+            repository.claim(key, requestHash, LocalDateTime.now());
+        }
+        catch (DataIntegrityViolationException | PessimisticLockingFailureException e) {
+            throw new KeyTakenException(e);
+        }
+    }
+
+    private static StoredResponse call(Callable<StoredResponse> handler) {
+        try {
+            return handler.call();
+        }
+        catch (Exception e) {
+            throw new HandlerException(e);
+        }
+    }
+
+    /**
+     * The response to a request with an {@code Idempotency-Key}, as sent to the client.
+     *
+     * @param requestHash The hash of the request it answered.
+     * @param statusCode The HTTP status code.
+     * @param contentType The {@code Content-Type} header, or {@code null} if there was no body.
+     * @param location The {@code Location} header, or {@code null} if there was none.
+     * @param body The body, or {@code null} if there was none.
+     */
+    public record StoredResponse(String requestHash, int statusCode, String contentType, String location, String body) {
+
+        static StoredResponse of(IdempotencyKey key) {
+            return new StoredResponse(key.getRequestHash(), key.getStatusCode(), key.getContentType(), key.getLocation(), key.getBody());
+        }
+    }
+
+    /**
+     * @param response The response to send, or {@code null} if the request failed and wasn't stored.
+     * @param replayed Whether {@code response} is from an earlier request with the same key.
+     */
+    public record Outcome(StoredResponse response, boolean replayed) {}
+
+    /**
+     * Thrown out of the transaction, which it rolls back, when another request already inserted the key.
+     */
+    private static class KeyTakenException extends RuntimeException {
+
+        KeyTakenException(RuntimeException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Carries an exception thrown by the handler out of the transaction, which it rolls back.
+     */
+    private static class HandlerException extends RuntimeException {
+
+        HandlerException(Exception cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized Exception getCause() {
+            return (Exception) super.getCause();
+        }
+    }
+
+}
@@ -0,0 +1,37 @@
+package dev.amiah.budget_tracker.service;
+
+import dev.amiah.budget_tracker.exception.InvalidSummaryGroupingException;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+public enum SummaryGrouping {
+    CATEGORY,
+    MONTH,
+    YEAR;
+
+    /**
+     * Converts each {@code String} to a {@code SummaryGrouping}, ignoring case.
+     *
+     * @throws InvalidSummaryGroupingException If any of them is not recognized.
+     */
+    public static Set<SummaryGrouping> fromStrings(List<String> groupBy) {
+        Set<SummaryGrouping> groupings = EnumSet.noneOf(SummaryGrouping.class);
+
+        for (String value : groupBy) {
+            if (value.isBlank()) {
+                continue;
+            }
+            try {
+                groupings.add(valueOf(value.trim().toUpperCase()));
+            }
+            catch (IllegalArgumentException e) {
+                throw new InvalidSummaryGroupingException(value);
+            }
+        }
+
+        return groupings;
+    }
+
+}
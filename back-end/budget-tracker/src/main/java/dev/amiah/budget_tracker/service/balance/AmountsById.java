@@ -0,0 +1,117 @@
+package dev.amiah.budget_tracker.service.balance;
+
+/**
+ * A map from expense id to the day and amount in cents that the expense adds to {@link DailyBalances}, stored in
+ * primitive arrays at about 20 to 40 bytes per entry. Uses open addressing with linear probing, like
+ * {@code LongIntHashMap} in the search index. Not thread-safe.
+ */
+final class AmountsById {
+
+    static final int MISSING = -1;
+
+    private long[] ids;
+    // The day plus one, so that zero marks an empty slot
+    private int[] days;
+    private long[] cents;
+    private int size = 0;
+    private int mask;
+
+    AmountsById() {
+        allocate(1024);
+    }
+
+    /**
+     * @return The slot holding {@code id}, or {@code -1} if there is none.
+     */
+    int slotOf(long id) {
+        for (int slot = slot(id); ; slot = (slot + 1) & mask) {
+            if (days[slot] == 0) {
+                return MISSING;
+            }
+            if (ids[slot] == id) {
+                return slot;
+            }
+        }
+    }
+
+    int dayAt(int slot) {
+        return days[slot] - 1;
+    }
+
+    long centsAt(int slot) {
+        return cents[slot];
+    }
+
+    /**
+     * @param day A non-negative day number.
+     */
+    void put(long id, int day, long amount) {
+        if (size * 4 >= ids.length * 3) {
+            resize(ids.length * 2);
+        }
+
+        for (int slot = slot(id); ; slot = (slot + 1) & mask) {
+            if (days[slot] == 0) {
+                size++;
+            }
+            else if (ids[slot] != id) {
+                continue;
+            }
+            ids[slot] = id;
+            days[slot] = day + 1;
+            cents[slot] = amount;
+            return;
+        }
+    }
+
+    void removeAt(int slot) {
+        size--;
+
+        // Shift later entries of the same probe sequence back, so that lookups never stop at the removed slot
+        int gap = slot;
+        for (int next = (gap + 1) & mask; days[next] != 0; next = (next + 1) & mask) {
+            int home = slot(ids[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                ids[gap] = ids[next];
+                days[gap] = days[next];
+                cents[gap] = cents[next];
+                gap = next;
+            }
+        }
+        days[gap] = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long capacityBytes() {
+        return 20L * ids.length;
+    }
+
+    private int slot(long id) {
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        days = new int[capacity];
+        cents = new long[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldIds = ids;
+        int[] oldDays = days;
+        long[] oldCents = cents;
+
+        allocate(capacity);
+        for (int i = 0; i < oldIds.length; i++) {
+            if (oldDays[i] != 0) {
+                put(oldIds[i], oldDays[i] - 1, oldCents[i]);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,223 @@
+package dev.amiah.budget_tracker.service.balance;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The net amount of expenses on each day, in cents, with running totals, so that the balance at the end of any day
+ * is one array lookup and a series of balances costs one lookup per point, however many expenses there are.
+ * <p>
+ * Each expense is held by id together with its day and amount, so putting an expense replaces what it added
+ * before, and putting the same expense twice changes nothing. A write adds to the net amount of its day and marks
+ * the running totals from that day on as out of date; the next read brings them up to date in one pass, so a
+ * burst of writes to past days costs one pass over the days after the earliest of them rather than one per write.
+ * Expenses without a time, or dated outside the years 1 to 9999, are not in any day.
+ * <p>
+ * Memory budget: about 40 bytes per expense for the id lookup table, plus 16 bytes per day between the earliest
+ * and latest expense and some slack, so roughly 40 MB per million expenses and 60 KB per year. Use
+ * {@link #estimatedBytes()} to see the current figure.
+ * <p>
+ * Reads and writes are guarded by a read-write lock. Reads share it unless running totals need bringing up to date.
+ */
+public class DailyBalances {
+
+    public static final LocalDate EARLIEST_DAY = LocalDate.of(1, 1, 1);
+    public static final LocalDate LATEST_DAY = LocalDate.of(9999, 12, 31);
+
+    private static final long EPOCH_DAY_OFFSET = EARLIEST_DAY.toEpochDay();
+    private static final int DAY_COUNT = (int) (LATEST_DAY.toEpochDay() - EPOCH_DAY_OFFSET + 1);
+
+    // Arrays grow by at least this many days at a time, so adding each new day doesn't copy them
+    private static final int MIN_GROWTH_DAYS = 366;
+
+    private static final int CLEAN = Integer.MAX_VALUE;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final AmountsById amounts = new AmountsById();
+
+    // Index i of the arrays is day firstDay + i, counting days from EARLIEST_DAY
+    private int firstDay = 0;
+    private long[] net = new long[0];
+    // running[i] is the sum of net[0] to net[i], for every i below dirtyFrom
+    private long[] running = new long[0];
+    private int dirtyFrom = CLEAN;
+
+    /**
+     * Adds an expense, replacing it if it is already there.
+     *
+     * @param time When the expense happened, or {@code null} to leave it out of every day.
+     * @param cents The amount of the expense in cents.
+     */
+    public void put(long id, LocalDateTime time, long cents) {
+        int day = time != null ? dayOf(time.toLocalDate()) : -1;
+
+        lock.writeLock().lock();
+        try {
+            int slot = amounts.slotOf(id);
+            if (slot != AmountsById.MISSING) {
+                if (amounts.dayAt(slot) == day && amounts.centsAt(slot) == cents) {
+                    return;
+                }
+                addLocked(amounts.dayAt(slot), -amounts.centsAt(slot));
+                amounts.removeAt(slot);
+            }
+
+            if (day >= 0 && day < DAY_COUNT) {
+                amounts.put(id, day, cents);
+                addLocked(day, cents);
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an expense, if it is there.
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int slot = amounts.slotOf(id);
+            if (slot != AmountsById.MISSING) {
+                addLocked(amounts.dayAt(slot), -amounts.centsAt(slot));
+                amounts.removeAt(slot);
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return For each of {@code dates}, the sum in cents of the expenses on or before it.
+     */
+    public long[] balancesAt(LocalDate... dates) {
+        lock.readLock().lock();
+        if (dirtyFrom != CLEAN) {
+            lock.readLock().unlock();
+            lock.writeLock().lock();
+            try {
+                updateRunningLocked();
+                lock.readLock().lock();
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        try {
+            long[] balances = new long[dates.length];
+            for (int i = 0; i < dates.length; i++) {
+                balances[i] = balanceAtLocked(dayOf(dates[i]));
+            }
+            return balances;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of expenses that are in a day.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return amounts.size();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Roughly how many bytes the arrays take up.
+     */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return amounts.capacityBytes() + 16L * net.length;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private long balanceAtLocked(int day) {
+        if (net.length == 0 || day < firstDay) {
+            return 0;
+        }
+        return running[Math.min(day - firstDay, net.length - 1)];
+    }
+
+    private void addLocked(int day, long cents) {
+        if (cents == 0) {
+            return;
+        }
+        coverLocked(day);
+
+        int index = day - firstDay;
+        net[index] = Math.addExact(net[index], cents);
+        dirtyFrom = Math.min(dirtyFrom, index);
+    }
+
+    private void updateRunningLocked() {
+        long total = dirtyFrom > 0 ? running[dirtyFrom - 1] : 0;
+        for (int i = dirtyFrom; i < net.length; i++) {
+            total = Math.addExact(total, net[i]);
+            running[i] = total;
+        }
+        dirtyFrom = CLEAN;
+    }
+
+    /**
+     * Grows the arrays to include {@code day}, with slack on the side they grew towards.
+     */
+    private void coverLocked(int day) {
+        int endDay = firstDay + net.length;
+        if (net.length > 0 && day >= firstDay && day < endDay) {
+            return;
+        }
+
+        int growth = Math.max(MIN_GROWTH_DAYS, net.length / 2);
+        int newFirstDay;
+        int newEndDay;
+        if (net.length == 0) {
+            newFirstDay = Math.max(0, day - growth);
+            newEndDay = Math.min(DAY_COUNT, day + 1 + growth);
+        }
+        else {
+            newFirstDay = day < firstDay ? Math.max(0, day - growth) : firstDay;
+            newEndDay = day >= endDay ? Math.min(DAY_COUNT, day + 1 + growth) : endDay;
+        }
+
+        long[] newNet = new long[newEndDay - newFirstDay];
+        long[] newRunning = new long[newNet.length];
+        if (net.length == 0) {
+            dirtyFrom = 0;
+        }
+        else {
+            int shift = firstDay - newFirstDay;
+            System.arraycopy(net, 0, newNet, shift, net.length);
+            System.arraycopy(running, 0, newRunning, shift, running.length);
+            // Days added in front are zero, so the copied running totals still hold; days added behind need filling in
+            int end = shift + net.length;
+            dirtyFrom = Math.min(dirtyFrom == CLEAN ? CLEAN : dirtyFrom + shift, end < newNet.length ? end : CLEAN);
+        }
+        firstDay = newFirstDay;
+        net = newNet;
+        running = newRunning;
+    }
+
+    /**
+     * @return The number of days from {@link #EARLIEST_DAY} to {@code date}, which is negative or at least
+     * {@code DAY_COUNT} for dates outside the years 1 to 9999.
+     */
+    private static int dayOf(LocalDate date) {
+        return Math.clamp(date.toEpochDay() - EPOCH_DAY_OFFSET, -1, DAY_COUNT);
+    }
+
+}
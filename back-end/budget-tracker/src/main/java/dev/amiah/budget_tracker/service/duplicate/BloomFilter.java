@@ -0,0 +1,114 @@
+package dev.amiah.budget_tracker.service.duplicate;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A set of {@code long} keys that can answer "definitely not present" without false negatives, and "maybe
+ * present" with a chosen false positive rate, using a fixed number of bits per key rather than storing the keys.
+ * <p>
+ * Sized for an expected number of keys {@code n} and false positive rate {@code p}, it has
+ * {@code m = -n ln p / (ln 2)^2} bits and sets {@code k = (m / n) ln 2} of them per key, which is about 9.6 bits
+ * and 7 probes per key at 1%. The probes are derived from two halves of one mixed hash of the key. Adding more
+ * than the expected number of keys raises the false positive rate, so callers should build a larger filter when
+ * {@link #isOverCapacity()}. Keys can't be removed.
+ * <p>
+ * Thread-safe: bits are set with compare-and-set, so concurrent adds and lookups need no lock. A lookup that runs
+ * at the same time as the add of the same key may miss it.
+ */
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final long capacity;
+    private final LongAdder added = new LongAdder();
+
+    /**
+     * @param capacity How many keys the filter is expected to hold.
+     * @param falsePositiveRate The chance that {@link #mightContain(long)} is true for a key that was never added,
+     *                          once {@code capacity} keys have been added.
+     */
+    public BloomFilter(long capacity, double falsePositiveRate) {
+        if (capacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom filter size: " + capacity + " at " + falsePositiveRate);
+        }
+
+        long wordCount = Math.max(1, (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)) / 64));
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bloom filter for " + capacity + " keys is too large");
+        }
+
+        this.words = new AtomicLongArray((int) wordCount);
+        this.bits = wordCount * 64;
+        this.hashes = (int) Math.clamp(Math.round((double) bits / capacity * Math.log(2)), 1, 30);
+        this.capacity = capacity;
+    }
+
+    public void add(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+
+        for (int i = 0; i < hashes; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+        added.increment();
+    }
+
+    /**
+     * @return {@code false} if {@code key} was never added, and {@code true} if it probably was.
+     */
+    public boolean mightContain(long key) {
+        long hash = mix(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+
+        for (int i = 0; i < hashes; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Whether more keys have been added than the filter was sized for.
+     */
+    public boolean isOverCapacity() {
+        return added.sum() > capacity;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The size of the bit array in bytes.
+     */
+    public long sizeBytes() {
+        return bits / 8;
+    }
+
+    /**
+     * Spreads the bits of {@code key} over the whole {@code long}, so that keys which differ only slightly, such
+     * as consecutive numbers, set unrelated bits. The finalizer of MurmurHash3.
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb3fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+}
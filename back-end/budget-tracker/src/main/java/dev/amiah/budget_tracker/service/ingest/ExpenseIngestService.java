@@ -0,0 +1,367 @@
+package dev.amiah.budget_tracker.service.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.amiah.budget_tracker.dto.BatchItemResult;
+import dev.amiah.budget_tracker.dto.IngestStatus;
+import dev.amiah.budget_tracker.exception.IngestUnavailableException;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.IngestCheckpoint;
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import dev.amiah.budget_tracker.repository.IngestCheckpointRepository;
+import dev.amiah.budget_tracker.service.ExpenseBatchService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts expenses faster than they can be committed one request at a time, by writing them to a
+ * {@link WriteAheadLog} and saving them in the background.
+ * <p>
+ * {@link #ingest(List)} returns once the expenses are on local disk, which costs one shared {@code fsync} rather
+ * than a database transaction. A single thread reads the log from where the last commit left off and saves up to
+ * {@code batch-size} expenses per transaction through {@link ExpenseBatchService}, together with the new
+ * {@link IngestCheckpoint}. If the database is unavailable the log keeps accepting expenses, and the thread retries
+ * with a growing delay. After a restart it carries on from the checkpoint, so every acknowledged expense is saved
+ * exactly once.
+ * <p>
+ * A request that can never be saved, because its record in the log doesn't hold valid JSON or the database rejects
+ * its expenses, would otherwise be retried forever and hold up everything after it. Such records are appended to
+ * {@code dead-letter.ndjson} next to the log, one JSON object per line with the position the record ends at, the
+ * error, and the record's bytes in Base64, and then skipped. A record may be written there twice if the application
+ * stops before the checkpoint past it is saved. Errors reading the log itself, such as a record whose checksum
+ * doesn't match, are retried like database errors, since the records after it can't be found without it.
+ * <p>
+ * Ingested expenses reach the balance, summaries, and subscribers when they are saved, not when they are accepted.
+ */
+@Service
+@ConditionalOnProperty(name = "budget-tracker.ingest.enabled", havingValue = "true")
+public class ExpenseIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseIngestService.class);
+
+    private static final TypeReference<List<Entry>> ENTRIES = new TypeReference<>() {};
+    private static final Duration IDLE_WAIT = Duration.ofSeconds(1);
+    private static final Duration MIN_RETRY_DELAY = Duration.ofMillis(500);
+    private static final Duration MAX_RETRY_DELAY = Duration.ofSeconds(30);
+    private static final String DEAD_LETTER_FILE = "dead-letter.ndjson";
+
+    private final ObjectMapper objectMapper;
+    private final ExpenseBatchService batchService;
+    private final IngestCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final WriteAheadLog wal;
+    private final Path deadLetterFile;
+    private final int batchSize;
+
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private Thread drainer;
+    private volatile boolean running;
+    private volatile long appliedPosition = -1;
+    private volatile long deadLettered = 0;
+    // Only used by the drainer thread, so that retrying a batch doesn't dead-letter its records again
+    private long deadLetteredThrough = -1;
+
+    public ExpenseIngestService(ObjectMapper objectMapper, ExpenseBatchService batchService,
+                                IngestCheckpointRepository checkpointRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${budget-tracker.ingest.wal-dir}") Path walDirectory,
+                                @Value("${budget-tracker.ingest.segment-size:64MB}") DataSize segmentSize,
+                                @Value("${budget-tracker.ingest.batch-size:5000}") int batchSize)
+    {
+        this.objectMapper = objectMapper;
+        this.batchService = batchService;
+        this.checkpointRepository = checkpointRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.deadLetterFile = walDirectory.resolve(DEAD_LETTER_FILE);
+        this.batchSize = batchSize;
+
+        try {
+            this.wal = new WriteAheadLog(walDirectory, segmentSize.toBytes());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Could not open the ingest write-ahead log in " + walDirectory, e);
+        }
+    }
+
+    /**
+     * Validates {@code expenses} and durably queues the valid ones to be saved. Expenses without a time get the
+     * time they were accepted, not the time they are saved.
+     *
+     * @param expenses The new expenses.
+     * @return One result per item of {@code expenses}, in the same order; either accepted or rejected.
+     * @throws IngestUnavailableException If the expenses couldn't be written to the log.
+     */
+    public List<BatchItemResult> ingest(List<Expense> expenses) {
+        List<BatchItemResult> results = new ArrayList<>(expenses.size());
+        List<Entry> entries = new ArrayList<>(expenses.size());
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < expenses.size(); i++) {
+            Expense expense = expenses.get(i);
+            String error = ExpenseBatchService.validate(expense);
+
+            if (error != null) {
+                results.add(BatchItemResult.rejected(i, error));
+                continue;
+            }
+
+            entries.add(Entry.of(expense, now));
+            results.add(BatchItemResult.accepted(i));
+        }
+
+        if (!entries.isEmpty()) {
+            append(entries);
+        }
+        return results;
+    }
+
+    /**
+     * @return How much has been accepted and how much of that has been saved.
+     */
+    public IngestStatus getStatus() {
+        long appended = wal.getDurablePosition();
+        long applied = appliedPosition;
+
+        return new IngestStatus(appended, applied >= 0 ? applied : null, deadLettered, running);
+    }
+
+    /**
+     * Starts saving the log once the database is migrated, beginning with anything left from before a restart.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        drainer = Thread.ofPlatform().name("expense-ingest").start(this::drain);
+    }
+
+    /**
+     * Stops after the batch being saved, if any, and closes the log. Anything not saved yet stays in the log.
+     */
+    @PreDestroy
+    public synchronized void stop() throws IOException, InterruptedException {
+        running = false;
+        stopped.countDown();
+
+        // The drainer reads from the log until it stops, so it has to stop before the log closes
+        if (drainer != null && !drainer.join(Duration.ofSeconds(30))) {
+            log.warn("Ingest drainer did not stop within 30 seconds, interrupting it");
+            drainer.interrupt();
+            drainer.join(Duration.ofSeconds(5));
+        }
+        wal.close();
+    }
+
+    private void append(List<Entry> entries) {
+        CompletableFuture<Long> written;
+        try {
+            written = wal.append(objectMapper.writeValueAsBytes(entries));
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+
+        try {
+            written.get();
+        }
+        catch (ExecutionException e) {
+            throw new IngestUnavailableException(e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IngestUnavailableException(e);
+        }
+    }
+
+    private void drain() {
+        String logId = wal.getId();
+        Duration retryDelay = MIN_RETRY_DELAY;
+        long position = -1;
+
+        while (running) {
+            try {
+                if (position < 0) {
+                    position = checkpointRepository.findById(logId)
+                            .map(IngestCheckpoint::getPosition)
+                            .orElseGet(wal::getStartPosition);
+                    appliedPosition = position;
+                }
+
+                List<WriteAheadLog.Record> records = new ArrayList<>();
+                List<List<Expense>> requests = new ArrayList<>();
+                List<Expense> expenses = new ArrayList<>();
+                for (WriteAheadLog.Record record : wal.read(position, batchSize)) {
+                    List<Expense> request = decode(record);
+                    records.add(record);
+                    requests.add(request);
+                    expenses.addAll(request);
+                    // Records are never split, so a batch can go over by one request
+                    if (expenses.size() >= batchSize) {
+                        break;
+                    }
+                }
+
+                if (records.isEmpty()) {
+                    wal.awaitAppend(position, IDLE_WAIT);
+                    continue;
+                }
+
+                try {
+                    save(logId, expenses, records.getLast().end());
+                    position = records.getLast().end();
+                    appliedPosition = position;
+                }
+                catch (DataIntegrityViolationException e) {
+                    // Some request in the batch can never be saved; save them one at a time to find out which
+                    log.warn("Could not save ingested expenses from position {}, saving them one request at a time",
+                            position, e);
+                    for (int i = 0; i < records.size(); i++) {
+                        WriteAheadLog.Record record = records.get(i);
+                        try {
+                            save(logId, requests.get(i), record.end());
+                        }
+                        catch (DataIntegrityViolationException rejected) {
+                            deadLetter(record, rejected.getMostSpecificCause().toString());
+                            save(logId, List.of(), record.end());
+                        }
+                        position = record.end();
+                        appliedPosition = position;
+                    }
+                }
+
+                retryDelay = MIN_RETRY_DELAY;
+                wal.deleteThrough(position);
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+            catch (Exception e) {
+                log.warn("Could not save ingested expenses from position {}, retrying in {}", position, retryDelay, e);
+                try {
+                    if (stopped.await(retryDelay.toMillis(), TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+                catch (InterruptedException interrupted) {
+                    return;
+                }
+                retryDelay = retryDelay.multipliedBy(2);
+                if (retryDelay.compareTo(MAX_RETRY_DELAY) > 0) {
+                    retryDelay = MAX_RETRY_DELAY;
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves {@code expenses} and moves the checkpoint to {@code newPosition} in one transaction.
+     */
+    private void save(String logId, List<Expense> expenses, long newPosition) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!expenses.isEmpty()) {
+                batchService.insertAll(expenses);
+            }
+
+            IngestCheckpoint checkpoint = checkpointRepository.findById(logId).orElseGet(() -> new IngestCheckpoint(logId));
+            checkpoint.setPosition(newPosition);
+            checkpointRepository.save(checkpoint);
+        });
+    }
+
+    /**
+     * @return The expenses of one request, or none if its record can't be read or holds an expense that isn't
+     *         valid, in which case the record is dead-lettered. Expenses are validated when they are accepted, but
+     *         the log may hold some from before a rule was added.
+     */
+    private List<Expense> decode(WriteAheadLog.Record record) throws IOException {
+        List<Expense> expenses;
+        try {
+            expenses = objectMapper.readValue(record.payload(), ENTRIES).stream().map(Entry::toExpense).toList();
+        }
+        catch (JsonProcessingException e) {
+            deadLetter(record, e.getOriginalMessage());
+            return List.of();
+        }
+
+        for (Expense expense : expenses) {
+            String error = ExpenseBatchService.validate(expense);
+            if (error != null) {
+                deadLetter(record, error);
+                return List.of();
+            }
+        }
+        return expenses;
+    }
+
+    /**
+     * Durably appends {@code record} to the dead-letter file, unless it is already there.
+     */
+    private void deadLetter(WriteAheadLog.Record record, String error) throws IOException {
+        if (record.end() <= deadLetteredThrough) {
+            return;
+        }
+
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("end", record.end());
+        line.put("error", error);
+        line.put("payload", Base64.getEncoder().encodeToString(record.payload()));
+
+        Files.write(deadLetterFile, (objectMapper.writeValueAsString(line) + "\n").getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        deadLetteredThrough = record.end();
+        deadLettered++;
+        log.error("Dead-lettered ingested expenses ending at position {} to {}: {}", record.end(), deadLetterFile, error);
+    }
+
+    /**
+     * How an accepted expense is stored in the log; only the fields a client sets.
+     */
+    private record Entry(String name, Money amount, LocalDateTime time, String counterparty, ExpenseCategory category) {
+
+        static Entry of(Expense expense, LocalDateTime now) {
+            return new Entry(expense.getName(), expense.getAmount(), expense.getTime() != null ? expense.getTime() : now,
+                    expense.getCounterparty(), expense.getCategory());
+        }
+
+        Expense toExpense() {
+            Expense expense = new Expense(name, amount, counterparty, category);
+            if (time != null) {
+                expense.setTime(time);
+            }
+            return expense;
+        }
+    }
+
+}
@@ -0,0 +1,465 @@
+package dev.amiah.budget_tracker.service.ingest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only log of records in a local directory, for accepting writes faster than the database can commit
+ * them without losing any that were acknowledged.
+ * <p>
+ * Appends are written by a single thread. It takes every append that is waiting, writes them all, and forces them
+ * to disk with one {@code fsync}, so the cost of an {@code fsync} is shared by every append that arrived while the
+ * previous one ran. An append's future completes only once its record is on disk.
+ * <p>
+ * Records are framed with their length and a CRC-32C checksum. A record that was being written when the process or
+ * machine stopped is cut off when the log is opened again; it was never acknowledged. Positions are byte offsets
+ * over the whole life of the log, and the log is split into segment files named after the position they start at,
+ * so that segments that have been fully applied can be deleted. The newest segment is always kept, which keeps
+ * positions increasing across restarts.
+ * <p>
+ * If writing a batch fails, the log is cut back to the end of the last batch that was written, so that the next
+ * batch follows it directly. If that fails too, the log stops accepting appends until it is opened again.
+ */
+public class WriteAheadLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String ID_FILE = "log-id";
+    // Stops the writer thread once every append before it has been written
+    private static final Append STOP = new Append(null);
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final String id;
+
+    // Segment files by the position of their first record
+    private final NavigableMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    private final BlockingQueue<Append> appends = new LinkedBlockingQueue<>();
+    private final Object durableMonitor = new Object();
+    private final Thread writer;
+
+    // Written only by the writer thread, after opening
+    private FileChannel segment;
+    private long segmentStart;
+    private long position;
+
+    private volatile long durablePosition;
+    private volatile boolean closed;
+    // Set if a failed batch couldn't be cut off, after which nothing more is written
+    private volatile IOException failure;
+
+    /**
+     * Opens the log in {@code directory}, creating it if needed, and starts its writer thread.
+     *
+     * @param segmentBytes The size after which a new segment file is started.
+     */
+    public WriteAheadLog(Path directory, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+
+        Files.createDirectories(directory);
+        this.id = readOrCreateId();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .forEach(file -> segments.put(startOf(file), file));
+        }
+
+        if (segments.isEmpty()) {
+            openSegment(0);
+        }
+        else {
+            Map.Entry<Long, Path> last = segments.lastEntry();
+            segmentStart = last.getKey();
+            segment = FileChannel.open(last.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            position = segmentStart + recover(segment, last.getValue());
+            segment.position(position - segmentStart);
+        }
+        durablePosition = position;
+
+        writer = new Thread(this::write, "write-ahead-log-" + directory.getFileName());
+        writer.start();
+    }
+
+    /**
+     * @return A random id that identifies this log for as long as its directory exists.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return The position of the oldest record that hasn't been deleted.
+     */
+    public long getStartPosition() {
+        return segments.firstKey();
+    }
+
+    /**
+     * @return The position after the last record that is on disk.
+     */
+    public long getDurablePosition() {
+        return durablePosition;
+    }
+
+    /**
+     * Adds a record to the end of the log.
+     *
+     * @return A future that completes with the position after the record once it is on disk, or completes
+     *         exceptionally if it couldn't be written.
+     */
+    public CompletableFuture<Long> append(byte[] payload) {
+        Append append = new Append(payload);
+        if (closed) {
+            append.result.completeExceptionally(new IOException("The write-ahead log is closed"));
+            return append.result;
+        }
+        if (failure != null) {
+            append.result.completeExceptionally(new IOException("The write-ahead log has failed", failure));
+            return append.result;
+        }
+
+        appends.add(append);
+        return append.result;
+    }
+
+    /**
+     * Reads records that are on disk, starting at {@code from}.
+     *
+     * @param from The position of a record, such as the {@code end} of the last one read.
+     * @param maxRecords The most records to read.
+     * @return The records in order, or none if there are no more yet.
+     */
+    public List<Record> read(long from, int maxRecords) throws IOException {
+        long limit = durablePosition;
+        List<Record> records = new ArrayList<>();
+        long next = from;
+
+        while (next < limit && records.size() < maxRecords) {
+            Map.Entry<Long, Path> entry = segments.floorEntry(next);
+            if (entry == null) {
+                throw new IOException("Position " + next + " was deleted from the write-ahead log");
+            }
+            Long following = segments.higherKey(entry.getKey());
+            long end = following != null ? Math.min(following, limit) : limit;
+
+            try (FileChannel channel = FileChannel.open(entry.getValue(), StandardOpenOption.READ)) {
+                channel.position(next - entry.getKey());
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+                while (next < end && records.size() < maxRecords) {
+                    readFully(channel, header.clear());
+                    int length = header.getInt(0);
+                    byte[] payload = new byte[length];
+                    readFully(channel, ByteBuffer.wrap(payload));
+
+                    if (checksum(payload) != header.getInt(4)) {
+                        throw new IOException("Record at position " + next + " of the write-ahead log is corrupt");
+                    }
+                    next += HEADER_BYTES + length;
+                    records.add(new Record(payload, next));
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Waits until records after {@code position} are on disk, or the timeout passes, or the log is closed.
+     */
+    public void awaitAppend(long position, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        synchronized (durableMonitor) {
+            long remaining;
+            while (durablePosition <= position && !closed && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(durableMonitor, remaining);
+            }
+        }
+    }
+
+    /**
+     * Deletes the segments whose records all end at or before {@code position}, except the newest.
+     */
+    public void deleteThrough(long position) throws IOException {
+        for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+            Long following = segments.higherKey(entry.getKey());
+            if (following == null || following > position) {
+                return;
+            }
+            Files.deleteIfExists(entry.getValue());
+            segments.remove(entry.getKey());
+        }
+    }
+
+    /**
+     * Writes every append made before this call, then stops. Later appends fail.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        appends.add(STOP);
+
+        try {
+            writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            synchronized (durableMonitor) {
+                durableMonitor.notifyAll();
+            }
+            segment.close();
+        }
+    }
+
+    private void write() {
+        List<Append> batch = new ArrayList<>();
+        boolean stopping = false;
+
+        while (!stopping) {
+            batch.clear();
+            try {
+                batch.add(appends.take());
+            }
+            catch (InterruptedException e) {
+                // Only close stops the writer, so that appends already accepted are written
+                continue;
+            }
+            appends.drainTo(batch);
+
+            int stop = batch.indexOf(STOP);
+            if (stop >= 0) {
+                stopping = true;
+                batch.subList(stop, batch.size()).clear();
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            if (failure != null) {
+                IOException e = new IOException("The write-ahead log has failed", failure);
+                batch.forEach(append -> append.result.completeExceptionally(e));
+                continue;
+            }
+
+            try {
+                for (Append append : batch) {
+                    if (position - segmentStart >= segmentBytes) {
+                        segment.force(false);
+                        segment.close();
+                        openSegment(position);
+                    }
+
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                            .putInt(append.payload.length)
+                            .putInt(checksum(append.payload))
+                            .flip();
+                    write(segment, header);
+                    write(segment, ByteBuffer.wrap(append.payload));
+                    position += HEADER_BYTES + append.payload.length;
+                    append.end = position;
+                }
+                segment.force(false);
+            }
+            catch (IOException e) {
+                log.error("Could not write {} records to the write-ahead log", batch.size(), e);
+                rollBack();
+                batch.forEach(append -> append.result.completeExceptionally(e));
+                continue;
+            }
+
+            synchronized (durableMonitor) {
+                durablePosition = position;
+                durableMonitor.notifyAll();
+            }
+            batch.forEach(append -> append.result.complete(append.end));
+        }
+
+        // Appends that raced with close
+        Append append;
+        while ((append = appends.poll()) != null) {
+            append.result.completeExceptionally(new IOException("The write-ahead log is closed"));
+        }
+    }
+
+    /**
+     * Writes {@code buffer} to the current segment. Only tests replace this, to make a write fail partway.
+     */
+    void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        writeFully(channel, buffer);
+    }
+
+    /**
+     * Cuts off whatever a failed batch wrote, deleting any segment it started, so that the log ends at the durable
+     * position again. If that isn't possible, the log is marked as failed instead.
+     */
+    private void rollBack() {
+        // An interrupt closes the channel, and would stop the reopened one from being cut off too
+        Thread.interrupted();
+        try {
+            segment.close();
+
+            Map.Entry<Long, Path> last;
+            while ((last = segments.lastEntry()).getKey() > durablePosition) {
+                segments.remove(last.getKey());
+                Files.deleteIfExists(last.getValue());
+            }
+
+            segment = FileChannel.open(last.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segmentStart = last.getKey();
+            position = durablePosition;
+            segment.truncate(position - segmentStart);
+            segment.force(false);
+            segment.position(position - segmentStart);
+        }
+        catch (IOException e) {
+            log.error("Could not cut off a failed write to the write-ahead log; no more appends are accepted", e);
+            failure = e;
+        }
+    }
+
+    private void openSegment(long start) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", start, SEGMENT_SUFFIX));
+        segment = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segmentStart = start;
+        position = start;
+        syncDirectory();
+        segments.put(start, file);
+    }
+
+    /**
+     * Finds the end of the last complete record of a segment, and cuts off anything after it.
+     *
+     * @return The length of the complete records.
+     */
+    private static long recover(FileChannel channel, Path file) throws IOException {
+        long size = channel.size();
+        long valid = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+        channel.position(0);
+        while (valid + HEADER_BYTES <= size) {
+            readFully(channel, header.clear());
+            int length = header.getInt(0);
+            if (length < 0 || valid + HEADER_BYTES + length > size) {
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            readFully(channel, ByteBuffer.wrap(payload));
+            if (checksum(payload) != header.getInt(4)) {
+                break;
+            }
+            valid += HEADER_BYTES + length;
+        }
+
+        if (valid < size) {
+            log.warn("Cutting off {} bytes of an incomplete record at the end of {}", size - valid, file);
+            channel.truncate(valid);
+            channel.force(true);
+        }
+        return valid;
+    }
+
+    private String readOrCreateId() throws IOException {
+        Path file = directory.resolve(ID_FILE);
+        if (Files.exists(file)) {
+            return Files.readString(file, StandardCharsets.UTF_8).strip();
+        }
+
+        String newId = UUID.randomUUID().toString();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            writeFully(channel, ByteBuffer.wrap(newId.getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+        syncDirectory();
+        return newId;
+    }
+
+    /**
+     * Makes the creation of new files durable. Not every platform can open a directory, in which case this is
+     * left to the file system.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+        catch (IOException e) {
+            log.debug("Could not sync {}", directory, e);
+        }
+    }
+
+    private static long startOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * One record read from the log.
+     *
+     * @param payload The bytes that were appended.
+     * @param end The position after the record, which is where the next one starts.
+     */
+    public record Record(byte[] payload, long end) {}
+
+    private static class Append {
+
+        private final byte[] payload;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        private long end;
+
+        Append(byte[] payload) {
+            this.payload = payload;
+        }
+    }
+
+}
@@ -0,0 +1,472 @@
+package dev.amiah.budget_tracker.service.search;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory inverted index over the words in expense names and counterparties, which finds the most recent
+ * expenses matching a query without touching the database.
+ * <p>
+ * Every indexed expense gets a small integer ordinal and a 64-bit recency key, which is its time in seconds
+ * followed by its ordinal. Each distinct word maps to a {@link Postings} array of the keys of the expenses
+ * containing it, sorted by key, so the most recent matches of a word are at the end of its array. A query word
+ * matches every indexed word it is a prefix of, and with fuzzy matching also every word that starts with the same
+ * letter and is within one or two typos of it. The postings of whichever query word matches the fewest expenses
+ * are merged from newest to oldest, and each expense is kept if the rest of the query matches it too, until enough
+ * results are found. {@code SearchIndexBenchmark} answers typical queries over a million expenses in a few
+ * microseconds, and rare combinations of several words, which have to skip past many candidates, in under a
+ * millisecond.
+ * <p>
+ * Memory budget: about 120 bytes per expense, so roughly 120 MB per million expenses. That is 8 bytes per word
+ * per expense in the postings plus array slack (about 50 bytes for a typical expense of five words), 8 bytes each
+ * for its id and key, 16 to 40 bytes for the array of its words, and up to 24 bytes in the id lookup table.
+ * Each distinct word adds about 150 bytes for the word itself and its entry in the word map. Use
+ * {@link #estimatedBytes()} to see the current figure.
+ * <p>
+ * Reads and writes are guarded by a read-write lock, so searches run concurrently and each write holds the lock
+ * only for the few array copies it needs.
+ */
+public class ExpenseSearchIndex {
+
+    // 2^26, about 67 million expenses
+    private static final int ORDINAL_BITS = 26;
+    private static final long ORDINAL_MASK = (1L << ORDINAL_BITS) - 1;
+
+    // Times are counted from the start of year 1 so that they are never negative; 37 bits reach past year 4000
+    private static final long SECONDS_OFFSET = -LocalDateTime.of(1, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+    private static final long MAX_SECONDS = (1L << (63 - ORDINAL_BITS)) - 1;
+
+    // Query words matching at most this many terms are checked by walking their postings instead of term ids
+    private static final int MAX_WALKED_POSTINGS = 8;
+
+    // Word maps cost about this much per distinct word, for estimatedBytes()
+    private static final int BYTES_PER_TERM = 150;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final LongIntHashMap ordinalsById = new LongIntHashMap();
+
+    // Indexed by ordinal
+    private long[] ids = new long[1024];
+    private long[] keys = new long[1024];
+    private Postings[][] termsByOrdinal = new Postings[1024][];
+
+    private final IdPool ordinals = new IdPool(this::growOrdinals);
+    private final IdPool termIds = new IdPool(() -> {});
+
+    /**
+     * Adds an expense to the index, replacing it if it is already there.
+     */
+    public void put(long id, String name, String counterparty, LocalDateTime time) {
+        List<String> words = SearchText.tokenize(name, counterparty);
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (words.isEmpty()) {
+                return;
+            }
+
+            int ordinal = ordinals.allocate();
+            long key = recencyKey(time, ordinal);
+
+            Postings[] postings = new Postings[words.size()];
+            for (int i = 0; i < postings.length; i++) {
+                postings[i] = terms.computeIfAbsent(words.get(i), term -> new Postings(term, termIds.allocate()));
+                postings[i].add(key);
+            }
+
+            ids[ordinal] = id;
+            keys[ordinal] = key;
+            termsByOrdinal[ordinal] = postings;
+            ordinalsById.put(id, ordinal);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an expense from the index, if it is there.
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the most recent expenses whose name or counterparty contain every word of {@code query}, where each
+     * word of the query may be the start of a word in the expense.
+     *
+     * @param query The words to search for.
+     * @param fuzzy Whether to also match words that are one or two typos away.
+     * @param limit The maximum number of results.
+     * @return The ids of the matching expenses, most recent first.
+     */
+    public List<Long> search(String query, boolean fuzzy, int limit) {
+        List<TermMatcher> matchers = SearchText.tokenize(query).stream()
+                .map(token -> new TermMatcher(token, fuzzy ? SearchText.maxEdits(token) : 0))
+                .toList();
+
+        if (matchers.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            List<List<Postings>> expansions = new ArrayList<>(matchers.size());
+            for (TermMatcher matcher : matchers) {
+                expansions.add(matcher.expand(terms));
+            }
+
+            // Drive the search from the query word that matches the fewest expenses, and check the others from
+            // the fewest up, so that most candidates are rejected by the first check
+            expansions.sort(Comparator.comparingLong(ExpenseSearchIndex::totalSize));
+
+            List<WordCheck> others = new ArrayList<>(expansions.size() - 1);
+            for (List<Postings> expansion : expansions.subList(1, expansions.size())) {
+                others.add(expansion.size() <= MAX_WALKED_POSTINGS
+                        ? new WalkingCheck(expansion)
+                        : new TermIdCheck(expansion));
+            }
+
+            return mergeNewestFirst(expansions.getFirst(), others, limit);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of expenses in the index.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalsById.size();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Roughly how many bytes the index uses, following the budget in the class description.
+     */
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 16L * ids.length + 16L * termsByOrdinal.length + ordinalsById.capacityBytes();
+            for (Postings[] postings : termsByOrdinal) {
+                if (postings != null) {
+                    bytes += 16 + 4L * postings.length;
+                }
+            }
+            for (Postings postings : terms.values()) {
+                bytes += BYTES_PER_TERM + postings.capacityBytes();
+            }
+            return bytes;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Long> mergeNewestFirst(List<Postings> postings, List<WordCheck> others, int limit) {
+        NewestFirst merge = new NewestFirst(postings);
+        List<Long> results = new ArrayList<>(Math.min(limit, 64));
+        long previousKey = -1;
+
+        while (merge.hasNext() && results.size() < limit) {
+            long key = merge.next();
+
+            // An expense with several words matching the same query word appears once per word
+            if (key == previousKey) {
+                continue;
+            }
+            previousKey = key;
+
+            if (matchesAll(key, others)) {
+                results.add(ids[(int) (key & ORDINAL_MASK)]);
+            }
+        }
+
+        return results;
+    }
+
+    private boolean matchesAll(long key, List<WordCheck> others) {
+        for (WordCheck other : others) {
+            if (!other.matches(key, this)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long totalSize(List<Postings> postings) {
+        long size = 0;
+        for (Postings p : postings) {
+            size += p.size();
+        }
+        return size;
+    }
+
+    private void removeLocked(long id) {
+        int ordinal = ordinalsById.remove(id);
+        if (ordinal < 0) {
+            return;
+        }
+
+        for (Postings postings : termsByOrdinal[ordinal]) {
+            postings.remove(keys[ordinal]);
+            if (postings.isEmpty()) {
+                terms.remove(postings.term);
+                termIds.release(postings.id);
+            }
+        }
+
+        termsByOrdinal[ordinal] = null;
+        ordinals.release(ordinal);
+    }
+
+    private void growOrdinals() {
+        if (ordinals.next > ORDINAL_MASK) {
+            throw new IllegalStateException("Search index is full at " + ordinals.next + " expenses");
+        }
+        if (ordinals.next == ids.length) {
+            int capacity = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            termsByOrdinal = Arrays.copyOf(termsByOrdinal, capacity);
+        }
+    }
+
+    private static long recencyKey(LocalDateTime time, int ordinal) {
+        long seconds = time != null ? time.toEpochSecond(ZoneOffset.UTC) + SECONDS_OFFSET : 0;
+        seconds = Math.clamp(seconds, 0, MAX_SECONDS);
+
+        return (seconds << ORDINAL_BITS) | ordinal;
+    }
+
+    /**
+     * Matches indexed words against one word of a query.
+     */
+    private record TermMatcher(String token, int maxEdits) {
+
+        /**
+         * @return The postings of every indexed word this matches.
+         */
+        List<Postings> expand(TreeMap<String, Postings> terms) {
+            List<Postings> matches = new ArrayList<>(terms.subMap(token, true, token + Character.MAX_VALUE, false).values());
+
+            if (maxEdits > 0) {
+                // Typos are only looked for among words with the same first letter, which keeps this to a small slice
+                String first = token.substring(0, 1);
+                for (Postings postings : terms.subMap(first, true, first + Character.MAX_VALUE, false).values()) {
+                    if (!postings.term.startsWith(token) && isTypoOf(postings.term)) {
+                        matches.add(postings);
+                    }
+                }
+            }
+
+            return matches;
+        }
+
+        private boolean isTypoOf(String term) {
+            return term.charAt(0) == token.charAt(0) && SearchText.withinEditDistance(token, term, maxEdits);
+        }
+    }
+
+    /**
+     * Checks candidates, which come newest first, against one query word.
+     */
+    private sealed interface WordCheck permits WalkingCheck, TermIdCheck {
+
+        boolean matches(long key, ExpenseSearchIndex index);
+    }
+
+    /**
+     * Walks down the postings of each matching term alongside the candidates, so checking a candidate only reads
+     * keys close to the ones read for the previous candidate. Best for words that match a few terms.
+     */
+    private static final class WalkingCheck implements WordCheck {
+
+        private final Postings[] postings;
+        private final int[] positions;
+
+        WalkingCheck(List<Postings> postings) {
+            this.postings = postings.toArray(Postings[]::new);
+            this.positions = new int[this.postings.length];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = this.postings[i].size() - 1;
+            }
+        }
+
+        @Override
+        public boolean matches(long key, ExpenseSearchIndex index) {
+            boolean matched = false;
+            for (int i = 0; i < postings.length; i++) {
+                positions[i] = postings[i].floorIndex(key, positions[i]);
+                matched |= positions[i] >= 0 && postings[i].get(positions[i]) == key;
+            }
+            return matched;
+        }
+    }
+
+    /**
+     * Looks up the candidate's own terms in the set of terms the word matches. Best for words that match many
+     * terms, such as short prefixes.
+     */
+    private static final class TermIdCheck implements WordCheck {
+
+        private final BitSet termIds = new BitSet();
+
+        TermIdCheck(List<Postings> postings) {
+            postings.forEach(p -> termIds.set(p.id));
+        }
+
+        @Override
+        public boolean matches(long key, ExpenseSearchIndex index) {
+            for (Postings word : index.termsByOrdinal[(int) (key & ORDINAL_MASK)]) {
+                if (termIds.get(word.id)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Hands out small ids, reusing released ones first so that arrays indexed by them stay dense.
+     */
+    private static final class IdPool {
+
+        private final Runnable beforeNew;
+        private int[] free = new int[64];
+        private int freeCount = 0;
+        private int next = 0;
+
+        /**
+         * @param beforeNew Called before handing out an id that has never been used, to make room for it.
+         */
+        IdPool(Runnable beforeNew) {
+            this.beforeNew = beforeNew;
+        }
+
+        int allocate() {
+            if (freeCount > 0) {
+                return free[--freeCount];
+            }
+            beforeNew.run();
+            return next++;
+        }
+
+        void release(int id) {
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, freeCount * 2);
+            }
+            free[freeCount++] = id;
+        }
+    }
+
+    /**
+     * Merges several {@code Postings} into one sequence of keys, newest first. Keeps the next key of each in a
+     * binary max-heap of primitives.
+     */
+    private static final class NewestFirst {
+
+        private final Postings[] postings;
+        // The next index to read from each postings
+        private final int[] positions;
+        // The heap, as the next key of each postings and which postings it came from
+        private final long[] heapKeys;
+        private final int[] heapSources;
+        private int heapSize = 0;
+
+        NewestFirst(List<Postings> postings) {
+            this.postings = postings.toArray(Postings[]::new);
+            this.positions = new int[this.postings.length];
+            this.heapKeys = new long[this.postings.length];
+            this.heapSources = new int[this.postings.length];
+
+            for (int i = 0; i < this.postings.length; i++) {
+                positions[i] = this.postings[i].size() - 1;
+                if (positions[i] >= 0) {
+                    heapKeys[heapSize] = this.postings[i].get(positions[i]);
+                    heapSources[heapSize] = i;
+                    siftUp(heapSize++);
+                }
+            }
+        }
+
+        boolean hasNext() {
+            return heapSize > 0;
+        }
+
+        long next() {
+            long key = heapKeys[0];
+            int source = heapSources[0];
+
+            if (--positions[source] >= 0) {
+                heapKeys[0] = postings[source].get(positions[source]);
+            }
+            else {
+                heapSize--;
+                heapKeys[0] = heapKeys[heapSize];
+                heapSources[0] = heapSources[heapSize];
+            }
+            siftDown(0);
+
+            return key;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heapKeys[parent] >= heapKeys[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < heapSize && heapKeys[left] > heapKeys[largest]) {
+                    largest = left;
+                }
+                if (right < heapSize && heapKeys[right] > heapKeys[largest]) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            long key = heapKeys[a];
+            heapKeys[a] = heapKeys[b];
+            heapKeys[b] = key;
+
+            int source = heapSources[a];
+            heapSources[a] = heapSources[b];
+            heapSources[b] = source;
+        }
+    }
+
+}
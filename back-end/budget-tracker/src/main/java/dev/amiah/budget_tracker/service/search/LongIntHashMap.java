@@ -0,0 +1,115 @@
+package dev.amiah.budget_tracker.service.search;
+
+/**
+ * A map from {@code long} to non-negative {@code int} that stores both in primitive arrays, using about 12 to 24
+ * bytes per entry instead of the 50 or so of a {@code HashMap<Long, Integer>}. Uses open addressing with linear
+ * probing. Not thread-safe.
+ */
+final class LongIntHashMap {
+
+    private static final int MISSING = -1;
+
+    private long[] keys;
+    // The value plus one, so that zero marks an empty slot
+    private int[] values;
+    private int size = 0;
+    private int mask;
+
+    LongIntHashMap() {
+        keys = new long[1024];
+        values = new int[1024];
+        mask = keys.length - 1;
+    }
+
+    /**
+     * @return The value for {@code key}, or {@code -1} if there is none.
+     */
+    int get(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            if (values[slot] == 0) {
+                return MISSING;
+            }
+            if (keys[slot] == key) {
+                return values[slot] - 1;
+            }
+        }
+    }
+
+    void put(long key, int value) {
+        if (size * 4 >= keys.length * 3) {
+            resize(keys.length * 2);
+        }
+
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            if (values[slot] == 0) {
+                keys[slot] = key;
+                values[slot] = value + 1;
+                size++;
+                return;
+            }
+            if (keys[slot] == key) {
+                values[slot] = value + 1;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return The value that was removed, or {@code -1} if there was none.
+     */
+    int remove(long key) {
+        int slot = slot(key);
+        while (values[slot] != 0 && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (values[slot] == 0) {
+            return MISSING;
+        }
+
+        int removed = values[slot] - 1;
+        size--;
+
+        // Shift later entries of the same probe sequence back, so that lookups never stop at the removed slot
+        int gap = slot;
+        for (int next = (gap + 1) & mask; values[next] != 0; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        values[gap] = 0;
+
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long capacityBytes() {
+        return 12L * keys.length;
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                put(oldKeys[i], oldValues[i] - 1);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,110 @@
+package dev.amiah.budget_tracker.service.search;
+
+import java.util.Arrays;
+
+/**
+ * The expenses containing one term, as a sorted array of recency keys. The most recent expense is last, so new
+ * expenses are usually appended, and the best matches are read from the end backwards.
+ */
+final class Postings {
+
+    private static final long[] EMPTY = new long[0];
+
+    final String term;
+    // A small number unique among the terms currently in the index
+    final int id;
+
+    private long[] keys = EMPTY;
+    private int size = 0;
+
+    Postings(String term, int id) {
+        this.term = term;
+        this.id = id;
+    }
+
+    void add(long key) {
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i >= 0) {
+            return;
+        }
+        i = -i - 1;
+
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(2, size + (size >> 1) + 1));
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        keys[i] = key;
+        size++;
+    }
+
+    void remove(long key) {
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i < 0) {
+            return;
+        }
+
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        size--;
+
+        // Give memory back once most of the array is unused
+        if (size < keys.length / 4) {
+            keys = Arrays.copyOf(keys, size * 2);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long get(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Finds the last key at or before {@code from} that is no greater than {@code key}, galloping backwards so
+     * that walking down a long array in small steps stays cheap.
+     *
+     * @return The index of that key, or {@code -1} if every key up to {@code from} is greater.
+     */
+    int floorIndex(long key, int from) {
+        if (from < 0 || keys[from] <= key) {
+            return from;
+        }
+
+        // keys[high] > key; find a low with keys[low] <= key
+        int high = from;
+        int step = 1;
+        int low = high - step;
+        while (low >= 0 && keys[low] > key) {
+            high = low;
+            step <<= 1;
+            low = high - step;
+        }
+        if (low < 0) {
+            low = -1;
+        }
+
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] > key) {
+                high = mid;
+            }
+            else {
+                low = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return The number of bytes used by the array of keys.
+     */
+    long capacityBytes() {
+        return 8L * keys.length;
+    }
+
+}
@@ -0,0 +1,109 @@
+package dev.amiah.budget_tracker.service.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits text into search terms and compares terms.
+ */
+final class SearchText {
+
+    // Longer runs of letters are cut off here; they are almost always reference numbers
+    private static final int MAX_TERM_LENGTH = 32;
+
+    private SearchText() {}
+
+    /**
+     * Splits each text on anything that is not a letter or digit and lowercases the pieces.
+     *
+     * @param texts The texts to split. {@code null}s are skipped.
+     * @return The distinct terms, in the order they first appear.
+     */
+    static List<String> tokenize(String... texts) {
+        Set<String> terms = new LinkedHashSet<>();
+        StringBuilder term = new StringBuilder();
+
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+
+            for (int i = 0; i <= text.length(); i++) {
+                char c = i < text.length() ? text.charAt(i) : ' ';
+
+                if (Character.isLetterOrDigit(c)) {
+                    if (term.length() < MAX_TERM_LENGTH) {
+                        term.append(Character.toLowerCase(c));
+                    }
+                }
+                else if (!term.isEmpty()) {
+                    terms.add(term.toString());
+                    term.setLength(0);
+                }
+            }
+        }
+
+        return new ArrayList<>(terms);
+    }
+
+    /**
+     * @return The number of typos tolerated in a fuzzy match of {@code token}: none for very short tokens, one
+     * for most words, and two for long ones.
+     */
+    static int maxEdits(String token) {
+        if (token.length() <= 3) {
+            return 0;
+        }
+        return token.length() <= 7 ? 1 : 2;
+    }
+
+    /**
+     * Checks whether the Levenshtein distance between {@code a} and {@code b} is at most {@code max}, only
+     * computing the diagonal band of the distance matrix that can stay within {@code max}.
+     */
+    static boolean withinEditDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return false;
+        }
+
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(b.length(), i + max);
+            current[0] = i;
+            if (from > 1) {
+                current[from - 1] = max + 1;
+            }
+
+            int rowMin = from > 1 ? max + 1 : i;
+            for (int j = from; j <= to; j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                int deletion = previous[j] + 1;
+                int insertion = current[j - 1] + 1;
+                current[j] = Math.min(substitution, Math.min(deletion, insertion));
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < b.length()) {
+                current[to + 1] = max + 1;
+            }
+
+            if (rowMin > max) {
+                return false;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return previous[b.length()] <= max;
+    }
+
+}
@@ -0,0 +1,189 @@
+package dev.amiah.budget_tracker.service.statement;
+
+import dev.amiah.budget_tracker.exception.StatementParseException;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.ImportColumnMapping;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads a CSV statement with a header row. Fields may be quoted, and quoted fields may contain the delimiter,
+ * doubled quotes, and line breaks.
+ */
+public class CsvStatementParser implements StatementParser {
+
+    private final BufferedReader reader;
+    private final char delimiter;
+    private final DateTimeFormatter dateFormatter;
+
+    private final int nameIndex;
+    private final int amountIndex;
+    private final int timeIndex;
+    private final int counterpartyIndex;
+    private final int categoryIndex;
+
+    private long recordNumber = 0;
+
+    /**
+     * Reads the header row and works out where each mapped column is.
+     *
+     * @throws IOException If the statement cannot be read or has no header.
+     * @throws IllegalArgumentException If the amount or time column is missing from the header.
+     */
+    public CsvStatementParser(Reader reader, ImportColumnMapping mapping) throws IOException {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        this.delimiter = mapping.getDelimiter().charAt(0);
+        this.dateFormatter = new DateTimeFormatterBuilder()
+                .parseCaseInsensitive()
+                .appendPattern(mapping.getDatePattern())
+                .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+                .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+                .parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0)
+                // Strict resolving rejects dates such as February 30 rather than moving them, but needs an era
+                // for patterns with a year of era (yyyy)
+                .parseDefaulting(ChronoField.ERA, 1)
+                .toFormatter(Locale.ENGLISH)
+                .withResolverStyle(ResolverStyle.STRICT);
+
+        List<String> header = readRecord();
+        if (header == null) {
+            throw new IOException("Statement is empty");
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            // Strip a byte order mark from the first column name
+            columns.putIfAbsent(header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT), i);
+        }
+
+        this.nameIndex = indexOf(columns, mapping.getNameColumn());
+        this.amountIndex = indexOf(columns, mapping.getAmountColumn());
+        this.timeIndex = indexOf(columns, mapping.getTimeColumn());
+        this.counterpartyIndex = indexOf(columns, mapping.getCounterpartyColumn());
+        this.categoryIndex = indexOf(columns, mapping.getCategoryColumn());
+
+        if (amountIndex < 0) {
+            throw new IllegalArgumentException("Amount column '" + mapping.getAmountColumn() + "' not found in header");
+        }
+        if (timeIndex < 0) {
+            throw new IllegalArgumentException("Time column '" + mapping.getTimeColumn() + "' not found in header");
+        }
+    }
+
+    @Override
+    public Expense next() throws IOException {
+        List<String> record = readRecord();
+
+        // Skip blank lines
+        while (record != null && record.size() == 1 && record.getFirst().isBlank()) {
+            record = readRecord();
+        }
+
+        if (record == null) {
+            return null;
+        }
+        recordNumber++;
+
+        Expense expense = new Expense();
+        expense.setName(StatementValues.emptyToNull(field(record, nameIndex)));
+        expense.setCounterparty(StatementValues.emptyToNull(field(record, counterpartyIndex)));
+        expense.setCategory(StatementValues.parseCategory(field(record, categoryIndex)));
+
+        String amount = field(record, amountIndex);
+        try {
+            expense.setAmount(StatementValues.parseAmount(amount));
+        }
+        catch (NumberFormatException e) {
+            throw new StatementParseException(recordNumber, "Invalid amount '" + amount + "'");
+        }
+
+        String time = field(record, timeIndex);
+        try {
+            expense.setTime(LocalDateTime.parse(time.trim(), dateFormatter));
+        }
+        catch (DateTimeParseException e) {
+            throw new StatementParseException(recordNumber, "Invalid time '" + time + "'");
+        }
+
+        return expense;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static int indexOf(Map<String, Integer> columns, String column) {
+        return columns.getOrDefault(column.trim().toLowerCase(Locale.ROOT), -1);
+    }
+
+    private static String field(List<String> record, int index) {
+        return index >= 0 && index < record.size() ? record.get(index) : "";
+    }
+
+    /**
+     * Reads one record, which may span several lines if a quoted field contains line breaks.
+     *
+     * @return The fields of the record, or {@code null} at the end of the statement.
+     */
+    private List<String> readRecord() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int peek = reader.read();
+                    if (peek == '"') {
+                        field.append('"');
+                    }
+                    else {
+                        quoted = false;
+                        reader.reset();
+                    }
+                }
+                else {
+                    field.append((char) c);
+                }
+            }
+            else if (c == '"') {
+                quoted = true;
+            }
+            else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            }
+            else if (c == '\n') {
+                break;
+            }
+            else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+
+        fields.add(field.toString());
+        return fields;
+    }
+
+}
@@ -0,0 +1,165 @@
+package dev.amiah.budget_tracker.service.statement;
+
+import dev.amiah.budget_tracker.exception.StatementParseException;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the transactions ({@code <STMTTRN>} blocks) of an OFX or QFX statement. Both the SGML form of OFX 1.x,
+ * where values are not followed by closing tags, and the XML form of OFX 2.x are understood. Everything outside
+ * of transactions, including the OFX header, is skipped.
+ * <p>
+ * {@code MEMO} becomes the name of the {@code Expense} (falling back to {@code NAME}), {@code NAME} or
+ * {@code PAYEE} becomes the counterparty, and every transaction is categorized as {@link ExpenseCategory#OTHER}
+ * since OFX does not carry categories.
+ */
+public class OfxStatementParser implements StatementParser {
+
+    private static final String TRANSACTION = "STMTTRN";
+
+    private final BufferedReader reader;
+
+    private long recordNumber = 0;
+
+    public OfxStatementParser(Reader reader) {
+        this.reader = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+    }
+
+    @Override
+    public Expense next() throws IOException {
+        // Skip ahead to the next transaction
+        String tag;
+        do {
+            tag = nextTag();
+            if (tag == null) {
+                return null;
+            }
+        } while (!tag.equals(TRANSACTION));
+
+        recordNumber++;
+        Map<String, String> values = new HashMap<>();
+
+        while ((tag = nextTag()) != null && !tag.equals("/" + TRANSACTION)) {
+            if (!tag.startsWith("/")) {
+                String value = readValue();
+                if (!value.isEmpty()) {
+                    values.putIfAbsent(tag, value);
+                }
+            }
+        }
+
+        return toExpense(values);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Expense toExpense(Map<String, String> values) {
+        String amount = values.get("TRNAMT");
+        String posted = values.get("DTPOSTED");
+
+        if (amount == null) {
+            throw new StatementParseException(recordNumber, "Missing TRNAMT");
+        }
+        if (posted == null) {
+            throw new StatementParseException(recordNumber, "Missing DTPOSTED");
+        }
+
+        String counterparty = values.containsKey("NAME") ? values.get("NAME") : values.get("PAYEE");
+
+        Expense expense = new Expense();
+        expense.setName(values.containsKey("MEMO") ? values.get("MEMO") : counterparty);
+        expense.setCounterparty(counterparty);
+        expense.setCategory(ExpenseCategory.OTHER);
+
+        try {
+            expense.setAmount(StatementValues.parseAmount(amount));
+        }
+        catch (NumberFormatException e) {
+            throw new StatementParseException(recordNumber, "Invalid TRNAMT '" + amount + "'");
+        }
+
+        try {
+            expense.setTime(parseDateTime(posted));
+        }
+        catch (DateTimeException | NumberFormatException | IndexOutOfBoundsException e) {
+            throw new StatementParseException(recordNumber, "Invalid DTPOSTED '" + posted + "'");
+        }
+
+        return expense;
+    }
+
+    /**
+     * Parses an OFX date, which is {@code YYYYMMDD} optionally followed by {@code HHMMSS}, fractional seconds,
+     * and a time zone such as {@code [-5:EST]}. The time zone is ignored.
+     */
+    private static LocalDateTime parseDateTime(String value) {
+        LocalDate date = LocalDate.parse(value.substring(0, 8), DateTimeFormatter.BASIC_ISO_DATE);
+
+        if (value.length() >= 14 && Character.isDigit(value.charAt(8))) {
+            return date.atTime(Integer.parseInt(value.substring(8, 10)),
+                               Integer.parseInt(value.substring(10, 12)),
+                               Integer.parseInt(value.substring(12, 14)));
+        }
+        return date.atStartOfDay();
+    }
+
+    /**
+     * Reads up to and including the next tag.
+     *
+     * @return The tag name in upper case, with a leading {@code /} for closing tags, or {@code null} at the end
+     *         of the statement.
+     */
+    private String nextTag() throws IOException {
+        int c;
+        while ((c = reader.read()) != -1 && c != '<') {
+            // Skip text between tags
+        }
+        if (c == -1) {
+            return null;
+        }
+
+        StringBuilder tag = new StringBuilder();
+        while ((c = reader.read()) != -1 && c != '>') {
+            tag.append((char) c);
+        }
+        return tag.toString().trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Reads the text following a tag, up to but not including the next tag.
+     */
+    private String readValue() throws IOException {
+        StringBuilder value = new StringBuilder();
+
+        reader.mark(1);
+        int c;
+        while ((c = reader.read()) != -1 && c != '<') {
+            value.append((char) c);
+            reader.mark(1);
+        }
+        if (c == '<') {
+            reader.reset();
+        }
+
+        return unescape(value.toString().trim());
+    }
+
+    private static String unescape(String value) {
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&");
+    }
+
+}
@@ -0,0 +1,295 @@
+package dev.amiah.budget_tracker.service.statement;
+
+import dev.amiah.budget_tracker.dto.BatchItemResult;
+import dev.amiah.budget_tracker.exception.ImportJobNotFoundException;
+import dev.amiah.budget_tracker.exception.ImportJobNotResumableException;
+import dev.amiah.budget_tracker.exception.StatementParseException;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.ImportColumnMapping;
+import dev.amiah.budget_tracker.model.ImportJob;
+import dev.amiah.budget_tracker.model.data_type.ImportFormat;
+import dev.amiah.budget_tracker.model.data_type.ImportStatus;
+import dev.amiah.budget_tracker.repository.ImportJobRepository;
+import dev.amiah.budget_tracker.service.ExpenseBatchService;
+import dev.amiah.budget_tracker.service.ExpenseDuplicateService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Imports bank statements into the {@code expense} table in the background.
+ * <p>
+ * An uploaded statement is first copied to a spool directory so the import does not depend on the request that
+ * uploaded it. It is then parsed one record at a time and saved in chunks of a fixed size, each in its own
+ * transaction together with the progress of the {@link ImportJob}. At most one chunk of expenses is in memory at
+ * a time. If an import fails, or the application stops in the middle of one, {@link #resume(Long)} skips the
+ * records that were already committed and carries on from there.
+ * <p>
+ * Records that are already saved, such as when the same statement is imported twice, are skipped and counted as
+ * duplicates, see {@link ExpenseDuplicateService}.
+ */
+@Service
+public class StatementImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementImportService.class);
+
+    private final ImportJobRepository jobRepository;
+    private final ExpenseBatchService batchService;
+    private final ExpenseDuplicateService duplicateService;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor taskExecutor;
+    private final Path spoolDirectory;
+    private final int chunkSize;
+
+    public StatementImportService(ImportJobRepository jobRepository, ExpenseBatchService batchService,
+                                  ExpenseDuplicateService duplicateService,
+                                  PlatformTransactionManager transactionManager,
+                                  @Qualifier("applicationTaskExecutor") TaskExecutor taskExecutor,
+                                  @Value("${budget-tracker.import.spool-dir}") Path spoolDirectory,
+                                  @Value("${budget-tracker.import.chunk-size:1000}") int chunkSize)
+    {
+        this.jobRepository = jobRepository;
+        this.batchService = batchService;
+        this.duplicateService = duplicateService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.taskExecutor = taskExecutor;
+        this.spoolDirectory = spoolDirectory;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Spools {@code file} and starts importing it in the background.
+     *
+     * @param file The uploaded statement.
+     * @param format The format of the statement.
+     * @param mapping How CSV columns map onto {@code Expense} fields.
+     * @return The new {@code ImportJob}, which can be polled for progress.
+     */
+    public ImportJob start(MultipartFile file, ImportFormat format, ImportColumnMapping mapping) throws IOException {
+        Files.createDirectories(spoolDirectory);
+        Path spoolPath = spoolDirectory.resolve(UUID.randomUUID() + "." + format.getExtension());
+        file.transferTo(spoolPath);
+
+        ImportJob job = new ImportJob(file.getOriginalFilename(), format, mapping);
+        job.setSpoolPath(spoolPath.toString());
+        job.setTotalBytes(Files.size(spoolPath));
+        job = jobRepository.save(job);
+
+        submit(job.getId());
+        return job;
+    }
+
+    /**
+     * Continues a failed or interrupted import from its last committed chunk. The job is claimed with a conditional
+     * update, so if several requests resume it at the same time only one of them does.
+     *
+     * @param id The {@code id} of the {@code ImportJob} to resume.
+     * @return The {@code ImportJob}.
+     * @throws ImportJobNotResumableException If the import is waiting to run, running, or already completed.
+     */
+    public ImportJob resume(Long id) {
+        if (jobRepository.claim(id, ImportStatus.RESUMABLE, ImportStatus.PENDING, LocalDateTime.now()) == 0) {
+            ImportJob job = jobRepository.findById(id).orElseThrow(() -> new ImportJobNotFoundException(id));
+            throw new ImportJobNotResumableException(id, job.getStatus());
+        }
+
+        submit(id);
+        return jobRepository.findById(id).orElseThrow(() -> new ImportJobNotFoundException(id));
+    }
+
+    /**
+     * Marks imports that were waiting to run or running when the application last stopped as failed, so they can
+     * be resumed.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void markInterruptedImports() {
+        for (ImportJob job : jobRepository.findAllByStatusIn(List.of(ImportStatus.PENDING, ImportStatus.RUNNING))) {
+            job.setStatus(ImportStatus.FAILED);
+            job.setLastError("Interrupted by application shutdown");
+            jobRepository.save(job);
+            log.info("Marked interrupted import {} as failed", job.getId());
+        }
+    }
+
+    private void submit(Long id) {
+        taskExecutor.execute(() -> run(id));
+    }
+
+    private void run(Long id) {
+        if (jobRepository.claim(id, List.of(ImportStatus.PENDING), ImportStatus.RUNNING, LocalDateTime.now()) == 0) {
+            log.warn("Import {} is no longer waiting to run, so it was not started", id);
+            return;
+        }
+        ImportJob job = jobRepository.findById(id).orElseThrow(() -> new ImportJobNotFoundException(id));
+
+        Path spoolPath = Path.of(job.getSpoolPath());
+
+        try (CountingInputStream in = new CountingInputStream(Files.newInputStream(spoolPath));
+             StatementParser parser = StatementParser.of(job.getFormat(),
+                     new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)), job.getMapping()))
+        {
+            Chunk chunk = new Chunk();
+            ExpenseDuplicateService.Session duplicates = duplicateService.newSession();
+            long alreadyCommitted = job.getRecordsCommitted();
+            long recordsRead = 0;
+            boolean more = true;
+
+            while (more) {
+                try {
+                    Expense expense = parser.next();
+                    if (expense == null) {
+                        more = false;
+                    }
+                    else if (++recordsRead > alreadyCommitted) {
+                        chunk.add(expense);
+                    }
+                    else if (ExpenseBatchService.validate(expense) == null) {
+                        // So that later copies of the same transaction in this statement aren't taken for duplicates
+                        duplicates.skip(expense);
+                    }
+                }
+                catch (StatementParseException e) {
+                    if (++recordsRead > alreadyCommitted) {
+                        chunk.reject(e.getMessage());
+                    }
+                }
+
+                if (chunk.size() >= chunkSize) {
+                    job = commit(job, chunk, duplicates, recordsRead, in.getCount());
+                    chunk = new Chunk();
+                }
+            }
+
+            // Commit whatever is left, which also records that the whole statement was read
+            job = commit(job, chunk, duplicates, recordsRead, in.getCount());
+            finish(job, ImportStatus.COMPLETED, null);
+            Files.deleteIfExists(spoolPath);
+
+            log.info("Completed import {}: {} imported, {} rejected, {} duplicates",
+                    job.getId(), job.getRecordsImported(), job.getRecordsRejected(), job.getRecordsDuplicate());
+        }
+        catch (Exception e) {
+            // commit() changes the job before its transaction commits, so if that is what failed the job holds
+            // progress that was never saved; saving it would make a resume skip those records
+            ImportJob committed = jobRepository.findById(id).orElseThrow(() -> new ImportJobNotFoundException(id));
+            log.warn("Import {} failed after {} records", id, committed.getRecordsCommitted(), e);
+            finish(committed, ImportStatus.FAILED, e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+        }
+    }
+
+    /**
+     * Saves a chunk and the job's progress in one transaction.
+     *
+     * @param recordsRead How many records from the start of the statement have been read, including this chunk.
+     * @param bytesRead How many bytes of the statement have been read.
+     * @return The updated {@code ImportJob}.
+     */
+    private ImportJob commit(ImportJob job, Chunk chunk, ExpenseDuplicateService.Session duplicates,
+                             long recordsRead, long bytesRead)
+    {
+        return transactionTemplate.execute(status -> {
+            List<BatchItemResult> results = batchService.insertAll(chunk.expenses, duplicates);
+            long imported = results.stream().filter(r -> r.status() == BatchItemResult.Status.CREATED).count();
+            long duplicate = results.stream().filter(r -> r.status() == BatchItemResult.Status.DUPLICATE).count();
+            long rejected = results.size() - imported - duplicate + chunk.parseErrors;
+
+            job.setRecordsImported(job.getRecordsImported() + imported);
+            job.setRecordsRejected(job.getRecordsRejected() + rejected);
+            job.setRecordsDuplicate(job.getRecordsDuplicate() + duplicate);
+            job.setRecordsCommitted(recordsRead);
+            job.setBytesProcessed(bytesRead);
+            if (chunk.lastError != null) {
+                job.setLastError(chunk.lastError);
+            }
+
+            return jobRepository.save(job);
+        });
+    }
+
+    private void finish(ImportJob job, ImportStatus status, String error) {
+        job.setStatus(status);
+        if (error != null) {
+            job.setLastError(error);
+        }
+        jobRepository.save(job);
+    }
+
+    /**
+     * The records read since the last commit.
+     */
+    private static class Chunk {
+
+        private final List<Expense> expenses = new ArrayList<>();
+        private int parseErrors = 0;
+        private String lastError;
+
+        void add(Expense expense) {
+            expenses.add(expense);
+        }
+
+        void reject(String error) {
+            parseErrors++;
+            lastError = error;
+        }
+
+        int size() {
+            return expenses.size() + parseErrors;
+        }
+    }
+
+    /**
+     * Counts the bytes read through it, to report how far into the statement the import is.
+     */
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+}
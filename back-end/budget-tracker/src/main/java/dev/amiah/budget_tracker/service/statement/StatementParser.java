@@ -0,0 +1,42 @@
+package dev.amiah.budget_tracker.service.statement;
+
+import dev.amiah.budget_tracker.exception.StatementParseException;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.ImportColumnMapping;
+import dev.amiah.budget_tracker.model.data_type.ImportFormat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a bank statement one record at a time. Only the record being read is held in memory, so statements of
+ * any size can be parsed.
+ */
+public interface StatementParser extends Closeable {
+
+    /**
+     * Reads the next record of the statement.
+     *
+     * @return The record as a new, unsaved {@code Expense}, or {@code null} if there are no more records.
+     * @throws StatementParseException If the record is malformed. The parser moves past it, so the next call
+     *                                 continues with the following record.
+     * @throws IOException If the statement cannot be read.
+     */
+    Expense next() throws IOException;
+
+    /**
+     * Creates a parser for the given format.
+     *
+     * @param format The format of the statement.
+     * @param reader The statement to read.
+     * @param mapping How CSV columns map onto {@code Expense} fields. Ignored for other formats.
+     */
+    static StatementParser of(ImportFormat format, Reader reader, ImportColumnMapping mapping) throws IOException {
+        return switch (format) {
+            case CSV -> new CsvStatementParser(reader, mapping);
+            case OFX -> new OfxStatementParser(reader);
+        };
+    }
+
+}
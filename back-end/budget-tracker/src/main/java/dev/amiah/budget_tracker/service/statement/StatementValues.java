@@ -0,0 +1,58 @@
+package dev.amiah.budget_tracker.service.statement;
+
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.Money;
+
+/**
+ * Conversions from the text found in bank statements to {@code Expense} field values.
+ */
+class StatementValues {
+
+    /**
+     * Parses an amount, ignoring surrounding whitespace, currency symbols, and thousands separators. Fractions of
+     * a cent are rounded half up.
+     *
+     * @throws NumberFormatException If {@code value} is not a number, or too large to be an amount.
+     */
+    static Money parseAmount(String value) {
+        String cleaned = value.trim().replace(",", "").replace("$", "").replace(" ", "");
+
+        // Some banks write negative amounts as (12.34)
+        if (cleaned.startsWith("(") && cleaned.endsWith(")")) {
+            cleaned = "-" + cleaned.substring(1, cleaned.length() - 1);
+        }
+
+        try {
+            return Money.parse(cleaned);
+        }
+        catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount out of range: " + cleaned);
+        }
+    }
+
+    /**
+     * Finds the {@link ExpenseCategory} whose name or human-readable name matches {@code value}, ignoring case.
+     * Purposefully defaults to {@link ExpenseCategory#OTHER} if nothing matches.
+     */
+    static ExpenseCategory parseCategory(String value) {
+        if (value == null || value.isBlank()) {
+            return ExpenseCategory.OTHER;
+        }
+
+        String trimmed = value.trim();
+        for (ExpenseCategory category : ExpenseCategory.values()) {
+            if (category.name().equalsIgnoreCase(trimmed) || category.getHumanReadableName().equalsIgnoreCase(trimmed)) {
+                return category;
+            }
+        }
+        return ExpenseCategory.OTHER;
+    }
+
+    /**
+     * @return {@code null} if {@code value} is {@code null} or blank, otherwise {@code value} trimmed.
+     */
+    static String emptyToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+}
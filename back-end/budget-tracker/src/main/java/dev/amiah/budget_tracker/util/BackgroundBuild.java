@@ -0,0 +1,119 @@
+package dev.amiah.budget_tracker.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Builds in-memory data from the {@code expense} table in the background, and keeps it up to date with the changes
+ * that commit while and after it is built.
+ * <p>
+ * Changes that arrive before the build has finished are held back and applied once it has, since the scan may or
+ * may not have seen them; so applying a change must replace whatever an earlier copy of it did. If the build fails
+ * it is logged and run again after a delay that doubles up to {@link #MAX_RETRY_DELAY}. Each attempt must start
+ * from empty data. Only changes that arrive after an attempt starts are held for it, since its scan sees every
+ * change committed before that.
+ *
+ * @param <C> The type of change.
+ */
+public class BackgroundBuild<C> {
+
+    static final Duration MIN_RETRY_DELAY = Duration.ofSeconds(1);
+    static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(5);
+
+    private static final Logger log = LoggerFactory.getLogger(BackgroundBuild.class);
+
+    private final String name;
+    private final TaskExecutor taskExecutor;
+    private final TaskScheduler taskScheduler;
+    private final Runnable build;
+    private final Consumer<C> apply;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final Object lock = new Object();
+    // Guarded by lock; null once built
+    private List<C> heldChanges = new ArrayList<>();
+    private volatile boolean ready = false;
+    // Only used by the build, which never runs twice at once
+    private Duration retryDelay = MIN_RETRY_DELAY;
+
+    /**
+     * @param name What is being built, for logging.
+     * @param taskExecutor Runs the build.
+     * @param taskScheduler Runs the build again after it fails.
+     * @param build Fills the data from empty.
+     * @param apply Applies one change to the data.
+     */
+    public BackgroundBuild(String name, TaskExecutor taskExecutor, TaskScheduler taskScheduler, Runnable build,
+                           Consumer<C> apply)
+    {
+        this.name = name;
+        this.taskExecutor = taskExecutor;
+        this.taskScheduler = taskScheduler;
+        this.build = build;
+        this.apply = apply;
+    }
+
+    /**
+     * Starts building in the background, unless it has already been started.
+     */
+    public void start() {
+        if (started.compareAndSet(false, true)) {
+            taskExecutor.execute(this::run);
+        }
+    }
+
+    /**
+     * Applies {@code change} if the data is built, and otherwise holds it back until it is.
+     */
+    public void apply(C change) {
+        if (!ready) {
+            synchronized (lock) {
+                if (heldChanges != null) {
+                    heldChanges.add(change);
+                    return;
+                }
+            }
+        }
+        apply.accept(change);
+    }
+
+    /**
+     * @return Whether the data is built and up to date.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void run() {
+        synchronized (lock) {
+            heldChanges.clear();
+        }
+
+        try {
+            build.run();
+
+            synchronized (lock) {
+                heldChanges.forEach(apply);
+                heldChanges = null;
+                ready = true;
+            }
+        }
+        catch (RuntimeException e) {
+            Duration delay = retryDelay;
+            retryDelay = delay.multipliedBy(2).compareTo(MAX_RETRY_DELAY) > 0 ? MAX_RETRY_DELAY : delay.multipliedBy(2);
+
+            log.warn("Building {} failed, retrying in {}", name, delay, e);
+            taskScheduler.schedule(() -> taskExecutor.execute(this::run), Instant.now().plus(delay));
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+package dev.amiah.budget_tracker.util;
+
+import dev.amiah.budget_tracker.exception.InvalidCursorException;
+import dev.amiah.budget_tracker.model.Expense;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Map;
+
+public class ExpenseCursor {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Creates an opaque continuation token pointing just past the provided {@code Expense}. The token
+     * encodes the {@code (time, id)} pair used for keyset pagination and should be treated as opaque by clients.
+     *
+     * @param expense The last {@code Expense} of the current page.
+     * @return A URL-safe token that can be passed back to continue after {@code expense}.
+     */
+    public static String encode(Expense expense) {
+        String raw = expense.getTime() + SEPARATOR + expense.getId();
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Converts a token created by {@link #encode(Expense)} back into a {@link ScrollPosition}. A {@code null} or
+     * blank token means the first page.
+     *
+     * @param cursor The token to decode.
+     * @return The keyset position the token points to.
+     * @throws InvalidCursorException If the token is malformed.
+     */
+    public static KeysetScrollPosition decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int split = raw.lastIndexOf(SEPARATOR);
+
+            LocalDateTime time = LocalDateTime.parse(raw.substring(0, split));
+            Long id = Long.valueOf(raw.substring(split + 1));
+
+            return ScrollPosition.forward(Map.of("time", time, "id", id));
+        }
+        catch (RuntimeException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package dev.amiah.budget_tracker.util;
+
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.data_type.Money;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Hashes the fields that identify a transaction on a bank statement, so that the same transaction imported twice
+ * gets the same 64-bit fingerprint. The amount is compared to the cent and the time to the second. Names and
+ * counterparties are compared ignoring case, punctuation, and spacing, so {@code "TESCO  STORES-1234"} and
+ * {@code "Tesco Stores 1234"} match. The category is not part of it, since it is often assigned after import.
+ */
+public class ExpenseFingerprint {
+
+    private static final Pattern NOT_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /**
+     * @return The fingerprint of {@code expense}.
+     */
+    public static long of(Expense expense) {
+        return of(expense.getName(), expense.getAmount(), expense.getTime(), expense.getCounterparty());
+    }
+
+    /**
+     * @return The fingerprint of an expense with these fields, any of which may be {@code null}.
+     */
+    public static long of(String name, Money amount, LocalDateTime time, String counterparty) {
+        String canonical = (amount != null ? Long.toString(amount.cents()) : "") + '\n'
+                + (time != null ? time.truncatedTo(ChronoUnit.SECONDS).toString() : "") + '\n'
+                + normalize(counterparty) + '\n'
+                + normalize(name);
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return {@code text} in lower case, with every run of characters other than letters and digits replaced by
+     * one space, and no leading or trailing space. {@code null} is the empty string.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return NOT_ALPHANUMERIC.matcher(text.toLowerCase(Locale.ROOT)).replaceAll(" ").strip();
+    }
+
+}
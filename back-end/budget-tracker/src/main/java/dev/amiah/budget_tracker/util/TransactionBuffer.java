@@ -0,0 +1,122 @@
+package dev.amiah.budget_tracker.util;
+
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Collects changes to derived data made during a transaction so they can be written all at once just before
+ * that transaction commits. A transaction that saves many expenses then costs one write to the derived data
+ * instead of one per expense, and the write still commits or rolls back together with the expenses.
+ */
+public class TransactionBuffer {
+
+    private static final Consumer<Object> NOTHING = buffer -> {};
+
+    /**
+     * Adds a change to the buffer that {@code owner} has bound to the current transaction, creating and binding
+     * it on the first change. The buffer is passed to {@code flush} just before the transaction commits. If no
+     * transaction is active, the change is flushed straight away.
+     *
+     * @param owner Identifies the buffer; each owner gets its own buffer per transaction.
+     * @param newBuffer Creates an empty buffer.
+     * @param change Adds the change to the buffer.
+     * @param flush Writes out everything in the buffer.
+     */
+    public static <B> void add(Object owner, Supplier<B> newBuffer, Consumer<B> change, Consumer<B> flush) {
+        add(owner, newBuffer, change, flush, NOTHING, Ordered.LOWEST_PRECEDENCE);
+    }
+
+    /**
+     * Like {@link #add}, but the buffer is flushed before any buffer added with the other methods. For derived data
+     * that those buffers read back within the transaction.
+     */
+    public static <B> void addFirst(Object owner, Supplier<B> newBuffer, Consumer<B> change, Consumer<B> flush) {
+        add(owner, newBuffer, change, flush, NOTHING, Ordered.HIGHEST_PRECEDENCE);
+    }
+
+    /**
+     * Like {@link #add}, but the buffer is flushed after the transaction has committed instead of before, and not
+     * at all if it rolls back. For work that must only see committed changes, such as telling clients about them.
+     */
+    public static <B> void addAfterCommit(Object owner, Supplier<B> newBuffer, Consumer<B> change, Consumer<B> flush) {
+        add(owner, newBuffer, change, NOTHING, flush, Ordered.LOWEST_PRECEDENCE);
+    }
+
+    /**
+     * Like {@link #addAfterCommit}, but {@code beforeCommit} is also called with the buffer just before the
+     * transaction commits, after the buffers added with {@link #addFirst}. For work after commit that needs data as
+     * the transaction left it, read while the transaction still holds its locks.
+     */
+    public static <B> void addAfterCommit(Object owner, Supplier<B> newBuffer, Consumer<B> change,
+                                          Consumer<B> beforeCommit, Consumer<B> afterCommit)
+    {
+        add(owner, newBuffer, change, beforeCommit, afterCommit, Ordered.LOWEST_PRECEDENCE);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <B> void add(Object owner, Supplier<B> newBuffer, Consumer<B> change, Consumer<? super B> beforeCommit,
+                                Consumer<? super B> afterCommit, int order)
+    {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            B buffer = newBuffer.get();
+            change.accept(buffer);
+            beforeCommit.accept(buffer);
+            afterCommit.accept(buffer);
+            return;
+        }
+
+        BoundBuffer<B> bound = (BoundBuffer<B>) TransactionSynchronizationManager.getResource(owner);
+        if (bound == null) {
+            bound = new BoundBuffer<>(owner, newBuffer.get(), beforeCommit, afterCommit, order);
+            TransactionSynchronizationManager.bindResource(owner, bound);
+            TransactionSynchronizationManager.registerSynchronization(bound);
+        }
+        change.accept(bound.buffer);
+    }
+
+    /**
+     * A buffer bound to the current transaction, which it flushes before and after commit and unbinds after
+     * completion. Buffers are flushed in {@link #getOrder() order}, and then in the order they were bound.
+     */
+    private static class BoundBuffer<B> implements TransactionSynchronization {
+
+        private final Object owner;
+        private final B buffer;
+        private final Consumer<? super B> beforeCommit;
+        private final Consumer<? super B> afterCommit;
+        private final int order;
+
+        BoundBuffer(Object owner, B buffer, Consumer<? super B> beforeCommit, Consumer<? super B> afterCommit, int order) {
+            this.owner = owner;
+            this.buffer = buffer;
+            this.beforeCommit = beforeCommit;
+            this.afterCommit = afterCommit;
+            this.order = order;
+        }
+
+        @Override
+        public int getOrder() {
+            return order;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            beforeCommit.accept(buffer);
+        }
+
+        @Override
+        public void afterCommit() {
+            afterCommit.accept(buffer);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(owner);
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+package dev.amiah.budget_tracker.util;
+
+/**
+ * Converts row versions to and from strong ETags, such as {@code "3"}.
+ */
+public class VersionETag {
+
+    // Never a real version, so a tag that doesn't name a version never matches
+    private static final long NO_MATCH = -1;
+
+    /**
+     * @param version A row version.
+     * @return The ETag of that version, quotes included.
+     */
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Reads the version out of an {@code If-Match} header. Weak tags, lists of tags, and anything else that isn't
+     * one strong version tag are returned as a version that never matches, since {@code If-Match} only succeeds on
+     * a strong match.
+     *
+     * @param ifMatch The value of the header, or {@code null} if the request doesn't have one.
+     * @return The version the request requires, or {@code null} if there is no header or it is {@code *}.
+     */
+    public static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+
+        String tag = ifMatch.strip();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            return NO_MATCH;
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        }
+        catch (NumberFormatException e) {
+            return NO_MATCH;
+        }
+    }
+
+}
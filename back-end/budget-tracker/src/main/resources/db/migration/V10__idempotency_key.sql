@@ -0,0 +1,16 @@
+-- The response to each request sent with an Idempotency-Key header, so that a retry of the request gets the same
+-- response instead of creating the expenses again. The row is inserted before the request is handled and in the
+-- same transaction, so a concurrent retry waits on it. Rows older than budget-tracker.idempotency.retention are
+-- deleted by IdempotencyService.
+CREATE TABLE IF NOT EXISTS idempotency_key (
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash    CHAR(64) NOT NULL,
+    status_code     INT NULL,
+    content_type    VARCHAR(255) NULL,
+    location        VARCHAR(2048) NULL,
+    body            LONGTEXT NULL,
+    created_at      DATETIME(6) NOT NULL,
+    PRIMARY KEY (idempotency_key)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_idempotency_key_created_at ON idempotency_key (created_at);
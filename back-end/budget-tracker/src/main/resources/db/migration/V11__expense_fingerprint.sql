@@ -0,0 +1,8 @@
+-- A 64-bit hash of the amount, time, counterparty, and name of each expense, used to find expenses that were
+-- imported twice. Existing rows are filled in by the application at startup, since the name and counterparty are
+-- normalized before hashing.
+ALTER TABLE expense ADD COLUMN fingerprint BIGINT NULL;
+CREATE INDEX idx_expense_fingerprint ON expense (fingerprint);
+
+-- Records of an import that were skipped because the same expense is already saved
+ALTER TABLE import_job ADD COLUMN records_duplicate BIGINT NOT NULL DEFAULT 0;
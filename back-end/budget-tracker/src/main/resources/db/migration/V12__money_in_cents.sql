@@ -0,0 +1,20 @@
+-- Amounts are stored as exact whole cents instead of binary floating point, which drifts when millions of them
+-- are added up. Existing amounts are rounded to the nearest cent.
+ALTER TABLE expense ADD COLUMN amount_cents BIGINT NULL;
+UPDATE expense SET amount_cents = ROUND(amount * 100) WHERE amount IS NOT NULL;
+DROP INDEX idx_expense_amount ON expense;
+ALTER TABLE expense DROP COLUMN amount;
+CREATE INDEX idx_expense_amount ON expense (amount_cents);
+
+-- Fingerprints hash the amount in cents, so they are recomputed from the rounded amounts at startup
+UPDATE expense SET fingerprint = NULL;
+
+-- The materialized balance is the exact sum of the new column
+ALTER TABLE balance_summary ADD COLUMN total_cents BIGINT NOT NULL DEFAULT 0;
+UPDATE balance_summary SET total_cents = (SELECT COALESCE(SUM(amount_cents), 0) FROM expense);
+ALTER TABLE balance_summary DROP COLUMN total;
+
+-- Rollups are emptied and rebuilt from the expense table at startup
+DELETE FROM expense_rollup;
+ALTER TABLE expense_rollup ADD COLUMN total_cents BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE expense_rollup DROP COLUMN total;
@@ -0,0 +1,4 @@
+-- The income and expense filters match about half of the table each, so a range on the amount index read most
+-- rows and then sorted them by time. Without it, those filters read idx_expense_time_id newest first and stop
+-- once the page is full.
+DROP INDEX idx_expense_amount ON expense;
@@ -0,0 +1,22 @@
+-- Schema as originally created by Hibernate's ddl-auto=update. Existing databases are baselined at this
+-- version instead of running it.
+
+CREATE TABLE expense (
+    expense_id   BIGINT NOT NULL AUTO_INCREMENT,
+    name         VARCHAR(255),
+    amount       FLOAT(53),
+    time         DATETIME(6),
+    counterparty VARCHAR(255),
+    category     ENUM ('BUSINESS','CLOTHING','EDUCATION','ENTERTAINMENT','FOOD','HOUSING','MEDICINE','OTHER',
+                       'PERSONAL_CARE','PLUSHIES','TRANSPORT','UTILITIES'),
+    PRIMARY KEY (expense_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE user_preference (
+    preference_id  BIGINT NOT NULL AUTO_INCREMENT,
+    date_pattern   ENUM ('DAY_MONTH_YEAR','DAY_MONTH_YEAR_LONG','DAY_MONTH_YEAR_WORD','MONTH_DAY_YEAR',
+                         'MONTH_DAY_YEAR_LONG','MONTH_DAY_YEAR_WORD','YEAR_DAY_MONTH','YEAR_DAY_MONTH_LONG',
+                         'YEAR_DAY_MONTH_WORD','YEAR_MONTH_DAY','YEAR_MONTH_DAY_LONG','YEAR_MONTH_DAY_WORD') NOT NULL,
+    date_separator ENUM ('DOT','HYPHEN','SLASH','SPACE') NOT NULL,
+    PRIMARY KEY (preference_id)
+) ENGINE = InnoDB;
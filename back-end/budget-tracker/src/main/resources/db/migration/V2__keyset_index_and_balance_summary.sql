@@ -0,0 +1,9 @@
+-- Keyset pagination seeks on (time, expense_id)
+CREATE INDEX idx_expense_time_id ON expense (time, expense_id);
+
+-- Materialized total balance. The single row is created and reconciled by BalanceLedger at startup.
+CREATE TABLE IF NOT EXISTS balance_summary (
+    summary_id BIGINT NOT NULL,
+    total      DECIMAL(19,4) NOT NULL,
+    PRIMARY KEY (summary_id)
+) ENGINE = InnoDB;
@@ -0,0 +1,11 @@
+-- Expense ids are handed out in blocks from this table instead of by AUTO_INCREMENT, which lets Hibernate
+-- batch inserts. The counter starts one block past the highest existing id, since Hibernate's pooled
+-- optimizer treats the value it reads as the end of the block it is allocating (block size 100).
+CREATE TABLE id_block (
+    sequence_name VARCHAR(64) NOT NULL,
+    next_val      BIGINT NOT NULL,
+    PRIMARY KEY (sequence_name)
+) ENGINE = InnoDB;
+
+INSERT INTO id_block (sequence_name, next_val)
+SELECT 'expense', COALESCE(MAX(expense_id), 0) + 100 FROM expense;
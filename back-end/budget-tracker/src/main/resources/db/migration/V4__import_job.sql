@@ -0,0 +1,25 @@
+CREATE TABLE import_job (
+    import_job_id       BIGINT NOT NULL AUTO_INCREMENT,
+    file_name           VARCHAR(255),
+    format              VARCHAR(16) NOT NULL,
+    status              VARCHAR(16) NOT NULL,
+    name_column         VARCHAR(64) NOT NULL,
+    amount_column       VARCHAR(64) NOT NULL,
+    time_column         VARCHAR(64) NOT NULL,
+    counterparty_column VARCHAR(64) NOT NULL,
+    category_column     VARCHAR(64) NOT NULL,
+    date_pattern        VARCHAR(64) NOT NULL,
+    delimiter           VARCHAR(1) NOT NULL,
+    spool_path          VARCHAR(1024) NOT NULL,
+    total_bytes         BIGINT NOT NULL,
+    bytes_processed     BIGINT NOT NULL,
+    records_committed   BIGINT NOT NULL,
+    records_imported    BIGINT NOT NULL,
+    records_rejected    BIGINT NOT NULL,
+    last_error          VARCHAR(1024),
+    created_at          DATETIME(6) NOT NULL,
+    updated_at          DATETIME(6) NOT NULL,
+    PRIMARY KEY (import_job_id)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_import_job_status ON import_job (status);
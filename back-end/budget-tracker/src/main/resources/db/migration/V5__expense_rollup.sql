@@ -0,0 +1,9 @@
+-- Sum and count of expenses per month and category. Filled from the expense table by ExpenseRollupService at
+-- startup, and kept up to date by every write after that.
+CREATE TABLE IF NOT EXISTS expense_rollup (
+    period        DATE NOT NULL,
+    category      VARCHAR(32) NOT NULL,
+    total         DECIMAL(19,4) NOT NULL,
+    expense_count BIGINT NOT NULL,
+    PRIMARY KEY (period, category)
+) ENGINE = InnoDB;
@@ -0,0 +1,7 @@
+-- Filters on /api/expenses/paged. Each index ends in (time, expense_id) so that a filtered page can be read
+-- newest first straight from the index, and keyset pagination can seek within it.
+CREATE INDEX idx_expense_category_time ON expense (category, time, expense_id);
+CREATE INDEX idx_expense_counterparty_time ON expense (counterparty, time, expense_id);
+
+-- Income and expense filters are a range on the amount
+CREATE INDEX idx_expense_amount ON expense (amount);
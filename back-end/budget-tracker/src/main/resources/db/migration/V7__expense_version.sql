@@ -0,0 +1,3 @@
+-- Row version for optimistic locking. Every update of an expense increments it, and it is sent to clients as the
+-- ETag of the expense.
+ALTER TABLE expense ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
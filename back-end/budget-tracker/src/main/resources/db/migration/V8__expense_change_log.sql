@@ -0,0 +1,22 @@
+-- Every change to the expense table, in commit order, so that clients can fetch what changed since they last
+-- synced. Entries older than budget-tracker.changes.retention are deleted by ExpenseChangeLog.
+CREATE TABLE IF NOT EXISTS expense_change (
+    seq         BIGINT NOT NULL,
+    expense_id  BIGINT NOT NULL,
+    change_type VARCHAR(8) NOT NULL,
+    changed_at  DATETIME(6) NOT NULL,
+    PRIMARY KEY (seq)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_expense_change_changed_at ON expense_change (changed_at);
+
+-- The last seq handed out and the last seq deleted by compaction. Writers take their seqs from this row and
+-- keep it locked until they commit, which is what makes seq order the same as commit order.
+CREATE TABLE IF NOT EXISTS expense_change_head (
+    head_id           BIGINT NOT NULL,
+    last_seq          BIGINT NOT NULL,
+    compacted_through BIGINT NOT NULL,
+    PRIMARY KEY (head_id)
+) ENGINE = InnoDB;
+
+INSERT INTO expense_change_head (head_id, last_seq, compacted_through) VALUES (1, 0, 0);
@@ -0,0 +1,7 @@
+-- How far each ingestion write-ahead log has been applied to the expense table, as a byte position in the log.
+-- Updated in the same transaction as the expenses it covers, so a log is never applied twice or skipped.
+CREATE TABLE IF NOT EXISTS ingest_checkpoint (
+    log_id   VARCHAR(36) NOT NULL,
+    position BIGINT NOT NULL,
+    PRIMARY KEY (log_id)
+) ENGINE = InnoDB;
@@ -0,0 +1,61 @@
+package dev.amiah.budget_tracker;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Records every statement the application sends to the database, by wrapping its {@code DataSource} in a proxy.
+ * Each execution is one round trip, so a JDBC batch is recorded once however many rows it writes. Unlike a
+ * Hibernate {@code StatementInspector} this also sees statements sent with {@code JdbcTemplate}, and only counts
+ * statements that were executed rather than prepared.
+ * <p>
+ * Add it to a test's context with {@code @Import(StatementCounter.class)}, call {@link #reset()} before the code
+ * under test, and check {@link #statements()} after it. Statements from every thread are recorded, so nothing else
+ * should be using the context at the time.
+ */
+public class StatementCounter implements BeanPostProcessor {
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+            return ProxyDataSourceBuilder.create(dataSource).name(beanName).listener(new Recorder()).build();
+        }
+        return bean;
+    }
+
+    public void reset() {
+        statements.clear();
+    }
+
+    /**
+     * @return The statements executed since the last {@link #reset()}, in order. Batches are prefixed with their size.
+     */
+    public List<String> statements() {
+        return List.copyOf(statements);
+    }
+
+    private class Recorder implements QueryExecutionListener {
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            String sql = queryInfoList.stream().map(QueryInfo::getQuery).distinct().collect(Collectors.joining("; "));
+            statements.add(execInfo.isBatch() ? "[batch of " + execInfo.getBatchSize() + "] " + sql : sql);
+        }
+    }
+
+}
@@ -0,0 +1,118 @@
+package dev.amiah.budget_tracker.assembler;
+
+import dev.amiah.budget_tracker.controller.ExpenseController;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Links;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+/**
+ * Checks that the cached links from {@link ExpenseModelAssembler} match the ones {@code linkTo(methodOn(...))}
+ * builds for each {@code Expense}.
+ */
+class ExpenseModelAssemblerTests {
+
+    private final ExpenseModelAssembler assembler = new ExpenseModelAssembler();
+
+    @AfterEach
+    void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void linksMatchLinkToForDefaultRequest() {
+        startRequest(request -> {});
+
+        assertLinksMatch(1L, 42L, Long.MAX_VALUE);
+    }
+
+    @Test
+    void linksMatchLinkToForCustomHostAndContextPath() {
+        startRequest(request -> {
+            request.setScheme("https");
+            request.setServerName("budget.example.com");
+            request.setServerPort(8443);
+            request.setContextPath("/tracker");
+        });
+
+        assertLinksMatch(7L, 123_456_789L);
+    }
+
+    @Test
+    void linksMatchLinkToForForwardedRequest() {
+        startRequest(request -> {
+            request.addHeader("X-Forwarded-Proto", "https");
+            request.addHeader("X-Forwarded-Host", "proxy.example.com");
+            request.addHeader("X-Forwarded-Prefix", "/budget");
+        });
+
+        assertLinksMatch(3L, 99L);
+    }
+
+    @Test
+    void expensesLinkIsSharedWithinRequest() {
+        startRequest(request -> {});
+
+        Link first = assembler.toModel(expense(1L)).getRequiredLink("expenses");
+        Link second = assembler.toModel(expense(2L)).getRequiredLink("expenses");
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void linksAreResolvedAgainForEachRequest() {
+        startRequest(request -> request.setServerName("first.example.com"));
+        String first = assembler.toModel(expense(1L)).getRequiredLink("expenses").getHref();
+
+        startRequest(request -> request.setServerName("second.example.com"));
+        String second = assembler.toModel(expense(1L)).getRequiredLink("expenses").getHref();
+
+        assertNotEquals(first, second);
+        assertEquals(expectedLinks(1L), assembler.toModel(expense(1L)).getLinks());
+    }
+
+    private void assertLinksMatch(Long... ids) {
+        for (Long id : ids) {
+            EntityModel<Expense> model = assembler.toModel(expense(id));
+
+            assertEquals(expectedLinks(id), model.getLinks());
+        }
+    }
+
+    /**
+     * @return The links built the way {@code ExpenseModelAssembler} built them before they were cached.
+     */
+    private static Links expectedLinks(Long id) {
+        return Links.of(
+                linkTo(methodOn(ExpenseController.class).one(id, null)).withSelfRel().expand(),
+                linkTo(methodOn(ExpenseController.class).all(null, null)).withRel("expenses").expand());
+    }
+
+    private static void startRequest(Consumer<MockHttpServletRequest> customizer) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        customizer.accept(request);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private static Expense expense(Long id) {
+        Expense expense = new Expense("Groceries", Money.parse("-12.5"), "Grocer", ExpenseCategory.FOOD);
+        expense.setId(id);
+        return expense;
+    }
+
+}
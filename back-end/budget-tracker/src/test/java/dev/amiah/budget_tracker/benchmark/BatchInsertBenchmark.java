@@ -0,0 +1,125 @@
+package dev.amiah.budget_tracker.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Compares insert throughput of {@code POST /api/expenses} against {@code POST /api/expenses/batch}.
+ * Needs the same MySQL database as the application, so it only runs when {@code DB_URL} is set, and it is not
+ * picked up by a plain {@code mvn test}. Run it with:
+ * <pre>
+ * mvn test -Dtest=BatchInsertBenchmark
+ * </pre>
+ * The rows it inserts are deleted afterward through the API, so that the balance, summaries, change log, and
+ * in-memory indexes see the deletes the same as they saw the inserts.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@EnabledIfEnvironmentVariable(named = "DB_URL", matches = ".+")
+class BatchInsertBenchmark {
+
+    private static final int ROWS = 5_000;
+    private static final String NAME_PREFIX = "batch-insert-benchmark-";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // The responses of every insert, read for the ids to delete once the clock has stopped
+    private final List<String> responses = new ArrayList<>();
+
+    @Test
+    void compareSingleAndBatchInsert() throws Exception {
+        // Warm up both paths so class loading and JIT don't count against the first one measured
+        insertSingle(200);
+        insertBatch(200);
+
+        long singleNanos = insertSingle(ROWS);
+        long batchNanos = insertBatch(ROWS);
+
+        System.out.printf("Single insert: %,d rows in %,d ms (%,.0f rows/sec)%n",
+                ROWS, singleNanos / 1_000_000, rowsPerSecond(singleNanos));
+        System.out.printf("Batch insert:  %,d rows in %,d ms (%,.0f rows/sec)%n",
+                ROWS, batchNanos / 1_000_000, rowsPerSecond(batchNanos));
+    }
+
+    @AfterEach
+    void deleteInsertedRows() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (String response : responses) {
+            JsonNode body = objectMapper.readTree(response);
+            if (body.has("_embedded")) {
+                body.get("_embedded").get("batchItemResultList").forEach(result -> {
+                    if (result.hasNonNull("id")) {
+                        ids.add(result.get("id").asLong());
+                    }
+                });
+            }
+            else {
+                ids.add(body.get("id").asLong());
+            }
+        }
+
+        for (Long id : ids) {
+            mockMvc.perform(delete("/api/expenses/{id}", id)).andExpect(status().isNoContent());
+        }
+    }
+
+    private long insertSingle(int rows) throws Exception {
+        long start = System.nanoTime();
+
+        for (int i = 0; i < rows; i++) {
+            responses.add(mockMvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON).content(expenseJson(i)))
+                    .andExpect(status().isCreated())
+                    .andReturn().getResponse().getContentAsString());
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private long insertBatch(int rows) throws Exception {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < rows; i++) {
+            body.append(i > 0 ? "," : "").append(expenseJson(i));
+        }
+        body.append("]");
+
+        long start = System.nanoTime();
+
+        String response = mockMvc.perform(post("/api/expenses/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content(body.toString()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long nanos = System.nanoTime() - start;
+
+        responses.add(response);
+        return nanos;
+    }
+
+    private static String expenseJson(int i) {
+        return "{\"name\":\"" + NAME_PREFIX + i + "\",\"amount\":-" + (i % 100) + ".25,"
+             + "\"counterparty\":\"Benchmark\",\"category\":\"OTHER\"}";
+    }
+
+    private static double rowsPerSecond(long nanos) {
+        return ROWS / (nanos / 1_000_000_000.0);
+    }
+
+}
@@ -0,0 +1,68 @@
+package dev.amiah.budget_tracker.benchmark;
+
+import dev.amiah.budget_tracker.model.data_type.DateFormatRegistry;
+import dev.amiah.budget_tracker.model.data_type.DatePattern;
+import dev.amiah.budget_tracker.model.data_type.DateSeparator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares formatting an expense's time by compiling its pattern on every call, which is what
+ * {@code Expense.getTimeFormatted()} and {@code UserPreference} used to do, against using the precompiled
+ * formatters in {@link DateFormatRegistry}. Run it from the IDE, or after {@code mvn test-compile} with:
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     dev.amiah.budget_tracker.benchmark.DateFormattingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateFormattingBenchmark {
+
+    private final LocalDateTime time = LocalDateTime.of(2024, 3, 14, 15, 9, 26);
+
+    @Param({"MONTH_DAY_YEAR", "MONTH_DAY_YEAR_LONG"})
+    private DatePattern datePattern;
+
+    @Param({"SLASH"})
+    private DateSeparator dateSeparator;
+
+    @Benchmark
+    public String defaultFormatCompiledPerCall() {
+        return time.format(DateTimeFormatter.ofPattern("MMM. d, yyyy"));
+    }
+
+    @Benchmark
+    public String defaultFormatPrecompiled() {
+        return DateFormatRegistry.DEFAULT_EXPENSE_FORMATTER.format(time);
+    }
+
+    @Benchmark
+    public String preferenceFormatCompiledPerCall() {
+        String pattern = datePattern.allowsSeparators()
+                ? datePattern.getPattern().replace(" ", dateSeparator.getSeparator())
+                : datePattern.getPattern();
+
+        return time.format(DateTimeFormatter.ofPattern(pattern));
+    }
+
+    @Benchmark
+    public String preferenceFormatPrecompiled() {
+        return DateFormatRegistry.getFormatter(datePattern, dateSeparator).format(time);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(DateFormattingBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
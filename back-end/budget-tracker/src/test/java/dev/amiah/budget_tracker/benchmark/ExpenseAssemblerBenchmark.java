@@ -0,0 +1,94 @@
+package dev.amiah.budget_tracker.benchmark;
+
+import dev.amiah.budget_tracker.assembler.ExpenseModelAssembler;
+import dev.amiah.budget_tracker.controller.ExpenseController;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+/**
+ * Compares adding links to a collection of expenses with {@code linkTo(methodOn(...))} for every expense, which
+ * is what {@link ExpenseModelAssembler} used to do, against the assembler's per-request cached links. Each
+ * invocation is a new request, so the cached links are resolved once per invocation just as they would be in
+ * the application. Run it from the IDE, or after {@code mvn test-compile} with:
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     dev.amiah.budget_tracker.benchmark.ExpenseAssemblerBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseAssemblerBenchmark {
+
+    @Param({"10000"})
+    private int size;
+
+    private final ExpenseModelAssembler assembler = new ExpenseModelAssembler();
+
+    private List<Expense> expenses;
+
+    @Setup
+    public void createExpenses() {
+        expenses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Expense expense = new Expense("Expense " + i, Money.ofCents(-125L * i), "Benchmark", ExpenseCategory.OTHER);
+            expense.setId((long) i + 1);
+            expenses.add(expense);
+        }
+    }
+
+    @TearDown
+    public void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public CollectionModel<EntityModel<Expense>> linkToPerExpense() {
+        startRequest();
+
+        List<EntityModel<Expense>> models = new ArrayList<>(expenses.size());
+        for (Expense expense : expenses) {
+            models.add(EntityModel.of(expense,
+                    linkTo(methodOn(ExpenseController.class).one(expense.getId(), null)).withSelfRel().expand(),
+                    linkTo(methodOn(ExpenseController.class).all(null, null)).withRel("expenses").expand()));
+        }
+
+        return CollectionModel.of(models);
+    }
+
+    @Benchmark
+    public CollectionModel<EntityModel<Expense>> cachedLinks() {
+        startRequest();
+
+        return assembler.toCollectionModel(expenses);
+    }
+
+    private static void startRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ExpenseAssemblerBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
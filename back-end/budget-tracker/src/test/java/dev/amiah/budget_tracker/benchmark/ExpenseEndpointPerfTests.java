@@ -0,0 +1,375 @@
+package dev.amiah.budget_tracker.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives every endpoint of {@code ExpenseController} with concurrent clients against an embedded H2 database in
+ * MySQL mode, seeded with {@code perf.rows} expenses by {@link ExpenseSeeder} before the application starts. Each
+ * endpoint is driven on its own for {@code perf.duration} after a warmup, so the numbers don't depend on what else
+ * is in the mix. Writes run while {@code perf.subscribers} clients listen to {@code /api/expenses/events}, so they
+ * include broadcasting to them.
+ * <p>
+ * The latency and throughput of every endpoint are printed and written to {@code target/perf-report.txt} and
+ * {@code target/perf-results.properties}. The test fails if any request failed, or if an endpoint's median
+ * latency rose or its throughput fell by more than {@code perf.tolerance} against {@code perf.baseline}. The
+ * settings are in {@code application-perf.properties} and can be overridden with system properties. This is not
+ * picked up by a plain {@code mvn test}. Run it with:
+ * <pre>
+ * mvn -P perf test
+ * mvn -P perf test -Dperf.rows=5000000 -Dperf.argLine=-Xmx8g
+ * mvn -P perf test -Dperf.record-baseline=true
+ * </pre>
+ */
+@Tag("perf")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"h2", "perf"})
+class ExpenseEndpointPerfTests {
+
+    private static final long SEED = 42;
+    // GET /api/expenses loads every expense into memory at once, so it's only driven up to this many
+    private static final int ALL_MAX_ROWS = 200_000;
+    // Changes in median latency smaller than this are noise, however large they are relative to the baseline
+    private static final double MIN_LATENCY_REGRESSION_MS = 1.0;
+    private static final int PAGE_SIZE = 20;
+    private static final int BATCH_SIZE = 50;
+    private static final String[] CATEGORIES = {"FOOD", "HOUSING", "TRANSPORT", "ENTERTAINMENT"};
+    private static final Path REPORT = Path.of("target", "perf-report.txt");
+    private static final Path RESULTS = Path.of("target", "perf-results.properties");
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${perf.rows}")
+    private int rows;
+    @Value("${perf.clients}")
+    private int clients;
+    // For endpoints that read or rewrite every expense
+    @Value("${perf.heavy-clients}")
+    private int heavyClients;
+    @Value("${perf.subscribers}")
+    private int subscribers;
+    @Value("${perf.warmup}")
+    private Duration warmup;
+    @Value("${perf.duration}")
+    private Duration duration;
+    @Value("${perf.baseline}")
+    private Path baseline;
+    @Value("${perf.tolerance}")
+    private double tolerance;
+    @Value("${perf.record-baseline}")
+    private boolean recordBaseline;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void endpointsStayWithinBaseline() throws Exception {
+        String base = "http://localhost:" + port + "/api/expenses";
+        awaitIndexes(base);
+
+        Map<String, LoadDriver.Stats> results = new LinkedHashMap<>();
+        for (Phase phase : reads(base)) {
+            results.putAll(phase.run(warmup, duration));
+        }
+
+        List<CompletableFuture<?>> streams = listen(base + "/events");
+        try {
+            for (Phase phase : writes(base)) {
+                results.putAll(phase.run(warmup, duration));
+            }
+        }
+        finally {
+            streams.forEach(stream -> stream.cancel(true));
+        }
+        awaitIngest(base);
+
+        // Read last, so the log has the changes made by the writes
+        results.putAll(new Phase("GET /changes", clients, () -> get(base + "/changes?since=0&limit=500")).run(warmup, duration));
+
+        String report = LoadDriver.table(String.format("%d expenses, %d clients, %d event subscribers during writes",
+                rows, clients, subscribers), results);
+        System.out.print(report);
+        Files.writeString(REPORT, report);
+        store(results, RESULTS);
+
+        if (recordBaseline) {
+            store(results, baseline);
+            System.out.printf("Recorded baseline in %s%n", baseline.toAbsolutePath());
+            return;
+        }
+
+        List<String> problems = new ArrayList<>();
+        results.forEach((name, stats) -> {
+            if (stats.errors() > 0) {
+                problems.add(String.format("%s: %d of %d requests failed", name, stats.errors(), stats.count()));
+            }
+        });
+        problems.addAll(compareWithBaseline(results));
+
+        assertTrue(problems.isEmpty(), "Performance regressed:\n" + String.join("\n", problems));
+    }
+
+    private List<Phase> reads(String base) throws Exception {
+        int pages = Math.max(1, rows / PAGE_SIZE);
+        String eTag = httpClient.send(get(base + "/paged"), HttpResponse.BodyHandlers.discarding())
+                .headers().firstValue("ETag").orElseThrow();
+
+        List<Phase> phases = new ArrayList<>();
+        if (rows <= ALL_MAX_ROWS) {
+            phases.add(new Phase("GET (all)", heavyClients, () -> get(base)));
+        }
+        phases.add(new Phase("GET /{id}", clients, () -> get(base + "/" + randomId(rows))));
+        phases.add(new Phase("GET /paged (offset)", clients,
+                () -> get(base + "/paged?page=" + random().nextInt(Math.min(pages, 50)))));
+        // The last pages, where OFFSET has to skip nearly every row
+        phases.add(new Phase("GET /paged (deep offset)", clients,
+                () -> get(base + "/paged?page=" + (pages - 1 - random().nextInt(Math.min(pages, 50))))));
+        phases.add(new Phase("GET /paged (cursor)", clients, () -> get(base + "/paged?cursor=")));
+        phases.add(new Phase("GET /paged (filtered)", clients,
+                () -> get(base + "/paged?cursor=&type=expense&category=" + random(CATEGORIES))));
+        phases.add(new Phase("GET /paged (304)", clients,
+                () -> HttpRequest.newBuilder(URI.create(base + "/paged")).header("If-None-Match", eTag).build()));
+        phases.add(new Phase("GET /total", clients, () -> get(base + "/total")));
+        phases.add(new Phase("GET /summary", clients, () -> get(base + "/summary?groupBy=category,month")));
+        phases.add(new Phase("GET /search", clients,
+                () -> get(base + "/search?q=" + prefix(random(ExpenseSeeder.NAMES)) + "%20" + prefix(random(ExpenseSeeder.COUNTERPARTIES)))));
+        phases.add(new Phase("GET /search (fuzzy)", clients,
+                () -> get(base + "/search?fuzzy=true&q=" + typo(random(ExpenseSeeder.NAMES)))));
+        phases.add(new Phase("GET /balance-series (days)", clients,
+                () -> get(base + "/balance-series?from=2024-01-01&to=2024-12-31&bucket=day")));
+        phases.add(new Phase("GET /balance-series (months)", clients,
+                () -> get(base + "/balance-series?from=2020-01-01&to=2024-12-31&bucket=month")));
+        phases.add(new Phase("GET /export", heavyClients, () -> get(base + "/export")));
+        phases.add(new Phase("POST /summary/rebuild", heavyClients,
+                () -> HttpRequest.newBuilder(URI.create(base + "/summary/rebuild")).POST(HttpRequest.BodyPublishers.noBody()).build()));
+        return phases;
+    }
+
+    private List<Phase> writes(String base) {
+        // Updates stay in the lower half of the ids and deletes work down from the top, so neither misses
+        AtomicInteger nextDeleted = new AtomicInteger(rows);
+
+        return List.of(
+                new Phase("POST", clients, () -> json(base, "POST", newExpense())),
+                new Phase("POST /batch", clients, () -> {
+                    StringJoiner batch = new StringJoiner(",", "[", "]");
+                    for (int i = 0; i < BATCH_SIZE; i++) {
+                        batch.add(newExpense());
+                    }
+                    return json(base + "/batch", "POST", batch.toString());
+                }),
+                new Phase("PUT /{id}", clients, () -> json(base + "/" + randomId(rows / 2), "PUT", newExpense())),
+                new Phase("PATCH /{id}", clients, () -> json(base + "/" + randomId(rows / 2), "PATCH",
+                        "{\"amount\":-" + (random().nextInt(10_000) + 1) / 100.0 + "}")),
+                new Phase("DELETE /{id}", clients,
+                        () -> HttpRequest.newBuilder(URI.create(base + "/" + nextDeleted.getAndDecrement())).DELETE().build()),
+                // Last, so saving the backlog in the background doesn't slow down the other writes
+                new Phase("POST /ingest", clients, () -> json(base + "/ingest", "POST", "[" + newExpense() + "]"))
+        );
+    }
+
+    /**
+     * Fails for every endpoint that got slower than the baseline allows. Endpoints missing from either side are
+     * skipped, so adding one doesn't need a new baseline right away.
+     */
+    private List<String> compareWithBaseline(Map<String, LoadDriver.Stats> results) throws IOException {
+        if (!Files.exists(baseline)) {
+            System.out.printf("No baseline at %s, so nothing to compare with. Record one with -Dperf.record-baseline=true%n",
+                    baseline.toAbsolutePath());
+            return List.of();
+        }
+
+        Properties expected = new Properties();
+        try (Reader reader = Files.newBufferedReader(baseline)) {
+            expected.load(reader);
+        }
+        assertEquals(String.valueOf(rows), expected.getProperty("rows"), "The baseline was recorded with a different perf.rows");
+        assertEquals(String.valueOf(clients), expected.getProperty("clients"), "The baseline was recorded with a different perf.clients");
+
+        List<String> regressions = new ArrayList<>();
+        results.forEach((name, stats) -> {
+            String p50 = expected.getProperty(name + ".p50");
+            String throughput = expected.getProperty(name + ".throughput");
+            if (p50 == null || throughput == null) {
+                return;
+            }
+
+            double maxP50 = Double.parseDouble(p50) * (1 + tolerance);
+            if (stats.p50() > maxP50 && stats.p50() - Double.parseDouble(p50) > MIN_LATENCY_REGRESSION_MS) {
+                regressions.add(String.format(Locale.ROOT, "%s: median latency %.1f ms, baseline %s ms", name, stats.p50(), p50));
+            }
+            double minThroughput = Double.parseDouble(throughput) * (1 - tolerance);
+            if (stats.throughput() < minThroughput) {
+                regressions.add(String.format(Locale.ROOT, "%s: %.0f requests per second, baseline %s", name, stats.throughput(), throughput));
+            }
+        });
+        return regressions;
+    }
+
+    private void store(Map<String, LoadDriver.Stats> results, Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            writer.write("rows=" + rows + "\nclients=" + clients + "\n");
+            for (Map.Entry<String, LoadDriver.Stats> result : results.entrySet()) {
+                String key = result.getKey().replace(" ", "\\ ");
+                LoadDriver.Stats stats = result.getValue();
+                writer.write(String.format(Locale.ROOT, "%1$s.p50=%2$.2f%n%1$s.p99=%3$.2f%n%1$s.throughput=%4$.1f%n",
+                        key, stats.p50(), stats.p99(), stats.throughput()));
+            }
+        }
+    }
+
+    /**
+     * Waits for the search index and daily balances to be built from the seeded expenses, which happens in the
+     * background at startup.
+     */
+    private void awaitIndexes(String base) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofMinutes(10).toNanos();
+        for (String path : List.of("/search?q=coffee", "/balance-series")) {
+            while (httpClient.send(get(base + path), HttpResponse.BodyHandlers.discarding()).statusCode() == 503) {
+                assertTrue(System.nanoTime() < deadline, path + " was not ready in time");
+                Thread.sleep(200);
+            }
+        }
+    }
+
+    /**
+     * Waits for every ingested expense to be saved, so the changes log is complete.
+     */
+    private void awaitIngest(String base) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofMinutes(10).toNanos();
+        JsonNode status;
+        while (!(status = objectMapper.readTree(httpClient.send(get(base + "/ingest"), HttpResponse.BodyHandlers.ofString()).body()))
+                .path("applied").equals(status.path("appended")))
+        {
+            assertTrue(System.nanoTime() < deadline, "Ingested expenses were not saved in time: " + status);
+            Thread.sleep(200);
+        }
+    }
+
+    /**
+     * Connects {@code perf.subscribers} clients that read the events until they are cancelled.
+     */
+    private List<CompletableFuture<?>> listen(String uri) {
+        List<CompletableFuture<?>> streams = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            streams.add(httpClient.sendAsync(get(uri), HttpResponse.BodyHandlers.discarding()));
+        }
+        return streams;
+    }
+
+    private static String newExpense() {
+        return "{\"name\":\"" + random(ExpenseSeeder.NAMES) + "\",\"amount\":-" + (random().nextInt(10_000) + 1) / 100.0
+                + ",\"counterparty\":\"" + random(ExpenseSeeder.COUNTERPARTIES) + "\",\"category\":\"" + random(CATEGORIES)
+                + "\",\"time\":\"2024-06-01T08:30:00\"}";
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).build();
+    }
+
+    private static HttpRequest json(String uri, String method, String body) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static long randomId(int bound) {
+        return random().nextInt(Math.max(1, bound)) + 1;
+    }
+
+    private static String random(String[] values) {
+        return values[random().nextInt(values.length)];
+    }
+
+    private static ThreadLocalRandom random() {
+        return ThreadLocalRandom.current();
+    }
+
+    /**
+     * @return The start of the first word, as someone typing a search would.
+     */
+    private static String prefix(String words) {
+        String word = words.split(" ")[0].toLowerCase(Locale.ROOT);
+        return word.substring(0, Math.min(word.length(), 4));
+    }
+
+    /**
+     * @return The first word with one letter left out.
+     */
+    private static String typo(String words) {
+        String word = words.split(" ")[0].toLowerCase(Locale.ROOT);
+        int dropped = 1 + random().nextInt(word.length() - 1);
+        return word.substring(0, dropped) + word.substring(dropped + 1);
+    }
+
+    /**
+     * One endpoint, driven by {@code clients} clients sending requests from {@code next}.
+     */
+    private record Phase(String name, int clients, Supplier<HttpRequest> next) {
+
+        Map<String, LoadDriver.Stats> run(Duration warmup, Duration duration) throws InterruptedException {
+            return new LoadDriver().run(clients, warmup, duration, () -> new LoadDriver.Request(name, next.get())).stats();
+        }
+    }
+
+    /**
+     * Seeds the database after Flyway creates the schema, and before anything reads it at startup.
+     */
+    @TestConfiguration
+    static class Seeding {
+
+        @Bean
+        FlywayMigrationStrategy migrateAndSeed(@Value("${perf.rows}") int rows) {
+            return flyway -> {
+                flyway.migrate();
+
+                long start = System.nanoTime();
+                try {
+                    new ExpenseSeeder(SEED).seed(flyway.getConfiguration().getDataSource(), rows);
+                }
+                catch (SQLException e) {
+                    throw new IllegalStateException("Could not seed expenses", e);
+                }
+                System.out.printf("Seeded %d expenses in %d ms%n", rows, (System.nanoTime() - start) / 1_000_000);
+            };
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+package dev.amiah.budget_tracker.benchmark;
+
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+
+/**
+ * Fills an empty {@code expense} table with synthetic expenses straight over JDBC, bypassing the application, so
+ * that millions of rows take seconds instead of the minutes the API would need. The rows are the same for the same
+ * count and seed. Names and counterparties are drawn from {@link #NAMES} and {@link #COUNTERPARTIES}, so searches
+ * for them find something, and times are spread evenly over the five years before {@link #END}.
+ * <p>
+ * Only the {@code expense} table and its id counter are written. Run it before the application starts, so that
+ * the balance, the summary rollups, and the search index are built from the seeded rows at startup.
+ */
+public class ExpenseSeeder {
+
+    static final String[] NAMES = {
+            "Coffee", "Groceries", "Rent", "Train ticket", "Electricity bill", "Cinema", "Textbooks", "Haircut",
+            "Pharmacy", "Lunch", "Plush toy", "Winter coat", "Salary", "Refund", "Internet", "Bus pass"
+    };
+    static final String[] COUNTERPARTIES = {
+            "Starbucks", "Tesco", "Landlord", "National Rail", "Octopus Energy", "Odeon", "Waterstones", "Boots",
+            "Pret", "Amazon", "Employer", "Virgin Media"
+    };
+    static final LocalDateTime END = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private static final Duration SPAN = Duration.ofDays(5 * 365);
+    private static final int BATCH_SIZE = 1_000;
+    private static final int COMMIT_SIZE = 50_000;
+    // Hibernate's pooled optimizer reads the counter as the end of the block it allocates; see V3__expense_id_blocks
+    private static final int ID_BLOCK_SIZE = 100;
+
+    private final long seed;
+
+    public ExpenseSeeder(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Inserts expenses with ids 1 to {@code rows}, roughly in order of time, and moves the id counter past them.
+     *
+     * @param dataSource A database with the schema migrated and no expenses.
+     */
+    public void seed(DataSource dataSource, int rows) throws SQLException {
+        SplittableRandom random = new SplittableRandom(seed);
+        ExpenseCategory[] categories = ExpenseCategory.values();
+        long step = SPAN.toMillis() / Math.max(1, rows);
+        LocalDateTime start = END.minus(SPAN);
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO expense (expense_id, name, amount_cents, time, counterparty, category, version) VALUES (?, ?, ?, ?, ?, ?, 0)"))
+            {
+                for (int id = 1; id <= rows; id++) {
+                    int kind = random.nextInt(NAMES.length);
+                    // About one in ten is income, the rest are spending
+                    boolean income = random.nextInt(10) == 0;
+                    long cents = random.nextLong(100, income ? 300_000 : 20_000);
+
+                    insert.setLong(1, id);
+                    insert.setString(2, NAMES[kind] + " " + (id % 1_000));
+                    insert.setLong(3, income ? cents : -cents);
+                    insert.setTimestamp(4, Timestamp.valueOf(start.plusNanos((id * step + random.nextLong(step + 1)) * 1_000_000)));
+                    if (random.nextInt(4) == 0) {
+                        insert.setNull(5, Types.VARCHAR);
+                    }
+                    else {
+                        insert.setString(5, COUNTERPARTIES[random.nextInt(COUNTERPARTIES.length)]);
+                    }
+                    insert.setString(6, categories[kind % categories.length].name());
+                    insert.addBatch();
+
+                    if (id % BATCH_SIZE == 0 || id == rows) {
+                        insert.executeBatch();
+                    }
+                    if (id % COMMIT_SIZE == 0) {
+                        connection.commit();
+                    }
+                }
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("UPDATE id_block SET next_val = " + ((long) rows + ID_BLOCK_SIZE)
+                        + " WHERE sequence_name = 'expense'");
+            }
+            connection.commit();
+        }
+    }
+
+}
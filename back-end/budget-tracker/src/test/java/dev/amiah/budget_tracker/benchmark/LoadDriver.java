@@ -0,0 +1,179 @@
+package dev.amiah.budget_tracker.benchmark;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * Sends HTTP requests from many concurrent clients for a fixed time and records how long each one took, by
+ * name. Every client runs on its own virtual thread and sends its next request as soon as the last one is
+ * answered, so the number of requests in flight is the number of clients.
+ */
+public class LoadDriver {
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    /**
+     * One request to send.
+     *
+     * @param name Which group to report the request's latency under.
+     * @param request The request.
+     */
+    public record Request(String name, HttpRequest request) {}
+
+    /**
+     * Sends requests from {@code clients} clients, first for {@code warmup} without recording them and then for
+     * {@code duration}.
+     *
+     * @param next Creates each request; called concurrently from every client.
+     * @return The latencies of the requests sent after the warmup.
+     */
+    public Report run(int clients, Duration warmup, Duration duration, Supplier<Request> next) throws InterruptedException {
+        drive(clients, warmup, next, new Recorder());
+
+        Recorder recorder = new Recorder();
+        long start = System.nanoTime();
+        drive(clients, duration, next, recorder);
+
+        return recorder.report(System.nanoTime() - start);
+    }
+
+    private void drive(int clients, Duration duration, Supplier<Request> next, Recorder recorder) throws InterruptedException {
+        long end = System.nanoTime() + duration.toNanos();
+        CountDownLatch done = new CountDownLatch(clients);
+
+        for (int i = 0; i < clients; i++) {
+            Thread.ofVirtual().start(() -> {
+                try {
+                    while (System.nanoTime() < end) {
+                        Request request = next.get();
+                        long sent = System.nanoTime();
+                        int status = send(request.request());
+                        recorder.record(request.name(), System.nanoTime() - sent, status);
+                    }
+                }
+                finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    private int send(HttpRequest request) {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        }
+        catch (IOException e) {
+            return -1;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    /**
+     * Collects latencies from every client.
+     */
+    private static class Recorder {
+
+        private final Map<String, Samples> samples = new ConcurrentHashMap<>();
+
+        void record(String name, long nanos, int status) {
+            samples.computeIfAbsent(name, key -> new Samples()).add(nanos, status);
+        }
+
+        Report report(long elapsedNanos) {
+            Map<String, Stats> stats = new TreeMap<>();
+            samples.forEach((name, s) -> stats.put(name, s.stats(elapsedNanos)));
+            return new Report(stats, elapsedNanos);
+        }
+    }
+
+    private static class Samples {
+
+        private long[] nanos = new long[1024];
+        private int count;
+        private int errors;
+
+        synchronized void add(long latency, int status) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = latency;
+            // 304s are the expected answer to conditional requests
+            if (status < 200 || status >= 400) {
+                errors++;
+            }
+        }
+
+        synchronized Stats stats(long elapsedNanos) {
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            return new Stats(count, errors, count * 1e9 / elapsedNanos,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), count > 0 ? sorted[count - 1] / 1e6 : 0);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+        }
+    }
+
+    /**
+     * The latencies of one group of requests, in milliseconds.
+     *
+     * @param count How many were sent.
+     * @param errors How many failed or were answered with a status of 400 or above.
+     * @param throughput Requests per second.
+     */
+    public record Stats(int count, int errors, double throughput, double p50, double p99, double max) {}
+
+    /**
+     * @param stats The latencies of each group of requests, by name.
+     * @param elapsedNanos How long the requests were sent for.
+     */
+    public record Report(Map<String, Stats> stats, long elapsedNanos) {
+
+        /**
+         * @return Requests per second over every group.
+         */
+        public double totalThroughput() {
+            return stats.values().stream().mapToDouble(Stats::throughput).sum();
+        }
+
+        /**
+         * @return A table of every group, headed by {@code title}.
+         */
+        public String format(String title) {
+            return table(title, stats) + String.format("%-28s %9s %7s %10.0f%n", "total", "", "", totalThroughput());
+        }
+    }
+
+    /**
+     * @return A table of {@code stats}, one row per group in iteration order, headed by {@code title}.
+     */
+    public static String table(String title, Map<String, Stats> stats) {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%n%s%n%-28s %9s %7s %10s %9s %9s %9s%n", title,
+                "request", "count", "errors", "req/s", "p50 ms", "p99 ms", "max ms"));
+        stats.forEach((name, s) -> table.append(String.format("%-28s %9d %7d %10.0f %9.1f %9.1f %9.1f%n",
+                name, s.count(), s.errors(), s.throughput(), s.p50(), s.p99(), s.max())));
+        return table.toString();
+    }
+
+}
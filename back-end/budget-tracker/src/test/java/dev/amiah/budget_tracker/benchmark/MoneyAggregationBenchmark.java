@@ -0,0 +1,74 @@
+package dev.amiah.budget_tracker.benchmark;
+
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding up the amounts of a million expenses the way the balance ledger and rollups do, in {@code long}
+ * cents, against the {@code BigDecimal} and {@code double} sums they used before amounts were {@link Money}, and
+ * prints how far the {@code double} sum drifts from the exact one. Run it with the {@code benchmarks} profile,
+ * as described in the readme.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class MoneyAggregationBenchmark {
+
+    @Param({"1000000"})
+    private int size;
+
+    private List<Expense> expenses;
+
+    @Setup
+    public void createExpenses() {
+        expenses = new ArrayList<>(size);
+        SplittableRandom random = new SplittableRandom(1);
+
+        for (int i = 0; i < size; i++) {
+            // About one in ten is income, the rest are spending
+            long cents = random.nextInt(10) == 0 ? random.nextLong(100, 300_000) : -random.nextLong(100, 20_000);
+            expenses.add(new Expense("Expense " + i, Money.ofCents(cents), "Benchmark", ExpenseCategory.OTHER));
+        }
+
+        System.out.printf("%nExact sum %s, double sum %s%n", Money.ofCents(sumCents()), BigDecimal.valueOf(sumDoubles()));
+    }
+
+    @Benchmark
+    public long sumCents() {
+        long total = 0;
+        for (Expense expense : expenses) {
+            total = Math.addExact(total, expense.getAmount().cents());
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal sumBigDecimals() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Expense expense : expenses) {
+            total = total.add(BigDecimal.valueOf(expense.getAmount().toDouble()));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double sumDoubles() {
+        double total = 0;
+        for (Expense expense : expenses) {
+            total += expense.getAmount().toDouble();
+        }
+        return total;
+    }
+
+}
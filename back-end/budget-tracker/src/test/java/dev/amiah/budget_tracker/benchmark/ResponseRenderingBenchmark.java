@@ -0,0 +1,149 @@
+package dev.amiah.budget_tracker.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.amiah.budget_tracker.assembler.ExpenseModelAssembler;
+import dev.amiah.budget_tracker.dto.TotalBalanceObject;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.web.HateoasPageableHandlerMethodArgumentResolver;
+import org.springframework.data.web.PagedResourcesAssembler;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.PagedModel;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.AnnotationLinkRelationProvider;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.hateoas.server.core.DelegatingLinkRelationProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures each step of turning expenses into a response body, at a few page sizes: the derived getters of
+ * {@code Expense}, serializing expenses with Jackson, adding links with {@link ExpenseModelAssembler}, rendering
+ * a page with {@link PagedResourcesAssembler} and serializing it as HAL, and scaling and serializing a
+ * {@link TotalBalanceObject}. The object mapper is set up the way Spring Boot and Spring HATEOAS set up the
+ * application's. Run it with every other benchmark using the {@code benchmarks} profile, or on its own with:
+ * <pre>
+ * mvn -P benchmarks verify -DskipTests -Djmh.include=ResponseRenderingBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseRenderingBenchmark {
+
+    @Param({"20", "100", "1000"})
+    private int size;
+
+    private final ExpenseModelAssembler assembler = new ExpenseModelAssembler();
+    private final PagedResourcesAssembler<Expense> pagedAssembler =
+            new PagedResourcesAssembler<>(new HateoasPageableHandlerMethodArgumentResolver(), null);
+
+    private ObjectMapper objectMapper;
+    private List<Expense> expenses;
+    private Page<Expense> page;
+    private Money total;
+
+    @Setup
+    public void createExpenses() {
+        objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        objectMapper.registerModule(new Jackson2HalModule());
+        objectMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                new DelegatingLinkRelationProvider(new AnnotationLinkRelationProvider(), new DefaultLinkRelationProvider()),
+                CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+
+        ExpenseCategory[] categories = ExpenseCategory.values();
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 30);
+
+        expenses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            // Every other expense has no counterparty, which getCounterpartyText handles separately
+            Expense expense = new Expense("Expense " + i, Money.ofCents(i % 3 == 0 ? 12_550L * i : -475L * i),
+                    i % 2 == 0 ? "Counterparty " + i : null, categories[i % categories.length]);
+            expense.setId((long) i + 1);
+            expense.setTime(start.plusHours(i));
+            expenses.add(expense);
+        }
+
+        page = new PageImpl<>(expenses, PageRequest.of(3, size), 50L * size);
+        total = Money.parse("-1234567.89");
+    }
+
+    @TearDown
+    public void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public void derivedGetters(Blackhole blackhole) {
+        for (Expense expense : expenses) {
+            blackhole.consume(expense.getCounterpartyText());
+            blackhole.consume(expense.getCategoryText());
+            blackhole.consume(expense.getTimeFormatted());
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeExpenses() throws Exception {
+        return objectMapper.writeValueAsBytes(expenses);
+    }
+
+    @Benchmark
+    public CollectionModel<EntityModel<Expense>> assembleModels() {
+        startRequest();
+
+        return assembler.toCollectionModel(expenses);
+    }
+
+    @Benchmark
+    public byte[] renderPage() throws Exception {
+        startRequest();
+        PagedModel<EntityModel<Expense>> model = pagedAssembler.toModel(page, assembler);
+
+        return objectMapper.writeValueAsBytes(model);
+    }
+
+    @Benchmark
+    public byte[] serializeTotal() throws Exception {
+        return objectMapper.writeValueAsBytes(new TotalBalanceObject(total));
+    }
+
+    /**
+     * Starts a new request, so the assembler resolves its links once per invocation like it would per request.
+     */
+    private void startRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/expenses/paged");
+        request.setQueryString("page=3&size=" + size);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ResponseRenderingBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,88 @@
+package dev.amiah.budget_tracker.benchmark;
+
+import dev.amiah.budget_tracker.service.search.ExpenseSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures searches of an {@link ExpenseSearchIndex} holding a million synthetic expenses, drawn from a few
+ * hundred merchants and a few thousand distinct words, and prints the index's estimated size after building it.
+ * Run it from the IDE, or after {@code mvn test-compile} with:
+ * <pre>
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *     dev.amiah.budget_tracker.benchmark.SearchIndexBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class SearchIndexBenchmark {
+
+    private static final String[] MERCHANTS = {
+            "Starbucks", "Tesco", "Amazon", "Shell", "Uber", "Netflix", "Spotify", "Lidl", "Aldi", "Costa Coffee"
+    };
+    private static final String[] ITEMS = {
+            "coffee", "groceries", "fuel", "ride", "subscription", "lunch", "dinner", "books", "rent", "electricity"
+    };
+
+    @Param({"1000000"})
+    private int size;
+
+    private ExpenseSearchIndex index;
+
+    @Setup
+    public void buildIndex() {
+        index = new ExpenseSearchIndex();
+        Random random = new Random(1);
+        LocalDateTime start = LocalDateTime.of(2015, 1, 1, 0, 0);
+
+        for (int id = 0; id < size; id++) {
+            // Merchant names get a branch number so there are a few thousand distinct counterparties
+            String merchant = MERCHANTS[random.nextInt(MERCHANTS.length)] + " " + random.nextInt(300);
+            String name = ITEMS[random.nextInt(ITEMS.length)] + " " + ITEMS[random.nextInt(ITEMS.length)];
+            index.put(id, name, merchant, start.plusMinutes(random.nextInt(5_000_000)));
+        }
+
+        System.out.printf("%nIndexed %d expenses in about %d MB%n", index.size(), index.estimatedBytes() / (1024 * 1024));
+    }
+
+    @Benchmark
+    public List<Long> commonWord() {
+        return index.search("coffee", false, 20);
+    }
+
+    @Benchmark
+    public List<Long> prefix() {
+        return index.search("sta", false, 20);
+    }
+
+    @Benchmark
+    public List<Long> twoWords() {
+        return index.search("netflix subscription", false, 20);
+    }
+
+    @Benchmark
+    public List<Long> rareCombination() {
+        return index.search("spotify 17 rent books", false, 20);
+    }
+
+    @Benchmark
+    public List<Long> fuzzy() {
+        return index.search("elecricity starbuks", true, 20);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SearchIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,130 @@
+package dev.amiah.budget_tracker.benchmark;
+
+import dev.amiah.budget_tracker.BudgetTrackerApplication;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares latency and throughput of the same mixed workload with requests on Tomcat's platform thread pool and
+ * with the {@code virtual-threads} profile. The database is H2 with every statement delayed, standing in for a
+ * MySQL server on the network, and both runs use the same connection pool size, so only the threading differs.
+ * <p>
+ * Most requests are conditional page loads answered with a 304 without the database, the rest load a page from
+ * it. This is not picked up by a plain {@code mvn test}. Run it with:
+ * <pre>
+ * mvn test -Dtest=ThreadModeLoadBenchmark -Dload.clients=400 -Dload.seconds=15 -Dload.db-latency-ms=10
+ * </pre>
+ */
+class ThreadModeLoadBenchmark {
+
+    private static final int CLIENTS = Integer.getInteger("load.clients", 400);
+    private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("load.seconds", 15));
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final int EXPENSES = 2_000;
+    private static final int PAGE_SIZE = 20;
+    // Share of requests that need the database; the rest are 304s
+    private static final double DATABASE_SHARE = 0.3;
+
+    @Test
+    void comparePlatformAndVirtualThreads() throws Exception {
+        SlowStatements.delayMillis = Long.getLong("load.db-latency-ms", 10);
+
+        String platform = run("platform", "h2");
+        String virtual = run("virtual", "h2", "virtual-threads");
+
+        System.out.printf("%n%d clients, %d ms per statement, %.0f%% of requests use the database%n%s%s",
+                CLIENTS, SlowStatements.delayMillis, DATABASE_SHARE * 100, platform, virtual);
+    }
+
+    private String run(String name, String... profiles) throws Exception {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(BudgetTrackerApplication.class)
+                .profiles(profiles)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:load-" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                                + "NON_KEYWORDS=TIME,VALUE;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.hikari.maximum-pool-size=20",
+                        "spring.datasource.hikari.connection-timeout=5000",
+                        "spring.jpa.properties.hibernate.session_factory.statement_inspector=" + SlowStatements.class.getName(),
+                        "logging.level.root=WARN")
+                .run();
+
+        try {
+            String base = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api/expenses";
+            seed(base);
+
+            HttpClient client = HttpClient.newHttpClient();
+            String eTag = client.send(HttpRequest.newBuilder(URI.create(base + "/paged")).build(),
+                    HttpResponse.BodyHandlers.discarding()).headers().firstValue("ETag").orElseThrow();
+
+            HttpRequest notModified = HttpRequest.newBuilder(URI.create(base + "/paged")).header("If-None-Match", eTag).build();
+            List<HttpRequest> pages = new ArrayList<>();
+            for (int page = 0; page < EXPENSES / PAGE_SIZE; page++) {
+                pages.add(HttpRequest.newBuilder(URI.create(base + "/paged?size=" + PAGE_SIZE + "&page=" + page)).build());
+            }
+
+            LoadDriver.Report report = new LoadDriver().run(CLIENTS, WARMUP, DURATION, () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                return random.nextDouble() < DATABASE_SHARE
+                        ? new LoadDriver.Request("GET /paged (database)", pages.get(random.nextInt(pages.size())))
+                        : new LoadDriver.Request("GET /paged (304)", notModified);
+            });
+
+            return report.format(name + " threads");
+        }
+        finally {
+            context.close();
+        }
+    }
+
+    private static void seed(String base) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+
+        for (int start = 0; start < EXPENSES; start += 500) {
+            StringJoiner batch = new StringJoiner(",", "[", "]");
+            for (int i = start; i < Math.min(EXPENSES, start + 500); i++) {
+                batch.add("{\"name\":\"Expense " + i + "\",\"amount\":-" + (i % 100 + 1) + ",\"category\":\"FOOD\","
+                        + "\"time\":\"2024-01-01T00:00:00\"}");
+            }
+
+            client.send(HttpRequest.newBuilder(URI.create(base + "/batch"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(batch.toString()))
+                    .build(), HttpResponse.BodyHandlers.discarding());
+        }
+    }
+
+    /**
+     * Delays every statement, as if the database were a network round trip away. Runs while the statement's
+     * connection is held, like waiting for MySQL would.
+     */
+    public static class SlowStatements implements StatementInspector {
+
+        static volatile long delayMillis;
+
+        @Override
+        public String inspect(String sql) {
+            try {
+                Thread.sleep(delayMillis);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return sql;
+        }
+    }
+
+}
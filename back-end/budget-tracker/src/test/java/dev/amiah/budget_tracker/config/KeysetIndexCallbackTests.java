@@ -0,0 +1,70 @@
+package dev.amiah.budget_tracker.config;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the migrations run on a database created by {@code ddl-auto=update} while the keyset index was still
+ * declared on {@code Expense}, and that the callback leaves a database alone once V2 has run.
+ */
+class KeysetIndexCallbackTests {
+
+    @Test
+    void migratesDatabaseThatAlreadyHasIndex() throws SQLException {
+        String url = url();
+        try (Connection connection = DriverManager.getConnection(url, "sa", "");
+             Statement statement = connection.createStatement())
+        {
+            // As Hibernate created it before the migrations existed
+            statement.execute("CREATE TABLE expense (expense_id BIGINT NOT NULL AUTO_INCREMENT, name VARCHAR(255), "
+                    + "amount FLOAT(53), time DATETIME(6), counterparty VARCHAR(255), category VARCHAR(255), "
+                    + "PRIMARY KEY (expense_id))");
+            statement.execute("CREATE TABLE user_preference (preference_id BIGINT NOT NULL AUTO_INCREMENT, "
+                    + "date_pattern VARCHAR(255) NOT NULL, date_separator VARCHAR(255) NOT NULL, PRIMARY KEY (preference_id))");
+            statement.execute("CREATE INDEX " + KeysetIndexCallback.INDEX + " ON expense (time, expense_id)");
+            statement.execute("INSERT INTO expense (name, amount, time, counterparty, category) "
+                    + "VALUES ('Coffee', -3.5, '2024-01-01 08:00:00', 'Cafe', 'FOOD')");
+
+            flyway(url).migrate();
+            assertEquals(1, count(statement, "SELECT COUNT(*) FROM information_schema.indexes WHERE index_name = '"
+                    + KeysetIndexCallback.INDEX + "'"));
+            assertEquals(-350, count(statement, "SELECT amount_cents FROM expense"));
+
+            // The index is not dropped again by later runs
+            flyway(url).migrate();
+            assertEquals(1, count(statement, "SELECT COUNT(*) FROM information_schema.indexes WHERE index_name = '"
+                    + KeysetIndexCallback.INDEX + "'"));
+        }
+    }
+
+    private static Flyway flyway(String url) {
+        return Flyway.configure()
+                .dataSource(url, "sa", "")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .callbacks(new KeysetIndexCallback())
+                .load();
+    }
+
+    private static String url() {
+        return "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=TIME,VALUE;"
+                + "IGNORE_UNKNOWN_SETTINGS=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    private static long count(Statement statement, String sql) throws SQLException {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+}
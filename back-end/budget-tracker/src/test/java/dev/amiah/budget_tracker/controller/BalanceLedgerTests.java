@@ -0,0 +1,129 @@
+package dev.amiah.budget_tracker.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.amiah.budget_tracker.model.BalanceSummary;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import dev.amiah.budget_tracker.repository.BalanceSummaryRepository;
+import dev.amiah.budget_tracker.repository.ExpenseRepository;
+import dev.amiah.budget_tracker.service.BalanceLedger;
+import dev.amiah.budget_tracker.service.ExpenseBatchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that the {@link BalanceLedger} total stays equal to a {@code SUM} over the {@code expense} table through
+ * every kind of write, that a rolled back write leaves it alone, and that {@code reconcile} corrects drift.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class BalanceLedgerTests {
+
+    private static final String EXPENSE = "{\"name\":\"Ledger\",\"amount\":-12.34,\"counterparty\":\"Shop\",\"category\":\"FOOD\"}";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BalanceLedger ledger;
+
+    @Autowired
+    private BalanceSummaryRepository summaryRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ExpenseBatchService batchService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void reconcile() {
+        // Other test classes may have left the summary behind, by changing expenses directly in the table
+        ledger.reconcile();
+        // Otherwise getTotal() would fall back to the SUM and every comparison would pass
+        assertTrue(summaryRepository.existsById(BalanceSummary.LEDGER_ID));
+    }
+
+    @Test
+    void followsEveryKindOfWrite() throws Exception {
+        long id = objectMapper.readTree(mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON).content(EXPENSE))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+        assertMatchesSum();
+
+        mvc.perform(patch("/api/expenses/{id}", id).contentType(MediaType.APPLICATION_JSON).content("{\"amount\":1000.01}"))
+                .andExpect(status().is2xxSuccessful());
+        assertMatchesSum();
+
+        mvc.perform(put("/api/expenses/{id}", id).contentType(MediaType.APPLICATION_JSON).content(EXPENSE.replace("-12.34", "-0.01,\"time\":\"2024-01-01T00:00:00\"")))
+                .andExpect(status().is2xxSuccessful());
+        assertMatchesSum();
+
+        // Only changing the name leaves the balance alone
+        mvc.perform(patch("/api/expenses/{id}", id).contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Renamed\"}"))
+                .andExpect(status().is2xxSuccessful());
+        assertMatchesSum();
+
+        mvc.perform(post("/api/expenses/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + EXPENSE + "," + EXPENSE.replace("-12.34", "250") + ",{\"name\":\"No amount\",\"category\":\"FOOD\"}]"))
+                .andExpect(status().isOk());
+        assertMatchesSum();
+
+        mvc.perform(delete("/api/expenses/{id}", id)).andExpect(status().isNoContent());
+        assertMatchesSum();
+    }
+
+    @Test
+    void rolledBackWriteLeavesTotalAlone() {
+        Money before = ledger.getTotal();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            batchService.insertAll(List.of(new Expense("Rolled back", Money.ofCents(-99_999), "Shop", ExpenseCategory.OTHER)));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(before, ledger.getTotal());
+        assertMatchesSum();
+    }
+
+    @Test
+    void reconcileCorrectsDrift() {
+        summaryRepository.addToTotal(BalanceSummary.LEDGER_ID, 12_345);
+        assertNotEquals(Money.ofCents(expenseRepository.getTotalBalance()), ledger.getTotal());
+
+        ledger.reconcile();
+        assertMatchesSum();
+    }
+
+    private void assertMatchesSum() {
+        assertEquals(Money.ofCents(expenseRepository.getTotalBalance()), ledger.getTotal());
+    }
+
+}
@@ -0,0 +1,134 @@
+package dev.amiah.budget_tracker.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that balance series are bucketed by day, week, and month, and follow writes to past buckets. Each test
+ * uses its own year, since the expenses of other tests are in the same database.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class BalanceSeriesTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void awaitBalances() throws Exception {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (mvc.perform(get("/api/expenses/balance-series?bucket=day")).andReturn().getResponse().getStatus() == 503) {
+            if (System.nanoTime() > deadline) {
+                fail("Daily balances were not built");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void sumsEachMonthAndRunsBalanceOn() throws Exception {
+        create("-100", "1990-01-15T09:00:00");
+        create("1000", "1990-03-01T00:00:00");
+        create("-50.25", "1990-03-31T23:59:59");
+        create("-7", null);
+
+        JsonNode points = series("from=1990-01-01&to=1990-04-30&bucket=month");
+        assertEquals(4, points.size());
+        assertEquals("1990-03-01", points.get(2).get("start").asText());
+        assertEquals("1990-03-31", points.get(2).get("end").asText());
+        assertEquals(List.of(-100.0, 0.0, 949.75, 0.0), amounts(points, "net"));
+
+        double before = series("from=1989-12-31&to=1989-12-31&bucket=day").get(0).get("balance").asDouble();
+        assertEquals(before + 849.75, points.get(3).get("balance").asDouble(), 0.001);
+    }
+
+    @Test
+    void cutsWeeksShortAtEitherEndOfRange() throws Exception {
+        create("-20", "1991-01-03T12:00:00");
+        create("-30", "1991-01-20T12:00:00");
+
+        // 1991-01-02 is a Wednesday
+        JsonNode points = series("from=1991-01-02&to=1991-01-15&bucket=WEEK");
+        assertEquals(List.of("1991-01-02", "1991-01-07", "1991-01-14"), dates(points, "start"));
+        assertEquals(List.of("1991-01-06", "1991-01-13", "1991-01-15"), dates(points, "end"));
+        assertEquals(List.of(-20.0, 0.0, 0.0), amounts(points, "net"));
+    }
+
+    @Test
+    void followsWritesToPastBuckets() throws Exception {
+        long id = create("-20", "1992-06-10T12:00:00");
+        assertEquals(List.of(0.0, 0.0, 0.0, 0.0, -20.0), amounts(series("from=1992-02-01&to=1992-06-30&bucket=month"), "net"));
+
+        mvc.perform(patch("/api/expenses/{id}", id).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":-25,\"time\":\"1992-02-01T08:00:00\"}"))
+                .andExpect(status().is2xxSuccessful());
+        assertEquals(List.of(-25.0, 0.0, 0.0, 0.0, 0.0),
+                amounts(series("from=1992-02-01&to=1992-06-30&bucket=month"), "net"));
+
+        mvc.perform(delete("/api/expenses/{id}", id)).andExpect(status().is2xxSuccessful());
+        assertEquals(List.of(0.0, 0.0, 0.0, 0.0, 0.0),
+                amounts(series("from=1992-02-01&to=1992-06-30&bucket=month"), "net"));
+    }
+
+    @Test
+    void rejectsInvalidRanges() throws Exception {
+        mvc.perform(get("/api/expenses/balance-series?bucket=fortnight")).andExpect(status().isBadRequest());
+        mvc.perform(get("/api/expenses/balance-series?from=2024-02-01&to=2024-01-01")).andExpect(status().isBadRequest());
+        mvc.perform(get("/api/expenses/balance-series?from=1900-01-01&to=2024-01-01&bucket=day")).andExpect(status().isBadRequest());
+    }
+
+    private long create(String amount, String time) throws Exception {
+        String body = "{\"name\":\"Balance\",\"amount\":" + amount + ",\"counterparty\":\"Bank\",\"category\":\"OTHER\""
+                + (time != null ? ",\"time\":\"" + time + "\"" : "") + "}";
+        String response = mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+
+    private JsonNode series(String query) throws Exception {
+        String body = mvc.perform(get("/api/expenses/balance-series?" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("_embedded").get("balancePointList");
+    }
+
+    private static List<String> dates(JsonNode points, String field) {
+        List<String> dates = new ArrayList<>();
+        points.forEach(point -> dates.add(point.get(field).asText()));
+        return dates;
+    }
+
+    private static List<Double> amounts(JsonNode points, String field) {
+        List<Double> amounts = new ArrayList<>();
+        points.forEach(point -> amounts.add(point.get(field).asDouble()));
+        return amounts;
+    }
+
+}
@@ -0,0 +1,117 @@
+package dev.amiah.budget_tracker.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import dev.amiah.budget_tracker.config.CacheConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that reads fill the caches and that every write endpoint evicts exactly what it changed.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class CachingTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void expenseIsCachedUntilPatched() throws Exception {
+        long id = createExpense("Coffee");
+        long other = createExpense("Tea");
+
+        mvc.perform(get("/api/expenses/{id}", id)).andExpect(status().isOk());
+        mvc.perform(get("/api/expenses/{id}", other)).andExpect(status().isOk());
+        assertNotNull(cache(CacheConfig.EXPENSES).get(id));
+
+        mvc.perform(patch("/api/expenses/{id}", id).contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Latte\"}"))
+                .andExpect(status().isCreated());
+
+        assertNull(cache(CacheConfig.EXPENSES).get(id));
+        assertNotNull(cache(CacheConfig.EXPENSES).get(other));
+        mvc.perform(get("/api/expenses/{id}", id)).andExpect(jsonPath("$.name").value("Latte"));
+    }
+
+    @Test
+    void expenseIsEvictedWhenReplacedOrDeleted() throws Exception {
+        long id = createExpense("Rent");
+
+        mvc.perform(get("/api/expenses/{id}", id)).andExpect(status().isOk());
+        mvc.perform(put("/api/expenses/{id}", id).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Mortgage\",\"amount\":-900,\"category\":\"HOUSING\",\"time\":\"2024-05-01T00:00:00\"}"))
+                .andExpect(status().isCreated());
+        mvc.perform(get("/api/expenses/{id}", id)).andExpect(jsonPath("$.name").value("Mortgage"));
+
+        mvc.perform(delete("/api/expenses/{id}", id)).andExpect(status().isNoContent());
+
+        assertNull(cache(CacheConfig.EXPENSES).get(id));
+        mvc.perform(get("/api/expenses/{id}", id)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void preferenceCachesAreEvictedOnWrites() throws Exception {
+        long id = createPreference("SLASH");
+
+        mvc.perform(get("/api/user-preference/{id}", id)).andExpect(status().isOk());
+        mvc.perform(get("/api/user-preference")).andExpect(status().isOk());
+        assertNotNull(cache(CacheConfig.USER_PREFERENCES).get(id));
+        assertNotNull(cache(CacheConfig.ALL_USER_PREFERENCES).get("all"));
+
+        mvc.perform(put("/api/user-preference/{id}", id).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"dateSeparator\":\"DOT\",\"datePattern\":\"YEAR_MONTH_DAY\"}"))
+                .andExpect(status().isCreated());
+
+        assertNull(cache(CacheConfig.USER_PREFERENCES).get(id));
+        assertNull(cache(CacheConfig.ALL_USER_PREFERENCES).get("all"));
+        mvc.perform(get("/api/user-preference/{id}", id)).andExpect(jsonPath("$.dateSeparator").value("DOT"));
+
+        mvc.perform(get("/api/user-preference")).andExpect(status().isOk());
+        createPreference("HYPHEN");
+        assertNull(cache(CacheConfig.ALL_USER_PREFERENCES).get("all"));
+
+        mvc.perform(delete("/api/user-preference/{id}", id)).andExpect(status().isNoContent());
+
+        assertNull(cache(CacheConfig.USER_PREFERENCES).get(id));
+        mvc.perform(get("/api/user-preference/{id}", id)).andExpect(status().isNotFound());
+    }
+
+    private long createExpense(String name) throws Exception {
+        String body = mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"amount\":-5,\"category\":\"FOOD\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        return ((Number) JsonPath.read(body, "$.id")).longValue();
+    }
+
+    private long createPreference(String separator) throws Exception {
+        String body = mvc.perform(post("/api/user-preference").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"dateSeparator\":\"" + separator + "\",\"datePattern\":\"MONTH_DAY_YEAR\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        return ((Number) JsonPath.read(body, "$.id")).longValue();
+    }
+
+    private Cache cache(String name) {
+        return cacheManager.getCache(name);
+    }
+
+}
@@ -0,0 +1,122 @@
+package dev.amiah.budget_tracker.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that the expense list endpoints answer {@code If-None-Match} with a 304 until the data changes, and
+ * don't query the database to do so.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "dev.amiah.budget_tracker.controller.ConditionalGetTests$CapturingInspector")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class ConditionalGetTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void unchangedDataIsNotModifiedWithoutQueries() throws Exception {
+        createExpense("Coffee");
+
+        for (String url : List.of("/api/expenses", "/api/expenses/paged?page=0&size=5&category=FOOD",
+                "/api/expenses/paged?cursor=&size=5", "/api/expenses/total")) {
+            String eTag = eTag(url);
+            assertTrue(eTag.startsWith("\""), eTag);
+
+            CapturingInspector.SQL.clear();
+            mvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag)).andExpect(status().isNotModified());
+            assertEquals(List.of(), CapturingInspector.SQL, url);
+        }
+    }
+
+    @Test
+    void everyWriteChangesTheETag() throws Exception {
+        String url = "/api/expenses/paged";
+        String eTag = eTag(url);
+
+        long id = createExpense("Rent");
+        eTag = assertChanged(url, eTag);
+
+        mvc.perform(patch("/api/expenses/{id}", id).contentType(MediaType.APPLICATION_JSON).content("{\"amount\":-900}"))
+                .andExpect(status().isCreated());
+        eTag = assertChanged(url, eTag);
+
+        mvc.perform(post("/api/expenses/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\":\"Water\",\"amount\":-30,\"category\":\"UTILITIES\"}]"))
+                .andExpect(status().isOk());
+        eTag = assertChanged(url, eTag);
+
+        mvc.perform(delete("/api/expenses/{id}", id)).andExpect(status().isNoContent());
+        assertChanged(url, eTag);
+    }
+
+    @Test
+    void rejectedWriteKeepsTheETag() throws Exception {
+        long id = createExpense("Tea");
+        String eTag = eTag("/api/expenses/total");
+
+        mvc.perform(patch("/api/expenses/{id}", id).header(HttpHeaders.IF_MATCH, "\"5\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":-4}"))
+                .andExpect(status().isPreconditionFailed());
+
+        mvc.perform(get("/api/expenses/total").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
+    private String assertChanged(String url, String previousETag) throws Exception {
+        mvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, previousETag)).andExpect(status().isOk());
+
+        String eTag = eTag(url);
+        assertNotEquals(previousETag, eTag);
+        return eTag;
+    }
+
+    private String eTag(String url) throws Exception {
+        return mvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    }
+
+    private long createExpense(String name) throws Exception {
+        String body = mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"amount\":-5,\"category\":\"FOOD\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        return ((Number) JsonPath.read(body, "$.id")).longValue();
+    }
+
+    /**
+     * Records the SQL of every statement Hibernate prepares.
+     */
+    public static class CapturingInspector implements StatementInspector {
+
+        static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SQL.add(sql);
+            return sql;
+        }
+    }
+
+}
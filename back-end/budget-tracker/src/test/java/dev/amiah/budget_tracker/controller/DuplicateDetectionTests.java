@@ -0,0 +1,160 @@
+package dev.amiah.budget_tracker.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.repository.ExpenseRepository;
+import dev.amiah.budget_tracker.service.ExpenseDuplicateService;
+import dev.amiah.budget_tracker.util.ExpenseFingerprint;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that expenses already saved are skipped when a statement is imported again or a batch asks for it, that
+ * repeats of a transaction within one source are kept, and that fingerprints follow updates.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class DuplicateDetectionTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ExpenseRepository repository;
+
+    @Autowired
+    private ExpenseDuplicateService duplicateService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void batchRejectsDuplicatesOnlyWhenAsked() throws Exception {
+        String coffee = expense("Coffee " + UUID.randomUUID(), "-3.5", "Cafe");
+        String lunch = expense("Lunch " + UUID.randomUUID(), "-9", "Deli");
+
+        mvc.perform(post("/api/expenses/batch").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + coffee + "," + coffee + "," + lunch + "]"))
+                .andExpect(jsonPath("$._embedded.batchItemResultList[1].status").value("CREATED"));
+
+        // Three coffees against the two saved, with the name and counterparty written differently
+        String coffeeAgain = coffee.replace("Coffee", "  COFFEE!").replace("Cafe", "CAFE.");
+        mvc.perform(post("/api/expenses/batch").param("rejectDuplicates", "true").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + coffeeAgain + "," + coffee + "," + lunch + "," + coffee + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.batchItemResultList[0].status").value("DUPLICATE"))
+                .andExpect(jsonPath("$._embedded.batchItemResultList[0].error").value("Duplicate of an existing expense"))
+                .andExpect(jsonPath("$._embedded.batchItemResultList[1].status").value("DUPLICATE"))
+                .andExpect(jsonPath("$._embedded.batchItemResultList[2].status").value("DUPLICATE"))
+                .andExpect(jsonPath("$._embedded.batchItemResultList[3].status").value("CREATED"));
+    }
+
+    @Test
+    void importingSameStatementTwiceSkipsEveryRecord() throws Exception {
+        String name = "Groceries " + UUID.randomUUID();
+        // The same shop twice on one day is two transactions, and both are imported the first time
+        String csv = "name,amount,time,counterparty,category\n"
+                + name + ",-20.00,2024-03-01,Tesco,FOOD\n"
+                + name + ",-20.00,2024-03-01,Tesco,FOOD\n"
+                + name + ",-7.25,2024-03-02,Tesco,FOOD\n";
+
+        JsonNode first = runImport(csv);
+        assertEquals(3, first.get("recordsImported").asLong());
+        assertEquals(0, first.get("recordsDuplicate").asLong());
+
+        JsonNode second = runImport(csv + name + ",-7.25,2024-03-03,Tesco,FOOD\n");
+        assertEquals(1, second.get("recordsImported").asLong());
+        assertEquals(3, second.get("recordsDuplicate").asLong());
+        assertEquals(0, second.get("recordsRejected").asLong());
+
+        assertEquals(4, repository.findAll().stream().filter(e -> name.equals(e.getName())).count());
+    }
+
+    @Test
+    void updateKeepsFingerprintCurrent() throws Exception {
+        String name = "Taxi " + UUID.randomUUID();
+        String body = mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON)
+                        .content(expense(name, "-15", "Cabs")))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(body).get("id").asLong();
+        Long created = repository.findById(id).map(Expense::getFingerprint).orElseThrow();
+
+        mvc.perform(patch("/api/expenses/{id}", id).contentType(MediaType.APPLICATION_JSON).content("{\"amount\":-16}"))
+                .andExpect(status().isCreated());
+
+        Expense updated = repository.findById(id).orElseThrow();
+        assertNotEquals(created, updated.getFingerprint());
+        assertEquals(ExpenseFingerprint.of(updated), updated.getFingerprint());
+    }
+
+    private JsonNode runImport(String csv) throws Exception {
+        awaitFilter();
+        MockMultipartFile file = new MockMultipartFile("file", "statement.csv", "text/csv", csv.getBytes(StandardCharsets.UTF_8));
+        String body = mvc.perform(multipart("/api/imports").file(file))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(body).get("id").asLong();
+
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (true) {
+            JsonNode job = objectMapper.readTree(mvc.perform(get("/api/imports/{id}", id))
+                    .andReturn().getResponse().getContentAsString());
+            switch (job.get("status").asText()) {
+                case "COMPLETED" -> {
+                    return job;
+                }
+                case "FAILED" -> fail("Import failed: " + job.get("lastError"));
+                default -> {
+                    if (System.nanoTime() > deadline) {
+                        fail("Import did not finish: " + job);
+                    }
+                    Thread.sleep(20);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the filter, so that the imports use it rather than only the database.
+     */
+    private void awaitFilter() throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!duplicateService.isFilterReady()) {
+            if (System.nanoTime() > deadline) {
+                fail("Duplicate filter was not built");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static String expense(String name, String amount, String counterparty) {
+        return "{\"name\":\"" + name + "\",\"amount\":" + amount + ",\"time\":\"2024-02-01T10:15:00\","
+                + "\"counterparty\":\"" + counterparty + "\",\"category\":\"FOOD\"}";
+    }
+
+}
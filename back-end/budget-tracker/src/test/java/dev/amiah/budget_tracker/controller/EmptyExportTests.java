@@ -0,0 +1,46 @@
+package dev.amiah.budget_tracker.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that exporting an empty table writes only the CSV header, and nothing at all as NDJSON. This class has a
+ * database of its own, since every other test shares one that is never empty.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:empty-export;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+        + "NON_KEYWORDS=TIME,VALUE;IGNORE_UNKNOWN_SETTINGS=TRUE;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class EmptyExportTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void exportsNoRows() throws Exception {
+        assertEquals("id,name,amount,time,counterparty,category\n", export("csv"));
+        assertEquals("", export("ndjson"));
+    }
+
+    private String export(String format) throws Exception {
+        MvcResult result = mvc.perform(get("/api/expenses/export").param("format", format))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+}
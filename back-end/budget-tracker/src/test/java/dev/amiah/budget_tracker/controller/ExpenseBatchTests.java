@@ -0,0 +1,98 @@
+package dev.amiah.budget_tracker.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that {@code POST /api/expenses/batch} reports a result for every item at its index, saves the valid items
+ * even when others are rejected, and saves nothing for the rejected ones.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class ExpenseBatchTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void savesValidItemsAndRejectsTheRest() throws Exception {
+        String name = "Batch " + UUID.randomUUID();
+        String body = "["
+                + expense(name + " #0", "-12.34", "\"FOOD\"") + ","
+                + expense(name + " #1", null, "\"FOOD\"") + ","
+                + "null,"
+                + expense(name + " #3", "2500", null) + ","
+                + expense("x".repeat(256), "-1", "\"OTHER\"") + ","
+                + expense(name + " #5", "-0.66", "\"HOUSING\"")
+                + "]";
+        BigDecimal before = total();
+
+        JsonNode results = objectMapper.readTree(mvc.perform(post("/api/expenses/batch")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._links.expenses.href").exists())
+                .andReturn().getResponse().getContentAsString()).get("_embedded").get("batchItemResultList");
+
+        assertEquals(6, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).get("index").asInt());
+        }
+        assertCreated(results.get(0), name + " #0");
+        assertRejected(results.get(1), "Amount is required");
+        assertRejected(results.get(2), "Expense is missing");
+        assertRejected(results.get(3), "Category is required");
+        assertRejected(results.get(4), "Name is longer than 255 characters");
+        assertCreated(results.get(5), name + " #5");
+
+        BigDecimal change = total().subtract(before);
+        assertEquals(0, new BigDecimal("-13.00").compareTo(change), change.toString());
+    }
+
+    private void assertCreated(JsonNode result, String name) throws Exception {
+        assertEquals("CREATED", result.get("status").asText(), result.toString());
+        assertTrue(result.path("error").isMissingNode() || result.get("error").isNull(), result.toString());
+
+        mvc.perform(get("/api/expenses/{id}", result.get("id").asLong()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value(name));
+    }
+
+    private static void assertRejected(JsonNode result, String error) {
+        assertEquals("REJECTED", result.get("status").asText(), result.toString());
+        assertTrue(result.path("id").isMissingNode() || result.get("id").isNull(), result.toString());
+        assertEquals(error, result.get("error").asText());
+    }
+
+    private BigDecimal total() throws Exception {
+        return new BigDecimal(objectMapper.readTree(mvc.perform(get("/api/expenses/total"))
+                .andReturn().getResponse().getContentAsString()).get("total").asText());
+    }
+
+    private static String expense(String name, String amount, String category) {
+        return "{\"name\":\"" + name + "\",\"time\":\"2024-07-01T12:00:00\",\"counterparty\":\"Shop\""
+                + (amount != null ? ",\"amount\":" + amount : "")
+                + (category != null ? ",\"category\":" + category : "") + "}";
+    }
+
+}
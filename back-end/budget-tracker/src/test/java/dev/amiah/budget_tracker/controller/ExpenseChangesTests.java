@@ -0,0 +1,142 @@
+package dev.amiah.budget_tracker.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import dev.amiah.budget_tracker.model.ExpenseChangeHead;
+import dev.amiah.budget_tracker.repository.ExpenseChangeHeadRepository;
+import dev.amiah.budget_tracker.service.ExpenseChangeLog;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that {@code /api/expenses/changes} returns one entry per changed expense since a version, pages through
+ * long logs, and turns away clients whose version has been compacted.
+ */
+// Everything is old enough to compact, so that compact() can be called directly
+@SpringBootTest(properties = "budget-tracker.changes.retention=PT0S")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class ExpenseChangesTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ExpenseChangeHeadRepository headRepository;
+
+    @Autowired
+    private ExpenseChangeLog changeLog;
+
+    @Test
+    void changesAreCoalescedPerExpense() throws Exception {
+        long existing = createExpense("Rent", -900);
+        long removed = createExpense("Gym", -30);
+        long since = currentVersion();
+
+        long created = createExpense("Coffee", -3);
+        mvc.perform(patch("/api/expenses/{id}", created).contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Latte\"}"))
+                .andExpect(status().isCreated());
+        long discarded = createExpense("Typo", -1);
+        mvc.perform(delete("/api/expenses/{id}", discarded)).andExpect(status().isNoContent());
+        mvc.perform(patch("/api/expenses/{id}", existing).contentType(MediaType.APPLICATION_JSON).content("{\"amount\":-950}"))
+                .andExpect(status().isCreated());
+        mvc.perform(delete("/api/expenses/{id}", removed)).andExpect(status().isNoContent());
+
+        mvc.perform(get("/api/expenses/changes").param("since", String.valueOf(since)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(currentVersion()))
+                .andExpect(jsonPath("$.total").isNumber())
+                .andExpect(jsonPath("$.changes", hasSize(3)))
+                .andExpect(jsonPath("$.changes[0].type").value("CREATED"))
+                .andExpect(jsonPath("$.changes[0].id").value(created))
+                .andExpect(jsonPath("$.changes[0].expense.name").value("Latte"))
+                .andExpect(jsonPath("$.changes[0].expense._links.self.href").exists())
+                .andExpect(jsonPath("$.changes[1].type").value("UPDATED"))
+                .andExpect(jsonPath("$.changes[1].expense.amount").value(-950.0))
+                .andExpect(jsonPath("$.changes[2].type").value("DELETED"))
+                .andExpect(jsonPath("$.changes[2].id").value(removed))
+                .andExpect(jsonPath("$.changes[2].expense").doesNotExist());
+
+        mvc.perform(get("/api/expenses/changes").param("since", String.valueOf(currentVersion())))
+                .andExpect(jsonPath("$.changes", hasSize(0)));
+    }
+
+    @Test
+    void longLogsArePaged() throws Exception {
+        long since = currentVersion();
+        createExpense("One", -1);
+        createExpense("Two", -2);
+        createExpense("Three", -3);
+
+        String body = mvc.perform(get("/api/expenses/changes").param("since", String.valueOf(since)).param("limit", "2"))
+                .andExpect(jsonPath("$.changes", hasSize(2)))
+                .andExpect(jsonPath("$.version").value(since + 2))
+                .andExpect(jsonPath("$.total").doesNotExist())
+                .andExpect(jsonPath("$._links.next.href").exists())
+                .andReturn().getResponse().getContentAsString();
+
+        mvc.perform(get(JsonPath.<String>read(body, "$._links.next.href")))
+                .andExpect(jsonPath("$.changes", hasSize(1)))
+                .andExpect(jsonPath("$.changes[0].expense.name").value("Three"))
+                .andExpect(jsonPath("$.total").isNumber())
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+    }
+
+    @Test
+    void compactedOrUnknownVersionsAreGone() throws Exception {
+        long since = currentVersion();
+        createExpense("Old", -5);
+
+        changeLog.compact();
+
+        mvc.perform(get("/api/expenses/changes").param("since", String.valueOf(since)))
+                .andExpect(status().isGone());
+        mvc.perform(get("/api/expenses/changes").param("since", String.valueOf(currentVersion() + 1)))
+                .andExpect(status().isGone());
+        mvc.perform(get("/api/expenses/changes").param("since", String.valueOf(currentVersion())))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void goneTellsClientWhereToSyncFrom() throws Exception {
+        createExpense("Before compaction", -5);
+        changeLog.compact();
+        long latest = currentVersion();
+
+        // A client that has never synced starts from 0, which is gone once anything was compacted
+        String body = mvc.perform(get("/api/expenses/changes").param("since", "0"))
+                .andExpect(status().isGone())
+                .andExpect(jsonPath("$.version").value(latest))
+                .andExpect(jsonPath("$.message").isString())
+                .andReturn().getResponse().getContentAsString();
+
+        long version = JsonPath.<Number>read(body, "$.version").longValue();
+        mvc.perform(get("/api/expenses/changes").param("since", String.valueOf(version)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(latest))
+                .andExpect(jsonPath("$.changes", hasSize(0)));
+    }
+
+    private long currentVersion() {
+        return headRepository.findById(ExpenseChangeHead.HEAD_ID).orElseThrow().getLastSeq();
+    }
+
+    private long createExpense(String name, double amount) throws Exception {
+        String body = mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"amount\":" + amount + ",\"category\":\"FOOD\"}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        return ((Number) JsonPath.read(body, "$.id")).longValue();
+    }
+
+}
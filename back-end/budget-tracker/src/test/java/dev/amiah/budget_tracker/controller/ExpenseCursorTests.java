@@ -0,0 +1,119 @@
+package dev.amiah.budget_tracker.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that following the {@code next} links of cursor pagination visits every matching expense once, newest
+ * first, with the filters of the first request, and that malformed cursors and page sizes are handled. Each test
+ * filters on its own counterparty, since the expenses of other tests are in the same database.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class ExpenseCursorTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void followsNextLinksToTheEnd() throws Exception {
+        String counterparty = "Cursor-" + UUID.randomUUID();
+        create("Oldest", "2023-01-01T00:00:00", "FOOD", counterparty);
+        create("Tied A", "2023-06-01T12:00:00", "FOOD", counterparty);
+        create("Tied B", "2023-06-01T12:00:00", "FOOD", counterparty);
+        create("Middle", "2023-03-15T08:30:00", "FOOD", counterparty);
+        create("Newest", "2023-12-31T23:59:59", "FOOD", counterparty);
+
+        // Expenses at the same time are ordered by id, newest first
+        assertEquals(List.of(List.of("Newest", "Tied B"), List.of("Tied A", "Middle"), List.of("Oldest")),
+                pages("/api/expenses/paged?cursor=&size=2&counterparty=" + counterparty));
+    }
+
+    @Test
+    void carriesFiltersThroughCursor() throws Exception {
+        String counterparty = "Cursor-" + UUID.randomUUID();
+        create("Food 1", "2023-01-01T00:00:00", "FOOD", counterparty);
+        create("Housing", "2023-01-02T00:00:00", "HOUSING", counterparty);
+        create("Food 2", "2023-01-03T00:00:00", "FOOD", counterparty);
+        create("Food 3", "2023-01-04T00:00:00", "FOOD", counterparty);
+        create("Too late", "2023-02-01T00:00:00", "FOOD", counterparty);
+
+        assertEquals(List.of(List.of("Food 3"), List.of("Food 2"), List.of("Food 1")),
+                pages("/api/expenses/paged?cursor=&size=1&category=FOOD&to=2023-01-31&counterparty=" + counterparty));
+    }
+
+    @Test
+    void clampsPageSize() throws Exception {
+        String counterparty = "Cursor-" + UUID.randomUUID();
+        create("First", "2023-01-01T00:00:00", "FOOD", counterparty);
+        create("Second", "2023-01-02T00:00:00", "FOOD", counterparty);
+
+        assertEquals(List.of(List.of("Second"), List.of("First")),
+                pages("/api/expenses/paged?cursor=&size=0&counterparty=" + counterparty));
+        assertEquals(List.of(List.of("Second", "First")),
+                pages("/api/expenses/paged?cursor=&size=1000000&counterparty=" + counterparty));
+    }
+
+    @Test
+    void rejectsMalformedCursor() throws Exception {
+        for (String cursor : List.of("not-a-cursor", "bm9zZXBhcmF0b3I", "MjAyNC0xMy0wMVQwMDowMHwx", "%%%")) {
+            mvc.perform(get("/api/expenses/paged").param("cursor", cursor)).andExpect(status().isBadRequest());
+        }
+    }
+
+    /**
+     * @return The names on each page, following {@code next} links from {@code url} until there are none.
+     */
+    private List<List<String>> pages(String url) throws Exception {
+        List<List<String>> pages = new ArrayList<>();
+        URI next = URI.create(url);
+        while (next != null) {
+            JsonNode body = objectMapper.readTree(mvc.perform(get(next))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+
+            List<String> names = new ArrayList<>();
+            JsonNode embedded = body.path("_embedded").path("expenseList");
+            embedded.forEach(expense -> names.add(expense.get("name").asText()));
+            JsonNode link = body.path("_links").path("next").path("href");
+            if (names.isEmpty()) {
+                assertTrue(link.isMissingNode(), "Empty page with a next link");
+                break;
+            }
+            pages.add(names);
+            next = link.isMissingNode() ? null : URI.create(link.asText());
+            assertTrue(pages.size() < 10, "Too many pages");
+        }
+        return pages;
+    }
+
+    private void create(String name, String time, String category, String counterparty) throws Exception {
+        String body = "{\"name\":\"" + name + "\",\"amount\":-1,\"time\":\"" + time + "\",\"counterparty\":\""
+                + counterparty + "\",\"category\":\"" + category + "\"}";
+        mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated());
+    }
+
+}
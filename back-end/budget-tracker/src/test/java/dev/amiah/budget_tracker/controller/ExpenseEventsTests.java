@@ -0,0 +1,189 @@
+package dev.amiah.budget_tracker.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.amiah.budget_tracker.service.ExpenseEventBroadcaster;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that committed writes reach subscribers of {@code /api/expenses/events} with the balance they committed,
+ * and that a subscriber that stops reading is disconnected instead of holding up the others.
+ */
+@SpringBootTest(properties = "budget-tracker.events.buffer-size=4")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class ExpenseEventsTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ExpenseEventBroadcaster broadcaster;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void committedWritesArePushed() throws Exception {
+        MockHttpServletResponse events = mvc.perform(get("/api/expenses/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+
+        createExpense("Groceries");
+
+        assertEventually(() -> contentOf(events).contains("event:expenses"));
+        String content = contentOf(events);
+        assertTrue(content.contains("\"type\":\"CREATED\""), content);
+        assertTrue(content.contains("\"name\":\"Groceries\""), content);
+        assertTrue(content.contains("\"balance\":{\"total\":"), content);
+    }
+
+    @Test
+    void eachEventCarriesTheBalanceItsTransactionCommitted() throws Exception {
+        RecordingEmitter recording = new RecordingEmitter();
+        broadcaster.register(recording);
+        BigDecimal before = new BigDecimal(objectMapper.readTree(mvc.perform(get("/api/expenses/total"))
+                .andReturn().getResponse().getContentAsString()).get("total").asText());
+
+        // Writers commit at the same time, so a balance read after the fact would often include later commits
+        int writers = 3;
+        int writes = 4;
+        try (ExecutorService executor = Executors.newFixedThreadPool(writers)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < writes; j++) {
+                        mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON)
+                                        .content("{\"name\":\"Cent\",\"amount\":0.01,\"category\":\"OTHER\"}"))
+                                .andExpect(status().isCreated());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertEventually(() -> recording.events.size() == writers * writes);
+        Set<BigDecimal> balances = new TreeSet<>();
+        for (String event : recording.events) {
+            balances.add(new BigDecimal(objectMapper.readTree(event).get("balance").get("total").asText()));
+        }
+        Set<BigDecimal> expected = new TreeSet<>();
+        for (int i = 1; i <= writers * writes; i++) {
+            expected.add(before.add(new BigDecimal("0.01").multiply(BigDecimal.valueOf(i))));
+        }
+        assertEquals(expected, balances);
+        recording.complete();
+    }
+
+    @Test
+    void slowSubscriberIsDisconnected() throws Exception {
+        BlockedEmitter blocked = new BlockedEmitter();
+        int before = broadcaster.getSubscriberCount();
+        broadcaster.register(blocked);
+
+        // The first event is stuck sending, and the buffer holds four more
+        for (int i = 0; i < 6; i++) {
+            createExpense("Expense " + i);
+        }
+
+        assertTrue(blocked.completed.await(5, TimeUnit.SECONDS), "Slow subscriber was not disconnected");
+        assertEventually(() -> broadcaster.getSubscriberCount() == before);
+        blocked.release.countDown();
+    }
+
+    private void createExpense(String name) throws Exception {
+        mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"amount\":-5,\"category\":\"FOOD\"}"))
+                .andExpect(status().isCreated());
+    }
+
+    private static String contentOf(MockHttpServletResponse response) {
+        try {
+            return response.getContentAsString();
+        }
+        catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void assertEventually(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertFalse(System.nanoTime() > deadline, "Timed out waiting for condition");
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * An emitter that keeps the data of every expense event sent to it.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(Set<DataWithMediaType> items) {
+            items.stream()
+                    .map(DataWithMediaType::getData)
+                    .filter(data -> data instanceof String text && text.startsWith("{"))
+                    .forEach(data -> events.add((String) data));
+        }
+    }
+
+    /**
+     * An emitter whose client never reads, so every send blocks until the test ends.
+     */
+    private static class BlockedEmitter extends SseEmitter {
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+    }
+
+}
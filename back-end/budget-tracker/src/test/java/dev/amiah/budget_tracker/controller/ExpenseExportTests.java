@@ -0,0 +1,178 @@
+package dev.amiah.budget_tracker.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.amiah.budget_tracker.repository.ExpenseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that exports parse back into the expenses they were written from: CSV quotes values with commas, quotes,
+ * and line breaks, and NDJSON writes one object per line. Unknown formats are rejected. The export covers every expense, including those of other
+ * tests, so only this class's expenses are looked at closely.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class ExpenseExportTests {
+
+    private static final String AWKWARD_NAME = "Dinner, \"the good one\"\nwith dessert\r\nand wine";
+    private static final String AWKWARD_COUNTERPARTY = "Smith, Jones & \"Partners\"";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ExpenseRepository repository;
+
+    @Test
+    void csvQuotesValuesThatNeedIt() throws Exception {
+        String plainName = "Export " + UUID.randomUUID();
+        long awkward = create(AWKWARD_NAME, AWKWARD_COUNTERPARTY, "-12.5", "2024-04-01T10:15:30");
+        long plain = create(plainName, "Shop", "3", "2024-04-02T00:00:00");
+
+        String body = export("csv", "text/csv");
+        List<List<String>> records = parseCsv(body);
+        assertEquals(List.of("id", "name", "amount", "time", "counterparty", "category"), records.getFirst());
+        assertEquals(repository.count() + 1, records.size());
+
+        Map<Long, List<String>> byId = new HashMap<>();
+        records.subList(1, records.size()).forEach(record -> {
+            assertEquals(6, record.size(), record.toString());
+            byId.put(Long.valueOf(record.getFirst()), record);
+        });
+        assertEquals(List.of(String.valueOf(awkward), AWKWARD_NAME, "-12.50", "2024-04-01T10:15:30",
+                AWKWARD_COUNTERPARTY, "FOOD"), byId.get(awkward));
+        assertEquals(List.of(String.valueOf(plain), plainName, "3.00", "2024-04-02T00:00:00", "Shop", "FOOD"),
+                byId.get(plain));
+
+        // Values without special characters are written as they are
+        assertTrue(body.contains("\n" + plain + "," + plainName + ",3.00,"), body);
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerLine() throws Exception {
+        long awkward = create(AWKWARD_NAME, AWKWARD_COUNTERPARTY, "-12.5", "2024-04-01T10:15:30");
+
+        String body = export("ndjson", "application/x-ndjson");
+        assertTrue(body.endsWith("\n"));
+        String[] lines = body.split("\n");
+        assertEquals(repository.count(), lines.length);
+
+        JsonNode exported = null;
+        for (String line : lines) {
+            JsonNode row = objectMapper.readTree(line);
+            assertTrue(row.isObject(), line);
+            if (row.get("id").asLong() == awkward) {
+                exported = row;
+            }
+        }
+
+        assertTrue(exported != null, "Expense " + awkward + " was not exported");
+        assertEquals(AWKWARD_NAME, exported.get("name").asText());
+        assertEquals(AWKWARD_COUNTERPARTY, exported.get("counterparty").asText());
+        assertEquals("FOOD", exported.get("category").asText());
+    }
+
+    @Test
+    void rejectsUnknownFormats() throws Exception {
+        for (String format : List.of("xml", "json", "csv,ndjson")) {
+            mvc.perform(get("/api/expenses/export").param("format", format)).andExpect(status().isBadRequest());
+        }
+
+        // Names are matched regardless of case
+        mvc.perform(get("/api/expenses/export").param("format", "CSV")).andExpect(request().asyncStarted());
+    }
+
+    private String export(String format, String mediaType) throws Exception {
+        MvcResult result = mvc.perform(get("/api/expenses/export").param("format", format))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        return mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", MediaType.parseMediaType(mediaType).toString()))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"expenses." + format + "\""))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Splits CSV into records of fields, following RFC 4180 quoting.
+     */
+    static List<List<String>> parseCsv(String csv) {
+        List<List<String>> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < csv.length(); i++) {
+            char c = csv.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < csv.length() && csv.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                }
+                else if (c == '"') {
+                    quoted = false;
+                }
+                else {
+                    field.append(c);
+                }
+            }
+            else if (c == '"') {
+                quoted = true;
+            }
+            else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            }
+            else if (c == '\n') {
+                record.add(field.toString());
+                field.setLength(0);
+                records.add(record);
+                record = new ArrayList<>();
+            }
+            else {
+                field.append(c);
+            }
+        }
+
+        assertTrue(!quoted && field.isEmpty() && record.isEmpty(), "CSV does not end with a complete record");
+        return records;
+    }
+
+    private long create(String name, String counterparty, String amount, String time) throws Exception {
+        String body = objectMapper.writeValueAsString(Map.of("name", name, "counterparty", counterparty,
+                "amount", Double.valueOf(amount), "time", time, "category", "FOOD"));
+        String response = mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+
+}
@@ -0,0 +1,180 @@
+package dev.amiah.budget_tracker.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.amiah.budget_tracker.dto.ExpenseSummary;
+import dev.amiah.budget_tracker.service.ExpenseRollupService;
+import dev.amiah.budget_tracker.service.SummaryGrouping;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that summaries read from the rollups agree with sums recomputed from the {@code expense} table, for every
+ * grouping, within month bounds, after writes that move expenses between months and categories, and after a
+ * rebuild. Each test uses its own years, since the expenses of other tests are in the same database.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class ExpenseSummaryTests {
+
+    private static final List<Set<SummaryGrouping>> GROUPINGS = List.of(
+            EnumSet.noneOf(SummaryGrouping.class),
+            EnumSet.of(SummaryGrouping.MONTH),
+            EnumSet.of(SummaryGrouping.YEAR),
+            EnumSet.of(SummaryGrouping.CATEGORY),
+            EnumSet.of(SummaryGrouping.CATEGORY, SummaryGrouping.MONTH),
+            EnumSet.of(SummaryGrouping.CATEGORY, SummaryGrouping.YEAR));
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ExpenseRollupService rollupService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void everyGroupingMatchesTable() throws Exception {
+        create("-10.50", "1981-01-05T10:00:00", "FOOD");
+        create("-900", "1981-01-31T23:59:59", "HOUSING");
+        create("-4.25", "1981-03-01T00:00:00", "FOOD");
+        create("2500", "1981-12-15T09:00:00", "OTHER");
+        create("-1", "1982-01-01T00:00:00", "FOOD");
+
+        for (Set<SummaryGrouping> groupings : GROUPINGS) {
+            assertMatchesTable(groupings, YearMonth.of(1981, 1), YearMonth.of(1982, 12));
+            assertMatchesTable(groupings, YearMonth.of(1981, 2), YearMonth.of(1981, 3));
+        }
+
+        // Bounds are whole months, inclusive at both ends
+        List<ExpenseSummary> march = rollupService.summarize(EnumSet.noneOf(SummaryGrouping.class),
+                YearMonth.of(1981, 3), YearMonth.of(1981, 3));
+        assertEquals(List.of(new ExpenseSummary(null, null, new BigDecimal("-4.25"), 1)), march);
+
+        mvc.perform(get("/api/expenses/summary?groupBy=category,year&from=1981-01&to=1981-12"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.expenseSummaryList.length()").value(3))
+                .andExpect(jsonPath("$._embedded.expenseSummaryList[0].period").value("1981"))
+                .andExpect(jsonPath("$._embedded.expenseSummaryList[0].category").value("FOOD"))
+                .andExpect(jsonPath("$._embedded.expenseSummaryList[0].total").value(-14.75))
+                .andExpect(jsonPath("$._embedded.expenseSummaryList[0].count").value(2));
+    }
+
+    @Test
+    void followsExpensesBetweenMonthsAndCategories() throws Exception {
+        YearMonth from = YearMonth.of(1983, 1);
+        YearMonth to = YearMonth.of(1983, 12);
+        Set<SummaryGrouping> byCategoryAndMonth = EnumSet.of(SummaryGrouping.CATEGORY, SummaryGrouping.MONTH);
+
+        long id = create("-20", "1983-02-10T12:00:00", "FOOD");
+        create("-5", "1983-02-11T12:00:00", "FOOD");
+        assertMatchesTable(byCategoryAndMonth, from, to);
+
+        // Moves out of February and FOOD into May and HOUSING
+        mvc.perform(patch("/api/expenses/{id}", id).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"time\":\"1983-05-01T00:00:00\",\"category\":\"HOUSING\",\"amount\":-30}"))
+                .andExpect(status().is2xxSuccessful());
+        assertMatchesTable(byCategoryAndMonth, from, to);
+        assertMatchesTable(EnumSet.of(SummaryGrouping.YEAR), from, to);
+
+        mvc.perform(delete("/api/expenses/{id}", id)).andExpect(status().isNoContent());
+        assertMatchesTable(byCategoryAndMonth, from, to);
+        assertEquals(1, rollupService.summarize(byCategoryAndMonth, from, to).size());
+    }
+
+    @Test
+    void rebuildCatchesUpWithTable() throws Exception {
+        YearMonth from = YearMonth.of(1984, 1);
+        YearMonth to = YearMonth.of(1984, 12);
+        Set<SummaryGrouping> byCategoryAndMonth = EnumSet.of(SummaryGrouping.CATEGORY, SummaryGrouping.MONTH);
+        create("-7", "1984-06-01T08:00:00", "FOOD");
+
+        // Written around the application, as a restore from a backup would be
+        long id = Long.MAX_VALUE - 1984;
+        jdbcTemplate.update("INSERT INTO expense (expense_id, name, amount_cents, time, counterparty, category, version) "
+                + "VALUES (?, 'Restored', -1234, ?, 'Shop', 'FOOD', 0)", id, LocalDateTime.of(1984, 6, 2, 8, 0));
+        try {
+            assertNotEquals(sumFromTable(byCategoryAndMonth, from, to), summarize(byCategoryAndMonth, from, to));
+
+            mvc.perform(post("/api/expenses/summary/rebuild")).andExpect(status().isNoContent());
+            for (Set<SummaryGrouping> groupings : GROUPINGS) {
+                assertMatchesTable(groupings, from, to);
+            }
+        }
+        finally {
+            jdbcTemplate.update("DELETE FROM expense WHERE expense_id = ?", id);
+            rollupService.rebuild();
+        }
+    }
+
+    private void assertMatchesTable(Set<SummaryGrouping> groupings, YearMonth from, YearMonth to) {
+        assertEquals(sumFromTable(groupings, from, to), summarize(groupings, from, to), "Grouped by " + groupings);
+    }
+
+    /**
+     * @return The total in cents and count of each group, keyed by period and category.
+     */
+    private Map<String, List<Long>> summarize(Set<SummaryGrouping> groupings, YearMonth from, YearMonth to) {
+        Map<String, List<Long>> groups = new HashMap<>();
+        for (ExpenseSummary summary : rollupService.summarize(groupings, from, to)) {
+            groups.put(summary.period() + "/" + summary.category(),
+                    List.of(summary.total().movePointRight(2).longValueExact(), summary.count()));
+        }
+        return groups;
+    }
+
+    /**
+     * Like {@link #summarize}, but added up from the {@code expense} table.
+     */
+    private Map<String, List<Long>> sumFromTable(Set<SummaryGrouping> groupings, YearMonth from, YearMonth to) {
+        Map<String, List<Long>> groups = new HashMap<>();
+        jdbcTemplate.query("SELECT time, category, amount_cents FROM expense WHERE time >= ? AND time < ?", rs -> {
+            LocalDateTime time = rs.getObject("time", LocalDateTime.class);
+            String period = groupings.contains(SummaryGrouping.MONTH) ? YearMonth.from(time).toString()
+                    : groupings.contains(SummaryGrouping.YEAR) ? String.valueOf(time.getYear()) : null;
+            String category = groupings.contains(SummaryGrouping.CATEGORY) ? rs.getString("category") : null;
+
+            groups.merge(period + "/" + category, List.of(rs.getLong("amount_cents"), 1L),
+                    (a, b) -> List.of(a.get(0) + b.get(0), a.get(1) + b.get(1)));
+        }, from.atDay(1).atStartOfDay(), to.plusMonths(1).atDay(1).atStartOfDay());
+        return groups;
+    }
+
+    private long create(String amount, String time, String category) throws Exception {
+        String body = "{\"name\":\"Summary\",\"amount\":" + amount + ",\"time\":\"" + time + "\",\"counterparty\":\"Shop\","
+                + "\"category\":\"" + category + "\"}";
+        String response = mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(response).get("id").asLong();
+    }
+
+}
@@ -0,0 +1,153 @@
+package dev.amiah.budget_tracker.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks the versioned update path: the statements a PUT or PATCH sends to the {@code expense} table, and that
+ * {@code If-Match} turns conflicting writes into 412s.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "dev.amiah.budget_tracker.controller.ExpenseUpdateTests$CapturingInspector")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class ExpenseUpdateTests {
+
+    // Statements on the expense table itself, not expense_rollup
+    private static final Pattern EXPENSE_TABLE = Pattern.compile("\\bexpense\\b(?!_)");
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void patchWithCachedVersionIsOneUpdateOfChangedColumns() throws Exception {
+        long id = createExpense("Coffee", -3);
+        mvc.perform(get("/api/expenses/{id}", id)).andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+
+        CapturingInspector.SQL.clear();
+        mvc.perform(patch("/api/expenses/{id}", id).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"Latte\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.name").value("Latte"))
+                .andExpect(jsonPath("$.amount").value(-3.0));
+
+        List<String> statements = expenseStatements();
+        assertEquals(1, statements.size(), () -> "Expected one statement but got " + statements);
+        String update = statements.getFirst().toLowerCase();
+        // The fingerprint is derived from the name, so it changes with it
+        assertTrue(update.matches("update expense( \\w+)? set name=\\?,fingerprint=\\?,version=\\? where .*"), update);
+    }
+
+    @Test
+    void patchWithoutIfMatchLocksInsteadOfConflicting() throws Exception {
+        long id = createExpense("Rent", -900);
+
+        CapturingInspector.SQL.clear();
+        mvc.perform(patch("/api/expenses/{id}", id).contentType(MediaType.APPLICATION_JSON).content("{\"amount\":-950}"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""));
+
+        List<String> statements = expenseStatements();
+        assertEquals(2, statements.size(), () -> "Expected a locking read and an update but got " + statements);
+        assertTrue(statements.getFirst().toLowerCase().contains("for update"), statements.getFirst());
+    }
+
+    @Test
+    void staleIfMatchIsRejected() throws Exception {
+        long id = createExpense("Groceries", -40);
+
+        mvc.perform(patch("/api/expenses/{id}", id).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":-45}"))
+                .andExpect(status().isCreated());
+        mvc.perform(patch("/api/expenses/{id}", id).header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":-50}"))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(put("/api/expenses/{id}", id).header(HttpHeaders.IF_MATCH, "W/\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Food\",\"amount\":-50,\"category\":\"FOOD\",\"time\":\"2024-01-01T00:00:00\"}"))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(delete("/api/expenses/{id}", id).header(HttpHeaders.IF_MATCH, "\"0\""))
+                .andExpect(status().isPreconditionFailed());
+
+        mvc.perform(get("/api/expenses/{id}", id))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.amount").value(-45.0));
+
+        mvc.perform(delete("/api/expenses/{id}", id).header(HttpHeaders.IF_MATCH, "\"1\""))
+                .andExpect(status().isNoContent());
+        mvc.perform(put("/api/expenses/{id}", id).header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Food\",\"amount\":-50,\"category\":\"FOOD\",\"time\":\"2024-01-01T00:00:00\"}"))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    void totalFollowsUpdates() throws Exception {
+        double total = total();
+        long id = createExpense("Salary", 1000);
+
+        mvc.perform(put("/api/expenses/{id}", id).contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Salary\",\"amount\":1200,\"category\":\"OTHER\",\"time\":\"2024-01-31T00:00:00\"}"))
+                .andExpect(status().isCreated());
+        mvc.perform(patch("/api/expenses/{id}", id).header(HttpHeaders.IF_MATCH, "\"1\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":1250}"))
+                .andExpect(status().isCreated());
+
+        assertEquals(total + 1250, total(), 0.001);
+    }
+
+    private long createExpense(String name, double amount) throws Exception {
+        String body = mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"" + name + "\",\"amount\":" + amount + ",\"category\":\"FOOD\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andReturn().getResponse().getContentAsString();
+
+        return ((Number) JsonPath.read(body, "$.id")).longValue();
+    }
+
+    private double total() throws Exception {
+        String body = mvc.perform(get("/api/expenses/total")).andReturn().getResponse().getContentAsString();
+
+        return ((Number) JsonPath.read(body, "$.total")).doubleValue();
+    }
+
+    private static List<String> expenseStatements() {
+        return CapturingInspector.SQL.stream().filter(sql -> EXPENSE_TABLE.matcher(sql).find()).toList();
+    }
+
+    /**
+     * Records the SQL of every statement Hibernate prepares.
+     */
+    public static class CapturingInspector implements StatementInspector {
+
+        static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SQL.add(sql);
+            return sql;
+        }
+    }
+
+}
@@ -0,0 +1,145 @@
+package dev.amiah.budget_tracker.controller;
+
+import dev.amiah.budget_tracker.config.CacheConfig;
+import dev.amiah.budget_tracker.controller.filter.IdempotencyFilter;
+import dev.amiah.budget_tracker.repository.ExpenseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that requests with an {@code Idempotency-Key} create their expenses once, that retries get the original
+ * response whether or not it is still cached, and that keys can't be reused for a different request.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class IdempotencyTests {
+
+    private static final String EXPENSE = "{\"name\":\"Rent\",\"amount\":-900,\"counterparty\":\"Landlord\",\"category\":\"HOUSING\"}";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ExpenseRepository repository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void retryReturnsOriginalResponseWithoutCreatingAgain() throws Exception {
+        String key = UUID.randomUUID().toString();
+        long before = repository.count();
+
+        MvcResult first = mvc.perform(create("/api/expenses", key, EXPENSE))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.IDEMPOTENT_REPLAYED))
+                .andReturn();
+
+        MvcResult retry = mvc.perform(create("/api/expenses", key, EXPENSE))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyFilter.IDEMPOTENT_REPLAYED, "true"))
+                .andReturn();
+        assertSameResponse(first, retry);
+
+        // Once it has left the cache, from the table
+        cacheManager.getCache(CacheConfig.IDEMPOTENCY_KEYS).clear();
+        MvcResult stored = mvc.perform(create("/api/expenses", key, EXPENSE))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(IdempotencyFilter.IDEMPOTENT_REPLAYED, "true"))
+                .andReturn();
+        assertSameResponse(first, stored);
+
+        assertEquals(before + 1, repository.count());
+    }
+
+    @Test
+    void batchRetryIsReplayed() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String batch = "[" + EXPENSE + "," + EXPENSE + ",{\"name\":\"No amount\",\"category\":\"FOOD\"}]";
+        long before = repository.count();
+
+        MvcResult first = mvc.perform(create("/api/expenses/batch", key, batch)).andExpect(status().isOk()).andReturn();
+        MvcResult retry = mvc.perform(create("/api/expenses/batch", key, batch))
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyFilter.IDEMPOTENT_REPLAYED, "true"))
+                .andReturn();
+
+        assertSameResponse(first, retry);
+        assertEquals(before + 2, repository.count());
+    }
+
+    @Test
+    void keyCantBeReusedForDifferentRequest() throws Exception {
+        String key = UUID.randomUUID().toString();
+        mvc.perform(create("/api/expenses", key, EXPENSE)).andExpect(status().isCreated());
+        long before = repository.count();
+
+        mvc.perform(create("/api/expenses", key, EXPENSE.replace("-900", "-950"))).andExpect(status().isUnprocessableEntity());
+        mvc.perform(create("/api/expenses/batch", key, "[" + EXPENSE + "]")).andExpect(status().isUnprocessableEntity());
+
+        assertEquals(before, repository.count());
+    }
+
+    @Test
+    void failedRequestIsNotRememberedAndRollsBack() throws Exception {
+        String key = UUID.randomUUID().toString();
+        long before = repository.count();
+
+        mvc.perform(create("/api/expenses", key, "{\"name\":")).andExpect(status().isBadRequest());
+        // The same key can then be used once the request is fixed
+        mvc.perform(create("/api/expenses", key, EXPENSE))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+
+        assertEquals(before + 1, repository.count());
+    }
+
+    @Test
+    void constraintViolationOfRequestIsNotTakenForKeyInUse() throws Exception {
+        String key = UUID.randomUUID().toString();
+        String tooLong = EXPENSE.replace("Rent", "r".repeat(300));
+
+        // Fails as the expense is inserted, after the key was claimed, and must not be reported as a 409
+        assertThrows(DataIntegrityViolationException.class, () -> mvc.perform(create("/api/expenses", key, tooLong)));
+
+        mvc.perform(create("/api/expenses", key, EXPENSE))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist(IdempotencyFilter.IDEMPOTENT_REPLAYED));
+    }
+
+    @Test
+    void invalidKeyIsRejected() throws Exception {
+        mvc.perform(create("/api/expenses", " ", EXPENSE)).andExpect(status().isBadRequest());
+        mvc.perform(create("/api/expenses", "k".repeat(256), EXPENSE)).andExpect(status().isBadRequest());
+    }
+
+    private static MockHttpServletRequestBuilder create(String uri, String key, String body) {
+        return post(uri).header(IdempotencyFilter.IDEMPOTENCY_KEY, key).contentType(MediaType.APPLICATION_JSON).content(body);
+    }
+
+    private static void assertSameResponse(MvcResult expected, MvcResult actual) throws Exception {
+        assertEquals(expected.getResponse().getContentAsString(), actual.getResponse().getContentAsString());
+        assertEquals(expected.getResponse().getHeader(HttpHeaders.LOCATION), actual.getResponse().getHeader(HttpHeaders.LOCATION));
+        assertEquals(expected.getResponse().getContentType(), actual.getResponse().getContentType());
+    }
+
+}
@@ -0,0 +1,167 @@
+package dev.amiah.budget_tracker.controller;
+
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import dev.amiah.budget_tracker.repository.ExpenseRepository;
+import dev.amiah.budget_tracker.service.ingest.ExpenseIngestService;
+import dev.amiah.budget_tracker.service.ingest.WriteAheadLog;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that {@code /api/expenses/ingest} acknowledges valid expenses and saves them in the background, that
+ * expenses left in the write-ahead log by an earlier run are saved on startup, and that requests in the log which
+ * can never be saved are dead-lettered rather than holding up the rest.
+ */
+@SpringBootTest(properties = {"budget-tracker.ingest.enabled=true", "budget-tracker.ingest.batch-size=2"})
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class IngestTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ExpenseRepository repository;
+
+    @Autowired
+    private ExpenseIngestService ingestService;
+
+    private static Path walDirectory;
+
+    /**
+     * Starts with a log that an earlier run accepted but didn't save, including requests that can never be saved.
+     */
+    @DynamicPropertySource
+    static void walDirectory(DynamicPropertyRegistry registry) throws Exception {
+        walDirectory = Files.createTempDirectory("ingest-wal");
+        try (WriteAheadLog wal = new WriteAheadLog(walDirectory, 1024)) {
+            append(wal, "[" + expense("Replayed") + "]");
+            append(wal, "not json");
+            // Accepted before names were limited in length
+            append(wal, "[" + expense("x".repeat(Expense.MAX_TEXT_LENGTH + 1)) + "]");
+            // H2 counts UTF-16 units where MySQL counts characters, so this gets past validation but not the column
+            append(wal, "[" + expense("\uD83D\uDCB8".repeat(200)) + "]");
+            append(wal, "[" + expense("After dead letters") + "]");
+        }
+        registry.add("budget-tracker.ingest.wal-dir", walDirectory::toString);
+    }
+
+    @Test
+    void replaysLogFromEarlierRun() throws Exception {
+        List<Expense> replayed = awaitExpenses("Replayed", 1);
+
+        assertEquals(Money.parse("-12.5"), replayed.getFirst().getAmount());
+        assertEquals(LocalDateTime.of(2024, 5, 1, 8, 30), replayed.getFirst().getTime());
+    }
+
+    @Test
+    void deadLettersRequestsThatCanNeverBeSaved() throws Exception {
+        awaitExpenses("After dead letters", 1);
+
+        List<String> deadLetters = Files.readAllLines(walDirectory.resolve("dead-letter.ndjson"));
+        assertEquals(3, deadLetters.size());
+        assertTrue(deadLetters.get(1).contains("Name is longer than 255 characters"), deadLetters.get(1));
+        assertEquals(3, ingestService.getStatus().deadLettered());
+    }
+
+    @Test
+    void acceptsValidExpensesAndSavesThemInBackground() throws Exception {
+        String expense = "{\"name\":\"Ingested\",\"amount\":-3.5,\"counterparty\":\"Cafe\",\"category\":\"FOOD\"}";
+
+        mvc.perform(post("/api/expenses/ingest").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + expense + ",{\"name\":\"No amount\",\"category\":\"FOOD\"}," + expense + "," + expense + "]"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$._embedded.batchItemResultList[0].status").value("ACCEPTED"))
+                .andExpect(jsonPath("$._embedded.batchItemResultList[1].status").value("REJECTED"))
+                .andExpect(jsonPath("$._embedded.batchItemResultList[1].error").value("Amount is required"))
+                .andExpect(jsonPath("$._embedded.batchItemResultList[3].status").value("ACCEPTED"))
+                .andExpect(jsonPath("$._links.status.href").exists());
+
+        List<Expense> saved = awaitExpenses("Ingested", 3);
+        // Accepted expenses without a time get the time they were accepted
+        saved.forEach(e -> assertNotNull(e.getTime()));
+
+        awaitApplied();
+        mvc.perform(get("/api/expenses/ingest"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.running").value(true))
+                .andExpect(jsonPath("$.applied").value(ingestService.getStatus().appended()));
+    }
+
+    @Test
+    void rejectsTextLongerThanColumns() throws Exception {
+        String longest = "x".repeat(Expense.MAX_TEXT_LENGTH);
+
+        mvc.perform(post("/api/expenses/ingest").contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\":\"" + longest + "\",\"amount\":-1,\"category\":\"FOOD\"},"
+                                + "{\"name\":\"" + longest + "y\",\"amount\":-1,\"category\":\"FOOD\"},"
+                                + "{\"name\":\"Ok\",\"amount\":-1,\"counterparty\":\"" + longest + "y\",\"category\":\"FOOD\"}]"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$._embedded.batchItemResultList[0].status").value("ACCEPTED"))
+                .andExpect(jsonPath("$._embedded.batchItemResultList[1].error").value("Name is longer than 255 characters"))
+                .andExpect(jsonPath("$._embedded.batchItemResultList[2].error").value("Counterparty is longer than 255 characters"));
+
+        awaitExpenses(longest, 1);
+    }
+
+    private static void append(WriteAheadLog wal, String payload) {
+        wal.append(payload.getBytes(StandardCharsets.UTF_8)).join();
+    }
+
+    private static String expense(String name) {
+        return "{\"name\":\"" + name + "\",\"amount\":-12.5,\"time\":\"2024-05-01T08:30:00\","
+                + "\"counterparty\":\"Shop\",\"category\":\"FOOD\"}";
+    }
+
+    private List<Expense> awaitExpenses(String name, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        List<Expense> found;
+
+        while ((found = repository.findAll().stream().filter(e -> name.equals(e.getName())).toList()).size() < count) {
+            if (System.nanoTime() > deadline) {
+                fail("Only " + found.size() + " of " + count + " expenses named " + name + " were saved");
+            }
+            Thread.sleep(20);
+        }
+        assertEquals(count, found.size());
+        return found;
+    }
+
+    private void awaitApplied() throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+
+        while (!Long.valueOf(ingestService.getStatus().appended()).equals(ingestService.getStatus().applied())) {
+            if (System.nanoTime() > deadline) {
+                fail("Ingest did not catch up: " + ingestService.getStatus());
+            }
+            Thread.sleep(20);
+        }
+    }
+
+}
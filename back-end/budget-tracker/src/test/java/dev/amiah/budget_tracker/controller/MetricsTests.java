@@ -0,0 +1,54 @@
+package dev.amiah.budget_tracker.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that the endpoint, repository, Hibernate, and connection pool metrics are exported for Prometheus, with
+ * histograms where percentiles are needed.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("h2")
+class MetricsTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void prometheusExportsRequestRepositoryHibernateAndPoolMetrics() throws Exception {
+        mvc.perform(get("/api/expenses/paged")).andExpect(status().isOk());
+        mvc.perform(get("/api/user-preference")).andExpect(status().isOk());
+
+        String metrics = mvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertExported(metrics, "http_server_requests_seconds_bucket\\{.*uri=\"/api/expenses/paged\".*le=");
+        assertExported(metrics, "http_server_requests_seconds_bucket\\{.*uri=\"/api/user-preference\".*le=");
+        // Read by BalanceLedger at startup
+        assertExported(metrics, "spring_data_repository_invocations_seconds_bucket\\{.*method=\"getTotalBalance\".*repository=\"ExpenseRepository\".*le=");
+        assertExported(metrics, "hibernate_statements_total\\{");
+        assertExported(metrics, "hibernate_entities_loads_total\\{");
+        assertExported(metrics, "hibernate_flushes_total\\{");
+        assertExported(metrics, "hikaricp_connections_pending\\{");
+        assertExported(metrics, "hikaricp_connections_acquire_seconds_bucket\\{");
+    }
+
+    private static void assertExported(String metrics, String line) {
+        assertTrue(Pattern.compile("^" + line, Pattern.MULTILINE).matcher(metrics).find(), "No metric matching " + line);
+    }
+
+}
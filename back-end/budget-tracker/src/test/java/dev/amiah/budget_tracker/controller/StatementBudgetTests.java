@@ -0,0 +1,154 @@
+package dev.amiah.budget_tracker.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import dev.amiah.budget_tracker.StatementCounter;
+import dev.amiah.budget_tracker.controller.filter.IdempotencyFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Locks in how many statements each endpoint of {@link ExpenseController} and {@link UserPreferenceController}
+ * sends to the database, so that a change adding a round trip to a request, such as a SELECT before an update or
+ * a query per item, fails here. When a budget changes on purpose, update it together with the reason.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+@Import(StatementCounter.class)
+class StatementBudgetTests {
+
+    private static final String EXPENSE = "{\"name\":\"Coffee\",\"amount\":-3.5,\"counterparty\":\"Starbucks\","
+            + "\"category\":\"FOOD\",\"time\":\"2024-05-01T08:30:00\"}";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private StatementCounter counter;
+
+    private long id;
+
+    @BeforeEach
+    void createExpenses() throws Exception {
+        // More than a page of size 2, so paged reads need their count
+        for (int i = 0; i < 3; i++) {
+            id = idOf(mvc.perform(post("/api/expenses").contentType(MediaType.APPLICATION_JSON).content(EXPENSE))
+                    .andExpect(status().isCreated()).andReturn());
+        }
+    }
+
+    @Test
+    void reads() throws Exception {
+        // The page, and the count for its total
+        assertStatements(2, get("/api/expenses/paged?page=0&size=2"));
+        assertStatements(2, get("/api/expenses/paged?page=0&size=2&category=FOOD&type=expense"));
+        // No count when the first page holds everything, since the total is its size
+        assertStatements(1, get("/api/expenses/paged?page=0&size=1000"));
+        assertStatements(1, get("/api/expenses/paged?cursor=&size=2"));
+        assertStatements(1, get("/api/expenses"));
+        assertStatements(1, get("/api/expenses/total"));
+        assertStatements(1, get("/api/expenses/summary?groupBy=category,month"));
+        assertStatements(1, get("/api/expenses/search?q=coffee"));
+        // Answered from the daily balances in memory
+        assertStatements(0, get("/api/expenses/balance-series?from=2024-01-01&to=2024-12-31&bucket=week"));
+        // The head of the log, the entries, every changed expense in one query, and the total
+        assertStatements(4, get("/api/expenses/changes?since=0"));
+    }
+
+    @Test
+    void readOneIsCached() throws Exception {
+        assertStatements(1, get("/api/expenses/{id}", id));
+        assertStatements(0, get("/api/expenses/{id}", id));
+    }
+
+    @Test
+    void export() throws Exception {
+        counter.reset();
+        MvcResult result = mvc.perform(get("/api/expenses/export")).andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+        assertEquals(1, counter.statements().size(), counter.statements()::toString);
+    }
+
+    @Test
+    void writes() throws Exception {
+        // The insert, the balance, the rollup, and the change log's head, entry, and new last seq
+        assertStatements(6, post("/api/expenses").contentType(MediaType.APPLICATION_JSON).content(EXPENSE));
+        // The same for any number of expenses, as batches
+        assertStatements(6, post("/api/expenses/batch").contentType(MediaType.APPLICATION_JSON)
+                .content("[" + EXPENSE + "," + EXPENSE + "," + EXPENSE + "]"));
+        // Without If-Match the expense is read and locked, then updated with one versioned UPDATE
+        assertStatements(7, put("/api/expenses/{id}", id).contentType(MediaType.APPLICATION_JSON)
+                .content(EXPENSE.replace("-3.5", "-5")));
+        assertStatements(7, patch("/api/expenses/{id}", id).contentType(MediaType.APPLICATION_JSON).content("{\"amount\":-4}"));
+        assertStatements(7, delete("/api/expenses/{id}", id));
+        // The key is inserted first and its response stored before commit, and a retry is answered from the cache
+        assertStatements(8, post("/api/expenses").header(IdempotencyFilter.IDEMPOTENCY_KEY, "budget-" + id)
+                .contentType(MediaType.APPLICATION_JSON).content(EXPENSE));
+        assertStatements(0, post("/api/expenses").header(IdempotencyFilter.IDEMPOTENCY_KEY, "budget-" + id)
+                .contentType(MediaType.APPLICATION_JSON).content(EXPENSE));
+        // The delete, the sums, and the new rollups as one batch however many there are
+        assertStatements(3, post("/api/expenses/summary/rebuild"));
+    }
+
+    @Test
+    void updateOfCachedVersionSkipsTheRead() throws Exception {
+        String eTag = mvc.perform(get("/api/expenses/{id}", id)).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertStatements(6, patch("/api/expenses/{id}", id).header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"amount\":-4}"));
+    }
+
+    @Test
+    void userPreferences() throws Exception {
+        long preference = idOf(mvc.perform(post("/api/user-preference").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"datePattern\":\"DAY_MONTH_YEAR\",\"dateSeparator\":\"SLASH\"}"))
+                .andExpect(status().isCreated()).andReturn());
+
+        // Read through the caches, so only the first read of each goes to the database
+        assertStatements(1, get("/api/user-preference"));
+        assertStatements(0, get("/api/user-preference"));
+        assertStatements(1, get("/api/user-preference/{id}", preference));
+        assertStatements(0, get("/api/user-preference/{id}", preference));
+        // Only the page, with the preference from the cache
+        assertStatements(1, get("/api/expenses/paged?cursor=&size=2&preference=" + preference));
+        assertStatements(2, put("/api/user-preference/{id}", preference).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"datePattern\":\"YEAR_MONTH_DAY\",\"dateSeparator\":\"HYPHEN\"}"));
+        assertStatements(2, delete("/api/user-preference/{id}", preference));
+        assertStatements(1, post("/api/user-preference").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"datePattern\":\"DAY_MONTH_YEAR\",\"dateSeparator\":\"DOT\"}"));
+    }
+
+    /**
+     * Sends {@code request} and checks that it executed exactly {@code budget} statements.
+     */
+    private void assertStatements(int budget, RequestBuilder request) throws Exception {
+        counter.reset();
+        mvc.perform(request).andExpect(status().is2xxSuccessful());
+
+        List<String> statements = counter.statements();
+        assertEquals(budget, statements.size(), () -> "Statements:\n" + String.join("\n", statements));
+    }
+
+    private static long idOf(MvcResult result) throws Exception {
+        return ((Number) JsonPath.read(result.getResponse().getContentAsString(), "$.id")).longValue();
+    }
+
+}
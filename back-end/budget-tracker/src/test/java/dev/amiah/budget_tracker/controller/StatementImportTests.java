@@ -0,0 +1,198 @@
+package dev.amiah.budget_tracker.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.amiah.budget_tracker.model.ImportColumnMapping;
+import dev.amiah.budget_tracker.model.ImportJob;
+import dev.amiah.budget_tracker.model.data_type.ImportFormat;
+import dev.amiah.budget_tracker.model.data_type.ImportStatus;
+import dev.amiah.budget_tracker.repository.ExpenseRepository;
+import dev.amiah.budget_tracker.repository.ImportJobRepository;
+import dev.amiah.budget_tracker.service.ExpenseDuplicateService;
+import dev.amiah.budget_tracker.service.statement.StatementImportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that an import which fails partway keeps only the progress it committed, that resuming it imports every
+ * record exactly once even when it is resumed several times at once, and that imports stopped by a shutdown can be
+ * resumed. Imports run in chunks of two records here, so a short statement spans several.
+ */
+@SpringBootTest(properties = "budget-tracker.import.chunk-size=2")
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+class StatementImportTests {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ExpenseRepository repository;
+
+    @Autowired
+    private ExpenseDuplicateService duplicateService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StatementImportService importService;
+
+    @MockitoSpyBean
+    private ImportJobRepository jobRepository;
+
+    @Test
+    void resumeAfterFailedChunkImportsEveryRecordOnce() throws Exception {
+        String name = "Resumed " + UUID.randomUUID();
+        StringBuilder csv = new StringBuilder("name,amount,time,counterparty,category\n");
+        for (int i = 1; i <= 7; i++) {
+            csv.append(name).append(" #").append(i).append(",-").append(i).append(",2024-05-0").append(i).append(",Shop,FOOD\n");
+        }
+        csv.append("Broken,abc,2024-05-08,Shop,FOOD\n");
+
+        // The second chunk fails as its progress is saved, after its expenses were inserted and the job updated.
+        // Once the job has failed it has an error, so the resumed import saves the same chunk normally.
+        doThrow(new QueryTimeoutException("Simulated timeout")).when(jobRepository).save(argThat(job ->
+                job.getStatus() == ImportStatus.RUNNING && job.getRecordsCommitted() == 4 && job.getLastError() == null));
+
+        awaitFilter();
+        MockMultipartFile file = new MockMultipartFile("file", "statement.csv", "text/csv",
+                csv.toString().getBytes(StandardCharsets.UTF_8));
+        long id = objectMapper.readTree(mvc.perform(multipart("/api/imports").file(file))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+
+        JsonNode failed = await(id, "FAILED");
+        assertEquals(2, failed.get("recordsCommitted").asLong());
+        assertEquals(2, failed.get("recordsImported").asLong());
+        assertEquals("Simulated timeout", failed.get("lastError").asText());
+
+        mvc.perform(post("/api/imports/{id}/resume", id)).andExpect(status().is2xxSuccessful());
+
+        JsonNode completed = await(id, "COMPLETED");
+        assertEquals(8, completed.get("recordsCommitted").asLong());
+        assertEquals(7, completed.get("recordsImported").asLong());
+        assertEquals(1, completed.get("recordsRejected").asLong());
+        assertEquals(0, completed.get("recordsDuplicate").asLong());
+
+        for (int i = 1; i <= 7; i++) {
+            String recordName = name + " #" + i;
+            assertEquals(1, repository.findAll().stream().filter(e -> recordName.equals(e.getName())).count(), recordName);
+        }
+    }
+
+    @Test
+    void concurrentResumesRunImportOnce() throws Exception {
+        String name = "Raced " + UUID.randomUUID();
+        StringBuilder csv = new StringBuilder("name,amount,time,counterparty,category\n");
+        for (int i = 1; i <= 5; i++) {
+            csv.append(name).append(" #").append(i).append(",-").append(i).append(",2024-06-0").append(i).append(",Shop,FOOD\n");
+        }
+        doThrow(new QueryTimeoutException("Simulated timeout")).when(jobRepository).save(argThat(job ->
+                job.getStatus() == ImportStatus.RUNNING && job.getRecordsCommitted() == 2 && job.getLastError() == null
+                        && name.equals(job.getFileName())));
+
+        awaitFilter();
+        MockMultipartFile file = new MockMultipartFile("file", name, "text/csv", csv.toString().getBytes(StandardCharsets.UTF_8));
+        long id = objectMapper.readTree(mvc.perform(multipart("/api/imports").file(file))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getContentAsString()).get("id").asLong();
+        await(id, "FAILED");
+
+        int requests = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Integer> statuses = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(requests)) {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return mvc.perform(post("/api/imports/{id}/resume", id)).andReturn().getResponse().getStatus();
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                statuses.add(future.get());
+            }
+        }
+        assertEquals(1, statuses.stream().filter(status -> status < 300).count(), statuses.toString());
+        assertEquals(requests - 1, statuses.stream().filter(status -> status == 409).count(), statuses.toString());
+
+        JsonNode completed = await(id, "COMPLETED");
+        assertEquals(5, completed.get("recordsImported").asLong());
+        assertEquals(0, completed.get("recordsDuplicate").asLong());
+        for (int i = 1; i <= 5; i++) {
+            String recordName = name + " #" + i;
+            assertEquals(1, repository.findAll().stream().filter(e -> recordName.equals(e.getName())).count(), recordName);
+        }
+    }
+
+    @Test
+    void importsLeftPendingAtShutdownCanBeResumed() throws Exception {
+        ImportJob job = new ImportJob("pending.csv", ImportFormat.CSV, new ImportColumnMapping());
+        job.setSpoolPath("pending.csv");
+        long id = jobRepository.save(job).getId();
+
+        importService.markInterruptedImports();
+
+        mvc.perform(get("/api/imports/{id}", id))
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.lastError").value("Interrupted by application shutdown"))
+                .andExpect(jsonPath("$._links.resume").exists());
+    }
+
+    private JsonNode await(long id, String status) throws Exception {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (true) {
+            JsonNode job = objectMapper.readTree(mvc.perform(get("/api/imports/{id}", id))
+                    .andReturn().getResponse().getContentAsString());
+            if (job.get("status").asText().equals(status)) {
+                return job;
+            }
+            if (System.nanoTime() > deadline) {
+                fail("Import did not become " + status + ": " + job);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private void awaitFilter() throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!duplicateService.isFilterReady()) {
+            if (System.nanoTime() > deadline) {
+                fail("Duplicate filter was not built");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+}
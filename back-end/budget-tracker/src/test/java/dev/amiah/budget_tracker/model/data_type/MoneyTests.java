@@ -0,0 +1,50 @@
+package dev.amiah.budget_tracker.model.data_type;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that {@link Money} is exact to the cent and keeps amounts the same plain numbers in JSON as before.
+ */
+class MoneyTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void addingTenthsDoesNotDrift() {
+        Money total = Money.ZERO;
+        for (int i = 0; i < 1_000_000; i++) {
+            total = total.plus(Money.parse("0.1"));
+        }
+        assertEquals(Money.ofCents(10_000_000), total);
+    }
+
+    @Test
+    void roundsFractionsOfACentHalfUp() {
+        assertEquals(Money.ofCents(1235), Money.parse("12.345"));
+        assertEquals(Money.ofCents(-1235), Money.parse("-12.345"));
+        assertEquals(Money.ofCents(1234), Money.parse("12.3449"));
+    }
+
+    @Test
+    void keepsJsonShape() throws Exception {
+        assertEquals("-3.5", objectMapper.writeValueAsString(Money.parse("-3.50")));
+        assertEquals("12.0", objectMapper.writeValueAsString(Money.ofCents(1200)));
+        assertEquals("0.3", objectMapper.writeValueAsString(Money.parse("0.1").plus(Money.parse("0.2"))));
+
+        assertEquals(Money.ofCents(-350), objectMapper.readValue("-3.5", Money.class));
+        assertEquals(Money.ofCents(1200), objectMapper.readValue("12", Money.class));
+    }
+
+    @Test
+    void rejectsAmountsThatDoNotFit() {
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e30")));
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1)));
+    }
+
+}
@@ -0,0 +1,136 @@
+package dev.amiah.budget_tracker.repository;
+
+import dev.amiah.budget_tracker.dto.ExpenseFilter;
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.ExpenseType;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that each filter on {@code /api/expenses/paged} is answered from its index. The SQL Hibernate generates
+ * for each filter is captured and run through H2's {@code EXPLAIN}, and the plan has to name the index.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "dev.amiah.budget_tracker.repository.ExpenseQueryPlanTests$CapturingInspector")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2")
+class ExpenseQueryPlanTests {
+
+    @Autowired
+    private ExpenseRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clearCapturedSql() {
+        CapturingInspector.SQL.clear();
+    }
+
+    @Test
+    void timeRangeUsesTimeIndex() {
+        assertPlanUses("idx_expense_time_id",
+                new ExpenseFilter(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), null, null, null));
+    }
+
+    @Test
+    void categoryUsesCategoryIndex() {
+        assertPlanUses("idx_expense_category_time",
+                new ExpenseFilter(null, null, List.of(ExpenseCategory.FOOD), null, null));
+    }
+
+    @Test
+    void categoryAndTimeRangeUsesCategoryIndex() {
+        assertPlanUses("idx_expense_category_time",
+                new ExpenseFilter(LocalDate.of(2024, 1, 1), null, List.of(ExpenseCategory.FOOD, ExpenseCategory.HOUSING), null, null));
+    }
+
+    @Test
+    void counterpartyUsesCounterpartyIndex() {
+        // H2 only turns a LIKE into an index range once it knows the pattern, so bind it
+        assertPlanUses("idx_expense_counterparty_time",
+                new ExpenseFilter(null, null, null, null, "Grocer"), "Grocer%");
+    }
+
+    @Test
+    void typeReadsTimeIndexInOrder() {
+        // A sign matches about half of all expenses, so it is checked on each row of the time index
+        assertPlanUses("idx_expense_time_id",
+                new ExpenseFilter(null, null, null, ExpenseType.INCOME, null));
+        assertPlanUses("idx_expense_time_id",
+                new ExpenseFilter(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), null, ExpenseType.EXPENSE, null));
+    }
+
+    @Test
+    void keysetPageUsesCategoryIndex() {
+        repository.scrollMatching(new ExpenseFilter(null, null, List.of(ExpenseCategory.FOOD), null, null),
+                ScrollPosition.keyset(), Limit.of(20));
+
+        String plan = explain(CapturingInspector.SQL.getLast());
+        assertTrue(plan.contains("idx_expense_category_time"), () -> "Expected the category index but got:\n" + plan);
+    }
+
+    private void assertPlanUses(String index, ExpenseFilter filter, Object... parameters) {
+        repository.findAllMatching(filter, PageRequest.of(0, 20));
+
+        // The page query comes before the count query
+        String plan = explain(CapturingInspector.SQL.getFirst(), parameters);
+        assertTrue(plan.contains(index), () -> "Expected a plan using " + index + " but got:\n" + plan);
+    }
+
+    /**
+     * @param parameters Values for the first parameters of {@code sql}. The rest are left unbound, and H2 plans
+     *                   the query without their values.
+     */
+    private String explain(String sql, Object... parameters) {
+        return jdbcTemplate.execute((Connection connection) -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+                return planOf(statement);
+            }
+        });
+    }
+
+    private static String planOf(PreparedStatement statement) throws SQLException {
+        try (ResultSet plan = statement.executeQuery()) {
+            plan.next();
+            return plan.getString(1).toLowerCase();
+        }
+    }
+
+    /**
+     * Records the SQL of every statement Hibernate prepares.
+     */
+    public static class CapturingInspector implements StatementInspector {
+
+        static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SQL.add(sql);
+            return sql;
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+package dev.amiah.budget_tracker.service.balance;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that {@link DailyBalances} adds up expenses by day, replaces an expense when it is put again, and agrees
+ * with summing every expense after any mix of writes to past and future days.
+ */
+class DailyBalancesTests {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 10, 12, 0);
+
+    private final DailyBalances balances = new DailyBalances();
+
+    @Test
+    void sumsExpensesOnOrBeforeEachDay() {
+        balances.put(1, START, -350);
+        balances.put(2, START.plusDays(2), 10_000);
+        balances.put(3, START.plusDays(2).plusHours(11), -1_250);
+
+        LocalDate day = START.toLocalDate();
+        assertArrayEquals(new long[] {0, -350, -350, 8_400, 8_400},
+                balances.balancesAt(day.minusDays(1), day, day.plusDays(1), day.plusDays(2), day.plusYears(50)));
+    }
+
+    @Test
+    void putReplacesEarlierAmountAndDay() {
+        balances.put(1, START, -350);
+        balances.put(1, START.plusDays(1), -400);
+        balances.put(1, START.plusDays(1), -400);
+
+        LocalDate day = START.toLocalDate();
+        assertArrayEquals(new long[] {0, -400}, balances.balancesAt(day, day.plusDays(1)));
+        assertEquals(1, balances.size());
+    }
+
+    @Test
+    void leavesOutUndatedAndRemovedExpenses() {
+        balances.put(1, START, -350);
+        balances.put(2, null, 5_000);
+        balances.put(3, START, 700);
+        balances.remove(3);
+        // Losing its time takes an expense out of every day
+        balances.put(1, null, -350);
+
+        assertArrayEquals(new long[] {0}, balances.balancesAt(START.toLocalDate()));
+        assertEquals(0, balances.size());
+    }
+
+    @Test
+    void agreesWithSummingEveryExpense() {
+        SplittableRandom random = new SplittableRandom(1);
+        Map<Long, LocalDateTime> times = new HashMap<>();
+        Map<Long, Long> amounts = new HashMap<>();
+
+        for (int step = 0; step < 20_000; step++) {
+            long id = random.nextLong(500);
+            if (random.nextInt(10) == 0) {
+                balances.remove(id);
+                times.remove(id);
+                amounts.remove(id);
+            }
+            else {
+                // Spread over decades in both directions, so the arrays grow at both ends
+                LocalDateTime time = START.plusDays(random.nextInt(-20_000, 20_000));
+                long cents = random.nextLong(-100_000, 100_000);
+                balances.put(id, time, cents);
+                times.put(id, time);
+                amounts.put(id, cents);
+            }
+
+            if (step % 100 == 0) {
+                LocalDate day = START.toLocalDate().plusDays(random.nextInt(-25_000, 25_000));
+                long expected = times.entrySet().stream()
+                        .filter(entry -> !entry.getValue().toLocalDate().isAfter(day))
+                        .mapToLong(entry -> amounts.get(entry.getKey()))
+                        .sum();
+                assertEquals(expected, balances.balancesAt(day)[0], "Balance at " + day);
+            }
+        }
+    }
+
+    @Test
+    void clampsDaysOutsideSupportedYears() {
+        balances.put(1, LocalDateTime.of(-5, 1, 1, 0, 0), 100);
+        balances.put(2, LocalDateTime.of(1, 1, 1, 0, 0), 200);
+        balances.put(3, LocalDateTime.of(9999, 12, 31, 23, 59), 300);
+
+        assertArrayEquals(new long[] {0, 200, 200, 500},
+                balances.balancesAt(LocalDate.of(0, 12, 31), LocalDate.of(1, 1, 1), LocalDate.of(9999, 12, 30),
+                        LocalDate.of(20_000, 1, 1)));
+        assertEquals(2, balances.size());
+    }
+
+}
@@ -0,0 +1,60 @@
+package dev.amiah.budget_tracker.service.duplicate;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link BloomFilter} never forgets a key, and stays close to the false positive rate it was sized for.
+ */
+class BloomFilterTests {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void containsEveryAddedKey() {
+        BloomFilter filter = new BloomFilter(KEYS, 0.01);
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < KEYS; i++) {
+            filter.add(random.nextLong());
+        }
+
+        random = new SplittableRandom(1);
+        for (int i = 0; i < KEYS; i++) {
+            assertTrue(filter.mightContain(random.nextLong()));
+        }
+    }
+
+    @Test
+    void falsePositiveRateIsNearTarget() {
+        BloomFilter filter = new BloomFilter(KEYS, 0.01);
+        // Consecutive keys, which a poorly mixed hash would cluster
+        for (long key = 0; key < KEYS; key++) {
+            filter.add(key);
+        }
+
+        int falsePositives = 0;
+        for (long key = KEYS; key < 2 * KEYS; key++) {
+            if (filter.mightContain(key)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < KEYS * 0.015, falsePositives + " false positives");
+    }
+
+    @Test
+    void reportsWhenOverCapacity() {
+        BloomFilter filter = new BloomFilter(10, 0.01);
+        for (long key = 0; key < 10; key++) {
+            filter.add(key);
+        }
+        assertFalse(filter.isOverCapacity());
+
+        filter.add(10);
+        assertTrue(filter.isOverCapacity());
+    }
+
+}
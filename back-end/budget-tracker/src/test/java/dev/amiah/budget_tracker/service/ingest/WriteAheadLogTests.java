@@ -0,0 +1,201 @@
+package dev.amiah.budget_tracker.service.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link WriteAheadLog} reads back what was appended across segments and restarts, cuts off a torn
+ * record at its end, cuts off a failed write before the next one, and only deletes segments that were fully applied.
+ */
+class WriteAheadLogTests {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void readsBackAppendsInOrderAcrossSegmentsAndRestarts() throws Exception {
+        String id;
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 64)) {
+            id = wal.getId();
+            List<CompletableFuture<Long>> appends = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                appends.add(wal.append(bytes("record " + i)));
+            }
+            appends.forEach(CompletableFuture::join);
+            assertEquals(appends.getLast().join(), wal.getDurablePosition());
+        }
+        assertTrue(segmentFiles().size() > 1);
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 64)) {
+            assertEquals(id, wal.getId());
+            wal.append(bytes("record 20")).join();
+
+            List<String> read = new ArrayList<>();
+            long position = wal.getStartPosition();
+            List<WriteAheadLog.Record> records;
+            while (!(records = wal.read(position, 3)).isEmpty()) {
+                for (WriteAheadLog.Record record : records) {
+                    read.add(new String(record.payload(), StandardCharsets.UTF_8));
+                    position = record.end();
+                }
+            }
+
+            assertEquals(21, read.size());
+            for (int i = 0; i < read.size(); i++) {
+                assertEquals("record " + i, read.get(i));
+            }
+            assertEquals(wal.getDurablePosition(), position);
+        }
+    }
+
+    @Test
+    void cutsOffTornRecordOnOpen() throws Exception {
+        long end;
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 1024)) {
+            wal.append(bytes("complete")).join();
+            end = wal.append(bytes("also complete")).join();
+        }
+
+        // The start of a record whose write was cut short
+        Path segment = segmentFiles().getLast();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 100, 1, 2, 3, 4, 'x'}));
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 1024)) {
+            assertEquals(end, wal.getDurablePosition());
+            assertEquals(end, Files.size(segment));
+            assertEquals(2, wal.read(0, 10).size());
+
+            long next = wal.append(bytes("after restart")).join();
+            assertEquals("after restart", new String(wal.read(end, 10).getFirst().payload(), StandardCharsets.UTF_8));
+            assertEquals(next, wal.getDurablePosition());
+        }
+    }
+
+    @Test
+    void deletesOnlyAppliedSegmentsAndKeepsTheNewest() throws Exception {
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 16)) {
+            long first = wal.append(new byte[16]).join();
+            long second = wal.append(new byte[16]).join();
+            wal.append(new byte[16]).join();
+            assertEquals(3, segmentFiles().size());
+
+            wal.deleteThrough(first);
+            assertEquals(2, segmentFiles().size());
+            assertEquals(first, wal.getStartPosition());
+            assertThrows(IOException.class, () -> wal.read(0, 1));
+
+            wal.deleteThrough(wal.getDurablePosition());
+            assertEquals(1, segmentFiles().size());
+            assertEquals(second, wal.getStartPosition());
+        }
+
+        // Positions carry on from the newest segment
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 16)) {
+            assertEquals(2 * (16 + 8), wal.getStartPosition());
+            assertEquals(3 * (16 + 8), wal.getDurablePosition());
+        }
+    }
+
+    @Test
+    void cutsOffFailedWriteBeforeNextAppend() throws Exception {
+        List<String> expected = List.of("record 0", "record 1", "record 2", "record 3", "record 4");
+        try (FaultyLog wal = new FaultyLog(directory, 64)) {
+            for (int i = 0; i < 3; i++) {
+                wal.append(bytes("record " + i)).join();
+            }
+
+            // Fails halfway through a payload, after its header was written
+            wal.writesBeforeFault.set(1);
+            assertThrows(CompletionException.class, () -> wal.append(bytes("lost 1")).join());
+            assertEquals(4 * 16, wal.append(bytes("record 3")).join());
+
+            // Fails in the header of a record that started a new segment, which is emptied again
+            wal.writesBeforeFault.set(0);
+            assertThrows(CompletionException.class, () -> wal.append(bytes("lost 2")).join());
+            assertEquals(2, segmentFiles().size());
+            assertEquals(0, Files.size(segmentFiles().getLast()));
+            assertEquals(5 * 16, wal.append(bytes("record 4")).join());
+
+            assertEquals(expected, readAll(wal));
+        }
+
+        try (WriteAheadLog wal = new WriteAheadLog(directory, 64)) {
+            assertEquals(expected, readAll(wal));
+        }
+    }
+
+    @Test
+    void appendsAfterCloseFail() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(directory, 1024);
+        wal.close();
+
+        assertTrue(wal.append(bytes("late")).isCompletedExceptionally());
+    }
+
+    private static List<String> readAll(WriteAheadLog wal) throws IOException {
+        List<String> read = new ArrayList<>();
+        List<WriteAheadLog.Record> records;
+        long position = wal.getStartPosition();
+        while (!(records = wal.read(position, 10)).isEmpty()) {
+            for (WriteAheadLog.Record record : records) {
+                read.add(new String(record.payload(), StandardCharsets.UTF_8));
+                position = record.end();
+            }
+        }
+        return read;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".wal")).sorted().toList();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A log whose writes can be made to fail partway, as a full disk would.
+     */
+    private static class FaultyLog extends WriteAheadLog {
+
+        // The number of writes before the one that fails; negative for none
+        private final AtomicInteger writesBeforeFault = new AtomicInteger(-1);
+
+        FaultyLog(Path directory, long segmentBytes) throws IOException {
+            super(directory, segmentBytes);
+        }
+
+        @Override
+        void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+            if (writesBeforeFault.getAndDecrement() == 0) {
+                buffer.limit(buffer.position() + buffer.remaining() / 2);
+                super.write(channel, buffer);
+                throw new IOException("Simulated failure");
+            }
+            super.write(channel, buffer);
+        }
+    }
+
+}
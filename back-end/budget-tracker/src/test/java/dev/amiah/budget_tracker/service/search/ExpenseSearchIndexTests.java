@@ -0,0 +1,159 @@
+package dev.amiah.budget_tracker.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the matching and ordering of {@link ExpenseSearchIndex}, and that its banded edit distance agrees with
+ * the textbook one.
+ */
+class ExpenseSearchIndexTests {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final ExpenseSearchIndex index = new ExpenseSearchIndex();
+
+    @Test
+    void matchesWholeWordsAndPrefixesOfNameOrCounterparty() {
+        index.put(1, "Coffee", "Starbucks", START);
+        index.put(2, "Groceries", "Tesco", START.plusDays(1));
+
+        assertEquals(List.of(1L), index.search("coffee", false, 10));
+        assertEquals(List.of(1L), index.search("STAR", false, 10));
+        assertEquals(List.of(2L), index.search("tes", false, 10));
+        assertEquals(List.of(), index.search("bucks", false, 10));
+    }
+
+    @Test
+    void requiresEveryWordOfQuery() {
+        index.put(1, "Coffee", "Starbucks", START);
+        index.put(2, "Coffee beans", "Tesco", START.plusDays(1));
+
+        assertEquals(List.of(1L), index.search("cof star", false, 10));
+        assertEquals(List.of(2L), index.search("coffee tesco", false, 10));
+        assertEquals(List.of(), index.search("coffee nowhere", false, 10));
+    }
+
+    @Test
+    void ordersByRecencyAndStopsAtLimit() {
+        index.put(1, "Rent", null, START);
+        index.put(2, "Rent", null, START.plusMonths(2));
+        index.put(3, "Rent", null, START.plusMonths(1));
+        index.put(4, "Rent", null, null);
+
+        assertEquals(List.of(2L, 3L, 1L, 4L), index.search("rent", false, 10));
+        assertEquals(List.of(2L, 3L), index.search("rent", false, 2));
+    }
+
+    @Test
+    void listsExpenseOnceWhenSeveralWordsMatch() {
+        index.put(1, "Star", "Starbucks", START);
+
+        assertEquals(List.of(1L), index.search("sta", false, 10));
+    }
+
+    @Test
+    void fuzzyMatchesTypos() {
+        index.put(1, "Coffee", "Starbucks", START);
+        index.put(2, "Electricity", null, START.plusDays(1));
+
+        assertEquals(List.of(), index.search("cofee", false, 10));
+        assertEquals(List.of(1L), index.search("cofee", true, 10));
+        assertEquals(List.of(2L), index.search("electrcity", true, 10));
+        assertEquals(List.of(2L), index.search("elcetricity", true, 10));
+        // Too short to tolerate a typo
+        assertEquals(List.of(), index.search("cff", true, 10));
+    }
+
+    @Test
+    void putReplacesAndRemoveForgets() {
+        index.put(1, "Coffee", null, START);
+        index.put(1, "Tea", null, START);
+
+        assertEquals(List.of(), index.search("coffee", false, 10));
+        assertEquals(List.of(1L), index.search("tea", false, 10));
+        assertEquals(1, index.size());
+
+        index.remove(1);
+        index.remove(1);
+
+        assertEquals(List.of(), index.search("tea", false, 10));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void reusesOrdinalsOfRemovedExpenses() {
+        for (long id = 0; id < 5000; id++) {
+            index.put(id, "Expense " + id, "Shop", START.plusMinutes(id));
+        }
+        for (long id = 0; id < 5000; id += 2) {
+            index.remove(id);
+        }
+        for (long id = 5000; id < 7500; id++) {
+            index.put(id, "Expense " + id, "Shop", START.plusMinutes(id));
+        }
+
+        List<Long> results = index.search("shop", false, 3);
+        assertEquals(List.of(7499L, 7498L, 7497L), results);
+        assertEquals(List.of(4999L), index.search("4999", false, 10));
+        assertEquals(List.of(), index.search("4998", false, 10));
+        assertEquals(5000, index.size());
+    }
+
+    @Test
+    void bandedEditDistanceMatchesLevenshtein() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            String a = randomWord(random);
+            String b = randomWord(random);
+            int distance = levenshtein(a, b);
+
+            for (int max = 0; max <= 3; max++) {
+                int m = max;
+                assertEquals(distance <= max, SearchText.withinEditDistance(a, b, max),
+                        () -> a + " vs " + b + " within " + m + ", distance " + distance);
+            }
+        }
+    }
+
+    @Test
+    void tokenizeSplitsAndLowercases() {
+        assertEquals(List.of("café", "au", "lait", "7", "eleven"),
+                SearchText.tokenize("Café au-lait", "7-Eleven, café"));
+        assertTrue(SearchText.tokenize(null, " -- ").isEmpty());
+    }
+
+    private static String randomWord(Random random) {
+        // A small alphabet makes close words likely
+        char[] word = new char[random.nextInt(9)];
+        for (int i = 0; i < word.length; i++) {
+            word[i] = (char) ('a' + random.nextInt(4));
+        }
+        return new String(word);
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(d[i - 1][j - 1] + cost, Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1));
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+}
@@ -0,0 +1,120 @@
+package dev.amiah.budget_tracker.service.statement;
+
+import dev.amiah.budget_tracker.exception.StatementParseException;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.ImportColumnMapping;
+import dev.amiah.budget_tracker.model.data_type.ExpenseCategory;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that {@link CsvStatementParser} handles quoted fields, the ways banks write signs, and skips past records
+ * with a bad amount or time.
+ */
+class CsvStatementParserTests {
+
+    @Test
+    void readsQuotedDelimitersQuotesAndLineBreaks() throws IOException {
+        CsvStatementParser parser = parser("""
+                name,amount,time,counterparty,category
+                "Lunch, with tax",-12.50,2024-03-01,"The ""Corner"" Cafe",food
+                "Two
+                lines",1,2024-03-02,,Personal Care
+                """);
+
+        Expense lunch = parser.next();
+        assertEquals("Lunch, with tax", lunch.getName());
+        assertEquals("The \"Corner\" Cafe", lunch.getCounterparty());
+        assertEquals(Money.ofCents(-1_250), lunch.getAmount());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 0, 0), lunch.getTime());
+        assertEquals(ExpenseCategory.FOOD, lunch.getCategory());
+
+        Expense twoLines = parser.next();
+        assertEquals("Two\nlines", twoLines.getName());
+        assertNull(twoLines.getCounterparty());
+        assertEquals(ExpenseCategory.PERSONAL_CARE, twoLines.getCategory());
+
+        assertNull(parser.next());
+    }
+
+    @Test
+    void readsSignsSymbolsAndSeparators() throws IOException {
+        CsvStatementParser parser = parser("""
+                name,amount,time
+                a,-5,2024-01-01
+                b,+5,2024-01-01
+                c,(1234.56),2024-01-01
+                d,"$1,234.56",2024-01-01
+                e, -0.005 ,2024-01-01
+                """);
+
+        assertEquals(Money.ofCents(-500), parser.next().getAmount());
+        assertEquals(Money.ofCents(500), parser.next().getAmount());
+        assertEquals(Money.ofCents(-123_456), parser.next().getAmount());
+        assertEquals(Money.ofCents(123_456), parser.next().getAmount());
+        // Half a cent rounds away from zero
+        assertEquals(Money.ofCents(-1), parser.next().getAmount());
+    }
+
+    @Test
+    void skipsPastBadAmountsAndTimes() throws IOException {
+        CsvStatementParser parser = parser("""
+                name,amount,time
+                a,twelve,2024-01-01
+                b,1,2024-02-30
+                c,1,yesterday
+                d,1e999,2024-01-01
+
+                e,7,2024-01-01
+                """);
+
+        assertEquals("Record 1: Invalid amount 'twelve'", assertThrows(StatementParseException.class, parser::next).getMessage());
+        assertEquals("Record 2: Invalid time '2024-02-30'", assertThrows(StatementParseException.class, parser::next).getMessage());
+        assertThrows(StatementParseException.class, parser::next);
+        assertThrows(StatementParseException.class, parser::next);
+        // The blank line is not a record
+        Expense last = parser.next();
+        assertEquals("e", last.getName());
+        assertEquals(Money.ofCents(700), last.getAmount());
+        assertNull(parser.next());
+    }
+
+    @Test
+    void usesMappedColumnsAndDelimiter() throws IOException {
+        ImportColumnMapping mapping = new ImportColumnMapping();
+        mapping.setAmountColumn("Betrag");
+        mapping.setTimeColumn("Datum");
+        mapping.setNameColumn("Text");
+        mapping.setDatePattern("dd.MM.uuuu HH:mm");
+        mapping.setDelimiter(";");
+
+        CsvStatementParser parser = new CsvStatementParser(new StringReader("""
+                \uFEFFdatum;TEXT;betrag
+                31.12.2023 18:30;Feuerwerk;-49.99
+                """), mapping);
+
+        Expense expense = parser.next();
+        assertEquals("Feuerwerk", expense.getName());
+        assertEquals(LocalDateTime.of(2023, 12, 31, 18, 30), expense.getTime());
+    }
+
+    @Test
+    void rejectsHeaderWithoutRequiredColumns() {
+        assertThrows(IllegalArgumentException.class, () -> parser("name,time\n"));
+        assertThrows(IllegalArgumentException.class, () -> parser("name,amount\n"));
+        assertThrows(IOException.class, () -> parser(""));
+    }
+
+    private static CsvStatementParser parser(String csv) throws IOException {
+        return new CsvStatementParser(new StringReader(csv), new ImportColumnMapping());
+    }
+
+}
@@ -0,0 +1,99 @@
+package dev.amiah.budget_tracker.service.statement;
+
+import dev.amiah.budget_tracker.exception.StatementParseException;
+import dev.amiah.budget_tracker.model.Expense;
+import dev.amiah.budget_tracker.model.data_type.Money;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Checks that {@link OfxStatementParser} reads both SGML and XML statements, and skips past transactions with a
+ * bad amount or posting date.
+ */
+class OfxStatementParserTests {
+
+    @Test
+    void readsSgmlWithoutClosingTags() throws IOException {
+        OfxStatementParser parser = parser("""
+                OFXHEADER:100
+                DATA:OFXSGML
+
+                <OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>
+                <STMTTRN>
+                <TRNTYPE>DEBIT
+                <DTPOSTED>20240315093000.000[-5:EST]
+                <TRNAMT>-42.10
+                <NAME>Hardware &amp; Tools
+                <MEMO>Shelves
+                </STMTTRN>
+                <STMTTRN>
+                <DTPOSTED>20240316
+                <TRNAMT>+1000
+                <PAYEE>Employer
+                </STMTTRN>
+                </BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>
+                """);
+
+        Expense shelves = parser.next();
+        assertEquals("Shelves", shelves.getName());
+        assertEquals("Hardware & Tools", shelves.getCounterparty());
+        assertEquals(Money.ofCents(-4_210), shelves.getAmount());
+        assertEquals(LocalDateTime.of(2024, 3, 15, 9, 30), shelves.getTime());
+
+        Expense salary = parser.next();
+        assertEquals("Employer", salary.getName());
+        assertEquals(Money.ofCents(100_000), salary.getAmount());
+        assertEquals(LocalDateTime.of(2024, 3, 16, 0, 0), salary.getTime());
+
+        assertNull(parser.next());
+    }
+
+    @Test
+    void readsXml() throws IOException {
+        OfxStatementParser parser = parser("""
+                <?xml version="1.0"?>
+                <OFX><STMTTRN><DTPOSTED>20231231</DTPOSTED><TRNAMT>(3.50)</TRNAMT><NAME>Kiosk</NAME></STMTTRN></OFX>
+                """);
+
+        Expense expense = parser.next();
+        assertEquals("Kiosk", expense.getName());
+        assertEquals(Money.ofCents(-350), expense.getAmount());
+        assertNull(parser.next());
+    }
+
+    @Test
+    void skipsPastBadAmountsAndDates() throws IOException {
+        OfxStatementParser parser = parser("""
+                <STMTTRN><DTPOSTED>20240101<TRNAMT>ten</STMTTRN>
+                <STMTTRN><DTPOSTED>20240230<TRNAMT>1</STMTTRN>
+                <STMTTRN><DTPOSTED>20240101250000<TRNAMT>1</STMTTRN>
+                <STMTTRN><DTPOSTED>2024010112ab00<TRNAMT>1</STMTTRN>
+                <STMTTRN><DTPOSTED>2024<TRNAMT>1</STMTTRN>
+                <STMTTRN><TRNAMT>1</STMTTRN>
+                <STMTTRN><DTPOSTED>20240101<TRNAMT>2<NAME>Good</STMTTRN>
+                """);
+
+        assertEquals("Record 1: Invalid TRNAMT 'ten'", assertThrows(StatementParseException.class, parser::next).getMessage());
+        assertEquals("Record 2: Invalid DTPOSTED '20240230'", assertThrows(StatementParseException.class, parser::next).getMessage());
+        // An hour of 25, letters in the time, and a truncated date
+        assertThrows(StatementParseException.class, parser::next);
+        assertThrows(StatementParseException.class, parser::next);
+        assertThrows(StatementParseException.class, parser::next);
+        assertEquals("Record 6: Missing DTPOSTED", assertThrows(StatementParseException.class, parser::next).getMessage());
+
+        assertEquals("Good", parser.next().getName());
+        assertNull(parser.next());
+    }
+
+    private static OfxStatementParser parser(String ofx) {
+        return new OfxStatementParser(new StringReader(ofx));
+    }
+
+}
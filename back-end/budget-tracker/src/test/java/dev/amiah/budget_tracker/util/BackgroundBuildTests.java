@@ -0,0 +1,82 @@
+package dev.amiah.budget_tracker.util;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Checks that {@link BackgroundBuild} holds back changes until the build finishes, and runs a failed build again
+ * without replaying the changes its scan has already seen.
+ */
+class BackgroundBuildTests {
+
+    private final TaskScheduler scheduler = mock(TaskScheduler.class);
+    private final AtomicReference<BackgroundBuild<String>> build = new AtomicReference<>();
+    private final List<String> data = new ArrayList<>();
+    private final AtomicInteger attempts = new AtomicInteger();
+
+    @Test
+    void holdsChangesUntilBuilt() {
+        build.set(new BackgroundBuild<>("test", new SyncTaskExecutor(), scheduler, () -> {
+            data.add("row");
+            build.get().apply("during scan");
+            assertEquals(List.of("row"), data);
+        }, data::add));
+
+        // Committed before the scan starts, so the scan sees it
+        build.get().apply("before start");
+        assertFalse(build.get().isReady());
+
+        build.get().start();
+        assertTrue(build.get().isReady());
+        assertEquals(List.of("row", "during scan"), data);
+
+        build.get().apply("after");
+        assertEquals(List.of("row", "during scan", "after"), data);
+        verify(scheduler, never()).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    void retriesFailedBuildFromEmpty() {
+        build.set(new BackgroundBuild<>("test", new SyncTaskExecutor(), scheduler, () -> {
+            data.clear();
+            data.add("row");
+            build.get().apply("during attempt " + attempts.get());
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("Simulated failure");
+            }
+        }, data::add));
+
+        build.get().start();
+        assertFalse(build.get().isReady());
+
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(retry.capture(), any(Instant.class));
+        // Starting again does nothing while a retry is pending
+        build.get().start();
+        assertEquals(1, attempts.get());
+
+        retry.getValue().run();
+        assertTrue(build.get().isReady());
+        // Only the change held during the attempt that succeeded is applied
+        assertEquals(List.of("row", "during attempt 1"), data);
+        verify(scheduler, times(1)).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+}